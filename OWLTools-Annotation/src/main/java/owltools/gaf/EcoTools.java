@@ -25,6 +25,7 @@ import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
 
 import com.google.common.base.Optional;
 
+import owltools.gaf.eco.EcoClosureIndex;
 import owltools.gaf.eco.EcoMapper;
 import owltools.gaf.eco.EcoMapperFactory;
 import owltools.gaf.eco.TraversingEcoMapper;
@@ -45,8 +46,10 @@ public class EcoTools {
 	private final OWLGraphWrapper eco;
 	private final OWLReasoner reasoner;
 	private final boolean disposeReasonerP;
+	private final EcoClosureIndex closureIndex;
 	
-	private final Map<String, Set<OWLClass>> mappingCache = new HashMap<String, Set<OWLClass>>();
+	// GO code to ECO classes, created once on first use
+	private volatile Map<String, Set<OWLClass>> codeIndex = null;
 	
 	/**
 	 * Create an instance for the given graph and reasoner.
@@ -88,6 +91,7 @@ public class EcoTools {
 		
 		this.reasoner = reasoner;
 		this.disposeReasonerP = disposeReasoner;
+		this.closureIndex = new EcoClosureIndex(reasoner);
 	}
 	
 	/**
@@ -113,6 +117,7 @@ public class EcoTools {
 		final OWLOntology sourceOntology = eco.getSourceOntology();
 		reasoner = factory.createReasoner(sourceOntology);
 		disposeReasonerP = true;
+		closureIndex = new EcoClosureIndex(reasoner);
 	}
 	
 	/**
@@ -125,41 +130,57 @@ public class EcoTools {
 		if (goCode == null) {
 			return Collections.emptySet();
 		}
-		Set<OWLClass> classes = mappingCache.get(goCode);
+		Set<OWLClass> classes = getCodeIndex().get(goCode);
 		if (classes == null) {
-			// only synchronize for write operations
-			synchronized (mappingCache) {
-				final Set<String> goXref = createGoEcoXrefs(goCode);
-				classes = new HashSet<OWLClass>();	
-				Set<OWLObject> allOWLObjects = eco.getAllOWLObjects();
-				for (OWLObject owlObject : allOWLObjects) {
-					if (eco.isObsolete(owlObject)) {
-						continue;
-					}
-					
-					if (owlObject instanceof OWLClass) {
-						
-						List<ISynonym> synonyms = eco.getOBOSynonyms(owlObject);
-						if (synonyms != null && !synonyms.isEmpty()) {
-							for (ISynonym synonym : synonyms) {
-								if (goCode.equals(synonym.getLabel())) {
-									if (hasGoEcoXref(goXref, synonym)) {
-										classes.add((OWLClass) owlObject);
-										break;
-									}
-								}
+			return Collections.emptySet();
+		}
+		return classes;
+	}
+	
+	private Map<String, Set<OWLClass>> getCodeIndex() {
+		Map<String, Set<OWLClass>> index = codeIndex;
+		if (index == null) {
+			synchronized (this) {
+				index = codeIndex;
+				if (index == null) {
+					index = createCodeIndex();
+					codeIndex = index;
+				}
+			}
+		}
+		return index;
+	}
+	
+	/**
+	 * Map each synonym with a GO or GOECO xref for its label to the ECO
+	 * classes, in one pass over all objects.
+	 * 
+	 * @return unmodifiable map
+	 */
+	private Map<String, Set<OWLClass>> createCodeIndex() {
+		Map<String, Set<OWLClass>> index = new HashMap<String, Set<OWLClass>>();
+		for (OWLObject owlObject : eco.getAllOWLObjects()) {
+			if (owlObject instanceof OWLClass && eco.isObsolete(owlObject) == false) {
+				List<ISynonym> synonyms = eco.getOBOSynonyms(owlObject);
+				if (synonyms != null && !synonyms.isEmpty()) {
+					for (ISynonym synonym : synonyms) {
+						final String label = synonym.getLabel();
+						if (label != null && hasGoEcoXref(createGoEcoXrefs(label), synonym)) {
+							Set<OWLClass> classes = index.get(label);
+							if (classes == null) {
+								classes = new HashSet<OWLClass>();
+								index.put(label, classes);
 							}
+							classes.add((OWLClass) owlObject);
 						}
 					}
 				}
-				if (classes.isEmpty()) {
-					classes = Collections.emptySet();
-				}
-				mappingCache.put(goCode, classes);
-
 			}
 		}
-		return classes;
+		for (Map.Entry<String, Set<OWLClass>> entry : index.entrySet()) {
+			entry.setValue(Collections.unmodifiableSet(entry.getValue()));
+		}
+		return Collections.unmodifiableMap(index);
 	}
 	
 	static Set<String> createGoEcoXrefs(String code) {
@@ -182,69 +203,33 @@ public class EcoTools {
 	}
 	
 	/**
-	 * Wrapper method for the reasoner.
+	 * Wrapper method for the reasoner, the results are memoized.
 	 * 
 	 * @param sources
 	 * @param reflexive
 	 * @return set of super classes
 	 */
 	public Set<OWLClass> getAncestors(Set<OWLClass> sources, boolean reflexive) {
-		if (sources == null || sources.isEmpty()) {
-			return Collections.emptySet();
-		}
-		Set<OWLClass> result = new HashSet<OWLClass>();
-		for (OWLClass source : sources) {
-			Set<OWLClass> set = reasoner.getSuperClasses(source, false).getFlattened();
-			for (OWLClass cls : set) {
-				if (cls.isBuiltIn() == false) {
-					result.add(cls);
-				}
-			}
-		}
-		if (reflexive) {
-			result.addAll(sources);
-		}
-		if (result.isEmpty()) {
-			return Collections.emptySet();
-		}
-		return result;
-		
+		return closureIndex.getAncestors(sources, reflexive);
 	}
 	
 	/**
-	 * Wrapper method for the reasoner
+	 * Wrapper method for the reasoner, the results are memoized.
 	 * 
 	 * @param sources
 	 * @param reflexive
 	 * @return set of sub classes
 	 */
 	public Set<OWLClass> getDescendents(Set<OWLClass> sources, boolean reflexive) {
-		if (sources == null || sources.isEmpty()) {
-			return Collections.emptySet();
-		}
-		Set<OWLClass> result = new HashSet<OWLClass>();
-		for (OWLClass source : sources) {
-			Set<OWLClass> set = reasoner.getSubClasses(source, false).getFlattened();
-			for (OWLClass cls : set) {
-				if (cls.isBuiltIn() == false) {
-					result.add(cls);
-				}
-			}
-		}
-		if (reflexive) {
-			result.addAll(sources);
-		}
-		if (result.isEmpty()) {
-			return Collections.emptySet();
-		}
-		return result;
+		return closureIndex.getDescendents(sources, reflexive);
 	}
 	
 	/**
 	 * Clean up the internal data structures, usually done as last operation.
 	 */
 	public void dispose() {
-		mappingCache.clear();
+		codeIndex = null;
+		closureIndex.clear();
 		if (disposeReasonerP) {
 			reasoner.dispose();
 		}
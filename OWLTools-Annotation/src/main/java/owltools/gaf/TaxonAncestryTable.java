@@ -0,0 +1,205 @@
+package owltools.gaf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.parameters.Imports;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+import owltools.graph.OWLGraphWrapper;
+
+/**
+ * Immutable table of the inferred taxon ancestors, for repeated closure
+ * lookups. Each taxon has a dense index, the ancestors are stored as index
+ * arrays. Identifiers, labels and the membership in an optional subset are
+ * stored once per taxon.
+ * <p>
+ * The ancestors match {@link TaxonTools#getAncestors(OWLClass, boolean)}
+ * for the reasoner used to create the table. A table can be shared
+ * between threads.
+ */
+public class TaxonAncestryTable {
+
+	private static final Logger LOG = Logger.getLogger(TaxonAncestryTable.class);
+
+	private static final int[] EMPTY = new int[0];
+
+	private final OWLClass[] taxa;
+	private final String[] ids;
+	private final String[] labels;
+	private final int[][] ancestors;
+	private final BitSet inSubset;
+	private final String subsetName;
+	private final Map<OWLClass, Integer> index;
+
+	private TaxonAncestryTable(OWLClass[] taxa, String[] ids, String[] labels, int[][] ancestors,
+			BitSet inSubset, String subsetName) {
+		this.taxa = taxa;
+		this.ids = ids;
+		this.labels = labels;
+		this.ancestors = ancestors;
+		this.inSubset = inSubset;
+		this.subsetName = subsetName;
+		this.index = new HashMap<OWLClass, Integer>();
+		for (int i = 0; i < taxa.length; i++) {
+			index.put(taxa[i], i);
+		}
+	}
+
+	/**
+	 * Create a table for all NCBITaxon classes in the ontologies of the
+	 * reasoner and their ancestors.
+	 *
+	 * @param reasoner
+	 * @param graph used for the identifiers, labels and subsets
+	 * @param subsetName subset for {@link #isInSubset(int)} or null
+	 * @return table
+	 */
+	public static TaxonAncestryTable create(OWLReasoner reasoner, OWLGraphWrapper graph, String subsetName) {
+		long t = System.currentTimeMillis();
+		List<OWLClass> seeds = new ArrayList<OWLClass>();
+		for (OWLClass cls : reasoner.getRootOntology().getClassesInSignature(Imports.INCLUDED)) {
+			if (cls.isBuiltIn() == false && graph.getIdentifier(cls).startsWith("NCBITaxon")) {
+				seeds.add(cls);
+			}
+		}
+		Collections.sort(seeds);
+		Builder builder = new Builder(reasoner);
+		for (OWLClass seed : seeds) {
+			builder.getAncestors(seed);
+		}
+		final int n = builder.taxa.size();
+		OWLClass[] taxa = builder.taxa.toArray(new OWLClass[n]);
+		String[] ids = new String[n];
+		String[] labels = new String[n];
+		int[][] ancestors = builder.ancestors.toArray(new int[n][]);
+		BitSet inSubset = new BitSet(n);
+		for (int i = 0; i < n; i++) {
+			ids[i] = graph.getIdentifier(taxa[i]);
+			labels[i] = graph.getLabel(taxa[i]);
+			if (subsetName != null && graph.getSubsets(taxa[i]).contains(subsetName)) {
+				inSubset.set(i);
+			}
+		}
+		LOG.info("Created taxon ancestry table with "+n+" taxa in "+(System.currentTimeMillis() - t)+" ms");
+		return new TaxonAncestryTable(taxa, ids, labels, ancestors, inSubset, subsetName);
+	}
+
+	/**
+	 * Collects the ancestors using the direct super classes, each taxon is
+	 * only queried once.
+	 */
+	private static class Builder {
+
+		private final OWLReasoner reasoner;
+		private final List<OWLClass> taxa = new ArrayList<OWLClass>();
+		private final List<int[]> ancestors = new ArrayList<int[]>();
+		private final Map<OWLClass, Integer> positions = new HashMap<OWLClass, Integer>();
+
+		Builder(OWLReasoner reasoner) {
+			this.reasoner = reasoner;
+		}
+
+		int getAncestors(OWLClass cls) {
+			Integer position = positions.get(cls);
+			if (position != null) {
+				return position;
+			}
+			position = taxa.size();
+			positions.put(cls, position);
+			taxa.add(cls);
+			ancestors.add(EMPTY);
+			BitSet closure = new BitSet();
+			for (OWLClass parent : reasoner.getSuperClasses(cls, true).getFlattened()) {
+				if (parent.isBuiltIn()) {
+					continue;
+				}
+				int p = getAncestors(parent);
+				closure.set(p);
+				for (int a : ancestors.get(p)) {
+					closure.set(a);
+				}
+			}
+			int[] result = new int[closure.cardinality()];
+			int k = 0;
+			for (int i = closure.nextSetBit(0); i >= 0; i = closure.nextSetBit(i + 1)) {
+				result[k++] = i;
+			}
+			ancestors.set(position, result);
+			return position;
+		}
+	}
+
+	/**
+	 * @return number of taxa
+	 */
+	public int size() {
+		return taxa.length;
+	}
+
+	/**
+	 * @param cls
+	 * @return index or -1, if the class is not in the table
+	 */
+	public int getIndex(OWLClass cls) {
+		Integer i = index.get(cls);
+		return i == null ? -1 : i;
+	}
+
+	public OWLClass getTaxon(int i) {
+		return taxa[i];
+	}
+
+	public String getId(int i) {
+		return ids[i];
+	}
+
+	public String getLabel(int i) {
+		return labels[i];
+	}
+
+	/**
+	 * @param i
+	 * @return true, if the taxon is in the subset of the table
+	 * @see #getSubsetName()
+	 */
+	public boolean isInSubset(int i) {
+		return inSubset.get(i);
+	}
+
+	public String getSubsetName() {
+		return subsetName;
+	}
+
+	/**
+	 * @param i
+	 * @return number of non-reflexive ancestors
+	 */
+	public int getAncestorCount(int i) {
+		return ancestors[i].length;
+	}
+
+	/**
+	 * @param i taxon index
+	 * @param k position in the ancestors, from 0 to {@link #getAncestorCount(int)}
+	 * @return index of the ancestor
+	 */
+	public int getAncestor(int i, int k) {
+		return ancestors[i][k];
+	}
+
+	/**
+	 * @param i
+	 * @return copy of the non-reflexive ancestor indices
+	 */
+	public int[] getAncestors(int i) {
+		return Arrays.copyOf(ancestors[i], ancestors[i].length);
+	}
+}
@@ -1,5 +1,6 @@
 package owltools.gaf;
 
+import org.apache.commons.lang3.StringUtils;
 import org.semanticweb.owlapi.model.OWLClass;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.semanticweb.owlapi.model.UnknownOWLOntologyException;
@@ -9,6 +10,8 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
+import owltools.graph.OWLGraphWrapper;
+
 /**
  * Methods to simplify the work with the taxons. 
  */
@@ -18,6 +21,7 @@ public class TaxonTools {
 	
 	private final OWLReasoner reasoner;
 	private final boolean disposeReasonerP;
+	private volatile TaxonAncestryTable ancestryTable = null;
 	
 	public final static String NCBI = "NCBITaxon:";
 	public static final String TAXON_PREFIX = "taxon:";
@@ -41,6 +45,24 @@ public class TaxonTools {
 		this.disposeReasonerP = disposeReasoner;
 	}
 			
+	/**
+	 * Get the ancestry table for the reasoner. The table is created on the
+	 * first call and re-created, if a different subset is requested.
+	 * Once created, the table is also used for {@link #getAncestors(OWLClass, boolean)}.
+	 * 
+	 * @param graph used for the identifiers, labels and subsets
+	 * @param subsetName or null
+	 * @return table
+	 */
+	public synchronized TaxonAncestryTable getAncestryTable(OWLGraphWrapper graph, String subsetName) {
+		TaxonAncestryTable table = ancestryTable;
+		if (table == null || !StringUtils.equals(subsetName, table.getSubsetName())) {
+			table = TaxonAncestryTable.create(reasoner, graph, subsetName);
+			ancestryTable = table;
+		}
+		return table;
+	}
+
 	/**
 	 * Wrapper method for the reasoner.
 	 * 
@@ -53,10 +75,20 @@ public class TaxonTools {
 			return Collections.emptySet();
 		}
 		Set<OWLClass> result = new HashSet<OWLClass>();
-		Set<OWLClass> set = reasoner.getSuperClasses(taxonClass, false).getFlattened();
-		for (OWLClass cls : set) {
-			if (cls.isBuiltIn() == false) {
-				result.add(cls);
+		TaxonAncestryTable table = ancestryTable;
+		int i = table == null ? -1 : table.getIndex(taxonClass);
+		if (i >= 0) {
+			final int count = table.getAncestorCount(i);
+			for (int k = 0; k < count; k++) {
+				result.add(table.getTaxon(table.getAncestor(i, k)));
+			}
+		}
+		else {
+			Set<OWLClass> set = reasoner.getSuperClasses(taxonClass, false).getFlattened();
+			for (OWLClass cls : set) {
+				if (cls.isBuiltIn() == false) {
+					result.add(cls);
+				}
 			}
 		}
 		if (reflexive) {
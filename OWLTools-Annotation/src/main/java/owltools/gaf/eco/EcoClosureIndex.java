@@ -0,0 +1,143 @@
+package owltools.gaf.eco;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.reasoner.Node;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+/**
+ * Memoized super and sub classes of ECO classes. The inferred class
+ * hierarchy is read from the reasoner once, in the constructor. The
+ * closures are computed from this copy, the reasoner is not used
+ * afterwards. The index can be shared between threads.
+ */
+public class EcoClosureIndex {
+
+	private final Map<OWLClass, Set<OWLClass>> directSuperClasses = new HashMap<OWLClass, Set<OWLClass>>();
+	private final Map<OWLClass, Set<OWLClass>> directSubClasses = new HashMap<OWLClass, Set<OWLClass>>();
+	private final Map<OWLClass, Set<OWLClass>> ancestors = new ConcurrentHashMap<OWLClass, Set<OWLClass>>();
+	private final Map<OWLClass, Set<OWLClass>> descendants = new ConcurrentHashMap<OWLClass, Set<OWLClass>>();
+
+	/**
+	 * Create the index from the class hierarchy of the reasoner. The
+	 * reasoner is only queried during the construction.
+	 *
+	 * @param reasoner
+	 */
+	public EcoClosureIndex(OWLReasoner reasoner) {
+		Set<Node<OWLClass>> visited = new HashSet<Node<OWLClass>>();
+		Deque<Node<OWLClass>> queue = new ArrayDeque<Node<OWLClass>>();
+		Node<OWLClass> top = reasoner.getTopClassNode();
+		visited.add(top);
+		queue.add(top);
+		while (queue.isEmpty() == false) {
+			Node<OWLClass> node = queue.remove();
+			if (node.isBottomNode()) {
+				continue;
+			}
+			for (Node<OWLClass> sub : reasoner.getSubClasses(node.getRepresentativeElement(), true)) {
+				for (OWLClass subClass : sub) {
+					for (OWLClass superClass : node) {
+						addEdge(directSuperClasses, subClass, superClass);
+						addEdge(directSubClasses, superClass, subClass);
+					}
+				}
+				if (visited.add(sub)) {
+					queue.add(sub);
+				}
+			}
+		}
+	}
+
+	private static void addEdge(Map<OWLClass, Set<OWLClass>> edges, OWLClass source, OWLClass target) {
+		Set<OWLClass> targets = edges.get(source);
+		if (targets == null) {
+			targets = new HashSet<OWLClass>();
+			edges.put(source, targets);
+		}
+		targets.add(target);
+	}
+
+	/**
+	 * @param sources
+	 * @param reflexive
+	 * @return set of super classes
+	 */
+	public Set<OWLClass> getAncestors(Set<OWLClass> sources, boolean reflexive) {
+		return getClosure(sources, reflexive, true);
+	}
+
+	/**
+	 * @param sources
+	 * @param reflexive
+	 * @return set of sub classes
+	 */
+	public Set<OWLClass> getDescendents(Set<OWLClass> sources, boolean reflexive) {
+		return getClosure(sources, reflexive, false);
+	}
+
+	private Set<OWLClass> getClosure(Set<OWLClass> sources, boolean reflexive, boolean up) {
+		if (sources == null || sources.isEmpty()) {
+			return Collections.emptySet();
+		}
+		Set<OWLClass> result = new HashSet<OWLClass>();
+		for (OWLClass source : sources) {
+			result.addAll(getClosure(source, up));
+		}
+		if (reflexive) {
+			result.addAll(sources);
+		}
+		if (result.isEmpty()) {
+			return Collections.emptySet();
+		}
+		return result;
+	}
+
+	private Set<OWLClass> getClosure(OWLClass source, boolean up) {
+		final Map<OWLClass, Set<OWLClass>> cache = up ? ancestors : descendants;
+		Set<OWLClass> closure = cache.get(source);
+		if (closure == null) {
+			final Map<OWLClass, Set<OWLClass>> edges = up ? directSuperClasses : directSubClasses;
+			Set<OWLClass> set = new HashSet<OWLClass>();
+			Deque<OWLClass> queue = new ArrayDeque<OWLClass>();
+			queue.add(source);
+			while (queue.isEmpty() == false) {
+				Set<OWLClass> targets = edges.get(queue.remove());
+				if (targets != null) {
+					for (OWLClass target : targets) {
+						if (set.add(target)) {
+							queue.add(target);
+						}
+					}
+				}
+			}
+			// same as the reasoner, without equivalent and built-in classes
+			closure = new HashSet<OWLClass>();
+			for (OWLClass cls : set) {
+				if (cls.isBuiltIn() == false && cls.equals(source) == false) {
+					closure.add(cls);
+				}
+			}
+			closure = Collections.unmodifiableSet(closure);
+			cache.put(source, closure);
+		}
+		return closure;
+	}
+
+	/**
+	 * Remove all memoized closures. The class hierarchy is kept, create a
+	 * new index after changes to the ontology.
+	 */
+	public void clear() {
+		ancestors.clear();
+		descendants.clear();
+	}
+}
@@ -1,9 +1,7 @@
 package owltools.gaf.eco;
 
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
 
 import org.obolibrary.obo2owl.Owl2Obo;
@@ -16,36 +14,18 @@ public class TraversingEcoMapperImpl extends EcoMapperImpl implements Traversing
 
 	private final OWLReasoner reasoner;
 	private final boolean disposeReasoner;
-	
-	private final Map<String, Set<OWLClass>> mappingCache = new HashMap<String, Set<OWLClass>>();
+	private final EcoClosureIndex closureIndex;
 	
 	TraversingEcoMapperImpl(EcoMappings mappings, OWLReasoner reasoner,  boolean disposeReasoner) {
 		super(mappings);
 		this.reasoner = reasoner;
 		this.disposeReasoner = disposeReasoner;
+		this.closureIndex = new EcoClosureIndex(reasoner);
 	}
 
 	@Override
 	public Set<OWLClass> getAncestors(Set<OWLClass> sources, boolean reflexive) {
-		if (sources == null || sources.isEmpty()) {
-			return Collections.emptySet();
-		}
-		Set<OWLClass> result = new HashSet<OWLClass>();
-		for (OWLClass source : sources) {
-			Set<OWLClass> set = reasoner.getSuperClasses(source, false).getFlattened();
-			for (OWLClass cls : set) {
-				if (cls.isBuiltIn() == false) {
-					result.add(cls);
-				}
-			}
-		}
-		if (reflexive) {
-			result.addAll(sources);
-		}
-		if (result.isEmpty()) {
-			return Collections.emptySet();
-		}
-		return result;
+		return closureIndex.getAncestors(sources, reflexive);
 	}
 
 	@Override
@@ -55,25 +35,7 @@ public class TraversingEcoMapperImpl extends EcoMapperImpl implements Traversing
 
 	@Override
 	public Set<OWLClass> getDescendents(Set<OWLClass> sources, boolean reflexive) {
-		if (sources == null || sources.isEmpty()) {
-			return Collections.emptySet();
-		}
-		Set<OWLClass> result = new HashSet<OWLClass>();
-		for (OWLClass source : sources) {
-			Set<OWLClass> set = reasoner.getSubClasses(source, false).getFlattened();
-			for (OWLClass cls : set) {
-				if (cls.isBuiltIn() == false) {
-					result.add(cls);
-				}
-			}
-		}
-		if (reflexive) {
-			result.addAll(sources);
-		}
-		if (result.isEmpty()) {
-			return Collections.emptySet();
-		}
-		return result;
+		return closureIndex.getDescendents(sources, reflexive);
 	}
 
 	@Override
@@ -114,7 +76,7 @@ public class TraversingEcoMapperImpl extends EcoMapperImpl implements Traversing
 
 	@Override
 	public void dispose() {
-		mappingCache.clear();
+		closureIndex.clear();
 		if (disposeReasoner) {
 			reasoner.dispose();
 		}
@@ -1,6 +1,12 @@
 package owltools.gaf.inference;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Logger;
 import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
@@ -17,6 +23,12 @@ import owltools.graph.OWLGraphEdge;
 import owltools.graph.OWLGraphWrapper;
 
 /**
+ * The constraints of each class, including the ones inherited over the
+ * closure, are compiled once into bit sets over the constraint taxa. The
+ * ancestry of each test taxon is compiled into bit sets over the same
+ * taxa. A check of a class and taxon is then a test of these bit sets. The
+ * compiled data is memoized, an engine can be shared between threads.
+ * 
  * @author cjm
  * @deprecated There is now a taxon checks using an OWL resoner. This
  *             implementation may over-report violations, i.e. taxon constrains
@@ -29,6 +41,83 @@ public class TaxonConstraintsEngine {
 
 	private OWLGraphWrapper graph;
 
+	// taxa used in constraints, the position is the bit in the bit sets
+	private final List<OWLClass> constraintTaxa = new ArrayList<OWLClass>();
+	private final Map<OWLClass, Integer> constraintTaxaIndex = new HashMap<OWLClass, Integer>();
+
+	private final Map<OWLClass, Set<OWLObject>> constraintTaxaAncestors = new ConcurrentHashMap<OWLClass, Set<OWLObject>>();
+	private final Map<OWLObject, Constraints> localConstraints = new ConcurrentHashMap<OWLObject, Constraints>();
+	private final Map<OWLClass, Constraints> classConstraints = new ConcurrentHashMap<OWLClass, Constraints>();
+	private final Map<OWLClass, TaxonAncestry> taxonAncestries = new ConcurrentHashMap<OWLClass, TaxonAncestry>();
+
+	/**
+	 * never_in and only_in taxon constraints as positions in the list of
+	 * constraint taxa.
+	 */
+	private static class Constraints {
+
+		final BitSet neverIn = new BitSet();
+		final BitSet onlyIn = new BitSet();
+
+		void addAll(Constraints other) {
+			neverIn.or(other.neverIn);
+			onlyIn.or(other.onlyIn);
+		}
+	}
+
+	/**
+	 * Relation of a test taxon to the constraint taxa known at the time of
+	 * creation. Taxa added later are checked individually.
+	 */
+	private class TaxonAncestry {
+
+		final OWLClass taxon;
+		final Set<OWLObject> ancestors;
+		final int size;
+		// constraint taxon is a reflexive ancestor of the taxon
+		final BitSet isAncestor = new BitSet();
+		// constraint taxon is neither an ancestor nor a descendant of the taxon
+		final BitSet isUnrelated = new BitSet();
+
+		TaxonAncestry(OWLClass taxon) {
+			this.taxon = taxon;
+			this.ancestors = graph.getAncestorsReflexive(taxon);
+			List<OWLClass> taxa = getConstraintTaxa();
+			this.size = taxa.size();
+			for (int i = 0; i < size; i++) {
+				if (isAncestor(taxa.get(i))) {
+					isAncestor.set(i);
+				}
+				else if (isDescendant(taxa.get(i)) == false) {
+					isUnrelated.set(i);
+				}
+			}
+		}
+
+		boolean isAncestor(OWLClass constraintTaxon) {
+			return ancestors.contains(constraintTaxon);
+		}
+
+		boolean isDescendant(OWLClass constraintTaxon) {
+			return getConstraintTaxonAncestors(constraintTaxon).contains(taxon);
+		}
+
+		boolean isAncestor(int i) {
+			if (i < size) {
+				return isAncestor.get(i);
+			}
+			return isAncestor(getConstraintTaxon(i));
+		}
+
+		boolean isUnrelated(int i) {
+			if (i < size) {
+				return isUnrelated.get(i);
+			}
+			OWLClass constraintTaxon = getConstraintTaxon(i);
+			return isAncestor(constraintTaxon) == false && isDescendant(constraintTaxon) == false;
+		}
+	}
+
 	public TaxonConstraintsEngine(OWLGraphWrapper graph) {
 		this.graph = graph;
 	}
@@ -51,11 +140,147 @@ public class TaxonConstraintsEngine {
 	 * @return boolean
 	 */
 	public boolean isClassApplicable(OWLClass c, OWLClass testTax) {
-		Set<OWLObject> taxAncs = graph.getAncestorsReflexive(testTax);
-		Set<OWLGraphEdge> testClsEdges = graph.getOutgoingEdgesClosure(c);
-		return isClassApplicable(c, testTax, testClsEdges, taxAncs);
+		Constraints constraints = getClassConstraints(c);
+		TaxonAncestry ancestry = getTaxonAncestry(testTax);
+		if (constraints.neverIn.length() <= ancestry.size && constraints.onlyIn.length() <= ancestry.size) {
+			if (constraints.neverIn.intersects(ancestry.isAncestor) || constraints.onlyIn.intersects(ancestry.isUnrelated)) {
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("invalid: <"+c+" "+testTax+">");
+				}
+				return false;
+			}
+			return true;
+		}
+		// constraint taxa added after the creation of the ancestry
+		for (int i = constraints.neverIn.nextSetBit(0); i >= 0; i = constraints.neverIn.nextSetBit(i + 1)) {
+			if (ancestry.isAncestor(i)) {
+				return false;
+			}
+		}
+		for (int i = constraints.onlyIn.nextSetBit(0); i >= 0; i = constraints.onlyIn.nextSetBit(i + 1)) {
+			if (ancestry.isUnrelated(i)) {
+				return false;
+			}
+		}
+		return true;
 	}
-	
+
+	private Constraints getClassConstraints(OWLClass c) {
+		Constraints constraints = classConstraints.get(c);
+		if (constraints == null) {
+			constraints = new Constraints();
+			constraints.addAll(getLocalConstraints(c));
+			for (OWLGraphEdge e : graph.getOutgoingEdgesClosure(c)) {
+				constraints.addAll(getLocalConstraints(e.getTarget()));
+			}
+			classConstraints.put(c, constraints);
+		}
+		return constraints;
+	}
+
+	private TaxonAncestry getTaxonAncestry(OWLClass taxon) {
+		TaxonAncestry ancestry = taxonAncestries.get(taxon);
+		if (ancestry == null) {
+			ancestry = new TaxonAncestry(taxon);
+			taxonAncestries.put(taxon, ancestry);
+		}
+		return ancestry;
+	}
+
+	private Set<OWLObject> getConstraintTaxonAncestors(OWLClass constraintTaxon) {
+		Set<OWLObject> ancestors = constraintTaxaAncestors.get(constraintTaxon);
+		if (ancestors == null) {
+			ancestors = graph.getAncestors(constraintTaxon);
+			constraintTaxaAncestors.put(constraintTaxon, ancestors);
+		}
+		return ancestors;
+	}
+
+	private List<OWLClass> getConstraintTaxa() {
+		synchronized (constraintTaxa) {
+			return new ArrayList<OWLClass>(constraintTaxa);
+		}
+	}
+
+	private OWLClass getConstraintTaxon(int i) {
+		synchronized (constraintTaxa) {
+			return constraintTaxa.get(i);
+		}
+	}
+
+	private int getConstraintTaxonIndex(OWLClass taxon) {
+		synchronized (constraintTaxa) {
+			Integer index = constraintTaxaIndex.get(taxon);
+			if (index == null) {
+				index = constraintTaxa.size();
+				constraintTaxa.add(taxon);
+				constraintTaxaIndex.put(taxon, index);
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * Collect the constraints asserted for the object, uses the same rules
+	 * as {@link #checkIsInvalidObject}.
+	 * 
+	 * @param tgt
+	 * @return constraints
+	 */
+	private Constraints getLocalConstraints(OWLObject tgt) {
+		Constraints constraints = localConstraints.get(tgt);
+		if (constraints != null) {
+			return constraints;
+		}
+		constraints = new Constraints();
+		if (tgt instanceof OWLEntity) {
+			for (OWLAnnotationAssertionAxiom aaa : graph.getSourceOntology().getAnnotationAssertionAxioms(((OWLEntity)tgt).getIRI())) {
+				String rid = graph.getIdentifier(aaa.getProperty());
+				if ("RO:0002161".equals(rid) || "never_in_taxon".equals(rid) || "never in taxon".equals(rid)) {
+					OWLClass taxon = graph.getOWLClass(aaa.getValue());
+					if (taxon != null) {
+						constraints.neverIn.set(getConstraintTaxonIndex(taxon));
+					}
+				}
+			}
+		}
+		if (tgt instanceof OWLClass) {
+			for (OWLDisjointClassesAxiom dca : graph.getSourceOntology().getDisjointClassesAxioms((OWLClass) tgt)) {
+				for (OWLClassExpression ce : dca.getClassExpressionsMinus((OWLClass)tgt)) {
+					if (ce instanceof OWLObjectSomeValuesFrom) {
+						String rid = graph.getIdentifier(((OWLObjectSomeValuesFrom)ce).getProperty());
+						if ("RO:0002162".equals(rid) || "in_taxon".equals(rid) || "in taxon".equals(rid)) {
+							OWLClassExpression tc = ((OWLObjectSomeValuesFrom)ce).getFiller();
+							if (tc instanceof OWLClass) {
+								constraints.neverIn.set(getConstraintTaxonIndex((OWLClass) tc));
+							}
+						}
+					}
+				}
+			}
+		}
+		for (OWLGraphEdge te : graph.getOutgoingEdges(tgt)) {
+			OWLObjectProperty tp = te.getSingleQuantifiedProperty().getProperty();
+			if (tp != null) {
+				String tpl = graph.getLabel(tp);
+				String tpid = graph.getIdentifier(tp);
+				// never_in_taxon may be encoded as a shortcut hasValue restriction
+				OWLClass restrTaxon = graph.getOWLClass(te.getTarget());
+				if (restrTaxon == null) {
+					continue;
+				}
+				if ("only_in_taxon".equals(tpl) || "only in taxon".equals(tpl) || "RO:0002160".equals(tpid)) {
+					constraints.onlyIn.set(getConstraintTaxonIndex(restrTaxon));
+				}
+				else if ("never_in_taxon".equals(tpl) || "never in taxon".equals(tpl) || "RO:0002161".equals(tpid)) {
+					constraints.neverIn.set(getConstraintTaxonIndex(restrTaxon));
+				}
+			}
+		}
+		localConstraints.put(tgt, constraints);
+		return constraints;
+	}
+
 	// we have already calculated the closure of edges from c
 	public boolean isClassApplicable(OWLClass c, OWLClass testTax, 
 			Set<OWLGraphEdge> testClsEdges, Set<OWLObject> taxAncs) {
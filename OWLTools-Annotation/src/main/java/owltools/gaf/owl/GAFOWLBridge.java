@@ -2,6 +2,7 @@ package owltools.gaf.owl;
 
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -9,6 +10,12 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 import org.obolibrary.obo2owl.Obo2OWLConstants;
@@ -47,6 +54,13 @@ public class GAFOWLBridge {
 	private boolean isGenerateIndividuals = true;
 	private boolean isBasicAboxMapping = true;
 	private boolean isSkipNotAnnotations = true;
+	private int numThreads = 1;
+	private int batchSize = 10000;
+
+	// collects the axioms of the current thread during a translate
+	private final ThreadLocal<Set<OWLAxiom>> collector = new ThreadLocal<Set<OWLAxiom>>();
+	// memoized lookups, only used during a translate
+	private volatile TranslationCache cache = null;
 
 	public static IRI GAF_LINE_NUMBER_ANNOTATION_PROPERTY_IRI = IRI.create("http://gaf/line_number");
 
@@ -153,38 +167,133 @@ public class GAFOWLBridge {
 		this.isSkipNotAnnotations = isSkipNotAnnotations;
 	}
 
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	/**
+	 * Translate the gene annotations with the given number of threads. If
+	 * larger than one, {@link #translateGeneAnnotation(GeneAnnotation)} must
+	 * be thread-safe.
+	 * 
+	 * @param numThreads
+	 */
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
 	/**
+	 * @param batchSize number of annotations or bioentities, which are
+	 * translated before their axioms are added to the target ontology
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Memoized identifiers, relations and class expressions for repeated
+	 * lookups during a translate.
+	 */
+	private static class TranslationCache {
+		final Map<String, IRI> iris = new ConcurrentHashMap<String, IRI>();
+		final Map<String, OWLObjectProperty> relations = new ConcurrentHashMap<String, OWLObjectProperty>();
+		final Map<String, String> classDescriptions = new ConcurrentHashMap<String, String>();
+		final Map<List<Object>, List<GAFDescription>> descriptions = new ConcurrentHashMap<List<Object>, List<GAFDescription>>();
+	}
+
+	/**
+	 * The axioms are added to the target ontology in batches, see
+	 * {@link #setBatchSize(int)} and {@link #setNumThreads(int)}.
+	 * 
 	 * @param gafdoc
 	 * @return translated ontology
 	 */
 	public OWLOntology translate(GafDocument gafdoc) {
-		translateBioentities(gafdoc);
-		translateGeneAnnotations(gafdoc);
-
+		cache = new TranslationCache();
+		try {
+			translateBioentities(gafdoc);
+			translateGeneAnnotations(gafdoc);
+		}
+		finally {
+			cache = null;
+		}
 		return targetOntology;
 	}
 
 	private void translateGeneAnnotations(GafDocument gafdoc) {
 		List<GeneAnnotation> annotations = gafdoc.getGeneAnnotations();
-		int total = annotations.size();
-		int chunksize = total / 100;
-		if (chunksize < 1) {
-			chunksize = 1;
+		final int total = annotations.size();
+		final int size = Math.max(1, batchSize);
+		final int threads = Math.max(1, numThreads);
+		LOG.info("Start translating GeneAnnotations to OWL, count: "+total+", threads: "+threads);
+		ExecutorService executor = null;
+		if (threads > 1) {
+			executor = Executors.newFixedThreadPool(threads);
 		}
-		int currentCount = 0;
-		LOG.info("Start translating GeneAnnotations to OWL, count: "+total);
-		for (GeneAnnotation a : annotations) {
-			translateGeneAnnotation(a);
-			currentCount += 1;
-			if (currentCount % chunksize == 0) {
-				double percent = currentCount / (double) total;
+		try {
+			for (int start = 0; start < total; start += size) {
+				List<GeneAnnotation> batch = annotations.subList(start, Math.min(total, start + size));
+				if (executor == null) {
+					addAxiomsToTarget(translateGeneAnnotations(batch));
+				}
+				else {
+					// split the batch for the threads, the axioms of all
+					// parts are added, after the batch is translated
+					List<Callable<Set<OWLAxiom>>> tasks = new ArrayList<Callable<Set<OWLAxiom>>>(threads);
+					int partSize = (batch.size() + threads - 1) / threads;
+					for (int i = 0; i < batch.size(); i += partSize) {
+						final List<GeneAnnotation> part = batch.subList(i, Math.min(batch.size(), i + partSize));
+						tasks.add(new Callable<Set<OWLAxiom>>() {
+
+							@Override
+							public Set<OWLAxiom> call() throws Exception {
+								return translateGeneAnnotations(part);
+							}
+						});
+					}
+					for (Future<Set<OWLAxiom>> future : executor.invokeAll(tasks)) {
+						addAxiomsToTarget(future.get());
+					}
+				}
+				double percent = (start + batch.size()) / (double) total;
 				LOG.info("GeneAnnotations to OWL progress: "+NumberFormat.getPercentInstance().format(percent));
 			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while translating GeneAnnotations to OWL", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+		finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
 		}
 		LOG.info("Finished translating GeneAnnotations to OWL");
 
 	}
 
+	private Set<OWLAxiom> translateGeneAnnotations(List<GeneAnnotation> annotations) {
+		Set<OWLAxiom> axioms = new HashSet<OWLAxiom>();
+		collector.set(axioms);
+		try {
+			for (GeneAnnotation a : annotations) {
+				translateGeneAnnotation(a);
+			}
+		}
+		finally {
+			collector.remove();
+		}
+		return axioms;
+	}
+
 
 	private void translateBioentities(GafDocument gafdoc) {
 		Collection<Bioentity> bioentities = gafdoc.getBioentities();
@@ -193,15 +302,28 @@ public class GAFOWLBridge {
 		if (chunksize < 1) {
 			chunksize = 1;
 		}
+		final int size = Math.max(1, batchSize);
 		int currentCount = 0;
 		LOG.info("Translating Bioentities to OWL, count: "+total);
-		for (Bioentity e : bioentities) {
-			translateBioentity(e);
-			currentCount += 1;
-			if (currentCount % chunksize == 0) {
-				double percent = currentCount / (double) total;
-				LOG.info("Bioentities to OWL progress: "+NumberFormat.getPercentInstance().format(percent));
+		Set<OWLAxiom> axioms = new HashSet<OWLAxiom>();
+		collector.set(axioms);
+		try {
+			for (Bioentity e : bioentities) {
+				translateBioentity(e);
+				currentCount += 1;
+				if (currentCount % size == 0) {
+					addAxiomsToTarget(axioms);
+					axioms.clear();
+				}
+				if (currentCount % chunksize == 0) {
+					double percent = currentCount / (double) total;
+					LOG.info("Bioentities to OWL progress: "+NumberFormat.getPercentInstance().format(percent));
+				}
 			}
+			addAxiomsToTarget(axioms);
+		}
+		finally {
+			collector.remove();
 		}
 		LOG.info("Finished translating Bioentities to OWL");
 	}
@@ -211,10 +333,17 @@ public class GAFOWLBridge {
 	}
 
 	private String getAnnotationDescription(GeneAnnotation a) {
-		String clsDesc = a.getCls();
-		OWLClass owlCls = graph.getOWLClassByIdentifierNoAltIds(a.getCls());
-		if (owlCls != null) {
-			clsDesc = graph.getLabelOrDisplayId(owlCls);
+		final TranslationCache c = cache;
+		String clsDesc = c != null ? c.classDescriptions.get(a.getCls()) : null;
+		if (clsDesc == null) {
+			clsDesc = a.getCls();
+			OWLClass owlCls = graph.getOWLClassByIdentifierNoAltIds(a.getCls());
+			if (owlCls != null) {
+				clsDesc = graph.getLabelOrDisplayId(owlCls);
+			}
+			if (c != null) {
+				c.classDescriptions.put(a.getCls(), clsDesc);
+			}
 		}
 		return "annotation of "+a.getBioentityObject().getSymbol() + " to " + clsDesc;
 	}
@@ -229,6 +358,25 @@ public class GAFOWLBridge {
 	}
 
 
+	/**
+	 * Same as {@link #getDescription(GeneAnnotation)}, during a translate
+	 * the descriptions are shared by all annotations with the same relation,
+	 * class and extensions.
+	 */
+	private List<GAFDescription> getSharedDescription(GeneAnnotation a) {
+		final TranslationCache c = cache;
+		if (c == null) {
+			return getDescription(a);
+		}
+		List<Object> key = Arrays.<Object>asList(a.getRelation(), a.getCls(), a.getExtensionExpressions());
+		List<GAFDescription> descriptions = c.descriptions.get(key);
+		if (descriptions == null) {
+			descriptions = getDescription(a);
+			c.descriptions.put(key, descriptions);
+		}
+		return descriptions;
+	}
+
 	protected List<GAFDescription> getDescription(GeneAnnotation a) {
 		OWLDataFactory fac = graph.getDataFactory();
 		OWLClassExpression annotatedToClass = getOWLClass(a.getCls());
@@ -296,7 +444,7 @@ public class GAFOWLBridge {
 		OWLClass e = getOWLClass(a.getBioentity());
 		OWLAnnotationProperty labelProperty = fac.getRDFSLabel();
 
-		List<GAFDescription> gdescs = getDescription(a);
+		List<GAFDescription> gdescs = getSharedDescription(a);
 		for(GAFDescription gdesc : gdescs) {
 			OWLClassExpression r = gdesc.classExpression;
 
@@ -313,7 +461,7 @@ public class GAFOWLBridge {
 
 			if (this.isGenerateIndividuals) {
 				// Create an instance for every gene annotation
-				OWLNamedIndividual iAnn = fac.getOWLNamedIndividual(graph.getIRIByIdentifier(geneAnnotationId));
+				OWLNamedIndividual iAnn = fac.getOWLNamedIndividual(getIRIByIdentifier(geneAnnotationId));
 
 				OWLObjectSomeValuesFrom dx =
 						fac.getOWLObjectSomeValuesFrom(pDescribes, x);		
@@ -327,7 +475,7 @@ public class GAFOWLBridge {
 
 			if (this.isBasicAboxMapping) {
 				OWLNamedIndividual iGene = 
-						fac.getOWLNamedIndividual(graph.getIRIByIdentifier(a.getBioentity()));
+						fac.getOWLNamedIndividual(getIRIByIdentifier(a.getBioentity()));
 				OWLAnnotation labelAnnotation = 
 						fac.getOWLAnnotation(labelProperty, fac.getOWLLiteral(a.getBioentityObject().getSymbol()));
 				axioms.add(fac.getOWLAnnotationAssertionAxiom(iGene.getIRI(), labelAnnotation));
@@ -346,7 +494,7 @@ public class GAFOWLBridge {
 						axioms.add(fac.getOWLSubClassOfAxiom(e, ce));
 					}
 					else if (bioentityMapping == BioentityMapping.NAMED_CLASS) {
-						IRI iri = graph.getIRIByIdentifier(geneAnnotationId);
+						IRI iri = getIRIByIdentifier(geneAnnotationId);
 						OWLClass owlClass = fac.getOWLClass(iri);
 						axioms.add(fac.getOWLDeclarationAxiom(owlClass));
 
@@ -447,7 +595,19 @@ public class GAFOWLBridge {
 	}
 
 	private OWLObjectProperty getGeneAnnotationRelation(GeneAnnotation a) {
-		String relation = a.getRelation();
+		final TranslationCache c = cache;
+		if (c == null) {
+			return getGeneAnnotationRelation(a.getRelation());
+		}
+		OWLObjectProperty p = c.relations.get(a.getRelation());
+		if (p == null) {
+			p = getGeneAnnotationRelation(a.getRelation());
+			c.relations.put(a.getRelation(), p);
+		}
+		return p;
+	}
+
+	private OWLObjectProperty getGeneAnnotationRelation(String relation) {
 		//LOG.info("Mapping: "+relation);
 		Vocab v = null;
 		try {
@@ -467,10 +627,25 @@ public class GAFOWLBridge {
 
 
 	protected OWLClass getOWLClass(String id) {
-		IRI iri = graph.getIRIByIdentifier(id);
+		IRI iri = getIRIByIdentifier(id);
 		return graph.getDataFactory().getOWLClass(iri);
 	}
 
+	private IRI getIRIByIdentifier(String id) {
+		final TranslationCache c = cache;
+		if (c == null) {
+			return graph.getIRIByIdentifier(id);
+		}
+		IRI iri = c.iris.get(id);
+		if (iri == null) {
+			iri = graph.getIRIByIdentifier(id);
+			if (iri != null) {
+				c.iris.put(id, iri);
+			}
+		}
+		return iri;
+	}
+
 	protected void translateBioentity(Bioentity e) {
 		OWLDataFactory fac = graph.getDataFactory();
 		Set<OWLAxiom> axioms = new HashSet<OWLAxiom>();
@@ -494,8 +669,26 @@ public class GAFOWLBridge {
 
 	}
 
+	/**
+	 * Adds the axioms to the target ontology. During a translate, the
+	 * axioms are collected and added in batches.
+	 * 
+	 * @param axioms
+	 */
 	protected void addAxioms(Set<OWLAxiom> axioms) {
-		graph.getManager().addAxioms(targetOntology, axioms);
+		Set<OWLAxiom> collected = collector.get();
+		if (collected != null) {
+			collected.addAll(axioms);
+		}
+		else {
+			addAxiomsToTarget(axioms);
+		}
+	}
+
+	private void addAxiomsToTarget(Set<OWLAxiom> axioms) {
+		if (!axioms.isEmpty()) {
+			graph.getManager().addAxioms(targetOntology, axioms);
+		}
 	}
 
 	private void addAxiom(OWLAxiom axiom) {
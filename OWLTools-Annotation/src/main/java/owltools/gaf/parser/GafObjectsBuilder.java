@@ -17,6 +17,8 @@ import owltools.gaf.Bioentity;
 import owltools.gaf.ExtensionExpression;
 import owltools.gaf.GafDocument;
 import owltools.gaf.GeneAnnotation;
+import owltools.profile.MetricsRegistry;
+import owltools.profile.MetricsRegistry.Timer;
 
 
 /**
@@ -130,6 +132,10 @@ public class GafObjectsBuilder {
 
 		counter = 0;
 		GafDocument gafDocument = new GafDocument(docId, this.documentPath);
+		MetricsRegistry metrics = MetricsRegistry.getInstance();
+		Timer timer = metrics.timer("gaf.buildDocument");
+		long t = timer.start();
+		int count = 0;
 		
 		while(parser.next()){
 			if(splitSize != -1){
@@ -160,8 +166,11 @@ public class GafObjectsBuilder {
 
 				GeneAnnotation annotation = parseGeneAnnotation(parser, entity, docId);
 				gafDocument.addGeneAnnotation(annotation);
+				count++;
 			}
 		}
+		timer.stop(t);
+		metrics.counter("gaf.annotations").add(count);
 		return gafDocument;
 
 	}
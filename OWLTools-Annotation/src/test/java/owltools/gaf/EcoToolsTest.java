@@ -3,8 +3,17 @@ package owltools.gaf;
 import static org.junit.Assert.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -18,6 +27,7 @@ import org.semanticweb.owlapi.reasoner.OWLReasoner;
 import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
 
 import owltools.OWLToolsTestBasics;
+import owltools.gaf.eco.EcoClosureIndex;
 import owltools.graph.OWLGraphWrapper;
 import owltools.io.ParserWrapper;
 
@@ -113,6 +123,72 @@ public class EcoToolsTest extends OWLToolsTestBasics{
 		assertEquals(6, ecoSuperClasses.size());
 
 	}
-	
 
+	@Test
+	public void testConcurrentLookups() throws Exception {
+		final EcoTools eco = new EcoTools(g, g.getReasoner(), false);
+		final String[] codes = {"IGI", "IDA", "IMP", "IPI", "IEA", "ISS", "TAS", "XYZ"};
+		final Map<String, Set<OWLClass>> expectedClasses = new HashMap<String, Set<OWLClass>>();
+		final Map<String, Set<OWLClass>> expectedAncestors = new HashMap<String, Set<OWLClass>>();
+		for (String code : codes) {
+			Set<OWLClass> classes = EcoTools.getClassesForGoCodes(g, code);
+			expectedClasses.put(code, classes);
+			Set<OWLClass> ancestors = new HashSet<OWLClass>(classes);
+			for (OWLClass cls : classes) {
+				for (OWLClass sup : r.getSuperClasses(cls, false).getFlattened()) {
+					if (!sup.isBuiltIn()) {
+						ancestors.add(sup);
+					}
+				}
+			}
+			expectedAncestors.put(code, ancestors);
+		}
+		assertTrue(expectedClasses.get("XYZ").isEmpty());
+		assertFalse(expectedClasses.get("IDA").isEmpty());
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (int i = 0; i < 16; i++) {
+				futures.add(executor.submit(new Callable<Void>() {
+
+					@Override
+					public Void call() throws Exception {
+						for (String code : codes) {
+							Set<OWLClass> classes = eco.getClassesForGoCode(code);
+							assertEquals(expectedClasses.get(code), classes);
+							assertEquals(expectedAncestors.get(code), eco.getAncestors(classes, true));
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testClosureIndex() throws Exception {
+		EcoClosureIndex index = new EcoClosureIndex(r);
+		for (OWLClass cls : g.getSourceOntology().getClassesInSignature()) {
+			Set<OWLClass> source = Collections.singleton(cls);
+			assertEquals(getNamed(r.getSuperClasses(cls, false).getFlattened()), index.getAncestors(source, false));
+			assertEquals(getNamed(r.getSubClasses(cls, false).getFlattened()), index.getDescendents(source, false));
+		}
+	}
+
+	private static Set<OWLClass> getNamed(Set<OWLClass> classes) {
+		Set<OWLClass> named = new HashSet<OWLClass>();
+		for (OWLClass cls : classes) {
+			if (!cls.isBuiltIn()) {
+				named.add(cls);
+			}
+		}
+		return named;
+	}
 }
@@ -3,7 +3,10 @@ package owltools.gaf;
 import static org.junit.Assert.*;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import org.junit.AfterClass;
@@ -117,5 +120,36 @@ public class TaxonToolsTest extends OWLToolsTestBasics{
 		assertEquals(9, taxonSuperClasses.size());
 
 	}
-	
+
+	@Test
+	public void testAncestryTable() throws Exception {
+		TaxonTools taxo = new TaxonTools(g.getReasoner(), false);
+		Map<OWLClass, Set<OWLClass>> expected = new HashMap<OWLClass, Set<OWLClass>>();
+		for (OWLClass cls : g.getSourceOntology().getClassesInSignature()) {
+			if (g.getIdentifier(cls).startsWith("NCBITaxon")) {
+				expected.put(cls, taxo.getAncestors(cls, false));
+			}
+		}
+		assertTrue(expected.size() > 1000);
+
+		TaxonAncestryTable table = taxo.getAncestryTable(g, "model_slim");
+		assertSame(table, taxo.getAncestryTable(g, "model_slim"));
+		// the table may also contain ancestors with other ids
+		assertTrue(table.size() >= expected.size());
+		for (Entry<OWLClass, Set<OWLClass>> entry : expected.entrySet()) {
+			int i = table.getIndex(entry.getKey());
+			assertTrue(i >= 0);
+			assertEquals(g.getIdentifier(entry.getKey()), table.getId(i));
+			assertEquals(g.getLabel(entry.getKey()), table.getLabel(i));
+			assertFalse(table.isInSubset(i));
+			Set<OWLClass> ancestors = new HashSet<OWLClass>();
+			for (int a : table.getAncestors(i)) {
+				ancestors.add(table.getTaxon(a));
+			}
+			assertEquals(entry.getValue(), ancestors);
+			// now uses the table
+			assertEquals(entry.getValue(), taxo.getAncestors(entry.getKey(), false));
+		}
+		assertEquals(-1, table.getIndex(g.getOWLClassByIdentifier("GO:0005575")));
+	}
 }
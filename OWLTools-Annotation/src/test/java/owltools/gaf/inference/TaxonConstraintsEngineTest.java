@@ -0,0 +1,54 @@
+package owltools.gaf.inference;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLObject;
+
+import owltools.OWLToolsTestBasics;
+import owltools.graph.OWLGraphWrapper;
+import owltools.io.ParserWrapper;
+
+/**
+ * tests the compiled constraints against the check of the individual edges
+ */
+public class TaxonConstraintsEngineTest extends OWLToolsTestBasics {
+
+	@Test
+	public void testSimple() throws Exception {
+		ParserWrapper pw = new ParserWrapper();
+		OWLGraphWrapper graph = new OWLGraphWrapper(pw.parseOWL(IRI.create(getResource("simple_taxon_check.owl"))));
+		List<OWLClass> classes = new ArrayList<OWLClass>(graph.getSourceOntology().getClassesInSignature());
+		compare(graph, classes, classes);
+	}
+
+	@Test
+	public void testChloroplast() throws Exception {
+		ParserWrapper pw = new ParserWrapper();
+		OWLGraphWrapper graph = new OWLGraphWrapper(pw.parseOBO(getResource("chloroplast-taxon-check-test.obo").getAbsolutePath()));
+		List<OWLClass> classes = new ArrayList<OWLClass>(graph.getSourceOntology().getClassesInSignature());
+		compare(graph, classes, classes);
+	}
+
+	private void compare(OWLGraphWrapper graph, List<OWLClass> classes, List<OWLClass> taxa) {
+		TaxonConstraintsEngine engine = new TaxonConstraintsEngine(graph);
+		int invalid = 0;
+		for (OWLClass taxon : taxa) {
+			Set<OWLObject> taxAncs = graph.getAncestorsReflexive(taxon);
+			for (OWLClass c : classes) {
+				boolean expected = engine.isClassApplicable(c, taxon, graph.getOutgoingEdgesClosure(c), taxAncs);
+				assertEquals(c+" "+taxon, expected, engine.isClassApplicable(c, taxon));
+				if (!expected) {
+					invalid++;
+				}
+			}
+		}
+		assertTrue(invalid > 0);
+	}
+}
@@ -1,6 +1,9 @@
 package owltools.gaf.owl;
 
+import static org.junit.Assert.*;
+
 import java.io.File;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
 import org.junit.Test;
@@ -11,7 +14,10 @@ import org.semanticweb.owlapi.model.OWLDocumentFormat;
 import org.semanticweb.owlapi.model.OWLOntology;
 
 import owltools.OWLToolsTestBasics;
+import owltools.gaf.Bioentity;
 import owltools.gaf.GafDocument;
+import owltools.gaf.GeneAnnotation;
+import owltools.gaf.owl.GAFOWLBridge.BioentityMapping;
 import owltools.gaf.parser.GafObjectsBuilder;
 import owltools.graph.OWLGraphWrapper;
 import owltools.io.ParserWrapper;
@@ -45,4 +51,41 @@ public class GAFOWLBridgeTest extends OWLToolsTestBasics{
 
 	}
 
+	@Test
+	public void testBatchedTranslation() throws Exception{
+		ParserWrapper pw = new ParserWrapper();
+		OWLOntology ont = pw.parse(getResourceIRIString("go_xp_predictor_test_subset.obo"));
+		OWLGraphWrapper g = new OWLGraphWrapper(ont);
+		g.addSupportOntology(pw.parse(getResourceIRIString("gorel.owl")));
+		GafDocument gafdoc = new GafObjectsBuilder().buildDocument(getResource("xp_inference_test.gaf"));
+
+		for (BioentityMapping mapping : new BioentityMapping[]{BioentityMapping.CLASS_EXPRESSION, BioentityMapping.NAMED_CLASS}) {
+			// translate each bioentity and annotation with its own change
+			GAFOWLBridge bridge = createBridge(g, mapping);
+			for (Bioentity e : gafdoc.getBioentities()) {
+				bridge.translateBioentity(e);
+			}
+			for (GeneAnnotation a : gafdoc.getGeneAnnotations()) {
+				bridge.translateGeneAnnotation(a);
+			}
+			Set<OWLAxiom> expected = bridge.getTargetOntology().getAxioms();
+			assertFalse(expected.isEmpty());
+
+			for (int threads : new int[]{1, 4}) {
+				bridge = createBridge(g, mapping);
+				bridge.setNumThreads(threads);
+				bridge.setBatchSize(3);
+				assertEquals(expected, bridge.translate(gafdoc).getAxioms());
+			}
+		}
+	}
+
+	private GAFOWLBridge createBridge(OWLGraphWrapper g, BioentityMapping mapping) throws Exception {
+		GAFOWLBridge bridge = new GAFOWLBridge(g, g.getManager().createOntology());
+		bridge.setGenerateIndividuals(false);
+		bridge.setBasicAboxMapping(false);
+		bridge.setBioentityMapping(mapping);
+		return bridge;
+	}
+
 }
@@ -0,0 +1,82 @@
+package owltools.benchmark;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import owltools.graph.OWLGraphWrapper;
+import owltools.io.ParserWrapper;
+
+/**
+ * Access to the benchmark fixtures. The fixtures are the test resources of
+ * the other modules, which are packaged in the 'fixtures' folder of the
+ * benchmark jar and copied to a temporary folder on first use.
+ */
+public class Fixtures {
+
+	private static final Map<String, File> files = new HashMap<String, File>();
+	private static File folder = null;
+
+	private Fixtures() {
+		// no instances
+	}
+
+	/**
+	 * @param name relative path of the fixture, e.g. 'sim/mp-subset-1.obo'
+	 * @return file
+	 * @throws IOException
+	 */
+	public static synchronized File getFile(String name) throws IOException {
+		File file = files.get(name);
+		if (file == null) {
+			InputStream in = Fixtures.class.getResourceAsStream("/fixtures/"+name);
+			if (in == null) {
+				throw new FileNotFoundException("Missing benchmark fixture: "+name);
+			}
+			if (folder == null) {
+				folder = File.createTempFile("owltools-benchmark", "");
+				folder.delete();
+				folder.mkdirs();
+				folder.deleteOnExit();
+			}
+			file = new File(folder, name);
+			try {
+				FileUtils.copyInputStreamToFile(in, file);
+			}
+			finally {
+				in.close();
+			}
+			file.deleteOnExit();
+			files.put(name, file);
+		}
+		return file;
+	}
+
+	/**
+	 * @param name
+	 * @return ontology, loaded with a new manager
+	 * @throws IOException
+	 * @throws OWLOntologyCreationException
+	 */
+	public static OWLOntology loadOntology(String name) throws IOException, OWLOntologyCreationException {
+		ParserWrapper pw = new ParserWrapper();
+		return pw.parse(getFile(name).getCanonicalPath());
+	}
+
+	/**
+	 * @param name
+	 * @return graph for the ontology
+	 * @throws IOException
+	 * @throws OWLOntologyCreationException
+	 */
+	public static OWLGraphWrapper loadGraph(String name) throws IOException, OWLOntologyCreationException {
+		return new OWLGraphWrapper(loadOntology(name));
+	}
+}
@@ -0,0 +1,60 @@
+package owltools.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import owltools.gaf.GafDocument;
+import owltools.gaf.parser.GAFParser;
+import owltools.gaf.parser.GafObjectsBuilder;
+
+/**
+ * Throughput of the GAF parser, one operation is one pass over the MGI test
+ * GAF.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GafParserBenchmark {
+
+	private File gaf;
+
+	@Setup
+	public void setup() throws Exception {
+		gaf = Fixtures.getFile("test_gene_association_mgi.gaf");
+	}
+
+	/**
+	 * @return number of rows
+	 * @throws Exception
+	 */
+	@Benchmark
+	public int parseRows() throws Exception {
+		GAFParser parser = new GAFParser();
+		parser.parse(gaf);
+		int count = 0;
+		while (parser.next()) {
+			count++;
+		}
+		return count;
+	}
+
+	@Benchmark
+	public GafDocument buildDocument() throws Exception {
+		GafObjectsBuilder builder = new GafObjectsBuilder();
+		return builder.buildDocument(gaf);
+	}
+}
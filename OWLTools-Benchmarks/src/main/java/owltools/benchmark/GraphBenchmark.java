@@ -0,0 +1,72 @@
+package owltools.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.semanticweb.owlapi.model.OWLClass;
+
+import owltools.graph.OWLGraphWrapper;
+
+/**
+ * Graph traversal and label lookups for all classes of the GO module.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraphBenchmark {
+
+	/**
+	 * Use the closure cache of the graph. If set, the measurements are for
+	 * cache hits after the first warmup iteration.
+	 */
+	@Param({"false", "true"})
+	public boolean cacheClosure;
+
+	private OWLGraphWrapper graph;
+	private List<OWLClass> classes;
+
+	@Setup
+	public void setup() throws Exception {
+		graph = Fixtures.loadGraph("go-module.obo");
+		graph.getConfig().isCacheClosure = cacheClosure;
+		classes = new ArrayList<OWLClass>(graph.getAllOWLClasses());
+	}
+
+	@Benchmark
+	public void outgoingEdgesClosure(Blackhole bh) {
+		for (OWLClass c : classes) {
+			bh.consume(graph.getOutgoingEdgesClosure(c));
+		}
+	}
+
+	@Benchmark
+	public void ancestors(Blackhole bh) {
+		for (OWLClass c : classes) {
+			bh.consume(graph.getAncestors(c));
+		}
+	}
+
+	@Benchmark
+	public void labels(Blackhole bh) {
+		for (OWLClass c : classes) {
+			bh.consume(graph.getLabel(c));
+			bh.consume(graph.getIdentifier(c));
+		}
+	}
+}
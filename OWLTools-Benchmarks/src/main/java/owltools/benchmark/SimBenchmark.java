@@ -0,0 +1,89 @@
+package owltools.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+import owltools.graph.OWLGraphWrapper;
+import owltools.io.TableToAxiomConverter;
+import owltools.sim2.FastOwlSimFactory;
+import owltools.sim2.OwlSim;
+
+/**
+ * FastOwlSim scoring of all pairs of the MGI genes in the MP subset test
+ * data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimBenchmark {
+
+	private OwlSim owlsim;
+	private List<OWLNamedIndividual> individuals;
+
+	@Setup
+	public void setup() throws Exception {
+		OWLOntology ontology = Fixtures.loadOntology("sim/mp-subset-1.obo");
+		OWLGraphWrapper g = new OWLGraphWrapper(ontology);
+		TableToAxiomConverter ttac = new TableToAxiomConverter(g);
+		ttac.config.axiomType = AxiomType.CLASS_ASSERTION;
+		ttac.config.isSwitchSubjectObject = true;
+		ttac.parse(Fixtures.getFile("sim/mgi-gene2mp-subset-1.tbl"));
+
+		owlsim = new FastOwlSimFactory().createOwlSim(ontology);
+		owlsim.createElementAttributeMapFromOntology();
+		individuals = new ArrayList<OWLNamedIndividual>(owlsim.getAllElements());
+	}
+
+	@Benchmark
+	public void pairwiseSimJ(Blackhole bh) throws Exception {
+		for (OWLNamedIndividual i : individuals) {
+			for (OWLNamedIndividual j : individuals) {
+				bh.consume(owlsim.getElementJaccardSimilarity(i, j));
+			}
+		}
+	}
+
+	@Benchmark
+	public void pairwiseMaxIC(Blackhole bh) throws Exception {
+		for (OWLNamedIndividual i : individuals) {
+			for (OWLNamedIndividual j : individuals) {
+				bh.consume(owlsim.getSimilarityMaxIC(i, j));
+			}
+		}
+	}
+
+	@Benchmark
+	public void groupwise(Blackhole bh) throws Exception {
+		for (OWLNamedIndividual i : individuals) {
+			for (OWLNamedIndividual j : individuals) {
+				bh.consume(owlsim.getGroupwiseSimilarity(i, j, -1, -1));
+			}
+		}
+	}
+
+	@Benchmark
+	public void findMatches(Blackhole bh) throws Exception {
+		for (OWLNamedIndividual i : individuals) {
+			bh.consume(owlsim.findMatches(i, "MGI"));
+		}
+	}
+}
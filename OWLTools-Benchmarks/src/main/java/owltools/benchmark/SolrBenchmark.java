@@ -0,0 +1,92 @@
+package owltools.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.semanticweb.elk.owlapi.ElkReasonerFactory;
+
+import owltools.flex.FlexCollection;
+import owltools.gaf.EcoTools;
+import owltools.gaf.GafDocument;
+import owltools.gaf.TaxonTools;
+import owltools.gaf.parser.GafObjectsBuilder;
+import owltools.graph.OWLGraphWrapper;
+import owltools.solrj.loader.MockFlexSolrDocumentLoader;
+import owltools.solrj.loader.MockGafSolrDocumentLoader;
+import owltools.yaml.golrconfig.ConfigManager;
+
+/**
+ * Solr document building with the mock loaders, which collect the
+ * documents instead of sending them to a server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolrBenchmark {
+
+	private OWLGraphWrapper graph;
+	private ConfigManager config;
+	private GafDocument gafDocument;
+	private EcoTools eco;
+	private TaxonTools taxonTools;
+
+	@Setup
+	public void setup() throws Exception {
+		graph = Fixtures.loadGraph("test_go_for_mgi_gaf.obo");
+		config = new ConfigManager();
+		config.add(Fixtures.getFile("test-ont-config.yaml").getCanonicalPath());
+		gafDocument = new GafObjectsBuilder().buildDocument(Fixtures.getFile("test_gene_association_mgi.gaf"));
+		eco = new EcoTools(Fixtures.loadGraph("eco.obo"));
+		ElkReasonerFactory rf = new ElkReasonerFactory();
+		taxonTools = new TaxonTools(rf.createReasoner(Fixtures.loadOntology("taxslim.obo")), true);
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (taxonTools != null) {
+			taxonTools.dispose();
+		}
+		if (eco != null) {
+			eco.dispose();
+		}
+	}
+
+	/**
+	 * @return number of ontology class documents
+	 * @throws Exception
+	 */
+	@Benchmark
+	public int ontologyDocuments() throws Exception {
+		MockFlexSolrDocumentLoader loader = new MockFlexSolrDocumentLoader(new FlexCollection(config, graph));
+		loader.load();
+		return loader.getDocumentCollection().getDocuments().size();
+	}
+
+	/**
+	 * @return number of bioentity and annotation documents
+	 * @throws Exception
+	 */
+	@Benchmark
+	public int annotationDocuments() throws Exception {
+		MockGafSolrDocumentLoader loader = new MockGafSolrDocumentLoader();
+		loader.setGafDocument(gafDocument);
+		loader.setGraph(graph);
+		loader.setEcoTools(eco);
+		loader.setTaxonTools(taxonTools);
+		loader.load();
+		return loader.getDocumentCollection().getDocuments().size();
+	}
+}
@@ -0,0 +1,63 @@
+package owltools.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.semanticweb.owlapi.formats.FunctionalSyntaxDocumentFormat;
+import org.semanticweb.owlapi.formats.OBODocumentFormat;
+import org.semanticweb.owlapi.formats.RDFXMLDocumentFormat;
+import org.semanticweb.owlapi.model.OWLDocumentFormat;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+import owltools.io.ParserWrapper;
+
+/**
+ * Writing the GO module as OBO, RDF/XML or functional syntax, the output
+ * is discarded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriterBenchmark {
+
+	@Param({"obo", "owl", "ofn"})
+	public String format;
+
+	private ParserWrapper pw;
+	private OWLOntology ontology;
+
+	@Setup
+	public void setup() throws Exception {
+		pw = new ParserWrapper();
+		ontology = pw.parse(Fixtures.getFile("go-module.obo").getCanonicalPath());
+	}
+
+	@Benchmark
+	public void write() throws Exception {
+		OWLDocumentFormat documentFormat;
+		if ("obo".equals(format)) {
+			documentFormat = new OBODocumentFormat();
+		}
+		else if ("ofn".equals(format)) {
+			documentFormat = new FunctionalSyntaxDocumentFormat();
+		}
+		else {
+			documentFormat = new RDFXMLDocumentFormat();
+		}
+		pw.saveOWL(ontology, documentFormat, NullOutputStream.NULL_OUTPUT_STREAM);
+	}
+}
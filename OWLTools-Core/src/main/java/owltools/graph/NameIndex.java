@@ -0,0 +1,354 @@
+package owltools.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.obolibrary.oboformat.parser.OBOFormatConstants.OboFormatTag;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLObject;
+
+import owltools.graph.OWLGraphWrapper.ISynonym;
+
+/**
+ * Index of the labels and EXACT synonyms of a set of entities, keyed by a
+ * normalized form of the name.
+ *
+ * The labels and synonyms are retrieved from the graph in parallel, the
+ * index itself is immutable and can be shared. Entities are stored once in
+ * an array, each name maps to the array positions of its entities.
+ */
+public class NameIndex {
+
+	private static final Logger LOG = Logger.getLogger(NameIndex.class);
+
+	/**
+	 * Creates the key for a label or synonym.
+	 */
+	public static interface Normalizer {
+
+		public String normalize(String name);
+	}
+
+	/**
+	 * Use the name as is.
+	 */
+	public static final Normalizer EXACT = new Normalizer() {
+
+		@Override
+		public String normalize(String name) {
+			return name;
+		}
+	};
+
+	/**
+	 * Lower case, trimmed and with whitespace collapsed to a single space.
+	 */
+	public static final Normalizer CASE_AND_SPACE_INSENSITIVE = new Normalizer() {
+
+		@Override
+		public String normalize(String name) {
+			return name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+		}
+	};
+
+	private static final int[] EMPTY = new int[0];
+
+	private final Normalizer normalizer;
+	private final OWLEntity[] entities;
+	private final String[] labels;
+	private final String[][] duplicateSynonyms;
+	private final Map<OWLEntity, Integer> positions;
+	private final Map<String, int[]> labelIndex;
+	private final Map<String, int[]> synonymIndex;
+
+	private NameIndex(Normalizer normalizer, OWLEntity[] entities, String[] labels, String[][] exactSynonyms,
+			String[][] duplicateSynonyms) {
+		this.normalizer = normalizer;
+		this.entities = entities;
+		this.labels = labels;
+		this.duplicateSynonyms = duplicateSynonyms;
+		this.positions = new HashMap<OWLEntity, Integer>();
+		Map<String, Positions> labelPositions = new HashMap<String, Positions>();
+		Map<String, Positions> synonymPositions = new HashMap<String, Positions>();
+		for (int i = 0; i < entities.length; i++) {
+			positions.put(entities[i], i);
+			if (labels[i] != null) {
+				add(labelPositions, normalizer.normalize(labels[i]), i);
+			}
+			for (String synonym : exactSynonyms[i]) {
+				add(synonymPositions, normalizer.normalize(synonym), i);
+			}
+		}
+		this.labelIndex = toArrays(labelPositions);
+		this.synonymIndex = toArrays(synonymPositions);
+	}
+
+	/**
+	 * Growable list of positions, only used while building the index.
+	 */
+	private static class Positions {
+
+		int[] values = new int[1];
+		int size = 0;
+
+		void add(int position) {
+			if (size > 0 && values[size - 1] == position) {
+				return;
+			}
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = position;
+		}
+	}
+
+	private static void add(Map<String, Positions> index, String key, int position) {
+		Positions current = index.get(key);
+		if (current == null) {
+			current = new Positions();
+			index.put(key, current);
+		}
+		current.add(position);
+	}
+
+	private static Map<String, int[]> toArrays(Map<String, Positions> index) {
+		Map<String, int[]> result = new HashMap<String, int[]>(index.size() * 4 / 3 + 1);
+		for (Map.Entry<String, Positions> e : index.entrySet()) {
+			Positions p = e.getValue();
+			result.put(e.getKey(), p.size == p.values.length ? p.values : Arrays.copyOf(p.values, p.size));
+		}
+		return result;
+	}
+
+	/**
+	 * Create an index for the entities in the given objects, other objects
+	 * are ignored.
+	 *
+	 * @param graph
+	 * @param objects
+	 * @param ignoreObsolete if true, skip obsolete entities
+	 * @param normalizer
+	 * @param numThreads
+	 * @return index
+	 */
+	public static NameIndex create(final OWLGraphWrapper graph, Collection<? extends OWLObject> objects,
+			final boolean ignoreObsolete, Normalizer normalizer, int numThreads) {
+		long t = System.currentTimeMillis();
+		final List<OWLEntity> candidates = new ArrayList<OWLEntity>(objects.size());
+		for (OWLObject owlObject : objects) {
+			if (owlObject instanceof OWLEntity) {
+				candidates.add((OWLEntity) owlObject);
+			}
+		}
+		final int n = candidates.size();
+		final String[] labels = new String[n];
+		final String[][] exactSynonyms = new String[n][];
+		final String[][] duplicateSynonyms = new String[n][];
+		final boolean[] included = new boolean[n];
+		numThreads = Math.max(1, numThreads);
+		final int partitionSize = Math.max(1, (n + numThreads - 1) / numThreads);
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (int start = 0; start < n; start += partitionSize) {
+			final int from = start;
+			final int to = Math.min(n, start + partitionSize);
+			tasks.add(new Callable<Void>() {
+
+				@Override
+				public Void call() throws Exception {
+					for (int i = from; i < to; i++) {
+						OWLEntity entity = candidates.get(i);
+						if (ignoreObsolete && graph.isObsolete(entity)) {
+							continue;
+						}
+						included[i] = true;
+						labels[i] = graph.getLabel(entity);
+						readSynonyms(graph.getOBOSynonyms(entity), i, exactSynonyms, duplicateSynonyms);
+					}
+					return null;
+				}
+			});
+		}
+		run(tasks, numThreads);
+
+		int count = 0;
+		for (int i = 0; i < n; i++) {
+			if (included[i]) {
+				count++;
+			}
+		}
+		OWLEntity[] entities = new OWLEntity[count];
+		String[] compactLabels = new String[count];
+		String[][] compactExact = new String[count][];
+		String[][] compactDuplicates = new String[count][];
+		int j = 0;
+		for (int i = 0; i < n; i++) {
+			if (included[i]) {
+				entities[j] = candidates.get(i);
+				compactLabels[j] = labels[i];
+				compactExact[j] = exactSynonyms[i];
+				compactDuplicates[j] = duplicateSynonyms[i];
+				j++;
+			}
+		}
+		NameIndex index = new NameIndex(normalizer, entities, compactLabels, compactExact, compactDuplicates);
+		LOG.info("Created name index for "+count+" entities with "+index.labelIndex.size()+" labels and "+
+				index.synonymIndex.size()+" EXACT synonyms in "+(System.currentTimeMillis() - t)+" ms");
+		return index;
+	}
+
+	private static void readSynonyms(List<ISynonym> synonyms, int i, String[][] exactSynonyms, String[][] duplicateSynonyms) {
+		if (synonyms == null || synonyms.isEmpty()) {
+			exactSynonyms[i] = new String[0];
+			duplicateSynonyms[i] = new String[0];
+			return;
+		}
+		List<String> exact = new ArrayList<String>();
+		List<String> duplicates = new ArrayList<String>();
+		Set<String> seen = new HashSet<String>();
+		for (ISynonym synonym : synonyms) {
+			final String label = synonym.getLabel();
+			if (OboFormatTag.TAG_EXACT.getTag().equals(synonym.getScope()) && label != null) {
+				exact.add(label);
+			}
+			if (seen.add(label) == false) {
+				duplicates.add(label);
+			}
+		}
+		exactSynonyms[i] = exact.toArray(new String[exact.size()]);
+		duplicateSynonyms[i] = duplicates.toArray(new String[duplicates.size()]);
+	}
+
+	private static void run(List<Callable<Void>> tasks, int numThreads) {
+		if (numThreads == 1 || tasks.size() <= 1) {
+			for (Callable<Void> task : tasks) {
+				try {
+					task.call();
+				} catch (RuntimeException e) {
+					throw e;
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+			return;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			for (Future<Void> future : executor.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while creating the name index", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return entities in the index, in the order of the input objects
+	 */
+	public List<OWLEntity> getEntities() {
+		return Collections.unmodifiableList(Arrays.asList(entities));
+	}
+
+	/**
+	 * @param entity
+	 * @return label or null
+	 */
+	public String getLabel(OWLEntity entity) {
+		Integer position = positions.get(entity);
+		return position == null ? null : labels[position];
+	}
+
+	/**
+	 * @param entity
+	 * @return synonym labels, which occur more than once for the entity
+	 */
+	public List<String> getDuplicateSynonyms(OWLEntity entity) {
+		Integer position = positions.get(entity);
+		if (position == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(Arrays.asList(duplicateSynonyms[position]));
+	}
+
+	/**
+	 * @return normalized labels
+	 */
+	public Set<String> getNormalizedLabels() {
+		return Collections.unmodifiableSet(labelIndex.keySet());
+	}
+
+	/**
+	 * @param name
+	 * @return entities with the name as label
+	 */
+	public List<OWLEntity> getEntitiesForLabel(String name) {
+		return getEntities(labelIndex, normalizer.normalize(name));
+	}
+
+	/**
+	 * @param name
+	 * @return entities with the name as EXACT synonym
+	 */
+	public List<OWLEntity> getEntitiesForExactSynonym(String name) {
+		return getEntities(synonymIndex, normalizer.normalize(name));
+	}
+
+	/**
+	 * @param name
+	 * @return entities with the name as label or EXACT synonym
+	 */
+	public List<OWLEntity> getEntitiesForName(String name) {
+		String key = normalizer.normalize(name);
+		int[] fromLabels = get(labelIndex, key);
+		int[] fromSynonyms = get(synonymIndex, key);
+		List<OWLEntity> result = new ArrayList<OWLEntity>(fromLabels.length + fromSynonyms.length);
+		Set<OWLEntity> seen = new HashSet<OWLEntity>();
+		for (int i : fromLabels) {
+			if (seen.add(entities[i])) {
+				result.add(entities[i]);
+			}
+		}
+		for (int i : fromSynonyms) {
+			if (seen.add(entities[i])) {
+				result.add(entities[i]);
+			}
+		}
+		return result;
+	}
+
+	private List<OWLEntity> getEntities(Map<String, int[]> index, String key) {
+		int[] found = get(index, key);
+		List<OWLEntity> result = new ArrayList<OWLEntity>(found.length);
+		for (int i : found) {
+			result.add(entities[i]);
+		}
+		return result;
+	}
+
+	private static int[] get(Map<String, int[]> index, String key) {
+		int[] found = index.get(key);
+		return found == null ? EMPTY : found;
+	}
+}
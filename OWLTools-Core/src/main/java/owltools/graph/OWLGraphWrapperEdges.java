@@ -10,6 +10,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.obolibrary.obo2owl.Obo2Owl;
@@ -54,6 +55,7 @@ import org.semanticweb.owlapi.reasoner.OWLReasoner;
 import owltools.graph.OWLGraphEdge.OWLGraphEdgeSet;
 import owltools.graph.OWLQuantifiedProperty.Quantifier;
 import owltools.io.OWLPrettyPrinter;
+import owltools.profile.MetricsRegistry;
 import owltools.profile.Profiler;
 import owltools.util.OwlHelper;
 
@@ -93,7 +95,9 @@ public class OWLGraphWrapperEdges extends OWLGraphWrapperExtended {
 
 	private final Object edgeCacheMutex = new Object();
 	
-	protected Profiler profiler = new Profiler();
+	// each graph records in its own timers of the shared registry
+	private static final AtomicInteger PROFILER_IDS = new AtomicInteger();
+	protected Profiler profiler = new Profiler(MetricsRegistry.getInstance(), "graph."+PROFILER_IDS.incrementAndGet()+".");
 
 
 	/**
@@ -818,96 +822,103 @@ public class OWLGraphWrapperEdges extends OWLGraphWrapperExtended {
 	 * @return
 	 */
 	public Set<OWLGraphEdge> getOutgoingEdgesClosure(OWLObject s, Set<? extends OWLPropertyExpression> overProperties) {
-		synchronized (edgeCacheMutex) {
-			// never use cache if a property list is specified (in future we may have one
-			// cache per property set)
-			if (config.isCacheClosure && overProperties == null) {
+		// never use cache if a property list is specified (in future we may have one
+		// cache per property set)
+		final boolean useCache = config.isCacheClosure && overProperties == null;
+		if (useCache) {
+			synchronized (edgeCacheMutex) {
 				if (inferredEdgeBySource == null)
 					inferredEdgeBySource = new HashMap<OWLObject,Set<OWLGraphEdge>>();
 				if (inferredEdgeBySource.containsKey(s)) {
 					return new OWLGraphEdgeSet(inferredEdgeBySource.get(s));
 				}
 			}
-			profiler.startTaskNotify("getOutgoingEdgesClosure");
+		}
+		// the closure is computed outside of the lock, this allows
+		// concurrent calls for different sources
+		profiler.startTaskNotify("getOutgoingEdgesClosure");
 	
-			Stack<OWLGraphEdge> edgeStack = new Stack<OWLGraphEdge>();
-			Set<OWLGraphEdge> closureSet = new OWLGraphEdgeSet();
-			//Set<OWLGraphEdge> visitedSet = new HashSet<OWLGraphEdge>();
-			Set<OWLObject> visitedObjs = new HashSet<OWLObject>();
-			Map<OWLObject,Set<OWLGraphEdge>> visitedMap = new HashMap<OWLObject,Set<OWLGraphEdge>>();
-			visitedObjs.add(s);
-			visitedMap.put(s, new OWLGraphEdgeSet());
+		Stack<OWLGraphEdge> edgeStack = new Stack<OWLGraphEdge>();
+		Set<OWLGraphEdge> closureSet = new OWLGraphEdgeSet();
+		//Set<OWLGraphEdge> visitedSet = new HashSet<OWLGraphEdge>();
+		Set<OWLObject> visitedObjs = new HashSet<OWLObject>();
+		Map<OWLObject,Set<OWLGraphEdge>> visitedMap = new HashMap<OWLObject,Set<OWLGraphEdge>>();
+		visitedObjs.add(s);
+		visitedMap.put(s, new OWLGraphEdgeSet());
 	
-			// initialize. we seed the search with a reflexive identity edge DEPR
-			//edgeStack.add(new OWLGraphEdge(s,s,null,Quantifier.IDENTITY,ontology));
+		// initialize. we seed the search with a reflexive identity edge DEPR
+		//edgeStack.add(new OWLGraphEdge(s,s,null,Quantifier.IDENTITY,ontology));
 	
-			// seed stack
-			edgeStack.addAll(getPrimitiveOutgoingEdges(s, overProperties));
-			closureSet.addAll(edgeStack);
-			while (!edgeStack.isEmpty()) {
-				OWLGraphEdge ne = edgeStack.pop();
-				//System.out.println("NEXT: "+ne+" //stack: "+edgeStack);
-				int nextDist = ne.getDistance() + 1;
-				Set<OWLGraphEdge> extSet = getPrimitiveOutgoingEdges(ne.getTarget(), overProperties);
-				for (OWLGraphEdge extEdge : extSet) {
-					//System.out.println("   EXT:"+extEdge);
-					OWLGraphEdge nu = combineEdgePair(s, ne, extEdge, nextDist);
-					if (nu == null)
-						continue;
-					//if (!isKeepEdge(nu))
-					//	continue;
+		// seed stack
+		edgeStack.addAll(getPrimitiveOutgoingEdges(s, overProperties));
+		closureSet.addAll(edgeStack);
+		while (!edgeStack.isEmpty()) {
+			OWLGraphEdge ne = edgeStack.pop();
+			//System.out.println("NEXT: "+ne+" //stack: "+edgeStack);
+			int nextDist = ne.getDistance() + 1;
+			Set<OWLGraphEdge> extSet = getPrimitiveOutgoingEdges(ne.getTarget(), overProperties);
+			for (OWLGraphEdge extEdge : extSet) {
+				//System.out.println("   EXT:"+extEdge);
+				OWLGraphEdge nu = combineEdgePair(s, ne, extEdge, nextDist);
+				if (nu == null)
+					continue;
+				//if (!isKeepEdge(nu))
+				//	continue;
 	
-					OWLObject nuTarget = nu.getTarget();
-					//System.out.println("     COMBINED:"+nu);
+				OWLObject nuTarget = nu.getTarget();
+				//System.out.println("     COMBINED:"+nu);
 	
-					// check for cycles. this is not as simple as
-					// checking if we have visited the node, as we are interested
-					// in different paths to the same node.
-					// todo - check if there is an existing path to this node
-					//  that is shorter
-					//if (!visitedSet.contains(nu)) {
-					boolean isEdgeVisited = false;
-					if (visitedObjs.contains(nuTarget)) {
-						// we have potentially visited this edge before
-						//System.out.println("checking to see if  visisted "+nu);
-						//System.out.println(nu.getFinalQuantifiedProperty());
-						for (OWLGraphEdge ve : visitedMap.get(nuTarget)) {
-							//System.out.println(" ve:"+ve.getFinalQuantifiedProperty());
-							if (ve.getFinalQuantifiedProperty().equals(nu.getFinalQuantifiedProperty())) {
-								//System.out.println("already visited: "+nu+" via: "+ve);
-								isEdgeVisited = true;
-							}
-						}
-						if (!isEdgeVisited) {
-						    visitedMap.get(nuTarget).add(nu);
+				// check for cycles. this is not as simple as
+				// checking if we have visited the node, as we are interested
+				// in different paths to the same node.
+				// todo - check if there is an existing path to this node
+				//  that is shorter
+				//if (!visitedSet.contains(nu)) {
+				boolean isEdgeVisited = false;
+				if (visitedObjs.contains(nuTarget)) {
+					// we have potentially visited this edge before
+					//System.out.println("checking to see if  visisted "+nu);
+					//System.out.println(nu.getFinalQuantifiedProperty());
+					for (OWLGraphEdge ve : visitedMap.get(nuTarget)) {
+						//System.out.println(" ve:"+ve.getFinalQuantifiedProperty());
+						if (ve.getFinalQuantifiedProperty().equals(nu.getFinalQuantifiedProperty())) {
+							//System.out.println("already visited: "+nu+" via: "+ve);
+							isEdgeVisited = true;
 						}
 					}
-					else {
-						visitedObjs.add(nuTarget);
-						visitedMap.put(nuTarget, new OWLGraphEdgeSet());
-						visitedMap.get(nuTarget).add(nu);
-					}
-	
 					if (!isEdgeVisited) {
-						//System.out.println("      *NOT VISITED:"+nu+" visistedSize:"+visitedSet.size());
-						if (nu.getTarget() instanceof OWLNamedObject || 
-								config.isIncludeClassExpressionsInClosure) {
-						    closureSet.add(nu);
-						}
-						edgeStack.add(nu);
-						//visitedSet.add(nu);		
+					    visitedMap.get(nuTarget).add(nu);
+					}
+				}
+				else {
+					visitedObjs.add(nuTarget);
+					visitedMap.put(nuTarget, new OWLGraphEdgeSet());
+					visitedMap.get(nuTarget).add(nu);
+				}
 	
+				if (!isEdgeVisited) {
+					//System.out.println("      *NOT VISITED:"+nu+" visistedSize:"+visitedSet.size());
+					if (nu.getTarget() instanceof OWLNamedObject || 
+							config.isIncludeClassExpressionsInClosure) {
+					    closureSet.add(nu);
 					}
+					edgeStack.add(nu);
+					//visitedSet.add(nu);		
 	
 				}
+	
 			}
+		}
 	
-			if (config.isCacheClosure && overProperties == null) {
+		if (useCache) {
+			synchronized (edgeCacheMutex) {
+				if (inferredEdgeBySource == null)
+					inferredEdgeBySource = new HashMap<OWLObject,Set<OWLGraphEdge>>();
 				inferredEdgeBySource.put(s, new OWLGraphEdgeSet(closureSet));
 			}
-			profiler.endTaskNotify("getOutgoingEdgesClosure");
-			return closureSet;
 		}
+		profiler.endTaskNotify("getOutgoingEdgesClosure");
+		return closureSet;
 	}
 
 	/**
@@ -1701,28 +1712,35 @@ public class OWLGraphWrapperEdges extends OWLGraphWrapperExtended {
 	// TODO - currently hardcoded for simple property chains
 	Map<OWLObjectProperty,Set<List<OWLObjectProperty>>> pcMap = null;
 	private Map<OWLObjectProperty,Set<List<OWLObjectProperty>>> getPropertyChainMap() {
-		if (pcMap == null) {
-			pcMap = new HashMap<OWLObjectProperty,Set<List<OWLObjectProperty>>>();
-			for (OWLSubPropertyChainOfAxiom a : sourceOntology.getAxioms(AxiomType.SUB_PROPERTY_CHAIN_OF)) {
-				//LOG.info("CHAIN:"+a+" // "+a.getPropertyChain().size());
-				if (a.getPropertyChain().size() == 2) {
-					OWLObjectPropertyExpression p1 = a.getPropertyChain().get(0);
-					OWLObjectPropertyExpression p2 = a.getPropertyChain().get(1);
-					//LOG.info("  xxCHAIN:"+p1+" o "+p2);
-					if (p1 instanceof OWLObjectProperty && p2 instanceof OWLObjectProperty) {
-						List<OWLObjectProperty> list = new Vector<OWLObjectProperty>();
-						list.add((OWLObjectProperty) p2);
-						list.add((OWLObjectProperty) a.getSuperProperty());
-						if (!pcMap.containsKey(p1)) 
-							pcMap.put((OWLObjectProperty) p1, new HashSet<List<OWLObjectProperty>>());
-						pcMap.get((OWLObjectProperty) p1).add(list);
-						//LOG.info("  xxxCHAIN:"+p1+" ... "+list);
-					}
-				}
-				else {
-					// TODO
+		synchronized (edgeCacheMutex) {
+			if (pcMap == null) {
+				pcMap = createPropertyChainMap();
+			}
+			return pcMap;
+		}
+	}
+
+	private Map<OWLObjectProperty,Set<List<OWLObjectProperty>>> createPropertyChainMap() {
+		Map<OWLObjectProperty,Set<List<OWLObjectProperty>>> pcMap = new HashMap<OWLObjectProperty,Set<List<OWLObjectProperty>>>();
+		for (OWLSubPropertyChainOfAxiom a : sourceOntology.getAxioms(AxiomType.SUB_PROPERTY_CHAIN_OF)) {
+			//LOG.info("CHAIN:"+a+" // "+a.getPropertyChain().size());
+			if (a.getPropertyChain().size() == 2) {
+				OWLObjectPropertyExpression p1 = a.getPropertyChain().get(0);
+				OWLObjectPropertyExpression p2 = a.getPropertyChain().get(1);
+				//LOG.info("  xxCHAIN:"+p1+" o "+p2);
+				if (p1 instanceof OWLObjectProperty && p2 instanceof OWLObjectProperty) {
+					List<OWLObjectProperty> list = new Vector<OWLObjectProperty>();
+					list.add((OWLObjectProperty) p2);
+					list.add((OWLObjectProperty) a.getSuperProperty());
+					if (!pcMap.containsKey(p1)) 
+						pcMap.put((OWLObjectProperty) p1, new HashSet<List<OWLObjectProperty>>());
+					pcMap.get((OWLObjectProperty) p1).add(list);
+					//LOG.info("  xxxCHAIN:"+p1+" ... "+list);
 				}
 			}
+			else {
+				// TODO
+			}
 		}
 		return pcMap;
 	}
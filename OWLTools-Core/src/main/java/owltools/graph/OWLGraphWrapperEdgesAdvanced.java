@@ -3,6 +3,8 @@ package owltools.graph;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -10,6 +12,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import org.apache.log4j.Logger;
@@ -42,6 +49,7 @@ import owltools.graph.shunt.OWLShuntGraph;
 import owltools.graph.shunt.OWLShuntNode;
 import owltools.util.OwlHelper;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
@@ -79,6 +87,55 @@ public class OWLGraphWrapperEdgesAdvanced extends OWLGraphWrapperEdgesExtended i
 		}
 		return 0;
 	}
+
+	// A cache of the serialized shunt graphs, keyed by kind, object and relation ids.
+	// Disabled by default, see precomputeShuntGraphJSON
+	private volatile Cache<List<Object>, String> shuntGraphJSONCache = null;
+	private int shuntGraphJSONCacheSize = 0; // default size, 0 disables the cache
+
+	private static enum ShuntGraphKind {
+		SEGMENT, LINEAGE
+	}
+
+	/**
+	 * Set the maximum number of serialized shunt graphs to keep, 0 disables
+	 * the cache. Discards the current cache content.
+	 * 
+	 * @param size
+	 */
+	public synchronized void setShuntGraphJSONCacheSize(int size) {
+		this.shuntGraphJSONCacheSize = size;
+		shuntGraphJSONCache = null;
+	}
+
+	public long getCurrentShuntGraphJSONCacheSize() {
+		if (shuntGraphJSONCache != null) {
+			return shuntGraphJSONCache.size();
+		}
+		return 0;
+	}
+
+	/**
+	 * Discard the serialized shunt graphs, required after changes to the
+	 * ontology.
+	 */
+	public void clearShuntGraphJSONCache() {
+		if (shuntGraphJSONCache != null) {
+			shuntGraphJSONCache.invalidateAll();
+		}
+	}
+
+	private synchronized Cache<List<Object>, String> getShuntGraphJSONCache() {
+		if (shuntGraphJSONCache == null && shuntGraphJSONCacheSize > 0) {
+			// a single segment, so the size is not reduced by uneven segments;
+			// the entries are rendered outside of the cache
+			shuntGraphJSONCache = CacheBuilder.newBuilder()
+				.concurrencyLevel(1)
+				.maximumSize(shuntGraphJSONCacheSize)
+				.build();
+		}
+		return shuntGraphJSONCache;
+	}
 	
 	private final Set<OWLObjectProperty> materializationPropertySet = new HashSet<OWLObjectProperty>();
 	
@@ -125,6 +182,13 @@ public class OWLGraphWrapperEdgesAdvanced extends OWLGraphWrapperEdgesExtended i
 			isSynchronized = false;
 		}
 		neighborAxioms = null;
+		clearShuntGraphJSONCache();
+	}
+
+	@Override
+	public void clearCachedEdges() {
+		super.clearCachedEdges();
+		clearShuntGraphJSONCache();
 	}
 
 	/**
@@ -319,7 +383,11 @@ public class OWLGraphWrapperEdgesAdvanced extends OWLGraphWrapperEdgesExtended i
 			final OWLShuntGraph g, final Set<OWLObjectProperty> props) {
 		addPropertiesForMaterialization(props);
 		ExpressionMaterializingReasoner materializingReasoner = getMaterializingReasoner();
-		Set<OWLClassExpression> classExpressions = materializingReasoner.getSuperClassExpressions(cls, false);
+		Set<OWLClassExpression> classExpressions;
+		// the reasoner is not thread-safe, see precomputeShuntGraphJSON
+		synchronized (materializingReasoner) {
+			classExpressions = materializingReasoner.getSuperClassExpressions(cls, false);
+		}
 		for (OWLClassExpression ce : classExpressions) {
 			ce.accept(new OWLClassExpressionVisitorAdapter(){
 
@@ -594,11 +662,7 @@ public class OWLGraphWrapperEdgesAdvanced extends OWLGraphWrapperEdgesExtended i
 	 * @return String representing part of the stepwise OWL graph
 	 */
 	public String getSegmentShuntGraphJSON(OWLObject x, List<String> sargs) {
-
-		// Collection depot.		
-		OWLShuntGraph graphSegment = getSegmentShuntGraph(x, sargs);
-
-		return graphSegment.toJSON();
+		return getShuntGraphJSON(ShuntGraphKind.SEGMENT, x, sargs);
 	}
 
 	
@@ -609,13 +673,121 @@ public class OWLGraphWrapperEdgesAdvanced extends OWLGraphWrapperEdgesExtended i
 	 * @return String representing part of the transitive OWL graph
 	 */
 	public String getLineageShuntGraphJSON(OWLObject x, List<String> sargs) {
+		return getShuntGraphJSON(ShuntGraphKind.LINEAGE, x, sargs);
+	}
 
-		// Collection depot.
-		OWLShuntGraph graphSegment = getLineageShuntGraph(x, sargs);
+	/**
+	 * Cached lookup for the JSON of a segment or lineage shunt graph. The
+	 * JSON is rendered on the first request for a (kind, object, relations)
+	 * key, concurrent first requests may render it more than once. Without
+	 * a cache, the JSON is rendered on each request.
+	 * 
+	 * @param kind
+	 * @param x
+	 * @param rel_ids
+	 * @return JSON string
+	 */
+	private String getShuntGraphJSON(ShuntGraphKind kind, OWLObject x, List<String> rel_ids) {
+		Cache<List<Object>, String> jsonCache = getShuntGraphJSONCache();
+		if (jsonCache == null) {
+			return renderShuntGraphJSON(kind, x, rel_ids);
+		}
+		List<Object> key = Arrays.<Object>asList(kind, x, new ArrayList<String>(rel_ids));
+		String json = jsonCache.getIfPresent(key);
+		if (json == null) {
+			json = renderShuntGraphJSON(kind, x, rel_ids);
+			jsonCache.put(key, json);
+		}
+		return json;
+	}
 
+	private String renderShuntGraphJSON(ShuntGraphKind kind, OWLObject x, List<String> rel_ids) {
+		OWLShuntGraph graphSegment;
+		if (kind == ShuntGraphKind.LINEAGE) {
+			graphSegment = getLineageShuntGraph(x, rel_ids);
+		}
+		else {
+			graphSegment = getSegmentShuntGraph(x, rel_ids);
+		}
 		return graphSegment.toJSON();
 	}
 
+	/**
+	 * Render the segment and lineage shunt graph JSON for all given objects
+	 * up front, using numThreads threads. The results are served by
+	 * {@link #getSegmentShuntGraphJSON(OWLObject, List)} and
+	 * {@link #getLineageShuntGraphJSON(OWLObject, List)}, as long as the
+	 * number of objects does not exceed the cache size. If the cache is
+	 * disabled, it is enabled with a size for all the requested graphs.
+	 * <p>
+	 * The reasoner for the lineage graphs is not thread-safe, its queries
+	 * are serialized. The graph traversal, labels and JSON rendering run in
+	 * parallel.
+	 * 
+	 * @param objects
+	 * @param segmentRelationIds relations for the segment graphs or null to skip them
+	 * @param lineageRelationIds relations for the lineage graphs or null to skip them
+	 * @param numThreads
+	 * @throws InterruptedException
+	 */
+	public void precomputeShuntGraphJSON(Collection<? extends OWLObject> objects,
+			final List<String> segmentRelationIds, final List<String> lineageRelationIds,
+			int numThreads) throws InterruptedException {
+		int numGraphs = 0;
+		if (segmentRelationIds != null) {
+			numGraphs += objects.size();
+		}
+		if (lineageRelationIds != null) {
+			numGraphs += objects.size();
+		}
+		synchronized (this) {
+			if (shuntGraphJSONCacheSize <= 0) {
+				setShuntGraphJSONCacheSize(numGraphs);
+			}
+			else if (numGraphs > shuntGraphJSONCacheSize) {
+				LOG.warn("Number of shunt graphs exceeds the cache size: "+numGraphs+" > "+shuntGraphJSONCacheSize);
+			}
+		}
+		if (lineageRelationIds != null) {
+			// materialize before the workers start querying the reasoner
+			addPropertyIdsForMaterialization(lineageRelationIds);
+			getMaterializingReasoner();
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, numThreads));
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>(objects.size());
+			for (final OWLObject x : objects) {
+				futures.add(executor.submit(new Callable<Void>() {
+
+					@Override
+					public Void call() throws Exception {
+						if (segmentRelationIds != null) {
+							getSegmentShuntGraphJSON(x, segmentRelationIds);
+						}
+						if (lineageRelationIds != null) {
+							getLineageShuntGraphJSON(x, lineageRelationIds);
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					}
+					throw new RuntimeException(cause);
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
 	
 	/**
 	 * Return a map of id to label for the closure of the ontology using the supplied relation id list and .isSubClassOf().
@@ -57,7 +57,7 @@ public abstract class AbstractMappingParser {
 		}
 		
 		if(file.endsWith(".gz")){
-			is = new GZIPInputStream(is);
+			is = new GZIPInputStream(is, 65536);
 		}
 		
 		parse(new InputStreamReader(is));
@@ -12,6 +12,24 @@ public abstract class IDMapHandler {
 	public void init () {
 		
 	}
+	
+	/**
+	 * @return indices of the columns used in {@link #process(String[])}, or
+	 *  null if all columns are required. Only these columns are extracted
+	 *  from the lines.
+	 */
+	public int[] getColumns() {
+		return null;
+	}
+	
+	/**
+	 * @return true, if {@link #process(String[])} may be called concurrently
+	 *  from several threads
+	 */
+	public boolean isThreadSafe() {
+		return false;
+	}
+	
 	public String[] split(String s) {
 		if (s.equals(""))
 			return emptyArr;
@@ -1,10 +1,17 @@
 package owltools.idmap;
 
+import java.io.PrintStream;
+
 import owltools.idmap.IDMappingPIRParser.Types;
 
+/**
+ * Writes the pairs of two ID types, in the order of the rows. The rows are
+ * not processed concurrently, also with several parser threads.
+ */
 public  class IDMapPairWriter extends IDMapHandler {
 	public Types t1 = Types.UniProtKB_ID;
 	public Types t2 = Types.EntrezGene;
+	public PrintStream output = System.out;
 
 	private int ix1;
 	private int ix2;
@@ -14,16 +21,25 @@ public  class IDMapPairWriter extends IDMapHandler {
 		ix2 = typeMap.get(t2);
 	}
 
+	@Override
+	public int[] getColumns() {
+		return new int[]{ix1, ix2};
+	}
+
 	public boolean process(String[] colVals) {
 		if (colVals.length <= Math.max(ix1,ix2))
 			return false;
 		String[] vals1 = split(colVals[ix1]);
 		String[] vals2 = split(colVals[ix2]);
+		if (vals1.length == 0 || vals2.length == 0)
+			return true;
+		StringBuilder sb = new StringBuilder();
 		for (String v1 : vals1) {
 			for (String v2 : vals2) {
-				System.out.println(v1+"\t"+v2);
+				sb.append(v1).append('\t').append(v2).append('\n');
 			}				
 		}
+		output.print(sb);
 		return true;
 	}
 	
@@ -3,10 +3,22 @@ package owltools.idmap;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
 
 /**
  * Parses the IDMapping file available here:
@@ -17,7 +29,7 @@ import java.util.Set;
  */
 public class IDMappingPIRParser extends AbstractMappingParser {
 	
-	
+	private static final Logger LOG = Logger.getLogger(IDMappingPIRParser.class);
 
 	public enum Types {
 
@@ -106,6 +118,23 @@ public class IDMappingPIRParser extends AbstractMappingParser {
 	
 	public IDMapHandler handler;
 
+	/**
+	 * Number of threads for splitting the lines. With more than one thread,
+	 * the input is read in chunks of {@link #chunkSize} lines, which are
+	 * parsed in parallel.
+	 */
+	public int numThreads = 1;
+	
+	/**
+	 * Number of lines per chunk in the parallel mode.
+	 */
+	public int chunkSize = 10000;
+	
+	// columns to extract, null for all columns
+	private boolean[] columns;
+	
+	private int maxColumn;
+
 	
 	public IDMappingPIRParser(){
 		init();
@@ -135,12 +164,69 @@ public class IDMappingPIRParser extends AbstractMappingParser {
 			if (this.currentRow.trim().length() == 0) {
 				return next();
 			}
-			handler.process(this.currentRow.split("\\t", -1));
+			handler.process(splitColumns(currentRow));
 			return true;
 		}
 		return false;
 	}
 	
+	/**
+	 * Set the columns to be extracted from each line: the columns in
+	 * {@link #colIxSubset} and the columns of the handler. If the handler
+	 * does not specify its columns, the lines are split completely.
+	 */
+	private void initColumns() {
+		int[] handlerColumns = handler.getColumns();
+		if (handlerColumns == null) {
+			columns = null;
+			return;
+		}
+		TreeSet<Integer> subset = new TreeSet<Integer>(colIxSubset);
+		for (int i : handlerColumns) {
+			subset.add(i);
+		}
+		maxColumn = subset.isEmpty() ? -1 : subset.last();
+		columns = new boolean[maxColumn + 1];
+		for (int i : subset) {
+			columns[i] = true;
+		}
+	}
+	
+	/**
+	 * Split a tab separated line. If only a subset of the columns is
+	 * required, the line is only scanned up to the last required column and
+	 * the other columns are null. The length of the array is the number of
+	 * columns in the line, up to the last required column.
+	 * 
+	 * @param line
+	 * @return column values
+	 */
+	String[] splitColumns(String line) {
+		if (columns == null) {
+			return line.split("\\t", -1);
+		}
+		String[] result = new String[maxColumn + 1];
+		int start = 0;
+		int col = 0;
+		while (col <= maxColumn) {
+			int end = line.indexOf('\t', start);
+			if (columns[col]) {
+				result[col] = end < 0 ? line.substring(start) : line.substring(start, end);
+			}
+			col++;
+			if (end < 0) {
+				break;
+			}
+			start = end + 1;
+		}
+		if (col <= maxColumn) {
+			String[] shorter = new String[col];
+			System.arraycopy(result, 0, shorter, 0, col);
+			return shorter;
+		}
+		return result;
+	}
+	
 	public boolean process(String[] colVals) {
 		for (int i : colIxSubset) {
 			String v = colVals[i];
@@ -153,10 +239,103 @@ public class IDMappingPIRParser extends AbstractMappingParser {
 //		init();
 		handler.typeMap = typeIxMap;
 		handler.init();
+		initColumns();
 	
 		this.reader = new BufferedReader(reader);
-		while (next()) {
-			
+		if (numThreads > 1) {
+			parseParallel();
+		}
+		else {
+			while (next()) {
+				
+			}
+		}
+	}
+	
+	/**
+	 * Read the lines in chunks and split them in parallel. Thread-safe
+	 * handlers process the rows in the worker threads, the rows for other
+	 * handlers are processed in the order of the input.
+	 * 
+	 * @throws IOException
+	 */
+	private void parseParallel() throws IOException {
+		final boolean concurrent = handler.isThreadSafe();
+		final long start = System.currentTimeMillis();
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			Deque<Future<List<String[]>>> pending = new ArrayDeque<Future<List<String[]>>>();
+			List<String> chunk = new ArrayList<String>(chunkSize);
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				if (line.trim().length() == 0) {
+					continue;
+				}
+				chunk.add(line);
+				if (chunk.size() >= chunkSize) {
+					pending.add(executor.submit(createTask(chunk, concurrent)));
+					chunk = new ArrayList<String>(chunkSize);
+					if (pending.size() >= numThreads * 2) {
+						processChunk(pending.removeFirst());
+					}
+				}
+				if (lineNumber % 1000000 == 0) {
+					LOG.info("Read "+lineNumber+" lines in "+(System.currentTimeMillis() - start)+" ms");
+				}
+			}
+			if (!chunk.isEmpty()) {
+				pending.add(executor.submit(createTask(chunk, concurrent)));
+			}
+			while (!pending.isEmpty()) {
+				processChunk(pending.removeFirst());
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		LOG.info("Parsed "+lineNumber+" lines in "+(System.currentTimeMillis() - start)+" ms");
+	}
+	
+	private Callable<List<String[]>> createTask(final List<String> lines, final boolean concurrent) {
+		return new Callable<List<String[]>>() {
+
+			@Override
+			public List<String[]> call() throws Exception {
+				List<String[]> rows = new ArrayList<String[]>(lines.size());
+				for (String line : lines) {
+					String[] colVals = splitColumns(line);
+					if (concurrent) {
+						handler.process(colVals);
+					}
+					else {
+						rows.add(colVals);
+					}
+				}
+				return rows;
+			}
+		};
+	}
+	
+	private void processChunk(Future<List<String[]>> future) throws IOException {
+		List<String[]> rows;
+		try {
+			rows = future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while parsing the mapping file", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+		for (String[] colVals : rows) {
+			handler.process(colVals);
 		}
 	}
 
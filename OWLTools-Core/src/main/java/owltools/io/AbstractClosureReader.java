@@ -1,9 +1,9 @@
 package owltools.io;
 
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
 
 import owltools.graph.OWLGraphWrapper;
 
@@ -40,10 +40,17 @@ public abstract class AbstractClosureReader implements GraphReader {
 		this.stream = stream;
 	}
 	
+	/**
+	 * @param file file name, gzip compressed if it ends with '.gz'
+	 */
 	public void setStream(String file) {
 		try {
-			this.stream = new FileInputStream(file);
-		} catch (FileNotFoundException e) {
+			InputStream is = new FileInputStream(file);
+			if (file.endsWith(".gz")) {
+				is = new GZIPInputStream(is);
+			}
+			this.stream = is;
+		} catch (IOException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
 		}
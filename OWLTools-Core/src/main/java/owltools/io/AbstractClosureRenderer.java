@@ -1,9 +1,20 @@
 package owltools.io;
 
 import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.apache.log4j.Logger;
 import org.semanticweb.owlapi.model.OWLObject;
 import org.semanticweb.owlapi.model.parameters.Imports;
 
@@ -12,12 +23,20 @@ import owltools.graph.OWLGraphWrapper;
 
 /**
  * Renders the graph closure - i.e. the inferred paths emanating from all named entities
- * 
+ * <p>
+ * The entities are rendered in sorted order. With more than one thread, the
+ * closures are computed in parallel ahead of the rendering, the output is
+ * the same as for a single thread.
+ *
  * @author cjm
  *
  */
 public abstract class AbstractClosureRenderer extends AbstractRenderer implements GraphRenderer {
 
+	private static final Logger LOG = Logger.getLogger(AbstractClosureRenderer.class);
+
+	private int numThreads = 1;
+
 	public AbstractClosureRenderer(PrintStream stream) {
 		super(stream);
 	}
@@ -25,25 +44,79 @@ public abstract class AbstractClosureRenderer extends AbstractRenderer implement
 	public AbstractClosureRenderer(String file) {
 		super(file);
 	}
-	
+
+	/**
+	 * @param numThreads number of threads for computing the closures
+	 */
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
 
 	public void render(OWLGraphWrapper g) {
 		graph = g;
-		
-		Set<OWLObject> objs = new HashSet<OWLObject>(g.getSourceOntology().getClassesInSignature(Imports.EXCLUDED));
-		objs.addAll(g.getSourceOntology().getIndividualsInSignature(Imports.EXCLUDED));
+		if (prettyPrinter == null) {
+			prettyPrinter = new OWLPrettyPrinter(g);
+		}
+
+		Set<OWLObject> objSet = new HashSet<OWLObject>(g.getSourceOntology().getClassesInSignature(Imports.EXCLUDED));
+		objSet.addAll(g.getSourceOntology().getIndividualsInSignature(Imports.EXCLUDED));
+		List<OWLObject> objs = new ArrayList<OWLObject>(objSet);
+		Collections.sort(objs);
 
-		for (OWLObject obj : objs) {
-			for (OWLGraphEdge e : g.getOutgoingEdgesClosure(obj)) {
-				render(e);
+		// the reasoner is not thread safe
+		if (numThreads > 1 && g.getReasoner() == null) {
+			renderConcurrently(g, objs);
+		}
+		else {
+			for (OWLObject obj : objs) {
+				render(g.getOutgoingEdgesClosure(obj));
 			}
 		}
 		stream.close();
 	}
-	
+
+	private void renderConcurrently(final OWLGraphWrapper g, List<OWLObject> objs) {
+		LOG.info("Computing closure for "+objs.size()+" objects using "+numThreads+" threads");
+		// limit the number of closures, which are computed but not yet rendered
+		final int window = numThreads * 64;
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			Deque<Future<Set<OWLGraphEdge>>> pending = new ArrayDeque<Future<Set<OWLGraphEdge>>>(window);
+			int next = 0;
+			while (next < objs.size() || !pending.isEmpty()) {
+				while (next < objs.size() && pending.size() < window) {
+					final OWLObject obj = objs.get(next++);
+					pending.add(executor.submit(new Callable<Set<OWLGraphEdge>>() {
+
+						@Override
+						public Set<OWLGraphEdge> call() throws Exception {
+							return g.getOutgoingEdgesClosure(obj);
+						}
+					}));
+				}
+				render(pending.poll().get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while rendering the closure", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void render(Set<OWLGraphEdge> closure) {
+		for (OWLGraphEdge e : closure) {
+			render(e);
+		}
+	}
 
 	public abstract void render(OWLGraphEdge e);
-	
 
-}
 
+}
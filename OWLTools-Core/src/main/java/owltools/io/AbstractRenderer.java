@@ -1,9 +1,14 @@
 package owltools.io;
 
 import java.io.BufferedOutputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
 
 import org.semanticweb.owlapi.model.OWLObject;
 
@@ -17,6 +22,8 @@ import owltools.graph.OWLGraphWrapper;
  */
 public abstract class AbstractRenderer implements GraphRenderer {
 
+	private static final int BUFFER_SIZE = 1 << 16;
+
 	protected OWLGraphWrapper graph;
 	protected OWLPrettyPrinter prettyPrinter;
 	protected PrintStream stream;
@@ -41,12 +48,21 @@ public abstract class AbstractRenderer implements GraphRenderer {
 		this.stream = stream;
 	}
 	
+	/**
+	 * Open a buffered stream for the file, the output is gzip compressed if
+	 * the file name ends with '.gz'.
+	 * 
+	 * @param file
+	 */
 	public void setStream(String file) {
-		FileOutputStream fos;
 		try {
-			fos = new FileOutputStream(file);
-			this.stream = new PrintStream(new BufferedOutputStream(fos));
-		} catch (FileNotFoundException e) {
+			OutputStream os = Channels.newOutputStream(FileChannel.open(Paths.get(file),
+					StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+			if (file.endsWith(".gz")) {
+				os = new GZIPOutputStream(os, BUFFER_SIZE);
+			}
+			this.stream = new PrintStream(new BufferedOutputStream(os, BUFFER_SIZE));
+		} catch (IOException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
 		}
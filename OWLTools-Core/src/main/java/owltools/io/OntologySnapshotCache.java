@@ -0,0 +1,336 @@
+package owltools.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+import org.semanticweb.owlapi.formats.PrefixDocumentFormat;
+import org.semanticweb.owlapi.model.AddImport;
+import org.semanticweb.owlapi.model.AddOntologyAnnotation;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLDocumentFormat;
+import org.semanticweb.owlapi.model.OWLImportsDeclaration;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+import org.semanticweb.owlapi.model.OWLOntologyIRIMapper;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.model.parameters.Imports;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * On-disk cache of parsed ontologies, including their imports.
+ * <p>
+ * A snapshot is keyed by the source IRI and stores the axioms, annotations
+ * and import declarations of every ontology in the import closure as
+ * serialized OWL objects. Loading a snapshot skips the parsing of the
+ * original documents.
+ * <p>
+ * A snapshot is only used, if the IRI mappers still resolve the source and
+ * all imports to the same documents and none of these files has changed,
+ * i.e. same size and either same modification time or same SHA-256 hash.
+ * Ontologies with any import not loaded from a local file are not cached.
+ *
+ * @see ParserWrapper#setSnapshotCache(OntologySnapshotCache)
+ */
+public class OntologySnapshotCache {
+
+	private static final Logger LOG = Logger.getLogger(OntologySnapshotCache.class);
+
+	private static final int VERSION = 1;
+	private static final String SUFFIX = ".snapshot.gz";
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final File directory;
+
+	/**
+	 * @param directory folder for the snapshot files, created if necessary
+	 */
+	public OntologySnapshotCache(File directory) {
+		this.directory = directory;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Load the ontology for the source from a valid snapshot into the
+	 * manager.
+	 *
+	 * @param source
+	 * @param manager
+	 * @return ontology or null, if there is no valid snapshot
+	 */
+	public OWLOntology load(IRI source, OWLOntologyManager manager) {
+		File snapshot = getSnapshotFile(source);
+		if (snapshot.isFile() == false) {
+			return null;
+		}
+		long t = System.currentTimeMillis();
+		ObjectInputStream in = null;
+		List<OWLOntology> created = new ArrayList<OWLOntology>();
+		try {
+			in = new ObjectInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(snapshot), BUFFER_SIZE)));
+			if (in.readInt() != VERSION || source.toString().equals(in.readUTF()) == false) {
+				return null;
+			}
+			if (isValid(in, manager) == false) {
+				LOG.info("Outdated snapshot for: "+source);
+				return null;
+			}
+			final int count = in.readInt();
+			OWLOntology root = null;
+			for (int i = 0; i < count; i++) {
+				OWLOntologyID id = (OWLOntologyID) in.readObject();
+				IRI documentIRI = IRI.create(in.readUTF());
+				OWLDocumentFormat format = readFormat(in);
+				Set<OWLImportsDeclaration> imports = readSet(in);
+				Set<OWLAnnotation> annotations = readSet(in);
+				Set<OWLAxiom> axioms = readSet(in);
+				OWLOntology ontology = manager.getOntology(id);
+				if (ontology == null) {
+					ontology = manager.createOntology(id);
+					created.add(ontology);
+					List<OWLOntologyChange> changes = new ArrayList<OWLOntologyChange>();
+					for (OWLImportsDeclaration declaration : imports) {
+						changes.add(new AddImport(ontology, declaration));
+					}
+					for (OWLAnnotation annotation : annotations) {
+						changes.add(new AddOntologyAnnotation(ontology, annotation));
+					}
+					manager.applyChanges(changes);
+					manager.addAxioms(ontology, axioms);
+					manager.setOntologyDocumentIRI(ontology, documentIRI);
+					if (format != null) {
+						manager.setOntologyFormat(ontology, format);
+					}
+				}
+				if (i == 0) {
+					root = ontology;
+				}
+			}
+			LOG.info("Loaded snapshot for: "+source+" with "+count+" ontologies in "+(System.currentTimeMillis() - t)+" ms");
+			created.clear();
+			return root;
+		} catch (IOException e) {
+			LOG.warn("Could not read snapshot: "+snapshot, e);
+		} catch (ClassNotFoundException e) {
+			LOG.warn("Could not read snapshot: "+snapshot, e);
+		} catch (OWLOntologyCreationException e) {
+			LOG.warn("Could not create ontology from snapshot: "+snapshot, e);
+		} catch (ClassCastException e) {
+			LOG.warn("Unexpected content in snapshot: "+snapshot, e);
+		}
+		finally {
+			IOUtils.closeQuietly(in);
+			// do not leave partial results in the manager
+			for (OWLOntology ontology : created) {
+				manager.removeOntology(ontology);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Write a snapshot for the ontology loaded from the source. Errors are
+	 * logged and otherwise ignored.
+	 *
+	 * @param source
+	 * @param ontology
+	 */
+	public void save(IRI source, OWLOntology ontology) {
+		long t = System.currentTimeMillis();
+		OWLOntologyManager manager = ontology.getOWLOntologyManager();
+		// the source ontology first, the imports in a stable order
+		List<OWLOntology> ontologies = new ArrayList<OWLOntology>();
+		ontologies.add(ontology);
+		for (OWLOntology imported : ontology.getImportsClosure()) {
+			if (imported != ontology) {
+				ontologies.add(imported);
+			}
+		}
+		Map<IRI, IRI> resolved = new LinkedHashMap<IRI, IRI>();
+		resolved.put(source, manager.getOntologyDocumentIRI(ontology));
+		Set<File> files = new HashSet<File>();
+		for (OWLOntology o : ontologies) {
+			IRI documentIRI = manager.getOntologyDocumentIRI(o);
+			if ("file".equals(documentIRI.getScheme()) == false) {
+				LOG.info("Skip snapshot for: "+source+", the document is not a local file: "+documentIRI);
+				return;
+			}
+			files.add(new File(documentIRI.toURI()));
+			for (OWLImportsDeclaration declaration : o.getImportsDeclarations()) {
+				OWLOntology imported = manager.getImportedOntology(declaration);
+				if (imported != null) {
+					resolved.put(declaration.getIRI(), manager.getOntologyDocumentIRI(imported));
+				}
+			}
+		}
+		if (directory.isDirectory() == false && directory.mkdirs() == false) {
+			LOG.warn("Could not create snapshot directory: "+directory);
+			return;
+		}
+		File snapshot = getSnapshotFile(source);
+		File tmp = null;
+		ObjectOutputStream out = null;
+		try {
+			tmp = File.createTempFile("owltools-", ".tmp", directory);
+			out = new ObjectOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tmp), BUFFER_SIZE)));
+			out.writeInt(VERSION);
+			out.writeUTF(source.toString());
+			out.writeInt(resolved.size());
+			for (Map.Entry<IRI, IRI> entry : resolved.entrySet()) {
+				out.writeUTF(entry.getKey().toString());
+				out.writeUTF(entry.getValue().toString());
+			}
+			out.writeInt(files.size());
+			for (File file : files) {
+				out.writeUTF(file.getAbsolutePath());
+				out.writeLong(file.length());
+				out.writeLong(file.lastModified());
+				out.writeUTF(hash(file));
+			}
+			out.writeInt(ontologies.size());
+			for (OWLOntology o : ontologies) {
+				out.writeObject(o.getOntologyID());
+				out.writeUTF(manager.getOntologyDocumentIRI(o).toString());
+				writeFormat(manager.getOntologyFormat(o), out);
+				out.writeObject(new HashSet<OWLImportsDeclaration>(o.getImportsDeclarations()));
+				out.writeObject(new HashSet<OWLAnnotation>(o.getAnnotations()));
+				out.writeObject(new HashSet<OWLAxiom>(o.getAxioms(Imports.EXCLUDED)));
+				// do not keep references to objects from previous ontologies
+				out.reset();
+			}
+			out.close();
+			out = null;
+			// replace atomically, concurrent readers see either the old or the new snapshot
+			Files.move(tmp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			tmp = null;
+			LOG.info("Saved snapshot for: "+source+" in "+(System.currentTimeMillis() - t)+" ms");
+		} catch (IOException e) {
+			LOG.warn("Could not write snapshot for: "+source, e);
+		}
+		finally {
+			IOUtils.closeQuietly(out);
+			if (tmp != null) {
+				tmp.delete();
+			}
+		}
+	}
+
+	/**
+	 * @param source
+	 * @return the snapshot file for the source IRI
+	 */
+	public File getSnapshotFile(IRI source) {
+		String key = Hashing.sha256().hashString(source.toString(), StandardCharsets.UTF_8).toString();
+		return new File(directory, key + SUFFIX);
+	}
+
+	private boolean isValid(ObjectInputStream in, OWLOntologyManager manager) throws IOException {
+		final int resolvedCount = in.readInt();
+		for (int i = 0; i < resolvedCount; i++) {
+			IRI iri = IRI.create(in.readUTF());
+			String documentIRI = in.readUTF();
+			if (documentIRI.equals(getDocumentIRI(iri, manager).toString()) == false) {
+				return false;
+			}
+		}
+		final int fileCount = in.readInt();
+		for (int i = 0; i < fileCount; i++) {
+			File file = new File(in.readUTF());
+			long length = in.readLong();
+			long lastModified = in.readLong();
+			String hash = in.readUTF();
+			if (file.isFile() == false || file.length() != length) {
+				return false;
+			}
+			if (file.lastModified() != lastModified && hash.equals(hash(file)) == false) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static IRI getDocumentIRI(IRI iri, OWLOntologyManager manager) {
+		for (OWLOntologyIRIMapper mapper : manager.getIRIMappers()) {
+			IRI documentIRI = mapper.getDocumentIRI(iri);
+			if (documentIRI != null) {
+				return documentIRI;
+			}
+		}
+		return iri;
+	}
+
+	private static String hash(File file) throws IOException {
+		return com.google.common.io.Files.asByteSource(file).hash(Hashing.sha256()).toString();
+	}
+
+	private static void writeFormat(OWLDocumentFormat format, ObjectOutputStream out) throws IOException {
+		// the format may contain loader specific parameters, store only the type and prefixes
+		if (format == null) {
+			out.writeObject(null);
+			return;
+		}
+		out.writeObject(format.getClass().getName());
+		if (format instanceof PrefixDocumentFormat) {
+			out.writeObject(new HashMap<String, String>(((PrefixDocumentFormat) format).getPrefixName2PrefixMap()));
+		}
+		else {
+			out.writeObject(null);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static OWLDocumentFormat readFormat(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		String className = (String) in.readObject();
+		if (className == null) {
+			return null;
+		}
+		Map<String, String> prefixes = (Map<String, String>) in.readObject();
+		try {
+			OWLDocumentFormat format = (OWLDocumentFormat) Class.forName(className).newInstance();
+			if (prefixes != null && format instanceof PrefixDocumentFormat) {
+				PrefixDocumentFormat prefixFormat = (PrefixDocumentFormat) format;
+				for (Map.Entry<String, String> entry : prefixes.entrySet()) {
+					prefixFormat.setPrefix(entry.getKey(), entry.getValue());
+				}
+			}
+			return format;
+		} catch (InstantiationException e) {
+			LOG.warn("Could not create format: "+className, e);
+		} catch (IllegalAccessException e) {
+			LOG.warn("Could not create format: "+className, e);
+		}
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> Set<T> readSet(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		return (Set<T>) in.readObject();
+	}
+}
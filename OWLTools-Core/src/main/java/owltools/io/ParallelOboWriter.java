@@ -0,0 +1,546 @@
+package owltools.io;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+import org.obolibrary.obo2owl.OWLAPIOwl2Obo;
+import org.obolibrary.obo2owl.Obo2OWLConstants;
+import org.obolibrary.obo2owl.Obo2OWLConstants.Obo2OWLVocabulary;
+import org.obolibrary.obo2owl.Owl2Obo;
+import org.obolibrary.obo2owl.OwlStringTools;
+import org.obolibrary.obo2owl.OwlStringTools.OwlStringException;
+import org.obolibrary.oboformat.model.Clause;
+import org.obolibrary.oboformat.model.Frame;
+import org.obolibrary.oboformat.model.OBODoc;
+import org.obolibrary.oboformat.parser.OBOFormatConstants.OboFormatTag;
+import org.obolibrary.oboformat.writer.OBOFormatWriter;
+import org.obolibrary.oboformat.writer.OBOFormatWriter.NameProvider;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.AddImport;
+import org.semanticweb.owlapi.model.AddOntologyAnnotation;
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLDeclarationAxiom;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLImportsDeclaration;
+import org.semanticweb.owlapi.model.OWLIndividualAxiom;
+import org.semanticweb.owlapi.model.OWLLiteral;
+import org.semanticweb.owlapi.model.OWLNaryClassAxiom;
+import org.semanticweb.owlapi.model.OWLObjectIntersectionOf;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.model.OWLSubClassOfAxiom;
+
+/**
+ * Writes an ontology in OBO format without creating a single {@link OBODoc}
+ * for the whole ontology.
+ *
+ * The classes are split into partitions of consecutive OBO ids. Each
+ * partition, together with all axioms not specific to a class, is converted
+ * with its own {@link Owl2Obo} instance in parallel and the resulting term
+ * frames are rendered into a temporary file. The header, with the
+ * untranslatable axioms of all partitions, is written first and the
+ * partitions are then streamed to the output in id order, followed by the
+ * typedef and instance frames. The output is the same as for
+ * {@link Owl2Obo#convert(OWLOntology)} and {@link OBOFormatWriter#write(OBODoc, BufferedWriter)}.
+ * If a frame can not be assigned to a single partition, the whole ontology is
+ * converted at once instead. The axioms which are not specific to a class are
+ * converted first, the fallback is taken before the partitions are converted,
+ * if they create term frames, or as soon as a partition contains a frame of
+ * another partition.
+ */
+public class ParallelOboWriter {
+
+	private static final Logger LOG = Logger.getLogger(ParallelOboWriter.class);
+
+	private final int numThreads;
+	private int partitionSize = 5000;
+	private boolean checkStructure = true;
+	// number of writes, which used the partitions, for tests
+	int partitionedWrites = 0;
+
+	/**
+	 * @param numThreads
+	 */
+	public ParallelOboWriter(int numThreads) {
+		this.numThreads = Math.max(1, numThreads);
+	}
+
+	/**
+	 * @param partitionSize the maximum number of classes per partition
+	 */
+	public void setPartitionSize(int partitionSize) {
+		this.partitionSize = Math.max(1, partitionSize);
+	}
+
+	/**
+	 * @param checkStructure if true, check each frame before writing, see {@link OBOFormatWriter#setCheckStructure(boolean)}
+	 */
+	public void setCheckStructure(boolean checkStructure) {
+		this.checkStructure = checkStructure;
+	}
+
+	/**
+	 * Write the ontology in OBO format, the writer is flushed but not closed.
+	 *
+	 * @param ontology
+	 * @param writer
+	 * @throws IOException
+	 */
+	public void write(final OWLOntology ontology, BufferedWriter writer) throws IOException {
+		long t = System.currentTimeMillis();
+
+		// sort the classes by OBO id and split into partitions
+		List<OWLClass> classes = new ArrayList<OWLClass>(ontology.getClassesInSignature());
+		final Map<OWLClass, String> ids = new HashMap<OWLClass, String>();
+		for (OWLClass c : classes) {
+			ids.put(c, OWLAPIOwl2Obo.getIdentifierFromObject(c, ontology, (String) null));
+		}
+		Collections.sort(classes, new Comparator<OWLClass>() {
+
+			@Override
+			public int compare(OWLClass c1, OWLClass c2) {
+				String id1 = ids.get(c1);
+				String id2 = ids.get(c2);
+				if (id1 == null || id2 == null) {
+					return id1 == null ? (id2 == null ? c1.compareTo(c2) : -1) : 1;
+				}
+				int cmp = id1.compareTo(id2);
+				return cmp != 0 ? cmp : c1.compareTo(c2);
+			}
+		});
+		Map<OWLClass, Integer> partitionOf = new HashMap<OWLClass, Integer>();
+		final int partitionCount = (classes.size() + partitionSize - 1) / partitionSize;
+		final List<Set<String>> partitionIds = new ArrayList<Set<String>>(partitionCount);
+		Map<String, Integer> idPartitions = new HashMap<String, Integer>();
+		for (int i = 0; i < classes.size(); i++) {
+			final int p = i / partitionSize;
+			if (partitionIds.size() == p) {
+				partitionIds.add(new HashSet<String>());
+			}
+			OWLClass c = classes.get(i);
+			partitionOf.put(c, p);
+			String id = ids.get(c);
+			if (id != null) {
+				partitionIds.get(p).add(id);
+				idPartitions.put(id, p);
+			}
+		}
+		// merged classes are rendered as alt_id of the replacement
+		for (OWLClass c : classes) {
+			String replacement = getAltIdReplacement(ontology.getAnnotationAssertionAxioms(c.getIRI()));
+			if (replacement != null) {
+				Integer p = idPartitions.get(replacement);
+				if (p != null) {
+					partitionOf.put(c, p);
+				}
+			}
+		}
+
+		// assign the axioms to the class partitions, everything else is shared
+		List<List<OWLAxiom>> partitions = new ArrayList<List<OWLAxiom>>(partitionCount);
+		for (int i = 0; i < partitionCount; i++) {
+			partitions.add(new ArrayList<OWLAxiom>());
+		}
+		List<OWLAxiom> shared = new ArrayList<OWLAxiom>();
+		List<OWLAxiom> other = new ArrayList<OWLAxiom>();
+		Map<IRI, Integer> iriPartitions = new HashMap<IRI, Integer>();
+		for (OWLClass c : classes) {
+			iriPartitions.put(c.getIRI(), partitionOf.get(c));
+		}
+		Set<IRI> individuals = new HashSet<IRI>();
+		for (OWLEntity e : ontology.getIndividualsInSignature()) {
+			individuals.add(e.getIRI());
+		}
+		for (OWLAxiom ax : ontology.getAxioms()) {
+			OWLClass owner = null;
+			boolean isOther = false;
+			if (ax instanceof OWLDeclarationAxiom) {
+				OWLEntity e = ((OWLDeclarationAxiom) ax).getEntity();
+				if (e.isOWLClass()) {
+					owner = e.asOWLClass();
+				}
+				else if (e.isOWLNamedIndividual()) {
+					isOther = true;
+				}
+			}
+			else if (ax instanceof OWLAnnotationAssertionAxiom) {
+				Object subject = ((OWLAnnotationAssertionAxiom) ax).getSubject();
+				if (subject instanceof IRI) {
+					Integer p = iriPartitions.get(subject);
+					if (p != null) {
+						partitions.get(p).add(ax);
+						continue;
+					}
+					isOther = individuals.contains(subject);
+				}
+				else {
+					isOther = true;
+				}
+			}
+			else if (ax instanceof OWLSubClassOfAxiom) {
+				OWLClassExpression sub = ((OWLSubClassOfAxiom) ax).getSubClass();
+				if (!sub.isAnonymous()) {
+					owner = sub.asOWLClass();
+				}
+				else if (sub instanceof OWLObjectIntersectionOf) {
+					// GCIs are rendered with the named class of the intersection
+					for (OWLClassExpression operand : ((OWLObjectIntersectionOf) sub).getOperandsAsList()) {
+						if (!operand.isAnonymous()) {
+							owner = operand.asOWLClass();
+							break;
+						}
+					}
+					isOther = owner == null;
+				}
+				else {
+					isOther = true;
+				}
+			}
+			else if (ax instanceof OWLNaryClassAxiom) {
+				// the frame is created for the first class expression
+				OWLClassExpression first = ((OWLNaryClassAxiom) ax).getClassExpressionsAsList().get(0);
+				if (first.isAnonymous()) {
+					isOther = true;
+				}
+				else {
+					owner = first.asOWLClass();
+				}
+			}
+			else if (ax instanceof OWLIndividualAxiom) {
+				isOther = true;
+			}
+			if (owner != null) {
+				partitions.get(partitionOf.get(owner)).add(ax);
+			}
+			else if (isOther) {
+				other.add(ax);
+			}
+			else {
+				shared.add(ax);
+			}
+		}
+
+		// the shared axioms and everything not specific to a class, this
+		// provides the header, typedef and instance frames
+		List<OWLAxiom> main = new ArrayList<OWLAxiom>(shared.size() + other.size());
+		main.addAll(shared);
+		main.addAll(other);
+		Owl2Obo mainConverter = createConverter();
+		OBODoc mainDoc = mainConverter.convert(createOntology(ontology, main, true));
+		Frame header = mainDoc.getHeaderFrame();
+		if (header == null) {
+			header = new Frame(Frame.FrameType.HEADER);
+		}
+		if (!mainDoc.getTermFrames().isEmpty()) {
+			// term frames from axioms, which are not specific to a class
+			writeSingleConversion(ontology, writer);
+			return;
+		}
+		Set<OWLAxiom> untranslatable = new HashSet<OWLAxiom>(mainConverter.getUntranslatableAxioms());
+		final NameProvider nameProvider = createNameProvider(ontology, header);
+
+		List<File> files = new ArrayList<File>(partitionCount);
+		try {
+			List<Callable<Set<OWLAxiom>>> tasks = new ArrayList<Callable<Set<OWLAxiom>>>(partitionCount);
+			final List<OWLAxiom> sharedAxioms = shared;
+			for (int i = 0; i < partitionCount; i++) {
+				final List<OWLAxiom> axioms = partitions.get(i);
+				final Set<String> expectedIds = partitionIds.get(i);
+				final File file = File.createTempFile("obo-partition-", ".obo");
+				files.add(file);
+				tasks.add(new Callable<Set<OWLAxiom>>() {
+
+					@Override
+					public Set<OWLAxiom> call() throws Exception {
+						// the shared axioms are added only for the running conversions
+						axioms.addAll(sharedAxioms);
+						Owl2Obo converter = createConverter();
+						OBODoc doc = converter.convert(createOntology(ontology, axioms, false));
+						axioms.clear();
+						for (Frame frame : doc.getTermFrames()) {
+							if (!expectedIds.contains(frame.getId())) {
+								// frame of a class from another partition
+								return null;
+							}
+						}
+						writeFrames(doc.getTermFrames(), file, nameProvider);
+						return new HashSet<OWLAxiom>(converter.getUntranslatableAxioms());
+					}
+				});
+			}
+			List<Set<OWLAxiom>> results = run(tasks);
+			partitions = null;
+			if (results == null) {
+				writeSingleConversion(ontology, writer);
+				return;
+			}
+			for (Set<OWLAxiom> set : results) {
+				untranslatable.addAll(set);
+			}
+
+			addUntranslatableAxioms(header, untranslatable, mainConverter.getManager());
+
+			OBOFormatWriter oboWriter = new OBOFormatWriter();
+			if (checkStructure) {
+				header.check();
+			}
+			oboWriter.writeHeader(header, writer, nameProvider);
+			for (File file : files) {
+				BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+				try {
+					IOUtils.copy(reader, writer);
+				}
+				finally {
+					IOUtils.closeQuietly(reader);
+				}
+				FileUtils.deleteQuietly(file);
+			}
+			writeSorted(mainDoc.getTypedefFrames(), oboWriter, writer, nameProvider);
+			writeSorted(mainDoc.getInstanceFrames(), oboWriter, writer, nameProvider);
+			writer.flush();
+		}
+		finally {
+			for (File file : files) {
+				FileUtils.deleteQuietly(file);
+			}
+		}
+		partitionedWrites++;
+		LOG.info("Wrote "+classes.size()+" classes in "+partitionCount+" partitions in "+
+				(System.currentTimeMillis() - t)+" ms using "+numThreads+" thread(s)");
+	}
+
+	/**
+	 * Create a new converter, override to configure the conversion.
+	 *
+	 * @return converter
+	 */
+	protected Owl2Obo createConverter() {
+		Owl2Obo converter = new Owl2Obo();
+		// untranslatable axioms are collected from all partitions
+		converter.setDiscardUntranslatable(true);
+		return converter;
+	}
+
+	private void writeSingleConversion(OWLOntology ontology, BufferedWriter writer) throws IOException {
+		LOG.warn("Frames could not be separated into partitions, using a single conversion");
+		Owl2Obo converter = createConverter();
+		OBODoc doc = converter.convert(ontology);
+		Frame header = doc.getHeaderFrame();
+		if (header == null) {
+			header = new Frame(Frame.FrameType.HEADER);
+			doc.setHeaderFrame(header);
+		}
+		addUntranslatableAxioms(header, new HashSet<OWLAxiom>(converter.getUntranslatableAxioms()), converter.getManager());
+		OBOFormatWriter oboWriter = new OBOFormatWriter();
+		oboWriter.setCheckStructure(checkStructure);
+		oboWriter.write(doc, writer);
+	}
+
+	private static void addUntranslatableAxioms(Frame header, Set<OWLAxiom> untranslatable,
+			OWLOntologyManager manager) throws IOException {
+		if (!untranslatable.isEmpty()) {
+			try {
+				String axiomString = OwlStringTools.translate(untranslatable, manager);
+				if (axiomString != null) {
+					header.addClause(new Clause(OboFormatTag.TAG_OWL_AXIOMS, axiomString));
+				}
+			} catch (OwlStringException e) {
+				throw new IOException("Could not translate untranslatable axioms", e);
+			}
+		}
+	}
+
+	/**
+	 * Run the conversions, stops at the first partition with a frame of
+	 * another partition.
+	 * 
+	 * @param tasks
+	 * @return results in the order of the tasks or null, if a task returned null
+	 * @throws IOException
+	 */
+	private List<Set<OWLAxiom>> run(List<Callable<Set<OWLAxiom>>> tasks) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			CompletionService<Set<OWLAxiom>> completionService = new ExecutorCompletionService<Set<OWLAxiom>>(executor);
+			Map<Future<Set<OWLAxiom>>, Integer> positions = new HashMap<Future<Set<OWLAxiom>>, Integer>();
+			for (int i = 0; i < tasks.size(); i++) {
+				positions.put(completionService.submit(tasks.get(i)), i);
+			}
+			List<Set<OWLAxiom>> results = new ArrayList<Set<OWLAxiom>>(Collections.<Set<OWLAxiom>>nCopies(tasks.size(), null));
+			for (int i = 0; i < tasks.size(); i++) {
+				Future<Set<OWLAxiom>> future = completionService.take();
+				Set<OWLAxiom> result = future.get();
+				if (result == null) {
+					// skip the pending partitions, wait for the running ones to
+					// finish before their temporary files are deleted
+					executor.shutdownNow();
+					executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+					return null;
+				}
+				results.set(positions.get(future), result);
+			}
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted during OBO conversion", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IOException(cause);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static OWLOntology createOntology(OWLOntology source, List<OWLAxiom> axioms, boolean withImports) throws IOException {
+		OWLOntologyManager m = OWLManager.createOWLOntologyManager();
+		try {
+			OWLOntology ontology = m.createOntology(source.getOntologyID());
+			for (OWLAnnotation a : source.getAnnotations()) {
+				m.applyChange(new AddOntologyAnnotation(ontology, a));
+			}
+			if (withImports) {
+				for (OWLImportsDeclaration declaration : source.getImportsDeclarations()) {
+					m.applyChange(new AddImport(ontology, declaration));
+				}
+			}
+			m.addAxioms(ontology, new HashSet<OWLAxiom>(axioms));
+			return ontology;
+		} catch (OWLOntologyCreationException e) {
+			throw new IOException("Could not create partition ontology", e);
+		}
+	}
+
+	private void writeFrames(Collection<Frame> frames, File file, NameProvider nameProvider) throws IOException {
+		BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+		try {
+			writeSorted(frames, new OBOFormatWriter(), writer, nameProvider);
+		}
+		finally {
+			writer.close();
+		}
+	}
+
+	private void writeSorted(Collection<Frame> frames, OBOFormatWriter oboWriter, BufferedWriter writer, NameProvider nameProvider) throws IOException {
+		List<Frame> sorted = new ArrayList<Frame>(frames);
+		Collections.sort(sorted, new Comparator<Frame>() {
+
+			@Override
+			public int compare(Frame f1, Frame f2) {
+				return f1.getId().compareTo(f2.getId());
+			}
+		});
+		for (Frame frame : sorted) {
+			if (checkStructure) {
+				frame.check();
+			}
+			oboWriter.write(frame, writer, nameProvider);
+		}
+	}
+
+	/**
+	 * Same check as in {@link OWLAPIOwl2Obo} for a deprecated class, which was
+	 * merged into another class.
+	 *
+	 * @param axioms annotation assertions of a class
+	 * @return id of the replacement or null
+	 */
+	private static String getAltIdReplacement(Set<OWLAnnotationAssertionAxiom> axioms) {
+		boolean isDeprecated = false;
+		boolean isMerged = false;
+		String replacement = null;
+		for (OWLAnnotationAssertionAxiom ax : axioms) {
+			IRI property = ax.getProperty().getIRI();
+			if (ax.getProperty().isDeprecated()) {
+				isDeprecated = true;
+			}
+			else if (Obo2OWLConstants.IRI_IAO_0000231.equals(property)) {
+				isMerged |= Obo2OWLConstants.IRI_IAO_0000227.equals(ax.getValue());
+			}
+			else if (Obo2OWLVocabulary.IRI_IAO_0100001.getIRI().equals(property)) {
+				if (ax.getValue() instanceof OWLLiteral) {
+					replacement = ((OWLLiteral) ax.getValue()).getLiteral();
+				}
+				else if (ax.getValue() instanceof IRI) {
+					replacement = OWLAPIOwl2Obo.getIdentifier((IRI) ax.getValue());
+				}
+			}
+		}
+		return isDeprecated && isMerged ? replacement : null;
+	}
+
+	/**
+	 * Names for the OBO ids of all classes and properties of the ontology,
+	 * independent of the partition in which a frame is rendered.
+	 */
+	private static NameProvider createNameProvider(OWLOntology ontology, Frame header) {
+		final Map<String, String> names = new HashMap<String, String>();
+		for (OWLAnnotationAssertionAxiom ax : ontology.getAxioms(AxiomType.ANNOTATION_ASSERTION)) {
+			if (!ax.getProperty().isLabel() || !(ax.getSubject() instanceof IRI) || !(ax.getValue() instanceof OWLLiteral)) {
+				continue;
+			}
+			IRI iri = (IRI) ax.getSubject();
+			for (OWLEntity e : ontology.getEntitiesInSignature(iri)) {
+				if (e.isOWLClass() || e.isOWLObjectProperty()) {
+					String id = OWLAPIOwl2Obo.getIdentifierFromObject(e, ontology, (String) null);
+					if (id != null && !names.containsKey(id)) {
+						names.put(id, ((OWLLiteral) ax.getValue()).getLiteral());
+					}
+				}
+			}
+		}
+		final String defaultNamespace = header.getTagValue(OboFormatTag.TAG_DEFAULT_NAMESPACE, String.class);
+		return new NameProvider() {
+
+			@Override
+			public String getName(String id) {
+				return names.get(id);
+			}
+
+			@Override
+			public String getDefaultOboNamespace() {
+				return defaultNamespace;
+			}
+		};
+	}
+}
@@ -59,6 +59,7 @@ public class ParserWrapper {
     private final List<OWLOntologyIRIMapper> mappers = new ArrayList<OWLOntologyIRIMapper>();
     OBODoc obodoc;
     boolean isCheckOboDoc = true;
+    private OntologySnapshotCache snapshotCache = null;
 
 
     public ParserWrapper() {
@@ -100,6 +101,20 @@ public class ParserWrapper {
         this.isCheckOboDoc = isCheckOboDoc;
     }
 
+    public OntologySnapshotCache getSnapshotCache() {
+        return snapshotCache;
+    }
+
+    /**
+     * Use the cache to load previously parsed ontologies, set to null to
+     * always parse the documents.
+     * 
+     * @param snapshotCache
+     */
+    public void setSnapshotCache(OntologySnapshotCache snapshotCache) {
+        this.snapshotCache = snapshotCache;
+    }
+
     public void addIRIMapper(OWLOntologyIRIMapper mapper) {
         manager.getIRIMappers().add(mapper);
         mappers.add(0, mapper);
@@ -159,8 +174,17 @@ public class ParserWrapper {
             LOG.debug("parsing: "+iri.toString()+" using "+manager);
         }
         OWLOntology ont;
+        if (snapshotCache != null) {
+            ont = snapshotCache.load(iri, manager);
+            if (ont != null) {
+                return ont;
+            }
+        }
         try {
             ont = manager.loadOntology(iri);
+            if (snapshotCache != null) {
+                snapshotCache.save(iri, ont);
+            }
         } catch (OWLOntologyAlreadyExistsException e) {
             // Trying to recover from exception
             OWLOntologyID ontologyID = e.getOntologyID();
@@ -4,12 +4,22 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 import org.obolibrary.obo2owl.Obo2OWLConstants.Obo2OWLVocabulary;
 import org.semanticweb.owlapi.model.AddAxiom;
@@ -68,6 +78,17 @@ public class TableToAxiomConverter {
 		public Map<OWLClass,OWLClass> classMap = new HashMap<OWLClass,OWLClass>();
 		public Map<Integer,String> iriPrefixMap = new HashMap<Integer,String>();
 
+		/**
+		 * number of threads for converting rows, the axioms are always
+		 * added to the ontology in the order of the rows
+		 */
+		public int numThreads = 1;
+		/**
+		 * number of rows, which are converted and added to the ontology
+		 * with a single change
+		 */
+		public int batchSize = 10000;
+
 		public void setPropertyToLabel() {
 			property = OWLRDFVocabulary.RDFS_LABEL.getIRI();
 		}
@@ -83,6 +104,10 @@ public class TableToAxiomConverter {
 	public Config config = new Config();
 	public OWLGraphWrapper graph;
 
+	private static final long REPORT_INTERVAL = 1000000;
+	private final Object graphLock = new Object();
+	private volatile Map<String, IRI> iriCache = null;
+
 
 
 	public TableToAxiomConverter(OWLGraphWrapper graph) {
@@ -94,21 +119,90 @@ public class TableToAxiomConverter {
 		File myFile = new File(fn);
 		parse(myFile);
 	}
+	/**
+	 * Reads the file line by line and adds the axioms for the rows in
+	 * batches, see {@link Config#batchSize}. If {@link Config#numThreads} is
+	 * larger than one, the rows are converted in parallel.
+	 * 
+	 * @param myFile
+	 * @throws IOException
+	 */
 	public void parse(File myFile) throws IOException {
+		final OWLOntology ont = graph.getSourceOntology();
+		final int batchSize = Math.max(1, config.batchSize);
+		final int numThreads = Math.max(1, config.numThreads);
+		// limit the number of batches, which are read but not yet added
+		final int window = numThreads > 1 ? numThreads * 2 : 1;
+		final long start = System.currentTimeMillis();
+		long rows = 0;
+		long nextReport = REPORT_INTERVAL;
+		iriCache = new ConcurrentHashMap<String, IRI>();
+		ExecutorService executor = null;
+		if (numThreads > 1) {
+			executor = Executors.newFixedThreadPool(numThreads);
+		}
 		try (BufferedReader reader = new BufferedReader(new FileReader(myFile))) {
-			for(String line : IOUtils.readLines(reader)) {
-				String[] row = line.split("\t");
-				if (config.defaultCol1 != null)
-					row[0] = config.defaultCol1;
-				if (config.defaultCol2 != null) {
-					String[] row2 = new String[2];
-					row2[0] = row[0];
-					row = row2;
-					row[1] = config.defaultCol2;
+			Deque<Future<Set<OWLAxiom>>> pending = new ArrayDeque<Future<Set<OWLAxiom>>>(window);
+			Deque<Integer> pendingRows = new ArrayDeque<Integer>(window);
+			List<String> lines = new ArrayList<String>();
+			boolean done = false;
+			while (!done || !pending.isEmpty()) {
+				while (!done && pending.size() < window) {
+					String line = reader.readLine();
+					if (line != null) {
+						lines.add(line);
+					}
+					else {
+						done = true;
+					}
+					if (lines.size() >= batchSize || (done && !lines.isEmpty())) {
+						final List<String> batch = lines;
+						FutureTask<Set<OWLAxiom>> task = new FutureTask<Set<OWLAxiom>>(new Callable<Set<OWLAxiom>>() {
+
+							@Override
+							public Set<OWLAxiom> call() throws Exception {
+								return linesToAxioms(batch);
+							}
+						});
+						if (executor != null) {
+							executor.execute(task);
+						}
+						else {
+							task.run();
+						}
+						pending.add(task);
+						pendingRows.add(batch.size());
+						lines = new ArrayList<String>();
+					}
+				}
+				if (!pending.isEmpty()) {
+					Set<OWLAxiom> axioms = pending.poll().get();
+					synchronized (graphLock) {
+						graph.getManager().addAxioms(ont, axioms);
+					}
+					rows += pendingRows.poll();
 				}
-				addRow(row);
+				if (rows >= nextReport) {
+					LOG.info("Added axioms for "+rate(rows, start));
+					nextReport = rows + REPORT_INTERVAL;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while parsing "+myFile, e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+		finally {
+			if (executor != null) {
+				executor.shutdownNow();
 			}
+			iriCache = null;
 		}
+		LOG.info("Parsed "+myFile+": "+rate(rows, start));
 
 		if (config.individualsType != null) {
 			OWLDataFactory df = graph.getDataFactory();
@@ -118,6 +212,32 @@ public class TableToAxiomConverter {
 
 	}
 
+	private static String rate(long rows, long start) {
+		long ms = Math.max(1, System.currentTimeMillis() - start);
+		return rows+" rows in "+ms+" ms ("+(rows * 1000 / ms)+" rows/s)";
+	}
+
+	private Set<OWLAxiom> linesToAxioms(List<String> lines) {
+		Set<OWLAxiom> axioms = new HashSet<OWLAxiom>();
+		for (String line : lines) {
+			axioms.addAll(rowToAxioms(lineToRow(line)));
+		}
+		return axioms;
+	}
+
+	private String[] lineToRow(String line) {
+		String[] row = line.split("\t");
+		if (config.defaultCol1 != null)
+			row[0] = config.defaultCol1;
+		if (config.defaultCol2 != null) {
+			String[] row2 = new String[2];
+			row2[0] = row[0];
+			row = row2;
+			row[1] = config.defaultCol2;
+		}
+		return row;
+	}
+
 	public Set<OWLAxiom> rowToAxioms(String[] row) {
 		OWLDataFactory df = graph.getDataFactory();
 		Set<OWLAxiom> axs = new HashSet<OWLAxiom>();
@@ -225,9 +345,7 @@ public class TableToAxiomConverter {
 
 	}
 	public void addRow(OWLOntology ont, String[] row) {
-		for (OWLAxiom ax : rowToAxioms(row)) {
-			graph.getManager().applyChange(new AddAxiom(ont, ax));
-		}
+		graph.getManager().addAxioms(ont, rowToAxioms(row));
 	}
 
 	private OWLAnnotationValue literal(String obj) {
@@ -237,7 +355,18 @@ public class TableToAxiomConverter {
 	private IRI resolveIRI(String id) {
 		IRI iri;
 		if (config.isOboIdentifiers && !id.startsWith("http:/")) {
-			iri = graph.getIRIByIdentifier(id);
+			// identifiers are memoized during a parse, the lookup may
+			// read the ontology, which is modified by the parse
+			final Map<String, IRI> cache = iriCache;
+			iri = cache != null ? cache.get(id) : null;
+			if (iri == null) {
+				synchronized (graphLock) {
+					iri = graph.getIRIByIdentifier(id);
+				}
+				if (cache != null && iri != null) {
+					cache.put(id, iri);
+				}
+			}
 		}
 		else {
 			iri = IRI.create(id);
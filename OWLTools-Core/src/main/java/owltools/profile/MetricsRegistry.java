@@ -0,0 +1,433 @@
+package owltools.profile;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Thread-safe registry of named counters, timers and histograms.
+ * <p>
+ * Timers and histograms record the distribution of the values in
+ * logarithmic buckets, the percentiles have a relative error of at most
+ * 1/8. Nested task scopes are created with {@link #startScope(String)}, the
+ * name of the timer of a scope is the path of the open scopes in the
+ * current thread.
+ * <p>
+ * The shared instance is reported at the end of each command line run and
+ * in the status of the web server.
+ */
+public class MetricsRegistry {
+
+	private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+	private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<String, Counter>();
+	private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<String, Timer>();
+	private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<String, Histogram>();
+
+	private final ThreadLocal<Deque<Scope>> scopes = new ThreadLocal<Deque<Scope>>() {
+
+		@Override
+		protected Deque<Scope> initialValue() {
+			return new ArrayDeque<Scope>();
+		}
+	};
+
+	/**
+	 * @return shared registry
+	 */
+	public static MetricsRegistry getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * @param name
+	 * @return counter, created on first use
+	 */
+	public Counter counter(String name) {
+		Counter counter = counters.get(name);
+		if (counter == null) {
+			counter = new Counter();
+			Counter previous = counters.putIfAbsent(name, counter);
+			if (previous != null) {
+				counter = previous;
+			}
+		}
+		return counter;
+	}
+
+	/**
+	 * @param name
+	 * @return timer, created on first use
+	 */
+	public Timer timer(String name) {
+		Timer timer = timers.get(name);
+		if (timer == null) {
+			timer = new Timer();
+			Timer previous = timers.putIfAbsent(name, timer);
+			if (previous != null) {
+				timer = previous;
+			}
+		}
+		return timer;
+	}
+
+	/**
+	 * @param name
+	 * @return histogram, created on first use
+	 */
+	public Histogram histogram(String name) {
+		Histogram histogram = histograms.get(name);
+		if (histogram == null) {
+			histogram = new Histogram();
+			Histogram previous = histograms.putIfAbsent(name, histogram);
+			if (previous != null) {
+				histogram = previous;
+			}
+		}
+		return histogram;
+	}
+
+	/**
+	 * Start a nested task scope in the current thread. The scope has to be
+	 * stopped in the same thread, usually in a finally block.
+	 *
+	 * @param name
+	 * @return scope
+	 */
+	public Scope startScope(String name) {
+		Deque<Scope> stack = scopes.get();
+		Scope parent = stack.peekLast();
+		String path = parent == null ? name : parent.path + "/" + name;
+		Scope scope = new Scope(path, timer(path), stack);
+		stack.addLast(scope);
+		return scope;
+	}
+
+	/**
+	 * @return true, if there are no metrics
+	 */
+	public boolean isEmpty() {
+		return counters.isEmpty() && timers.isEmpty() && histograms.isEmpty();
+	}
+
+	/**
+	 * Remove all metrics. Metrics held in fields by callers, e.g. the timers
+	 * of the sim classes, are no longer reported after a clear.
+	 */
+	public void clear() {
+		counters.clear();
+		timers.clear();
+		histograms.clear();
+	}
+
+	/**
+	 * @return sorted values of all metrics, times are in milliseconds
+	 */
+	public Map<String, Object> snapshot() {
+		Map<String, Object> result = new LinkedHashMap<String, Object>();
+		SortedMap<String, Long> counterValues = new TreeMap<String, Long>();
+		for (Entry<String, Counter> e : counters.entrySet()) {
+			counterValues.put(e.getKey(), e.getValue().get());
+		}
+		result.put("counters", counterValues);
+		SortedMap<String, Object> timerValues = new TreeMap<String, Object>();
+		for (Entry<String, Timer> e : timers.entrySet()) {
+			timerValues.put(e.getKey(), e.getValue().histogram.snapshot(1000000d));
+		}
+		result.put("timers", timerValues);
+		SortedMap<String, Object> histogramValues = new TreeMap<String, Object>();
+		for (Entry<String, Histogram> e : histograms.entrySet()) {
+			histogramValues.put(e.getKey(), e.getValue().snapshot(1d));
+		}
+		result.put("histograms", histogramValues);
+		return result;
+	}
+
+	/**
+	 * @return JSON representation of {@link #snapshot()}
+	 */
+	public String toJson() {
+		Gson gson = new GsonBuilder().setPrettyPrinting().create();
+		return gson.toJson(snapshot());
+	}
+
+	/**
+	 * @return text report with one line per metric
+	 */
+	@SuppressWarnings("unchecked")
+	public String getReport() {
+		StringBuilder sb = new StringBuilder();
+		Map<String, Object> snapshot = snapshot();
+		for (Entry<String, Long> e : ((Map<String, Long>) snapshot.get("counters")).entrySet()) {
+			sb.append("COUNTER ").append(e.getKey()).append(" ").append(e.getValue()).append('\n');
+		}
+		appendReport(sb, "TIMER ", (Map<String, Object>) snapshot.get("timers"), " ms");
+		appendReport(sb, "HISTOGRAM ", (Map<String, Object>) snapshot.get("histograms"), "");
+		return sb.toString();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void appendReport(StringBuilder sb, String type, Map<String, Object> values, String unit) {
+		for (Entry<String, Object> e : values.entrySet()) {
+			sb.append(type).append(e.getKey());
+			for (Entry<String, Object> v : ((Map<String, Object>) e.getValue()).entrySet()) {
+				sb.append(' ').append(v.getKey()).append('=').append(v.getValue());
+				if (unit.length() > 0 && "count".equals(v.getKey()) == false) {
+					sb.append(unit);
+				}
+			}
+			sb.append('\n');
+		}
+	}
+
+	/**
+	 * Thread-safe counter.
+	 */
+	public static class Counter {
+
+		private final LongAdder value = new LongAdder();
+
+		public void increment() {
+			value.increment();
+		}
+
+		public void add(long n) {
+			value.add(n);
+		}
+
+		public long get() {
+			return value.sum();
+		}
+	}
+
+	/**
+	 * Thread-safe distribution of non-negative values with count, sum, min,
+	 * max and percentiles.
+	 */
+	public static class Histogram {
+
+		// 8 linear sub-buckets per power of two
+		private static final int SUB_BITS = 3;
+		private static final int SUB_COUNT = 1 << SUB_BITS;
+		private static final int BUCKETS = SUB_COUNT + (63 - SUB_BITS) * SUB_COUNT;
+
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+		private final LongAdder count = new LongAdder();
+		private final LongAdder sum = new LongAdder();
+		private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+		private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+		/**
+		 * @param value negative values are recorded as 0
+		 */
+		public void update(long value) {
+			if (value < 0) {
+				value = 0;
+			}
+			buckets.incrementAndGet(getBucket(value));
+			count.increment();
+			sum.add(value);
+			long current;
+			while (value < (current = min.get()) && min.compareAndSet(current, value) == false) {
+				// retry
+			}
+			while (value > (current = max.get()) && max.compareAndSet(current, value) == false) {
+				// retry
+			}
+		}
+
+		static int getBucket(long value) {
+			if (value < SUB_COUNT) {
+				return (int) value;
+			}
+			int exp = 63 - Long.numberOfLeadingZeros(value);
+			int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_COUNT - 1);
+			return SUB_COUNT + (exp - SUB_BITS) * SUB_COUNT + sub;
+		}
+
+		// largest value in the bucket
+		static long getUpperBound(int bucket) {
+			if (bucket < SUB_COUNT) {
+				return bucket;
+			}
+			int exp = (bucket - SUB_COUNT) / SUB_COUNT + SUB_BITS;
+			long sub = (bucket - SUB_COUNT) % SUB_COUNT;
+			long lower = (SUB_COUNT + sub) << (exp - SUB_BITS);
+			return lower + (1L << (exp - SUB_BITS)) - 1;
+		}
+
+		public long getCount() {
+			return count.sum();
+		}
+
+		public long getSum() {
+			return sum.sum();
+		}
+
+		public long getMin() {
+			return getCount() == 0 ? 0 : min.get();
+		}
+
+		public long getMax() {
+			return getCount() == 0 ? 0 : max.get();
+		}
+
+		public double getMean() {
+			long n = getCount();
+			return n == 0 ? 0 : getSum() / (double) n;
+		}
+
+		/**
+		 * @param percentile between 0 and 100
+		 * @return approximate value, never larger than the maximum
+		 */
+		public long getPercentile(double percentile) {
+			long n = 0;
+			long[] counts = new long[BUCKETS];
+			for (int i = 0; i < BUCKETS; i++) {
+				counts[i] = buckets.get(i);
+				n += counts[i];
+			}
+			if (n == 0) {
+				return 0;
+			}
+			long rank = (long) Math.ceil(percentile / 100 * n);
+			if (rank < 1) {
+				rank = 1;
+			}
+			long seen = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				seen += counts[i];
+				if (seen >= rank) {
+					return Math.min(getUpperBound(i), getMax());
+				}
+			}
+			return getMax();
+		}
+
+		Map<String, Object> snapshot(double scale) {
+			Map<String, Object> values = new LinkedHashMap<String, Object>();
+			values.put("count", getCount());
+			values.put("total", round(getSum() / scale));
+			values.put("mean", round(getMean() / scale));
+			values.put("min", round(getMin() / scale));
+			values.put("p50", round(getPercentile(50) / scale));
+			values.put("p90", round(getPercentile(90) / scale));
+			values.put("p99", round(getPercentile(99) / scale));
+			values.put("max", round(getMax() / scale));
+			return values;
+		}
+
+		private static double round(double d) {
+			return Math.round(d * 1000) / 1000d;
+		}
+	}
+
+	/**
+	 * Thread-safe timer, records durations in nanoseconds.
+	 */
+	public static class Timer {
+
+		private final Histogram histogram = new Histogram();
+
+		/**
+		 * @return start time for {@link #stop(long)}
+		 */
+		public long start() {
+			return System.nanoTime();
+		}
+
+		/**
+		 * Record the time since the start.
+		 *
+		 * @param start value from {@link #start()}
+		 * @return elapsed nanoseconds
+		 */
+		public long stop(long start) {
+			long elapsed = System.nanoTime() - start;
+			histogram.update(elapsed);
+			return elapsed;
+		}
+
+		/**
+		 * @param nanos
+		 */
+		public void update(long nanos) {
+			histogram.update(nanos);
+		}
+
+		/**
+		 * @return distribution of the durations in nanoseconds
+		 */
+		public Histogram getHistogram() {
+			return histogram;
+		}
+
+		public long getCount() {
+			return histogram.getCount();
+		}
+
+		/**
+		 * @return total time in nanoseconds
+		 */
+		public long getTotal() {
+			return histogram.getSum();
+		}
+	}
+
+	/**
+	 * Open task scope, see {@link MetricsRegistry#startScope(String)}.
+	 */
+	public static class Scope {
+
+		private final String path;
+		private final Timer timer;
+		private final Deque<Scope> stack;
+		private final long start;
+		private boolean stopped = false;
+
+		private Scope(String path, Timer timer, Deque<Scope> stack) {
+			this.path = path;
+			this.timer = timer;
+			this.stack = stack;
+			this.start = timer.start();
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		/**
+		 * Record the time of this scope. Nested scopes, which have not been
+		 * stopped, are closed without recording their time.
+		 *
+		 * @return elapsed nanoseconds
+		 */
+		public long stop() {
+			if (stopped) {
+				return 0;
+			}
+			stopped = true;
+			while (stack.isEmpty() == false) {
+				Scope last = stack.removeLast();
+				if (last == this) {
+					break;
+				}
+				last.stopped = true;
+			}
+			return timer.stop(start);
+		}
+	}
+}
@@ -2,35 +2,65 @@ package owltools.profile;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
+import owltools.profile.MetricsRegistry.Timer;
+
+/**
+ * Task timer, which records the time of each task in a {@link Timer} of a
+ * {@link MetricsRegistry}. The start times are kept per thread, tasks may
+ * be timed concurrently.
+ */
 public class Profiler {
-	
-	Map<String,Long> taskTotalTimeMap = new HashMap<String,Long>();
-	Map<String,Long> taskInitTimeMap = new HashMap<String,Long>();
 
+	private final MetricsRegistry registry;
+	private final String prefix;
+	private final Set<String> tasks = ConcurrentHashMap.newKeySet();
+	private final ThreadLocal<Map<String,Long>> taskInitTimeMap = new ThreadLocal<Map<String,Long>>() {
+
+		@Override
+		protected Map<String, Long> initialValue() {
+			return new HashMap<String, Long>();
+		}
+	};
+
+	/**
+	 * Create a profiler for the shared registry without a prefix.
+	 */
 	public Profiler() {
+		this(MetricsRegistry.getInstance(), "");
+	}
+
+	/**
+	 * @param registry
+	 * @param prefix added to the task names for the timers in the registry
+	 */
+	public Profiler(MetricsRegistry registry, String prefix) {
 		super();
-		// TODO Auto-generated constructor stub
+		this.registry = registry;
+		this.prefix = prefix;
 	}
-	
+
 	public void startTaskNotify(String task) {
-		taskInitTimeMap.put(task, System.nanoTime());
+		taskInitTimeMap.get().put(task, System.nanoTime());
 	}
 
 	public void endTaskNotify(String task) {
-		long ct = 0;
-		if (taskTotalTimeMap.containsKey(task)) {
-			ct = taskTotalTimeMap.get(task);
+		Long t1 = taskInitTimeMap.get().remove(task);
+		if (t1 == null) {
+			return;
 		}
-		long t1 = taskInitTimeMap.get(task);
-		long t2 = System.nanoTime();
-		taskTotalTimeMap.put(task, ct + (t2-t1));
+		tasks.add(task);
+		registry.timer(prefix+task).stop(t1);
 	}
-	
+
 	public void report() {
-		for (String task : taskTotalTimeMap.keySet()) {
-			System.out.println("TASK:"+task+" TIME:"+((float)taskTotalTimeMap.get(task)) / 1000000000);
+		for (String task : new TreeSet<String>(tasks)) {
+			Timer timer = registry.timer(prefix+task);
+			System.out.println("TASK:"+task+" TIME:"+((float)timer.getTotal()) / 1000000000+" CALLS:"+timer.getCount());
 		}
 	}
-	
+
 }
@@ -0,0 +1,348 @@
+package owltools.reasoner;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.semanticweb.owlapi.model.OWLObject;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.reasoner.Node;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+/**
+ * Extracts inferred axioms for all classes or individuals of an ontology.
+ *
+ * The classified hierarchy is copied from the reasoner once, on the calling
+ * thread: the equivalent classes and direct super classes of each class
+ * node and the direct types of each individual. Indirect super classes and
+ * types are computed from this copy. The comparison with the asserted axioms
+ * runs in parallel partitions over the copy, the reasoner is not used by
+ * the worker threads. Asserted axioms are looked up in a pre-computed index
+ * (ignoring axiom annotations) instead of
+ * {@link OWLOntology#containsAxiom(OWLAxiom, org.semanticweb.owlapi.model.parameters.Imports, org.semanticweb.owlapi.model.parameters.AxiomAnnotations)}.
+ *
+ * The resulting axioms are in the order of the sorted entities, independent
+ * of the number of threads.
+ */
+public class InferredAxiomHarvester {
+
+	private static final Logger LOG = Logger.getLogger(InferredAxiomHarvester.class);
+
+	public enum Type {
+		/** EquivalentClasses axioms between named classes */
+		EQUIVALENT_CLASSES,
+		/** SubClassOf axioms between named classes */
+		SUBCLASS_OF,
+		/** ClassAssertion axioms for named individuals */
+		CLASS_ASSERTION
+	}
+
+	/**
+	 * Inferred axioms and asserted axioms, which are implied by the inferred
+	 * direct axioms.
+	 */
+	public static class Result {
+
+		private final List<OWLAxiom> inferred;
+		private final List<OWLAxiom> indirect;
+
+		Result(List<OWLAxiom> inferred, List<OWLAxiom> indirect) {
+			this.inferred = inferred;
+			this.indirect = indirect;
+		}
+
+		/**
+		 * @return inferred axioms, which are not asserted
+		 */
+		public List<OWLAxiom> getInferred() {
+			return inferred;
+		}
+
+		/**
+		 * @return asserted axioms between an entity and an indirect super
+		 * class, only if requested
+		 */
+		public List<OWLAxiom> getIndirect() {
+			return indirect;
+		}
+	}
+
+	private final OWLReasoner reasoner;
+	private final int numThreads;
+
+	/**
+	 * @param reasoner
+	 * @param numThreads number of threads for the comparison with the
+	 * asserted axioms, the reasoner is only used by the calling thread
+	 */
+	public InferredAxiomHarvester(OWLReasoner reasoner, int numThreads) {
+		this.reasoner = reasoner;
+		this.numThreads = Math.max(1, numThreads);
+	}
+
+	/**
+	 * @param ont
+	 * @param type
+	 * @param isDirect if false, also include indirect super classes or types
+	 * @param isFindIndirect if true, also search for asserted indirect axioms
+	 * @return result
+	 * @throws Exception
+	 */
+	public Result harvest(OWLOntology ont, final Type type, final boolean isDirect, final boolean isFindIndirect) throws Exception {
+		long t = System.currentTimeMillis();
+		final OWLDataFactory f = ont.getOWLOntologyManager().getOWLDataFactory();
+		final Set<OWLAxiom> asserted;
+		final Set<OWLAxiom> assertedIndirect;
+		final List<? extends OWLObject> entities;
+		final Taxonomy taxonomy = new Taxonomy(reasoner);
+		if (type == Type.CLASS_ASSERTION) {
+			asserted = createIndex(ont.getImportsClosure(), AxiomType.CLASS_ASSERTION);
+			// indirect class assertions are only removed from the ontology itself
+			assertedIndirect = createIndex(Collections.singleton(ont), AxiomType.CLASS_ASSERTION);
+			List<OWLNamedIndividual> individuals = new ArrayList<OWLNamedIndividual>(ont.getIndividualsInSignature());
+			Collections.sort(individuals);
+			for (OWLNamedIndividual i : individuals) {
+				taxonomy.addIndividual(i, isDirect == false || isFindIndirect);
+			}
+			entities = individuals;
+		}
+		else {
+			AxiomType<?> axiomType = type == Type.EQUIVALENT_CLASSES ? AxiomType.EQUIVALENT_CLASSES : AxiomType.SUBCLASS_OF;
+			asserted = createIndex(ont.getImportsClosure(), axiomType);
+			assertedIndirect = asserted;
+			List<OWLClass> classes = new ArrayList<OWLClass>(ont.getClassesInSignature());
+			Collections.sort(classes);
+			for (OWLClass c : classes) {
+				taxonomy.addClass(c, type == Type.SUBCLASS_OF && (isDirect == false || isFindIndirect));
+			}
+			entities = classes;
+		}
+		LOG.info("Copied the class hierarchy for "+entities.size()+" entities in "+(System.currentTimeMillis() - t)+" ms");
+
+		List<Callable<Result>> tasks = new ArrayList<Callable<Result>>();
+		int partitionSize = Math.max(1, (entities.size() + numThreads * 4 - 1) / (numThreads * 4));
+		for (int start = 0; start < entities.size(); start += partitionSize) {
+			final List<? extends OWLObject> partition = entities.subList(start, Math.min(entities.size(), start + partitionSize));
+			tasks.add(new Callable<Result>() {
+
+				@Override
+				public Result call() throws Exception {
+					return compare(partition, taxonomy, type, isDirect, isFindIndirect, f, asserted, assertedIndirect);
+				}
+			});
+		}
+		List<OWLAxiom> inferred = new ArrayList<OWLAxiom>();
+		List<OWLAxiom> indirect = new ArrayList<OWLAxiom>();
+		if (numThreads == 1) {
+			for (Callable<Result> task : tasks) {
+				Result r = task.call();
+				inferred.addAll(r.inferred);
+				indirect.addAll(r.indirect);
+			}
+		}
+		else {
+			ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+			try {
+				for (Future<Result> future : executor.invokeAll(tasks)) {
+					Result r;
+					try {
+						r = future.get();
+					} catch (ExecutionException e) {
+						if (e.getCause() instanceof Exception) {
+							throw (Exception) e.getCause();
+						}
+						throw e;
+					}
+					inferred.addAll(r.inferred);
+					indirect.addAll(r.indirect);
+				}
+			}
+			finally {
+				executor.shutdownNow();
+			}
+		}
+		LOG.info("Found "+inferred.size()+" inferred and "+indirect.size()+" indirect axioms in "+
+				(System.currentTimeMillis() - t)+" ms using "+numThreads+" thread(s)");
+		return new Result(inferred, indirect);
+	}
+
+	/**
+	 * Copy of the classified hierarchy in plain maps. Only modified by the
+	 * calling thread, before the comparison starts.
+	 */
+	private static class Taxonomy {
+
+		private final OWLReasoner reasoner;
+		private final Map<OWLClass, Set<OWLClass>> equivalents = new HashMap<OWLClass, Set<OWLClass>>();
+		private final Map<OWLClass, Set<OWLClass>> directSupers = new HashMap<OWLClass, Set<OWLClass>>();
+		// only for entities outside of the copied hierarchy, e.g. unsatisfiable classes
+		private final Map<OWLObject, Set<OWLClass>> allSupers = new HashMap<OWLObject, Set<OWLClass>>();
+		private final Map<OWLNamedIndividual, Set<OWLClass>> directTypes = new HashMap<OWLNamedIndividual, Set<OWLClass>>();
+
+		Taxonomy(OWLReasoner reasoner) {
+			this.reasoner = reasoner;
+			Set<Node<OWLClass>> visited = new HashSet<Node<OWLClass>>();
+			Deque<Node<OWLClass>> queue = new ArrayDeque<Node<OWLClass>>();
+			Node<OWLClass> top = reasoner.getTopClassNode();
+			visited.add(top);
+			queue.add(top);
+			addNode(top);
+			while (queue.isEmpty() == false) {
+				Node<OWLClass> node = queue.remove();
+				for (Node<OWLClass> sub : reasoner.getSubClasses(node.getRepresentativeElement(), true)) {
+					if (sub.isBottomNode()) {
+						continue;
+					}
+					if (visited.add(sub)) {
+						addNode(sub);
+						queue.add(sub);
+					}
+					for (OWLClass subClass : sub) {
+						directSupers.get(subClass).addAll(node.getEntities());
+					}
+				}
+			}
+		}
+
+		private void addNode(Node<OWLClass> node) {
+			Set<OWLClass> entities = node.getEntities();
+			for (OWLClass c : entities) {
+				equivalents.put(c, entities);
+				directSupers.put(c, new HashSet<OWLClass>());
+			}
+		}
+
+		void addClass(OWLClass c, boolean needsAll) {
+			if (equivalents.containsKey(c) == false) {
+				equivalents.put(c, reasoner.getEquivalentClasses(c).getEntities());
+				directSupers.put(c, reasoner.getSuperClasses(c, true).getFlattened());
+				if (needsAll) {
+					allSupers.put(c, reasoner.getSuperClasses(c, false).getFlattened());
+				}
+			}
+		}
+
+		void addIndividual(OWLNamedIndividual i, boolean needsAll) {
+			Set<OWLClass> types = reasoner.getTypes(i, true).getFlattened();
+			directTypes.put(i, types);
+			if (needsAll && directSupers.keySet().containsAll(types) == false) {
+				allSupers.put(i, reasoner.getTypes(i, false).getFlattened());
+			}
+		}
+
+		Set<OWLClass> getEquivalents(OWLClass c) {
+			return equivalents.get(c);
+		}
+
+		Set<OWLClass> getDirect(OWLObject entity) {
+			if (entity instanceof OWLClass) {
+				return directSupers.get(entity);
+			}
+			return directTypes.get(entity);
+		}
+
+		/**
+		 * @param entity
+		 * @return all super classes or types, computed from the copy
+		 */
+		Set<OWLClass> getAll(OWLObject entity) {
+			Set<OWLClass> all = allSupers.get(entity);
+			if (all != null) {
+				return all;
+			}
+			all = new HashSet<OWLClass>();
+			Deque<OWLClass> queue = new ArrayDeque<OWLClass>();
+			for (OWLClass c : getDirect(entity)) {
+				if (all.add(c)) {
+					queue.add(c);
+				}
+			}
+			while (queue.isEmpty() == false) {
+				for (OWLClass c : directSupers.get(queue.remove())) {
+					if (all.add(c)) {
+						queue.add(c);
+					}
+				}
+			}
+			return all;
+		}
+	}
+
+	private static Result compare(List<? extends OWLObject> entities, Taxonomy taxonomy, Type type,
+			boolean isDirect, boolean isFindIndirect, OWLDataFactory f,
+			Set<OWLAxiom> asserted, Set<OWLAxiom> assertedIndirect) {
+		List<OWLAxiom> inferred = new ArrayList<OWLAxiom>();
+		List<OWLAxiom> indirect = new ArrayList<OWLAxiom>();
+		for (OWLObject entity : entities) {
+			Set<OWLClass> related;
+			Set<OWLClass> allRelated = null;
+			if (type == Type.EQUIVALENT_CLASSES) {
+				related = taxonomy.getEquivalents((OWLClass) entity);
+			}
+			else {
+				if (isDirect == false || isFindIndirect) {
+					allRelated = taxonomy.getAll(entity);
+				}
+				related = isDirect ? taxonomy.getDirect(entity) : allRelated;
+				if (isFindIndirect == false) {
+					allRelated = null;
+				}
+			}
+			for (OWLClass c : related) {
+				OWLAxiom ax = createAxiom(entity, c, type, f);
+				if (!asserted.contains(ax)) {
+					inferred.add(ax);
+				}
+			}
+			if (allRelated != null) {
+				for (OWLClass c : allRelated) {
+					if (!related.contains(c)) {
+						OWLAxiom ax = createAxiom(entity, c, type, f);
+						if (assertedIndirect.contains(ax)) {
+							indirect.add(ax);
+						}
+					}
+				}
+			}
+		}
+		return new Result(inferred, indirect);
+	}
+
+	private static OWLAxiom createAxiom(OWLObject entity, OWLClass c, Type type, OWLDataFactory f) {
+		switch (type) {
+		case EQUIVALENT_CLASSES:
+			return f.getOWLEquivalentClassesAxiom((OWLClass) entity, c);
+		case SUBCLASS_OF:
+			return f.getOWLSubClassOfAxiom((OWLClass) entity, c);
+		default:
+			return f.getOWLClassAssertionAxiom(c, (OWLNamedIndividual) entity);
+		}
+	}
+
+	private static Set<OWLAxiom> createIndex(Set<OWLOntology> ontologies, AxiomType<?> axiomType) {
+		Set<OWLAxiom> index = new HashSet<OWLAxiom>();
+		for (OWLOntology o : ontologies) {
+			for (OWLAxiom ax : o.getAxioms(axiomType)) {
+				index.add(ax.getAxiomWithoutAnnotations());
+			}
+		}
+		return index;
+	}
+}
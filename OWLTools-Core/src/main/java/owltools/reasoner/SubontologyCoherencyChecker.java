@@ -0,0 +1,245 @@
+package owltools.reasoner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
+import org.semanticweb.owlapi.reasoner.ReasonerInterruptedException;
+
+/**
+ * Checks a set of ontologies, e.g. the direct imports of an application
+ * ontology, for inconsistency and unsatisfiable classes. Each ontology gets
+ * its own reasoner, the checks run in a pool of workers.
+ *
+ * Results are returned in the order of the ontology ids, independent of the
+ * order in which the checks finish.
+ *
+ * A check, which runs longer than the timeout, is interrupted via
+ * {@link OWLReasoner#interrupt()}. If the heap usage is above the memory
+ * limit, no new check is started until a running check has finished.
+ */
+public class SubontologyCoherencyChecker {
+
+	private static final Logger LOG = Logger.getLogger(SubontologyCoherencyChecker.class);
+
+	/**
+	 * Outcome of the check of a single ontology.
+	 */
+	public static class Result {
+
+		private final OWLOntology ontology;
+		private boolean consistent = true;
+		private List<OWLClass> unsatisfiableClasses = Collections.emptyList();
+		private boolean timedOut = false;
+		private long millis = 0;
+
+		Result(OWLOntology ontology) {
+			this.ontology = ontology;
+		}
+
+		public OWLOntology getOntology() {
+			return ontology;
+		}
+
+		public boolean isConsistent() {
+			return consistent;
+		}
+
+		/**
+		 * @return sorted unsatisfiable classes, excluding owl:Nothing
+		 */
+		public List<OWLClass> getUnsatisfiableClasses() {
+			return unsatisfiableClasses;
+		}
+
+		/**
+		 * @return true, if the check was interrupted; the other values are unknown
+		 */
+		public boolean isTimedOut() {
+			return timedOut;
+		}
+
+		/**
+		 * @return true, if the ontology is inconsistent or has unsatisfiable classes
+		 */
+		public boolean isIncoherent() {
+			return !timedOut && (!consistent || !unsatisfiableClasses.isEmpty());
+		}
+
+		/**
+		 * @return time spent on reasoning in milliseconds
+		 */
+		public long getMillis() {
+			return millis;
+		}
+	}
+
+	private final OWLReasonerFactory reasonerFactory;
+	private int numThreads = 1;
+	private long timeoutMillis = 0;
+	private double maxMemoryUsage = 0.9d;
+
+	private final Object memoryLock = new Object();
+	private int runningChecks = 0;
+
+	public SubontologyCoherencyChecker(OWLReasonerFactory reasonerFactory) {
+		this.reasonerFactory = reasonerFactory;
+	}
+
+	public void setNumThreads(int numThreads) {
+		this.numThreads = Math.max(1, numThreads);
+	}
+
+	/**
+	 * @param timeoutMillis maximum time per ontology, zero or less for no timeout
+	 */
+	public void setTimeout(long timeoutMillis) {
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * @param maxMemoryUsage fraction of the maximum heap, above which no
+	 * further checks are started in parallel
+	 */
+	public void setMaxMemoryUsage(double maxMemoryUsage) {
+		this.maxMemoryUsage = maxMemoryUsage;
+	}
+
+	/**
+	 * @param ontologies
+	 * @return results, sorted by ontology id
+	 * @throws Exception if a reasoner fails
+	 */
+	public List<Result> check(Collection<OWLOntology> ontologies) throws Exception {
+		List<OWLOntology> sorted = new ArrayList<OWLOntology>(ontologies);
+		Collections.sort(sorted, new Comparator<OWLOntology>() {
+
+			@Override
+			public int compare(OWLOntology o1, OWLOntology o2) {
+				return o1.getOntologyID().toString().compareTo(o2.getOntologyID().toString());
+			}
+		});
+		long t = System.currentTimeMillis();
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor();
+		List<Result> results = new ArrayList<Result>(sorted.size());
+		try {
+			List<Future<Result>> futures = new ArrayList<Future<Result>>(sorted.size());
+			for (final OWLOntology o : sorted) {
+				futures.add(executor.submit(new Callable<Result>() {
+
+					@Override
+					public Result call() throws Exception {
+						return check(o, watchdog);
+					}
+				}));
+			}
+			for (Future<Result> future : futures) {
+				try {
+					results.add(future.get());
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof Exception) {
+						throw (Exception) e.getCause();
+					}
+					throw e;
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+			watchdog.shutdownNow();
+		}
+		LOG.info("Checked "+sorted.size()+" ontologies in "+(System.currentTimeMillis() - t)+" ms using "+
+				numThreads+" thread(s)");
+		return results;
+	}
+
+	private Result check(OWLOntology o, ScheduledExecutorService watchdog) throws InterruptedException {
+		Result result = new Result(o);
+		waitForMemory(o);
+		OWLReasoner r = null;
+		ScheduledFuture<?> timeout = null;
+		long t = System.currentTimeMillis();
+		try {
+			r = reasonerFactory.createReasoner(o);
+			if (timeoutMillis > 0) {
+				final OWLReasoner reasoner = r;
+				timeout = watchdog.schedule(new Runnable() {
+
+					@Override
+					public void run() {
+						reasoner.interrupt();
+					}
+				}, timeoutMillis, TimeUnit.MILLISECONDS);
+			}
+			result.consistent = r.isConsistent();
+			if (result.consistent) {
+				List<OWLClass> unsatisfiable = new ArrayList<OWLClass>();
+				for (OWLClass c : r.getUnsatisfiableClasses().getEntitiesMinusBottom()) {
+					if (!c.isBuiltIn()) {
+						unsatisfiable.add(c);
+					}
+				}
+				Collections.sort(unsatisfiable);
+				result.unsatisfiableClasses = unsatisfiable;
+			}
+		}
+		catch (ReasonerInterruptedException e) {
+			result.timedOut = true;
+		}
+		finally {
+			if (timeout != null) {
+				timeout.cancel(false);
+			}
+			if (r != null) {
+				r.dispose();
+			}
+			result.millis = System.currentTimeMillis() - t;
+			synchronized (memoryLock) {
+				runningChecks--;
+				memoryLock.notifyAll();
+			}
+		}
+		LOG.info("Checked "+o.getOntologyID()+" in "+result.millis+" ms"+(result.timedOut ? " (timeout)" : ""));
+		return result;
+	}
+
+	/**
+	 * Wait until the heap usage is below the limit or no other check is
+	 * running, then register the check as running.
+	 */
+	private void waitForMemory(OWLOntology o) throws InterruptedException {
+		synchronized (memoryLock) {
+			boolean logged = false;
+			while (runningChecks > 0 && isMemoryExhausted()) {
+				if (!logged) {
+					LOG.info("Heap usage above "+maxMemoryUsage+", waiting to check "+o.getOntologyID());
+					logged = true;
+				}
+				memoryLock.wait(1000);
+			}
+			runningChecks++;
+		}
+	}
+
+	private boolean isMemoryExhausted() {
+		Runtime rt = Runtime.getRuntime();
+		long used = rt.totalMemory() - rt.freeMemory();
+		return used > maxMemoryUsage * rt.maxMemory();
+	}
+}
@@ -0,0 +1,219 @@
+package owltools.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, integer indexed representation of a graph in compressed sparse
+ * row (CSR) format. The adjacent nodes of node i are stored in
+ * targets[offsets[i]] to targets[offsets[i+1]-1], in the order in which they
+ * were added.
+ *
+ * @param <T> type parameter for the actual nodes in the graph
+ * @see IterativeTarjan
+ */
+public class CompactAdjacency<T> {
+
+	private final List<T> nodes;
+	private final Map<T, Integer> indices;
+	private final int[] sources;
+	private final int[] offsets;
+	private final int[] targets;
+
+	private CompactAdjacency(List<T> nodes, Map<T, Integer> indices, int[] sources, int[] offsets, int[] targets) {
+		this.nodes = nodes;
+		this.indices = indices;
+		this.sources = sources;
+		this.offsets = offsets;
+		this.targets = targets;
+	}
+
+	/**
+	 * Create the compact representation for all nodes reachable from the
+	 * sources of the given adjacency. {@link Adjacency#getAdjacent(Object)} is
+	 * called once per node, null values are ignored.
+	 *
+	 * @param adjacency
+	 * @return compact adjacency
+	 */
+	public static <T> CompactAdjacency<T> create(Adjacency<T> adjacency) {
+		Builder<T> builder = new Builder<T>();
+		for (T source : adjacency.getSources()) {
+			if (source != null) {
+				builder.addSource(source);
+			}
+		}
+		// nodes are added in discovery order, each node is expanded once
+		for (int i = 0; i < builder.nodes.size(); i++) {
+			T node = builder.nodes.get(i);
+			List<T> adjacent = adjacency.getAdjacent(node);
+			if (adjacent != null) {
+				for (T target : adjacent) {
+					if (target != null) {
+						builder.addEdge(i, builder.addNode(target));
+					}
+				}
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Incremental construction of a {@link CompactAdjacency}.
+	 *
+	 * @param <T>
+	 */
+	public static class Builder<T> {
+
+		private final List<T> nodes = new ArrayList<T>();
+		private final Map<T, Integer> indices = new HashMap<T, Integer>();
+		private int[] sources = new int[16];
+		private int sourceCount = 0;
+		private final BitSet isSource = new BitSet();
+		private int[] edgeSources = new int[16];
+		private int[] edgeTargets = new int[16];
+		private int edgeCount = 0;
+
+		/**
+		 * Add a node as source, the order of the sources is preserved.
+		 *
+		 * @param source
+		 */
+		public void addSource(T source) {
+			int index = addNode(source);
+			if (isSource.get(index)) {
+				return;
+			}
+			isSource.set(index);
+			if (sourceCount == sources.length) {
+				sources = Arrays.copyOf(sources, sourceCount * 2);
+			}
+			sources[sourceCount++] = index;
+		}
+
+		/**
+		 * Add a directed edge, the nodes are added if necessary.
+		 *
+		 * @param source
+		 * @param target
+		 */
+		public void addEdge(T source, T target) {
+			addEdge(addNode(source), addNode(target));
+		}
+
+		private int addNode(T node) {
+			Integer index = indices.get(node);
+			if (index == null) {
+				index = nodes.size();
+				nodes.add(node);
+				indices.put(node, index);
+			}
+			return index;
+		}
+
+		private void addEdge(int source, int target) {
+			if (edgeCount == edgeSources.length) {
+				edgeSources = Arrays.copyOf(edgeSources, edgeCount * 2);
+				edgeTargets = Arrays.copyOf(edgeTargets, edgeCount * 2);
+			}
+			edgeSources[edgeCount] = source;
+			edgeTargets[edgeCount] = target;
+			edgeCount++;
+		}
+
+		public CompactAdjacency<T> build() {
+			final int n = nodes.size();
+			int[] offsets = new int[n + 1];
+			for (int e = 0; e < edgeCount; e++) {
+				offsets[edgeSources[e] + 1]++;
+			}
+			for (int i = 0; i < n; i++) {
+				offsets[i + 1] += offsets[i];
+			}
+			// stable counting sort by source
+			int[] next = Arrays.copyOf(offsets, n);
+			int[] targets = new int[edgeCount];
+			for (int e = 0; e < edgeCount; e++) {
+				targets[next[edgeSources[e]]++] = edgeTargets[e];
+			}
+			return new CompactAdjacency<T>(new ArrayList<T>(nodes), new HashMap<T, Integer>(indices),
+					Arrays.copyOf(sources, sourceCount), offsets, targets);
+		}
+	}
+
+	/**
+	 * @return number of nodes
+	 */
+	public int getNodeCount() {
+		return nodes.size();
+	}
+
+	/**
+	 * @return number of edges
+	 */
+	public int getEdgeCount() {
+		return targets.length;
+	}
+
+	/**
+	 * @param index
+	 * @return node for the index
+	 */
+	public T getNode(int index) {
+		return nodes.get(index);
+	}
+
+	/**
+	 * @param node
+	 * @return index or -1, if the node is unknown
+	 */
+	public int getIndex(T node) {
+		Integer index = indices.get(node);
+		return index == null ? -1 : index.intValue();
+	}
+
+	/**
+	 * @return copy of the source node indices in the order they were added
+	 */
+	public int[] getSources() {
+		return sources.clone();
+	}
+
+	/**
+	 * @param index
+	 * @return copy of the adjacent node indices
+	 */
+	public int[] getAdjacent(int index) {
+		return Arrays.copyOfRange(targets, offsets[index], offsets[index + 1]);
+	}
+
+	/**
+	 * @param source
+	 * @param target
+	 * @return true, if there is an edge from source to target
+	 */
+	public boolean hasEdge(int source, int target) {
+		for (int e = offsets[source]; e < offsets[source + 1]; e++) {
+			if (targets[e] == target) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	int[] getOffsets() {
+		return offsets;
+	}
+
+	int[] getTargets() {
+		return targets;
+	}
+
+	int[] getSourcesInternal() {
+		return sources;
+	}
+}
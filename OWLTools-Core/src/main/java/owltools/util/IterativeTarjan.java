@@ -0,0 +1,141 @@
+package owltools.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Iterative implementation of the Tarjan algorithm over a
+ * {@link CompactAdjacency}. All state is kept in primitive arrays, the
+ * run time is linear in the number of nodes and edges and the depth of the
+ * graph is not limited by the call stack.
+ *
+ * The components are returned in the same order as by {@link MappingTarjan}.
+ *
+ * @param <T>
+ */
+public class IterativeTarjan<T> implements Tarjan<T> {
+
+	private final boolean ignoreSingleton;
+
+	/**
+	 * @param ignoreSingleton
+	 */
+	public IterativeTarjan(boolean ignoreSingleton) {
+		this.ignoreSingleton = ignoreSingleton;
+	}
+
+	@Override
+	public List<List<T>> executeTarjan(Adjacency<T> graph) {
+		if (graph == null) {
+			return new ArrayList<List<T>>();
+		}
+		return executeTarjan(CompactAdjacency.create(graph));
+	}
+
+	/**
+	 * Create the strongly connected components for the given graph.
+	 *
+	 * @param graph
+	 * @return list of strongly connected components
+	 */
+	public List<List<T>> executeTarjan(CompactAdjacency<T> graph) {
+		List<int[]> components = findComponents(graph, ignoreSingleton);
+		List<List<T>> scc = new ArrayList<List<T>>(components.size());
+		for (int[] component : components) {
+			List<T> nodes = new ArrayList<T>(component.length);
+			for (int node : component) {
+				nodes.add(graph.getNode(node));
+			}
+			scc.add(nodes);
+		}
+		return scc;
+	}
+
+	/**
+	 * Find the strongly connected components, starting from the sources.
+	 *
+	 * @param graph
+	 * @param ignoreSingleton if true, skip components with only one node
+	 * @return components as arrays of node indices
+	 */
+	public static List<int[]> findComponents(CompactAdjacency<?> graph, boolean ignoreSingleton) {
+		final int n = graph.getNodeCount();
+		final int[] offsets = graph.getOffsets();
+		final int[] targets = graph.getTargets();
+		final int[] index = new int[n];
+		final int[] lowlink = new int[n];
+		Arrays.fill(index, -1);
+		final BitSet onStack = new BitSet(n);
+		// Tarjan stack of visited nodes
+		final int[] stack = new int[n];
+		int stackSize = 0;
+		// explicit call stack with the position of the next edge per node
+		final int[] callStack = new int[n];
+		final int[] nextEdge = new int[n];
+		int depth = 0;
+		int counter = 0;
+		List<int[]> components = new ArrayList<int[]>();
+		for (int source : graph.getSourcesInternal()) {
+			if (index[source] != -1) {
+				continue;
+			}
+			index[source] = counter;
+			lowlink[source] = counter;
+			counter++;
+			stack[stackSize++] = source;
+			onStack.set(source);
+			callStack[depth] = source;
+			nextEdge[depth] = offsets[source];
+			depth++;
+			while (depth > 0) {
+				final int v = callStack[depth - 1];
+				final int e = nextEdge[depth - 1];
+				if (e < offsets[v + 1]) {
+					nextEdge[depth - 1] = e + 1;
+					final int w = targets[e];
+					if (index[w] == -1) {
+						index[w] = counter;
+						lowlink[w] = counter;
+						counter++;
+						stack[stackSize++] = w;
+						onStack.set(w);
+						callStack[depth] = w;
+						nextEdge[depth] = offsets[w];
+						depth++;
+					}
+					else if (onStack.get(w)) {
+						lowlink[v] = Math.min(lowlink[v], index[w]);
+					}
+					continue;
+				}
+				// all edges of v are done
+				depth--;
+				if (lowlink[v] == index[v]) {
+					int start = stackSize - 1;
+					while (stack[start] != v) {
+						start--;
+					}
+					if (!ignoreSingleton || stackSize - start > 1) {
+						// same order as popping from the stack
+						int[] component = new int[stackSize - start];
+						for (int i = 0; i < component.length; i++) {
+							component[i] = stack[stackSize - 1 - i];
+						}
+						components.add(component);
+					}
+					for (int i = start; i < stackSize; i++) {
+						onStack.clear(stack[i]);
+					}
+					stackSize = start;
+				}
+				if (depth > 0) {
+					final int u = callStack[depth - 1];
+					lowlink[u] = Math.min(lowlink[u], lowlink[v]);
+				}
+			}
+		}
+		return components;
+	}
+}
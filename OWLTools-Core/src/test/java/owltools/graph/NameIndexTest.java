@@ -0,0 +1,59 @@
+package owltools.graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.obolibrary.oboformat.parser.OBOFormatConstants.OboFormatTag;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLObject;
+
+import owltools.OWLToolsTestBasics;
+import owltools.graph.OWLGraphWrapper.ISynonym;
+
+/**
+ * tests NameIndex against the labels and synonyms of the graph
+ */
+public class NameIndexTest extends OWLToolsTestBasics {
+
+	@Test
+	public void testIndex() throws Exception {
+		OWLGraphWrapper g = getGraph("caro.obo");
+		List<OWLObject> objects = new ArrayList<OWLObject>(g.getAllOWLObjects());
+		NameIndex index = NameIndex.create(g, objects, false, NameIndex.EXACT, 4);
+		NameIndex single = NameIndex.create(g, objects, false, NameIndex.EXACT, 1);
+		assertEquals(single.getEntities(), index.getEntities());
+		assertFalse(index.getEntities().isEmpty());
+
+		int synonymCount = 0;
+		for (OWLEntity e : index.getEntities()) {
+			String label = g.getLabel(e);
+			assertEquals(label, index.getLabel(e));
+			if (label != null) {
+				assertTrue(index.getEntitiesForLabel(label).contains(e));
+				assertTrue(index.getEntitiesForName(label).contains(e));
+			}
+			List<ISynonym> synonyms = g.getOBOSynonyms(e);
+			if (synonyms != null) {
+				for (ISynonym s : synonyms) {
+					if (OboFormatTag.TAG_EXACT.getTag().equals(s.getScope())) {
+						assertTrue(index.getEntitiesForExactSynonym(s.getLabel()).contains(e));
+						assertTrue(index.getEntitiesForName(s.getLabel()).contains(e));
+						synonymCount++;
+					}
+				}
+			}
+		}
+		assertTrue(synonymCount > 0);
+		assertTrue(index.getEntitiesForName("no such name").isEmpty());
+
+		// case and whitespace insensitive lookup
+		OWLEntity e = (OWLEntity) g.getOWLObjectByLabel("anatomical structure");
+		assertNotNull(e);
+		NameIndex relaxed = NameIndex.create(g, objects, false, NameIndex.CASE_AND_SPACE_INSENSITIVE, 2);
+		assertTrue(relaxed.getEntitiesForLabel(" Anatomical  Structure").contains(e));
+		assertFalse(index.getEntitiesForLabel(" Anatomical  Structure").contains(e));
+	}
+}
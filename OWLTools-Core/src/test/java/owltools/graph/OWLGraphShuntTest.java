@@ -2,6 +2,7 @@ package owltools.graph;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.log4j.Logger;
@@ -133,6 +134,53 @@ public class OWLGraphShuntTest extends OWLToolsTestBasics {
 //		assertEquals("e13", g.hasEdge(new OWLShuntEdge("GO:0032502", "GO:0008150", "is_a")), true);
 //		assertEquals("e14", g.hasEdge(new OWLShuntEdge("GO:0009987", "GO:0008150", "is_a")), true);		
 //	}
+
+	/*
+	 * Testing the cache and precomputation for the shunt graph JSON.
+	 */
+	@Test
+	public void testShuntGraphJSONCache() throws Exception{
+		OWLGraphWrapper wrapper = getOntologyWrapper("graph/neurogenesis.obo");
+		List<String> rel_ids = RelationSets.getRelationSet(RelationSets.COMMON);
+		List<OWLObject> objects = new ArrayList<OWLObject>(wrapper.getAllOWLClasses());
+
+		// Render directly, without the cache.
+		List<String> segments = new ArrayList<String>();
+		List<String> lineages = new ArrayList<String>();
+		for (OWLObject x : objects) {
+			segments.add(wrapper.getSegmentShuntGraph(x, rel_ids).toJSON());
+			lineages.add(wrapper.getLineageShuntGraph(x, rel_ids).toJSON());
+		}
+		assertEquals(0, wrapper.getCurrentShuntGraphJSONCacheSize());
+
+		// The cache is disabled by default.
+		assertEquals(segments.get(0), wrapper.getSegmentShuntGraphJSON(objects.get(0), rel_ids));
+		assertEquals(0, wrapper.getCurrentShuntGraphJSONCacheSize());
+
+		// The precomputation enables it.
+		wrapper.precomputeShuntGraphJSON(objects, rel_ids, rel_ids, 4);
+		assertEquals(2 * objects.size(), wrapper.getCurrentShuntGraphJSONCacheSize());
+		for (int i = 0; i < objects.size(); i++) {
+			OWLObject x = objects.get(i);
+			assertEquals(segments.get(i), wrapper.getSegmentShuntGraphJSON(x, rel_ids));
+			assertEquals(lineages.get(i), wrapper.getLineageShuntGraphJSON(x, rel_ids));
+		}
+		assertEquals(2 * objects.size(), wrapper.getCurrentShuntGraphJSONCacheSize());
+
+		// Different relations are a different key.
+		List<String> isa = new ArrayList<String>();
+		OWLObject c = wrapper.getOWLClassByIdentifier("GO:0022008");
+		assertEquals(wrapper.getSegmentShuntGraph(c, isa).toJSON(), wrapper.getSegmentShuntGraphJSON(c, isa));
+		assertTrue(wrapper.getCurrentShuntGraphJSONCacheSize() <= 2 * objects.size());
+
+		wrapper.clearCachedEdges();
+		assertEquals(0, wrapper.getCurrentShuntGraphJSONCacheSize());
+
+		wrapper.setShuntGraphJSONCacheSize(0);
+		wrapper.getSegmentShuntGraphJSON(c, isa);
+		assertEquals(0, wrapper.getCurrentShuntGraphJSONCacheSize());
+		wrapper.close();
+	}
 	
 	private OWLGraphWrapper getOntologyWrapper(String file) throws Exception {
 		ParserWrapper p = new ParserWrapper();
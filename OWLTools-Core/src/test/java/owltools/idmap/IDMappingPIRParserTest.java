@@ -0,0 +1,106 @@
+package owltools.idmap;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that the parallel parsing of a mapping file creates the same pairs
+ * as the sequential parsing.
+ */
+public class IDMappingPIRParserTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testParallelPairs() throws Exception {
+		File file = folder.newFile("idmapping.tb.gz");
+		Writer writer = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file)), "UTF-8");
+		try {
+			for (int i = 0; i < 500; i++) {
+				String[] cols = new String[IDMappingPIRParser.COLS.length];
+				Arrays.fill(cols, "");
+				cols[0] = "P"+i;
+				cols[1] = "ID"+i+"_HUMAN";
+				cols[2] = i % 3 == 0 ? "" : i+"; "+(i + 1000);
+				StringBuilder sb = new StringBuilder();
+				// some lines are truncated after the gene ids
+				int n = i % 7 == 0 ? 3 : cols.length;
+				for (int k = 0; k < n; k++) {
+					if (k > 0) {
+						sb.append('\t');
+					}
+					sb.append(cols[k]);
+				}
+				writer.write(sb.append('\n').toString());
+				if (i % 50 == 0) {
+					writer.write("\n");
+				}
+			}
+		}
+		finally {
+			writer.close();
+		}
+
+		List<String> expected = extract(file, 1);
+		assertEquals(2 * (500 - 167), expected.size());
+		assertEquals("ID1_HUMAN\t1", expected.get(0));
+		assertEquals("ID1_HUMAN\t1001", expected.get(1));
+		// same pairs in the same order
+		assertEquals(expected, extract(file, 4));
+	}
+
+	/**
+	 * A handler without columns gets all columns, also with a subset.
+	 */
+	@Test
+	public void testAllColumns() throws Exception {
+		final List<String[]> rows = new ArrayList<String[]>();
+		IDMappingPIRParser p = new IDMappingPIRParser();
+		p.colIxSubset.add(1);
+		p.handler = new IDMapHandler() {
+
+			@Override
+			public boolean process(String[] colVals) {
+				rows.add(colVals);
+				return true;
+			}
+		};
+		p.parse(new StringReader("P1\tID1_HUMAN\t1\tx\n"));
+		assertEquals(1, rows.size());
+		assertArrayEquals(new String[]{"P1", "ID1_HUMAN", "1", "x"}, rows.get(0));
+	}
+
+	private List<String> extract(File file, int threads) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		IDMappingPIRParser p = new IDMappingPIRParser();
+		p.numThreads = threads;
+		p.chunkSize = 13;
+		IDMapPairWriter h = new IDMapPairWriter();
+		h.output = new PrintStream(bytes, true, "UTF-8");
+		p.handler = h;
+		p.parse(file.getAbsolutePath());
+		h.output.flush();
+		List<String> lines = Arrays.asList(bytes.toString("UTF-8").split("\n"));
+		Set<String> pairs = new HashSet<String>(lines);
+		assertEquals("duplicate pairs", lines.size(), pairs.size());
+		return lines;
+	}
+}
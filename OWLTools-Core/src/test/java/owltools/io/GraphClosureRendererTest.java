@@ -0,0 +1,61 @@
+package owltools.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import owltools.OWLToolsTestBasics;
+
+/**
+ * tests that the closure renderers create the same output with multiple threads
+ */
+public class GraphClosureRendererTest extends OWLToolsTestBasics {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testGraphClosure() throws Exception {
+		File expected = folder.newFile("expected.txt");
+		GraphClosureRenderer renderer = new GraphClosureRenderer(expected.getAbsolutePath());
+		renderer.render(getGraph("caro.obo"));
+
+		File actual = folder.newFile("actual.txt");
+		renderer = new GraphClosureRenderer(actual.getAbsolutePath());
+		renderer.setNumThreads(4);
+		renderer.render(getGraph("caro.obo"));
+
+		String expectedString = FileUtils.readFileToString(expected);
+		assertFalse(expectedString.isEmpty());
+		assertEquals(expectedString, FileUtils.readFileToString(actual));
+	}
+
+	@Test
+	public void testChadoClosureGzip() throws Exception {
+		File expected = folder.newFile("expected.txt");
+		ChadoGraphClosureRenderer renderer = new ChadoGraphClosureRenderer(expected.getAbsolutePath());
+		renderer.render(getGraph("caro.obo"));
+
+		File actual = folder.newFile("actual.txt.gz");
+		renderer = new ChadoGraphClosureRenderer(actual.getAbsolutePath());
+		renderer.setNumThreads(4);
+		renderer.render(getGraph("caro.obo"));
+
+		InputStream inputStream = new GZIPInputStream(new FileInputStream(actual));
+		try {
+			assertEquals(FileUtils.readFileToString(expected), IOUtils.toString(inputStream));
+		}
+		finally {
+			inputStream.close();
+		}
+	}
+}
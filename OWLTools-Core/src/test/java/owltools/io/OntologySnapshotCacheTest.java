@@ -0,0 +1,100 @@
+package owltools.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semanticweb.owlapi.formats.OBODocumentFormat;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.parameters.Imports;
+
+import owltools.OWLToolsTestBasics;
+
+/**
+ * tests loading ontologies from a {@link OntologySnapshotCache}
+ */
+public class OntologySnapshotCacheTest extends OWLToolsTestBasics {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testObo() throws Exception {
+		File input = copy("caro.obo");
+		OntologySnapshotCache cache = new OntologySnapshotCache(folder.newFolder("cache"));
+
+		OWLOntology parsed = parse(input, cache);
+		assertTrue(cache.getSnapshotFile(IRI.create(input)).isFile());
+
+		OWLOntology loaded = parse(input, cache);
+		assertEquals(parsed.getOntologyID(), loaded.getOntologyID());
+		assertEquals(parsed.getAnnotations(), loaded.getAnnotations());
+		assertEquals(parsed.getAxioms(), loaded.getAxioms());
+		assertTrue(loaded.getOWLOntologyManager().getOntologyFormat(loaded) instanceof OBODocumentFormat);
+
+		// size and modification time are unchanged, the snapshot is used without parsing
+		long lastModified = input.lastModified();
+		FileUtils.writeByteArrayToFile(input, new byte[(int) input.length()]);
+		assertTrue(input.setLastModified(lastModified));
+		loaded = parse(input, cache);
+		assertEquals(parsed.getAxioms(), loaded.getAxioms());
+	}
+
+	@Test
+	public void testImportsAndInvalidation() throws Exception {
+		File root = copy("test-import-chain-root.owl");
+		copy("test-a.owl");
+		copy("test-a2.owl");
+		File b = copy("test-b.owl");
+		File catalog = copy("catalog-v001.xml");
+		OntologySnapshotCache cache = new OntologySnapshotCache(folder.newFolder("cache"));
+
+		OWLOntology parsed = parse(root, catalog, cache);
+		assertEquals(4, parsed.getImportsClosure().size());
+
+		OWLOntology loaded = parse(root, catalog, cache);
+		assertEquals(parsed.getImportsClosure().size(), loaded.getImportsClosure().size());
+		assertEquals(parsed.getAxioms(Imports.INCLUDED), loaded.getAxioms(Imports.INCLUDED));
+
+		// touching a file without changing it keeps the snapshot
+		assertTrue(b.setLastModified(b.lastModified() - 10000));
+		loaded = parse(root, catalog, cache);
+		assertEquals(parsed.getAxioms(Imports.INCLUDED), loaded.getAxioms(Imports.INCLUDED));
+
+		// a changed import invalidates the snapshot
+		String content = FileUtils.readFileToString(b);
+		FileUtils.writeStringToFile(b, content.replace("</rdf:RDF>",
+				"<owl:Class rdf:about=\"http://purl.obolibrary.org/obo/TEST_0000001\"/>\n</rdf:RDF>"));
+		OWLOntology changed = parse(root, catalog, cache);
+		Set<OWLAxiom> added = new HashSet<OWLAxiom>(changed.getAxioms(Imports.INCLUDED));
+		added.removeAll(parsed.getAxioms(Imports.INCLUDED));
+		assertEquals(1, added.size());
+	}
+
+	private File copy(String name) throws Exception {
+		File file = new File(folder.getRoot(), name);
+		FileUtils.copyFile(getResource(name), file);
+		return file;
+	}
+
+	private OWLOntology parse(File file, OntologySnapshotCache cache) throws Exception {
+		ParserWrapper pw = new ParserWrapper();
+		pw.setSnapshotCache(cache);
+		return pw.parseOWL(IRI.create(file));
+	}
+
+	private OWLOntology parse(File file, File catalog, OntologySnapshotCache cache) throws Exception {
+		ParserWrapper pw = new ParserWrapper();
+		pw.addIRIMapper(new CatalogXmlIRIMapper(catalog));
+		pw.setSnapshotCache(cache);
+		return pw.parseOWL(IRI.create(file));
+	}
+}
@@ -0,0 +1,72 @@
+package owltools.io;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.StringWriter;
+
+import org.junit.Test;
+import org.obolibrary.obo2owl.Owl2Obo;
+import org.obolibrary.oboformat.model.OBODoc;
+import org.obolibrary.oboformat.writer.OBOFormatWriter;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+import owltools.OWLToolsTestBasics;
+
+/**
+ * tests ParallelOboWriter against Owl2Obo and OBOFormatWriter
+ */
+public class ParallelOboWriterTest extends OWLToolsTestBasics {
+
+	@Test
+	public void testCaro() throws Exception {
+		compare("caro.obo");
+	}
+
+	@Test
+	public void testTypedefsAndIntersections() throws Exception {
+		compare("go_xp_predictor_test_subset.obo");
+	}
+
+	@Test
+	public void testRegulation() throws Exception {
+		compare("regulation_of_anti_apoptosis_xp-baseline.obo");
+	}
+
+	@Test
+	public void testGciAndUntranslatableAxioms() throws Exception {
+		compare("limb_gci.owl");
+	}
+
+	@Test
+	public void testGoModule() throws Exception {
+		// all partition sizes are written without the single conversion fallback
+		assertEquals(3, compare("go-module.obo"));
+	}
+
+	/**
+	 * @return number of writes, which used the partitions
+	 */
+	private int compare(String file) throws Exception {
+		OWLOntology ontology = getGraph(file).getSourceOntology();
+
+		OBODoc doc = new Owl2Obo().convert(ontology);
+		StringWriter expected = new StringWriter();
+		BufferedWriter expectedWriter = new BufferedWriter(expected);
+		new OBOFormatWriter().write(doc, expectedWriter);
+		expectedWriter.close();
+
+		int partitionedWrites = 0;
+		for (int partitionSize : new int[]{1, 3, 10000}) {
+			ParallelOboWriter writer = new ParallelOboWriter(4);
+			writer.setPartitionSize(partitionSize);
+			StringWriter actual = new StringWriter();
+			BufferedWriter actualWriter = new BufferedWriter(actual);
+			writer.write(ontology, actualWriter);
+			actualWriter.close();
+			assertEquals(expected.toString(), actual.toString());
+			partitionedWrites += writer.partitionedWrites;
+		}
+		return partitionedWrites;
+	}
+}
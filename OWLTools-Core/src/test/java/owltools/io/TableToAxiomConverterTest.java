@@ -0,0 +1,82 @@
+package owltools.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.OWLAxiom;
+
+import owltools.OWLToolsTestBasics;
+import owltools.graph.OWLGraphWrapper;
+
+/**
+ * tests that the batched parse creates the same axioms as adding the rows
+ * one by one
+ */
+public class TableToAxiomConverterTest extends OWLToolsTestBasics {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testClassAssertions() throws Exception {
+		List<String> lines = new ArrayList<String>();
+		for (int i = 0; i < 100; i++) {
+			lines.add("http://example.org/ind"+i+"\tCARO:00000"+(10 + i % 20));
+		}
+		lines.add("");
+		lines.add("http://example.org/incomplete");
+		compare(lines, AxiomType.CLASS_ASSERTION, false);
+	}
+
+	@Test
+	public void testLabels() throws Exception {
+		List<String> lines = new ArrayList<String>();
+		for (int i = 0; i < 50; i++) {
+			lines.add("CARO:00000"+(10 + i % 20)+"\tlabel "+i);
+		}
+		compare(lines, AxiomType.ANNOTATION_ASSERTION, true);
+	}
+
+	private void compare(List<String> lines, AxiomType<?> type, boolean labels) throws Exception {
+		File file = folder.newFile();
+		FileUtils.writeLines(file, lines);
+
+		OWLGraphWrapper expected = getGraph("caro.obo");
+		TableToAxiomConverter ttac = create(expected, type, labels);
+		for (String line : lines) {
+			ttac.addRow(line.split("\t"));
+		}
+		Set<OWLAxiom> expectedAxioms = new HashSet<OWLAxiom>(expected.getSourceOntology().getAxioms());
+
+		for (int threads : new int[]{1, 4}) {
+			OWLGraphWrapper actual = getGraph("caro.obo");
+			ttac = create(actual, type, labels);
+			ttac.config.numThreads = threads;
+			ttac.config.batchSize = 7;
+			ttac.parse(file);
+			assertEquals(expectedAxioms, actual.getSourceOntology().getAxioms());
+		}
+	}
+
+	private TableToAxiomConverter create(OWLGraphWrapper g, AxiomType<?> type, boolean labels) {
+		TableToAxiomConverter ttac = new TableToAxiomConverter(g);
+		ttac.config.axiomType = type;
+		if (labels) {
+			ttac.config.setPropertyToLabel();
+		}
+		else {
+			ttac.config.isSwitchSubjectObject = true;
+		}
+		return ttac;
+	}
+}
@@ -0,0 +1,84 @@
+package owltools.profile;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import owltools.profile.MetricsRegistry.Histogram;
+import owltools.profile.MetricsRegistry.Scope;
+
+/**
+ * Tests for {@link MetricsRegistry}.
+ */
+public class MetricsRegistryTest {
+
+	@Test
+	public void testConcurrentUpdates() throws Exception {
+		final MetricsRegistry registry = new MetricsRegistry();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 4; i++) {
+			Thread thread = new Thread() {
+
+				@Override
+				public void run() {
+					for (int k = 1; k <= 1000; k++) {
+						registry.counter("calls").increment();
+						registry.histogram("values").update(k);
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(4000, registry.counter("calls").get());
+		Histogram h = registry.histogram("values");
+		assertEquals(4000, h.getCount());
+		assertEquals(4 * 500500, h.getSum());
+		assertEquals(1, h.getMin());
+		assertEquals(1000, h.getMax());
+		// percentiles have a relative error of at most 1/8
+		assertEquals(500, h.getPercentile(50), 500 / 8);
+		assertEquals(990, h.getPercentile(99), 990 / 8);
+		assertEquals(1000, h.getPercentile(100));
+	}
+
+	@Test
+	public void testBuckets() {
+		for (long v : new long[]{0, 1, 7, 8, 9, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE}) {
+			int bucket = Histogram.getBucket(v);
+			assertTrue(v <= Histogram.getUpperBound(bucket));
+			if (bucket > 0) {
+				assertTrue(v > Histogram.getUpperBound(bucket - 1));
+			}
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testScopes() {
+		MetricsRegistry registry = new MetricsRegistry();
+		Scope outer = registry.startScope("load");
+		Scope inner = registry.startScope("parse");
+		assertEquals("load/parse", inner.getPath());
+		inner.stop();
+		// not stopped, closed with the outer scope
+		registry.startScope("unclosed");
+		outer.stop();
+		assertEquals("load", registry.startScope("load").getPath());
+
+		Map<String, Object> timers = (Map<String, Object>) registry.snapshot().get("timers");
+		assertTrue(timers.containsKey("load"));
+		assertTrue(timers.containsKey("load/parse"));
+		assertEquals(0, registry.timer("load/unclosed").getCount());
+		assertEquals(1, registry.timer("load").getCount());
+		assertTrue(registry.getReport().contains("TIMER load/parse count=1"));
+		assertTrue(registry.toJson().contains("\"load/parse\""));
+	}
+}
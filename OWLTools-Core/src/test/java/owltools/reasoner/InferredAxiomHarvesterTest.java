@@ -0,0 +1,106 @@
+package owltools.reasoner;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.semanticweb.elk.owlapi.ElkReasonerFactory;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLSubClassOfAxiom;
+import org.semanticweb.owlapi.model.parameters.AxiomAnnotations;
+import org.semanticweb.owlapi.model.parameters.Imports;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+import owltools.graph.OWLGraphWrapper;
+
+/**
+ * tests InferredAxiomHarvester against direct reasoner queries
+ */
+public class InferredAxiomHarvesterTest extends AbstractReasonerTest {
+
+	@Test
+	public void testSubClassOf() throws Exception {
+		OWLGraphWrapper g = getOntologyWrapper("remove-redundant-inferences.obo");
+		OWLOntology ont = g.getSourceOntology();
+		OWLDataFactory f = g.getDataFactory();
+		OWLReasoner r = new ElkReasonerFactory().createReasoner(ont);
+		try {
+			Set<OWLAxiom> expectedInferred = new HashSet<OWLAxiom>();
+			Set<OWLAxiom> expectedIndirect = new HashSet<OWLAxiom>();
+			Set<OWLAxiom> expectedEquivalent = new HashSet<OWLAxiom>();
+			for (OWLClass c : ont.getClassesInSignature()) {
+				Set<OWLClass> supers = r.getSuperClasses(c, true).getFlattened();
+				for (OWLClass sc : supers) {
+					OWLAxiom ax = f.getOWLSubClassOfAxiom(c, sc);
+					if (!ont.containsAxiom(ax, Imports.INCLUDED, AxiomAnnotations.IGNORE_AXIOM_ANNOTATIONS)) {
+						expectedInferred.add(ax);
+					}
+				}
+				for (OWLClass sc : r.getSuperClasses(c, false).getFlattened()) {
+					OWLAxiom ax = f.getOWLSubClassOfAxiom(c, sc);
+					if (!supers.contains(sc) && ont.containsAxiom(ax, Imports.INCLUDED, AxiomAnnotations.IGNORE_AXIOM_ANNOTATIONS)) {
+						expectedIndirect.add(ax);
+					}
+				}
+				for (OWLClass ec : r.getEquivalentClasses(c)) {
+					OWLAxiom ax = f.getOWLEquivalentClassesAxiom(c, ec);
+					if (!ont.containsAxiom(ax, Imports.INCLUDED, AxiomAnnotations.IGNORE_AXIOM_ANNOTATIONS)) {
+						expectedEquivalent.add(ax);
+					}
+				}
+			}
+			assertFalse(expectedInferred.isEmpty());
+			assertFalse(expectedIndirect.isEmpty());
+
+			InferredAxiomHarvester harvester = new InferredAxiomHarvester(r, 4);
+			InferredAxiomHarvester.Result result = harvester.harvest(ont, InferredAxiomHarvester.Type.SUBCLASS_OF, true, true);
+			assertEquals(expectedInferred, new HashSet<OWLAxiom>(result.getInferred()));
+			assertEquals(expectedIndirect, new HashSet<OWLAxiom>(result.getIndirect()));
+
+			result = harvester.harvest(ont, InferredAxiomHarvester.Type.EQUIVALENT_CLASSES, true, false);
+			assertEquals(expectedEquivalent, new HashSet<OWLAxiom>(result.getInferred()));
+			assertTrue(result.getIndirect().isEmpty());
+
+			// indirect super classes from the copied hierarchy
+			Set<OWLAxiom> expectedAll = new HashSet<OWLAxiom>();
+			for (OWLClass c : ont.getClassesInSignature()) {
+				for (OWLClass sc : r.getSuperClasses(c, false).getFlattened()) {
+					OWLAxiom ax = f.getOWLSubClassOfAxiom(c, sc);
+					if (!ont.containsAxiom(ax, Imports.INCLUDED, AxiomAnnotations.IGNORE_AXIOM_ANNOTATIONS)) {
+						expectedAll.add(ax);
+					}
+				}
+			}
+			result = harvester.harvest(ont, InferredAxiomHarvester.Type.SUBCLASS_OF, false, false);
+			assertEquals(expectedAll, new HashSet<OWLAxiom>(result.getInferred()));
+
+			// same order, independent of the number of threads
+			InferredAxiomHarvester.Result single = new InferredAxiomHarvester(r, 1).harvest(ont,
+					InferredAxiomHarvester.Type.SUBCLASS_OF, true, true);
+			InferredAxiomHarvester.Result multi = harvester.harvest(ont,
+					InferredAxiomHarvester.Type.SUBCLASS_OF, true, true);
+			assertEquals(single.getInferred(), multi.getInferred());
+			assertEquals(single.getIndirect(), multi.getIndirect());
+
+			// sorted by class
+			List<OWLClass> subClasses = new ArrayList<OWLClass>();
+			for (OWLAxiom ax : harvester.harvest(ont, InferredAxiomHarvester.Type.SUBCLASS_OF, true, false).getInferred()) {
+				subClasses.add(((OWLSubClassOfAxiom) ax).getSubClass().asOWLClass());
+			}
+			List<OWLClass> sorted = new ArrayList<OWLClass>(subClasses);
+			Collections.sort(sorted);
+			assertEquals(sorted, subClasses);
+		}
+		finally {
+			r.dispose();
+		}
+	}
+}
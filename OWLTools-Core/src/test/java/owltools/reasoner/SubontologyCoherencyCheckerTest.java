@@ -0,0 +1,74 @@
+package owltools.reasoner;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.semanticweb.elk.owlapi.ElkReasonerFactory;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+/**
+ * tests SubontologyCoherencyChecker
+ */
+public class SubontologyCoherencyCheckerTest {
+
+	@Test
+	public void testCheck() throws Exception {
+		OWLOntologyManager m = OWLManager.createOWLOntologyManager();
+		OWLDataFactory f = m.getOWLDataFactory();
+		List<OWLOntology> ontologies = new ArrayList<OWLOntology>();
+		for (int i = 0; i < 9; i++) {
+			OWLOntology o = m.createOntology(IRI.create("http://x.org/ont-" + i));
+			OWLClass a = f.getOWLClass(IRI.create("http://x.org/A" + i));
+			OWLClass b = f.getOWLClass(IRI.create("http://x.org/B" + i));
+			OWLClass c = f.getOWLClass(IRI.create("http://x.org/C" + i));
+			m.addAxiom(o, f.getOWLSubClassOfAxiom(c, a));
+			if (i % 3 == 1) {
+				// C is unsatisfiable
+				m.addAxiom(o, f.getOWLDisjointClassesAxiom(a, b));
+				m.addAxiom(o, f.getOWLSubClassOfAxiom(c, b));
+			}
+			else if (i % 3 == 2) {
+				// inconsistent
+				OWLNamedIndividual x = f.getOWLNamedIndividual(IRI.create("http://x.org/x" + i));
+				m.addAxiom(o, f.getOWLSubClassOfAxiom(a, f.getOWLNothing()));
+				m.addAxiom(o, f.getOWLClassAssertionAxiom(a, x));
+			}
+			// add in reverse order, results are sorted
+			ontologies.add(0, o);
+		}
+
+		SubontologyCoherencyChecker checker = new SubontologyCoherencyChecker(new ElkReasonerFactory());
+		checker.setNumThreads(4);
+		List<SubontologyCoherencyChecker.Result> results = checker.check(ontologies);
+		assertEquals(9, results.size());
+		for (int i = 0; i < 9; i++) {
+			SubontologyCoherencyChecker.Result result = results.get(i);
+			assertEquals(IRI.create("http://x.org/ont-" + i), result.getOntology().getOntologyID().getOntologyIRI().get());
+			assertFalse(result.isTimedOut());
+			if (i % 3 == 0) {
+				assertTrue(result.isConsistent());
+				assertTrue(result.getUnsatisfiableClasses().isEmpty());
+				assertFalse(result.isIncoherent());
+			}
+			else if (i % 3 == 1) {
+				assertTrue(result.isConsistent());
+				assertEquals(1, result.getUnsatisfiableClasses().size());
+				assertEquals(f.getOWLClass(IRI.create("http://x.org/C" + i)), result.getUnsatisfiableClasses().get(0));
+				assertTrue(result.isIncoherent());
+			}
+			else {
+				assertFalse(result.isConsistent());
+				assertTrue(result.isIncoherent());
+			}
+		}
+	}
+}
@@ -2,18 +2,22 @@ package owltools.util;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import org.junit.Test;
 import org.semanticweb.owlapi.model.IRI;
 
 /**
  * Tests for {@link Tarjan} algorithm implementations using
- * {@link AbstractTarjan} and {@link MappingTarjan}.
+ * {@link AbstractTarjan}, {@link MappingTarjan} and {@link IterativeTarjan}.
  */
 public class TestTarjan {
 
@@ -44,6 +48,69 @@ public class TestTarjan {
 		assertEquals(3, scc.get(0).size());
 	}
 
+	@Test
+	public void testIterativeTarjan() {
+		Adjacency<IRI> graph = new TestIRIAdjacency();
+		List<List<IRI>> expected = new MappingTarjan<IRI>(false).executeTarjan(graph);
+		List<List<IRI>> scc = new IterativeTarjan<IRI>(false).executeTarjan(graph);
+		assertEquals(expected, scc);
+		
+		scc = new IterativeTarjan<IRI>(true).executeTarjan(graph);
+		assertEquals(1, scc.size());
+		assertEquals(3, scc.get(0).size());
+	}
+	
+	@Test
+	public void testIterativeTarjanRandom() {
+		Random random = new Random(42);
+		for (int round = 0; round < 20; round++) {
+			final int n = 50 + random.nextInt(200);
+			final Map<Integer, List<Integer>> edges = new HashMap<Integer, List<Integer>>();
+			for (int i = 0; i < n; i++) {
+				List<Integer> targets = new ArrayList<Integer>();
+				int degree = random.nextInt(3);
+				for (int j = 0; j < degree; j++) {
+					targets.add(random.nextInt(n));
+				}
+				edges.put(i, targets);
+			}
+			Adjacency<Integer> graph = new Adjacency<Integer>() {
+
+				@Override
+				public List<Integer> getAdjacent(Integer source) {
+					return edges.get(source);
+				}
+
+				@Override
+				public Iterable<Integer> getSources() {
+					return edges.keySet();
+				}
+			};
+			assertEquals(new MappingTarjan<Integer>(true).executeTarjan(graph), 
+					new IterativeTarjan<Integer>(true).executeTarjan(graph));
+			assertEquals(new MappingTarjan<Integer>(false).executeTarjan(graph), 
+					new IterativeTarjan<Integer>(false).executeTarjan(graph));
+		}
+	}
+	
+	@Test
+	public void testIterativeTarjanDeepGraph() {
+		// a chain, which would overflow the stack of a recursive implementation
+		final int n = 200000;
+		CompactAdjacency.Builder<Integer> builder = new CompactAdjacency.Builder<Integer>();
+		builder.addSource(0);
+		for (int i = 0; i < n - 1; i++) {
+			builder.addEdge(i, i + 1);
+		}
+		builder.addEdge(n - 1, 0);
+		CompactAdjacency<Integer> graph = builder.build();
+		assertEquals(n, graph.getNodeCount());
+		assertEquals(n, graph.getEdgeCount());
+		List<List<Integer>> scc = new IterativeTarjan<Integer>(true).executeTarjan(graph);
+		assertEquals(1, scc.size());
+		assertEquals(n, scc.get(0).size());
+	}
+	
 	private static <T> void sortList(List<List<T>> list) {
 		// sort the list by element count of the sublist, largest first
 		Collections.sort(list, new Comparator<List<T>>() {
@@ -64,14 +64,16 @@ public class NCBI2OWL extends NCBIConverter {
 	 * Command line usage information.
 	 */
 	protected static String usage = 
-		"usage: ncbi-converter [-ca] <input.dat> <output.owl> [axioms.txt] [-m [merged.dmp]] [-t [taxdmp.zip]] [-n [names.dmp]] [-l [citations.dmp]]\n\n" +
+		"usage: ncbi-converter [-ca] <input.dat> <output.owl> [axioms.txt] [-m [merged.dmp]] [-t [taxdmp.zip]] [-n [names.dmp]] [-l [citations.dmp]] [-j [threads]] [-s]\n\n" +
 		"       -c   Convert to OWL.\n" +
 		"       -a   Print axiom list.\n" +
 		"       -ca  Convert and print axiom list.\n"+
 		"       -m   Extract alternate identifier information from the given merged.dmp file.\n"+
 		"       -t   Extract alternate identifier, unique name, and citation information from the taxdmp.zip file.\n"+
 		"       -n   Extract unique name information from given names.dmp file.\n"+
-		"       -l   Extract literature citation information from the given citation.dmp file\n";
+		"       -l   Extract literature citation information from the given citation.dmp file\n"+
+		"       -j   Parse the taxa in parallel chunks and add the axioms in bulk, using the given number of threads.\n"+
+		"       -s   Stream the ontology as OWL functional syntax into the output file, without keeping it in memory.\n";
 
 
 	/**
@@ -94,6 +96,9 @@ public class NCBI2OWL extends NCBIConverter {
 			
 			String axiomFile = "axioms.txt";
 			
+			int threads = 0;
+			boolean stream = false;
+			
 			for (int i = 0; i < args.length; i++) {
 				String current = args[i];
 				if (current.charAt(0) == '-') {
@@ -143,6 +148,18 @@ public class NCBI2OWL extends NCBIConverter {
 							taxdmp = "taxdmp.zip";
 						}
 					}
+					else if ("-j".equals(current)) {
+						if ((i+1) < args.length && args[i+1].matches("[0-9]+")) {
+							i++;
+							threads = Integer.parseInt(args[i]);
+						}
+						else {
+							threads = Runtime.getRuntime().availableProcessors();
+						}
+					}
+					else if ("-s".equals(current)) {
+						stream = true;
+					}
 					else {
 						// unknown option
 						error("unknown option: "+current);
@@ -235,7 +252,25 @@ public class NCBI2OWL extends NCBIConverter {
 					ZipEntry entry = zipFile.getEntry("names.dmp");
 					uniqueNames = loadUniqueNames(zipFile.getInputStream(entry));
 				}
-				OWLOntology ontology = convertToOWL(inputDat, outputOwl, mergeInfo, citationInfo, uniqueNames);
+				if (stream) {
+					if (printAxioms) {
+						error("The axiom list can not be printed, if the ontology is streamed.");
+						return;
+					}
+					NCBIBatchConverter converter = new NCBIBatchConverter(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+					converter.convertToFunctionalSyntax(inputDat, outputOwl, mergeInfo, citationInfo, uniqueNames);
+					return;
+				}
+				OWLOntology ontology;
+				if (threads > 0) {
+					NCBIBatchConverter converter = new NCBIBatchConverter(threads);
+					ontology = converter.convertToOWL(inputDat, mergeInfo, citationInfo, uniqueNames);
+					logger.debug("Saving ontology...");
+					ontology.getOWLOntologyManager().saveOntology(ontology, IRI.create(outputFile));
+				}
+				else {
+					ontology = convertToOWL(inputDat, outputOwl, mergeInfo, citationInfo, uniqueNames);
+				}
 				if (printAxioms) {
 					printAxioms(ontology, axiomFile);
 				}
@@ -347,7 +382,7 @@ public class NCBI2OWL extends NCBIConverter {
 	 * @param uniqueNames
 	 * @return map of classes with new unique labels
 	 */
-	private static Map<OWLClass, String> createUniqueLabels(List<OWLClass> classes, 
+	static Map<OWLClass, String> createUniqueLabels(List<OWLClass> classes, 
 			String label, Map<String, String> uniqueNames) {
 		
 		Map<OWLClass, String> newLabels = new HashMap<OWLClass, String>();
@@ -542,32 +577,17 @@ public class NCBI2OWL extends NCBIConverter {
 			String line;
 			while((line = reader.readLine()) != null) {
 				List<String> split = splitDmpLine(line);
-				if (split != null && split.size() >= 7) {
-					String pubmed_id = split.get(2);
-					String medline_id = split.get(3);
-					String taxon_list = split.get(6); // whitespace separate list of taxon ids
-					if ((pubmed_id != null || medline_id != null) && taxon_list != null) {
-						String value = null;
-						// "0" denotes no information
-						if (pubmed_id != null && "0".equals(pubmed_id) == false) {
-							value = pubmed_id;
-						}
-						else if (medline_id != null && "0".equals(medline_id) == false) {
-							value = medline_id;
-						}
+				String value = getCitationId(split);
+				if (value != null) {
+					for(String taxon : splitTaxonList(split.get(6))) {
 						
-						if (value != null) {
-							for(String taxon : splitTaxonList(taxon_list)) {
-								
-								// get OWLClass 
-								IRI iri = createNCBIIRI(taxon);
-								OWLClass cls = ontology.getOWLOntologyManager().getOWLDataFactory().getOWLClass(iri);
-								// check that the class exists, i.e. is declared
-								if (ontology.getDeclarationAxioms(cls).isEmpty() == false) {
-									// add xref
-									annotate(ontology, cls , "oio:hasDbXref", "PMID:"+value);
-								}
-							}
+						// get OWLClass 
+						IRI iri = createNCBIIRI(taxon);
+						OWLClass cls = ontology.getOWLOntologyManager().getOWLDataFactory().getOWLClass(iri);
+						// check that the class exists, i.e. is declared
+						if (ontology.getDeclarationAxioms(cls).isEmpty() == false) {
+							// add xref
+							annotate(ontology, cls , "oio:hasDbXref", "PMID:"+value);
 						}
 					}
 				}
@@ -578,6 +598,32 @@ public class NCBI2OWL extends NCBIConverter {
 		}
 	}
 	
+	/**
+	 * Get the PubMed or MEDLINE identifier of a split line from the
+	 * citation.dmp file. The taxon list of the citation is the
+	 * seventh value.
+	 * 
+	 * @param split the values of the line, see {@link #splitDmpLine(String)}
+	 * @return identifier or null, if there is no identifier or taxon list
+	 */
+	static String getCitationId(List<String> split) {
+		if (split != null && split.size() >= 7) {
+			String pubmed_id = split.get(2);
+			String medline_id = split.get(3);
+			String taxon_list = split.get(6); // whitespace separate list of taxon ids
+			if ((pubmed_id != null || medline_id != null) && taxon_list != null) {
+				// "0" denotes no information
+				if (pubmed_id != null && "0".equals(pubmed_id) == false) {
+					return pubmed_id;
+				}
+				else if (medline_id != null && "0".equals(medline_id) == false) {
+					return medline_id;
+				}
+			}
+		}
+		return null;
+	}
+	
 	
 	/**
 	 * split a string into substring using whitespaces as separator.
@@ -615,48 +661,63 @@ public class NCBI2OWL extends NCBIConverter {
 			// read stream
 			String line;
 			while((line = reader.readLine()) != null) {
-				line = line.trim();
-				// minimum length 4, expected format:
-				// [0-9]+\s*\|[0-9]+\s*\|
-				// number(aka obsolete/alt id) whitespaces* pipe number(aka merged) whitespace* pipe
-				String altIdString = null;
-				String merged = null;
+				String[] pair = parseMergedLine(line);
+				if (pair != null) {
+					NCBIOWL.addAltId(ontology, pair[1], pair[0], ap);
+				}
+				else {
+					logger.warn("Could not parse line in merge info: "+line.trim());
+				}
+			}
+		}
+		finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Parse a line of the merged.dmp file.
+	 * 
+	 * @param line
+	 * @return null or the pair of the alternate (obsolete) id and the
+	 *	id of the merged taxon
+	 */
+	static String[] parseMergedLine(String line) {
+		line = line.trim();
+		// minimum length 4, expected format:
+		// [0-9]+\s*\|[0-9]+\s*\|
+		// number(aka obsolete/alt id) whitespaces* pipe number(aka merged) whitespace* pipe
+		String altIdString = null;
+		String merged = null;
 
-				if (line.length() >= 4) {
-					int start = 0;
-					for (int i = 0; i < line.length(); i++) {
-						char c= line.charAt(i);
-						if ('|' == c) {
-							if (start == 0) {
-								altIdString = line.substring(start, i);
-								start = i + 1;
-							}
-							else {
-								merged = line.substring(start, i);
-								break;
-							}
-						}
-						else if (Character.isWhitespace(c) || Character.isDigit(c)) {
-							// expected characters
-							// read until pipe symbol
-						}
-						else {
-							// unexpected character
-							break;
-						}
+		if (line.length() >= 4) {
+			int start = 0;
+			for (int i = 0; i < line.length(); i++) {
+				char c= line.charAt(i);
+				if ('|' == c) {
+					if (start == 0) {
+						altIdString = line.substring(start, i);
+						start = i + 1;
+					}
+					else {
+						merged = line.substring(start, i);
+						break;
 					}
 				}
-				if (altIdString != null && merged != null) {
-					NCBIOWL.addAltId(ontology, merged, altIdString, ap);
+				else if (Character.isWhitespace(c) || Character.isDigit(c)) {
+					// expected characters
+					// read until pipe symbol
 				}
 				else {
-					logger.warn("Could not parse line in merge info: "+line);
+					// unexpected character
+					break;
 				}
 			}
 		}
-		finally {
-			reader.close();
+		if (altIdString != null && merged != null) {
+			return new String[]{altIdString, merged};
 		}
+		return null;
 	}
 
 	/**
@@ -0,0 +1,602 @@
+package owltools.ncbi;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.obolibrary.obo2owl.Obo2Owl;
+import org.obolibrary.oboformat.parser.OBOFormatConstants.OboFormatTag;
+import org.semanticweb.owlapi.formats.FunctionalSyntaxDocumentFormat;
+import org.semanticweb.owlapi.functional.renderer.FunctionalSyntaxObjectRenderer;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLAnnotationProperty;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyStorageException;
+
+/**
+ * High-throughput conversion of the NCBI Taxonomy data file, see
+ * {@link NCBI2OWL} for the format and the created axioms.
+ *
+ * <p>The taxa are parsed in parallel chunks. The axioms of a chunk are
+ * either added to the ontology with one bulk change or written directly
+ * as OWL functional syntax. In the streaming mode only the labels, which
+ * are required to resolve duplicates, and the taxon ids are kept in
+ * memory.</p>
+ */
+public class NCBIBatchConverter extends NCBIConverter {
+	/**
+	 * Create a logger.
+	 */
+	protected final static Logger logger =
+		Logger.getLogger(NCBIBatchConverter.class);
+
+	private final int threads;
+	private int chunkSize = 1000;
+	private int reportInterval = 100000;
+
+	private final OWLDataFactory dataFactory;
+	private final OWLAnnotationProperty label;
+	private final OWLAnnotationProperty namespace;
+	private final OWLAnnotationProperty rank;
+	private final OWLAnnotationProperty xref;
+	private final OWLAnnotationProperty synonymType;
+	private final Map<String, IRI> synonymTypeIRIs = new HashMap<String, IRI>();
+	private final Map<String, OWLAnnotationProperty> synonymProperties = new HashMap<String, OWLAnnotationProperty>();
+
+	/**
+	 * @param threads number of threads for parsing the taxa
+	 */
+	public NCBIBatchConverter(int threads) {
+		this.threads = Math.max(1, threads);
+		dataFactory = NCBIOWL.manager.getOWLDataFactory();
+		label = getProperty("rdfs:label");
+		namespace = getProperty("oio:hasOBONamespace");
+		rank = getProperty("ncbitaxon:has_rank");
+		xref = getProperty("oio:hasDbXref");
+		synonymType = getProperty("oio:hasSynonymType");
+		for (Entry<String, String> entry : NCBIOWL.synonymTypes.entrySet()) {
+			String fieldName = entry.getKey();
+			synonymTypeIRIs.put(fieldName, format.getIRI(reformatName("ncbitaxon:" + fieldName)));
+			synonymProperties.put(fieldName, getProperty(entry.getValue()));
+		}
+	}
+
+	private OWLAnnotationProperty getProperty(String curie) {
+		return dataFactory.getOWLAnnotationProperty(format.getIRI(curie));
+	}
+
+	/**
+	 * @param chunkSize number of taxa, which are parsed and added together
+	 */
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = Math.max(1, chunkSize);
+	}
+
+	/**
+	 * @param reportInterval number of taxa between progress reports
+	 */
+	public void setReportInterval(int reportInterval) {
+		this.reportInterval = Math.max(1, reportInterval);
+	}
+
+	/**
+	 * Read a data file and create an OWL representation.
+	 *
+	 * @param inputPath the path to the input data file (e.g. taxonomy.dat)
+	 * @param mergeInfo the input stream of the merged information or null
+	 * @param citationInfo the input stream of the citation information or null
+	 * @param uniqueNames
+	 * @return OWL ontology
+	 * @throws IOException
+	 * @throws OWLOntologyCreationException
+	 */
+	public OWLOntology convertToOWL(String inputPath, InputStream mergeInfo,
+			InputStream citationInfo, Map<String, String> uniqueNames)
+			throws IOException, OWLOntologyCreationException
+	{
+		final OWLOntology ontology = createOntology(inputPath, mergeInfo != null);
+		convert(inputPath, mergeInfo, citationInfo, uniqueNames, new AxiomSink<Set<OWLAxiom>>() {
+
+			@Override
+			Set<OWLAxiom> prepare(List<OWLAxiom> axioms) {
+				return new HashSet<OWLAxiom>(axioms);
+			}
+
+			@Override
+			void write(Set<OWLAxiom> axioms) {
+				ontology.getOWLOntologyManager().addAxioms(ontology, axioms);
+			}
+		});
+		logger.debug("Filled ontology. Axioms: " + ontology.getAxiomCount());
+		return ontology;
+	}
+
+	/**
+	 * Read a data file and write the OWL representation in functional
+	 * syntax, without creating the ontology in memory.
+	 *
+	 * @param inputPath the path to the input data file (e.g. taxonomy.dat)
+	 * @param outputPath the path to the output file
+	 * @param mergeInfo the input stream of the merged information or null
+	 * @param citationInfo the input stream of the citation information or null
+	 * @param uniqueNames
+	 * @throws IOException
+	 * @throws OWLOntologyCreationException
+	 * @throws OWLOntologyStorageException
+	 */
+	public void convertToFunctionalSyntax(String inputPath, String outputPath,
+			InputStream mergeInfo, InputStream citationInfo,
+			Map<String, String> uniqueNames)
+			throws IOException, OWLOntologyCreationException,
+			OWLOntologyStorageException
+	{
+		final OWLOntology header = createOntology(inputPath, mergeInfo != null);
+		final FunctionalSyntaxDocumentFormat syntax = new FunctionalSyntaxDocumentFormat();
+		syntax.copyPrefixesFrom(format);
+		final Writer writer = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(outputPath), "UTF-8"), 1 << 16);
+		try {
+			// write the prefixes, the ontology header and the fixed
+			// axioms, the closing bracket is added after the taxa
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			header.getOWLOntologyManager().saveOntology(header, syntax, bytes);
+			String document = bytes.toString("UTF-8");
+			writer.write(document.substring(0, document.lastIndexOf(')')));
+
+			convert(inputPath, mergeInfo, citationInfo, uniqueNames, new AxiomSink<String>() {
+
+				@Override
+				String prepare(List<OWLAxiom> axioms) {
+					StringWriter buffer = new StringWriter();
+					FunctionalSyntaxObjectRenderer renderer =
+						new FunctionalSyntaxObjectRenderer(header, syntax, buffer);
+					for (OWLAxiom axiom : axioms) {
+						axiom.accept(renderer);
+						buffer.write('\n');
+					}
+					return buffer.toString();
+				}
+
+				@Override
+				void write(String rendered) throws IOException {
+					writer.write(rendered);
+				}
+			});
+			writer.write(")\n");
+		}
+		finally {
+			writer.close();
+			header.getOWLOntologyManager().removeOntology(header);
+		}
+	}
+
+	/**
+	 * Create the ontology with the ranks, synonym types and annotation
+	 * properties, versioned with the date of the input file.
+	 */
+	private OWLOntology createOntology(String inputPath, boolean altIds)
+			throws OWLOntologyCreationException
+	{
+		OWLOntology ontology = NCBIOWL.createOWLOntology();
+		SimpleDateFormat day = new SimpleDateFormat("yyyy-MM-dd");
+		String date = day.format(new File(inputPath).lastModified());
+		annotate(ontology, "owl:versionIRI",
+			IRI.create(OBO + "ncbitaxon/" + date + "/ncbitaxon.owl"));
+		if (altIds) {
+			NCBIOWL.setupAltIdProperty(ontology);
+		}
+		return ontology;
+	}
+
+	/**
+	 * Target for the axioms. The preparation of the axioms is done in the
+	 * worker threads, the write in the order of the input.
+	 */
+	private static abstract class AxiomSink<T> {
+
+		abstract T prepare(List<OWLAxiom> axioms);
+
+		abstract void write(T prepared) throws IOException;
+	}
+
+	/**
+	 * Result of the conversion of consecutive taxa. The labels are kept
+	 * separately, as duplicates are only resolved after all taxa are read.
+	 */
+	private static class Chunk<T> {
+		int lines = 0;
+		int taxa = 0;
+		int axioms = 0;
+		T prepared = null;
+		final List<OWLClass> labelTaxa = new ArrayList<OWLClass>();
+		final List<String> labels = new ArrayList<String>();
+		final List<Integer> ids = new ArrayList<Integer>();
+	}
+
+	private <T> void convert(String inputPath, InputStream mergeInfo,
+			InputStream citationInfo, Map<String, String> uniqueNames,
+			AxiomSink<T> sink) throws IOException
+	{
+		final long start = System.currentTimeMillis();
+		// Labels should be unique, so we keep a list of them.
+		Map<String, List<OWLClass>> labels = new HashMap<String, List<OWLClass>>();
+		BitSet declared = new BitSet();
+		int lineCount = 0;
+		int taxonCount = 0;
+		int axiomCount = 0;
+		int nextReport = reportInterval;
+
+		// limit the number of chunks, which are read but not yet written
+		final int window = threads * 4;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		BufferedReader br = new BufferedReader(new InputStreamReader(
+				new FileInputStream(inputPath)), 1 << 16);
+		try {
+			Deque<Future<Chunk<T>>> pending = new ArrayDeque<Future<Chunk<T>>>(window);
+			List<String> lines = new ArrayList<String>();
+			int blocks = 0;
+			int lineNumber = 0;
+			boolean done = false;
+			while (!done || !pending.isEmpty()) {
+				while (!done && pending.size() < window) {
+					String line = br.readLine();
+					if (line != null) {
+						lines.add(line);
+						if (line.trim().equals("//")) {
+							blocks++;
+						}
+					}
+					else {
+						done = true;
+					}
+					// chunks end with a separator
+					if ((done && !lines.isEmpty()) || blocks == chunkSize) {
+						pending.add(submit(executor, lines, lineNumber, sink));
+						lineNumber += lines.size();
+						lines = new ArrayList<String>();
+						blocks = 0;
+					}
+				}
+				if (pending.isEmpty()) {
+					break;
+				}
+				Chunk<T> chunk = pending.poll().get();
+				sink.write(chunk.prepared);
+				for (int i = 0; i < chunk.labels.size(); i++) {
+					addLabel(labels, chunk.labels.get(i), chunk.labelTaxa.get(i));
+				}
+				for (Integer id : chunk.ids) {
+					declared.set(id);
+				}
+				lineCount += chunk.lines;
+				taxonCount += chunk.taxa;
+				axiomCount += chunk.axioms;
+				if (taxonCount >= nextReport) {
+					report("Converted", taxonCount, lineCount, start);
+					nextReport = taxonCount + reportInterval;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while converting " + inputPath, e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+			br.close();
+		}
+		report("Finished reading", taxonCount, lineCount, start);
+
+		logger.debug("Resolving duplicate label issues");
+		AxiomBatch<T> batch = new AxiomBatch<T>(sink);
+		for (Entry<String, List<OWLClass>> entry : labels.entrySet()) {
+			final String originalLabel = entry.getKey();
+			List<OWLClass> classes = entry.getValue();
+			Map<OWLClass, String> newLabels = Collections.emptyMap();
+			if (classes.size() > 1) {
+				newLabels = NCBI2OWL.createUniqueLabels(classes, originalLabel, uniqueNames);
+			}
+			for (OWLClass cls : classes) {
+				String newLabel = newLabels.get(cls);
+				if (newLabel == null) {
+					batch.add(annotation(label, cls, originalLabel));
+				}
+				else {
+					// keep the original label as synonym
+					batch.add(annotation(label, cls, newLabel));
+					batch.add(synonym(cls, format.getIRI("ncbitaxon:scientific_name"),
+						getProperty("oio:hasExactSynonym"), originalLabel));
+				}
+			}
+		}
+		if (mergeInfo != null) {
+			addAltIds(mergeInfo, batch);
+		}
+		if (citationInfo != null) {
+			addCitationInfo(citationInfo, declared, batch);
+		}
+		batch.flush();
+		axiomCount += batch.count;
+		logger.info("Created " + axiomCount + " axioms for " + taxonCount
+			+ " taxa in " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+	private void report(String message, int taxa, int lines, long start) {
+		long ms = Math.max(1, System.currentTimeMillis() - start);
+		logger.info(message + " " + taxa + " taxa, " + lines + " lines ("
+			+ (lines * 1000L / ms) + " lines/s)");
+	}
+
+	private static void addLabel(Map<String, List<OWLClass>> labels, String label, OWLClass taxon) {
+		// track terms with equal labels
+		List<OWLClass> classes = labels.get(label);
+		if (classes == null || classes.isEmpty()) {
+			labels.put(label, Collections.singletonList(taxon));
+		}
+		else if (classes.size() == 1) {
+			classes = new ArrayList<OWLClass>(classes);
+			classes.add(taxon);
+			labels.put(label, classes);
+		}
+		else {
+			classes.add(taxon);
+		}
+	}
+
+	/**
+	 * Buffer for the axioms created after reading the taxa.
+	 */
+	private class AxiomBatch<T> {
+
+		private final AxiomSink<T> sink;
+		private List<OWLAxiom> axioms = new ArrayList<OWLAxiom>();
+		int count = 0;
+
+		AxiomBatch(AxiomSink<T> sink) {
+			this.sink = sink;
+		}
+
+		void add(OWLAxiom axiom) throws IOException {
+			axioms.add(axiom);
+			if (axioms.size() >= chunkSize * 10) {
+				flush();
+			}
+		}
+
+		void flush() throws IOException {
+			if (!axioms.isEmpty()) {
+				sink.write(sink.prepare(axioms));
+				count += axioms.size();
+				axioms = new ArrayList<OWLAxiom>();
+			}
+		}
+	}
+
+	private <T> Future<Chunk<T>> submit(ExecutorService executor,
+			final List<String> lines, final int lineNumber, final AxiomSink<T> sink)
+	{
+		return executor.submit(new Callable<Chunk<T>>() {
+
+			@Override
+			public Chunk<T> call() throws Exception {
+				Chunk<T> chunk = new Chunk<T>();
+				List<OWLAxiom> axioms = handleLines(lines, lineNumber, chunk);
+				chunk.axioms = axioms.size();
+				chunk.prepared = sink.prepare(axioms);
+				return chunk;
+			}
+		});
+	}
+
+	/**
+	 * Create the axioms for the lines of a chunk, same as
+	 * {@link NCBI2OWL#handleLine(OWLOntology, Map, OWLClass, String, int)}.
+	 * The labels are added to the chunk.
+	 */
+	private List<OWLAxiom> handleLines(List<String> lines, int firstLineNumber, Chunk<?> chunk) {
+		List<OWLAxiom> axioms = new ArrayList<OWLAxiom>();
+		OWLClass taxon = null;
+		String taxonLabel = null;
+		int parents = 0;
+		for (int i = 0; i < lines.size(); i++) {
+			final String line = lines.get(i);
+			final int lineNumber = firstLineNumber + i;
+			chunk.lines++;
+			if (line.trim().equals("//")) {
+				continue;
+			}
+			String[] result = NCBI2OWL.parseLine(line, lineNumber);
+			if (result == null) {
+				continue;
+			}
+			String fieldName = result[0];
+			String fieldValue = result[1];
+
+			if (fieldName.equals("id")) {
+				if (taxon != null) {
+					checkTaxon(taxon, taxonLabel, parents);
+				}
+				taxon = dataFactory.getOWLClass(createNCBIIRI(fieldValue));
+				taxonLabel = null;
+				parents = 0;
+				chunk.taxa++;
+				try {
+					chunk.ids.add(Integer.valueOf(fieldValue));
+				} catch (NumberFormatException e) {
+					// only numeric ids are used in citations
+				}
+				axioms.add(dataFactory.getOWLDeclarationAxiom(taxon));
+				axioms.add(annotation(namespace, taxon, "ncbi_taxonomy"));
+			}
+			else if (taxon == null) {
+				logger.error("Null taxon for line " + lineNumber
+						+ ": " + line);
+			}
+			else if (fieldName.equals("parent id")) {
+				// Do not add NCBITaxon_0 as a parent
+				if (!fieldValue.equals("0")) {
+					OWLClass parent = dataFactory.getOWLClass(createNCBIIRI(fieldValue));
+					axioms.add(dataFactory.getOWLSubClassOfAxiom(taxon, parent));
+					parents++;
+				}
+			} else if (fieldName.equals("rank")) {
+				// Ignore "no rank"
+				if(!fieldValue.equals("no rank")) {
+					String name = reformatName(fieldValue);
+					axioms.add(dataFactory.getOWLAnnotationAssertionAxiom(
+						rank, taxon.getIRI(), IRI.create(NCBI + name)));
+					// Warn if rank is not in the list of ranks.
+					if (!NCBIOWL.ranks.contains(fieldValue)) {
+						logger.warn("Unrecognized RANK '" +
+							fieldValue +"' on line " +
+							lineNumber);
+					}
+				}
+			} else if (fieldName.equals("scientific name")) {
+				taxonLabel = fieldValue;
+				chunk.labelTaxa.add(taxon);
+				chunk.labels.add(fieldValue);
+			} else if (fieldName.equals("includes")) {
+			} else if (fieldName.equals("gc id")) {
+				axioms.add(annotation(xref, taxon, "GC_ID:" + fieldValue));
+			} else if (fieldName.equals("mgc id")) {
+			} else if (synonymProperties.containsKey(fieldName)) {
+				axioms.add(synonym(taxon, synonymTypeIRIs.get(fieldName),
+					synonymProperties.get(fieldName), fieldValue));
+			} else {
+				logger.error("Unknown field name '" + fieldName +
+					"' for line " + lineNumber + ": " + line);
+			}
+		}
+		if (taxon != null) {
+			checkTaxon(taxon, taxonLabel, parents);
+		}
+		return axioms;
+	}
+
+	/**
+	 * Same as {@link NCBIConverter#checkTaxon(OWLOntology, OWLClass)}, using
+	 * the values collected while reading the taxon.
+	 */
+	private static boolean checkTaxon(OWLClass taxon, String label, int parents) {
+		String id = getTaxonID(taxon);
+		if (label == null || label.trim().length() == 0) {
+			logger.error("No SCIENTIFIC NAME provided for " + id);
+			return false;
+		}
+		if (parents < 1 && !"1".equals(id)) {
+			logger.error("No PARENT ID for " + id);
+			return false;
+		} else if (parents > 1) {
+			logger.error("Multiple PARENT IDs for " + id);
+			return false;
+		}
+		return true;
+	}
+
+	private OWLAxiom annotation(OWLAnnotationProperty property, OWLClass subject, String value) {
+		return dataFactory.getOWLAnnotationAssertionAxiom(property,
+			subject.getIRI(), dataFactory.getOWLLiteral(value));
+	}
+
+	private OWLAxiom synonym(OWLClass subject, IRI type, OWLAnnotationProperty property, String value) {
+		OWLAnnotation annotation = dataFactory.getOWLAnnotation(synonymType, type);
+		return dataFactory.getOWLAnnotationAssertionAxiom(property,
+			subject.getIRI(), dataFactory.getOWLLiteral(value),
+			Collections.singleton(annotation));
+	}
+
+	private <T> void addAltIds(InputStream mergeInfo, AxiomBatch<T> batch) throws IOException {
+		logger.debug("Adding alternative identifiers from merge information.");
+		OWLAnnotationProperty ap = dataFactory.getOWLAnnotationProperty(
+			Obo2Owl.trTagToIRI(OboFormatTag.TAG_ALT_ID.getTag()));
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(mergeInfo));
+		try {
+			String line;
+			while((line = reader.readLine()) != null) {
+				String[] pair = NCBI2OWL.parseMergedLine(line);
+				if (pair != null) {
+					batch.add(dataFactory.getOWLAnnotationAssertionAxiom(ap,
+						createNCBIIRI(pair[1].trim()),
+						dataFactory.getOWLLiteral("NCBITaxon:" + pair[0].trim())));
+				}
+				else {
+					logger.warn("Could not parse line in merge info: "+line.trim());
+				}
+			}
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+	private <T> void addCitationInfo(InputStream citationInfo, BitSet declared,
+			AxiomBatch<T> batch) throws IOException {
+		logger.debug("Adding citation information.");
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(citationInfo));
+		try {
+			String line;
+			while((line = reader.readLine()) != null) {
+				List<String> split = NCBI2OWL.splitDmpLine(line);
+				String value = NCBI2OWL.getCitationId(split);
+				if (value != null) {
+					for(String taxon : NCBI2OWL.splitTaxonList(split.get(6))) {
+						// check that the class exists, i.e. is declared
+						if (isDeclared(declared, taxon)) {
+							OWLClass cls = dataFactory.getOWLClass(createNCBIIRI(taxon));
+							batch.add(annotation(xref, cls, "PMID:" + value));
+						}
+					}
+				}
+			}
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+	private static boolean isDeclared(BitSet declared, String taxon) {
+		try {
+			int id = Integer.parseInt(taxon);
+			return id >= 0 && declared.get(id);
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package owltools.ncbi;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.formats.FunctionalSyntaxDocumentFormat;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+/**
+ * Tests for {@link NCBIBatchConverter}, compares the results with
+ * {@link NCBI2OWL}.
+ */
+public class NCBIBatchConverterTest {
+
+	private static final String inputPath = "src/test/resources/sample.dat";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testConvert() throws Exception {
+		OWLOntology expected = NCBI2OWL.convertToOWL(inputPath, null);
+		Set<OWLAxiom> expectedAxioms = new HashSet<OWLAxiom>(expected.getAxioms());
+		Set<OWLAnnotation> expectedAnnotations = new HashSet<OWLAnnotation>(expected.getAnnotations());
+		expected.getOWLOntologyManager().removeOntology(expected);
+
+		NCBIBatchConverter converter = new NCBIBatchConverter(3);
+		converter.setChunkSize(2);
+		OWLOntology ontology = converter.convertToOWL(inputPath, null, null, null);
+		try {
+			assertEquals(expectedAxioms, ontology.getAxioms());
+			assertEquals(expectedAnnotations, ontology.getAnnotations());
+		}
+		finally {
+			ontology.getOWLOntologyManager().removeOntology(ontology);
+		}
+	}
+
+	@Test
+	public void testStream() throws Exception {
+		String merged = "12345\t|\t2\t|\n" + "67890\t|\t1653\t|\n";
+		String citations = "1\t|\tkey1\t|\t1234\t|\t0\t|\t\t|\t\t|\t2 1653 99999999\t|\n"
+			+ "2\t|\tkey2\t|\t0\t|\t0\t|\t\t|\t\t|\t2\t|\n";
+
+		// the expected result is the ontology written by OWLAPI
+		File owl = folder.newFile("sample.owl");
+		File saved = folder.newFile("expected.ofn");
+		OWLOntology expected = NCBI2OWL.convertToOWL(inputPath, owl.getAbsolutePath(),
+				stream(merged), stream(citations), null);
+		assertTrue(expected.getAxioms().toString().contains("\"PMID:1234\""));
+		expected.getOWLOntologyManager().saveOntology(expected,
+				new FunctionalSyntaxDocumentFormat(), IRI.create(saved));
+		expected.getOWLOntologyManager().removeOntology(expected);
+		expected = load(saved);
+
+		File output = folder.newFile("sample.ofn");
+		NCBIBatchConverter converter = new NCBIBatchConverter(2);
+		converter.setChunkSize(5);
+		converter.convertToFunctionalSyntax(inputPath, output.getAbsolutePath(),
+				stream(merged), stream(citations), null);
+
+		OWLOntology loaded = load(output);
+		assertEquals(expected.getAxioms(), loaded.getAxioms());
+		assertEquals(expected.getAnnotations(), loaded.getAnnotations());
+	}
+
+	private static OWLOntology load(File file) throws Exception {
+		return OWLManager.createOWLOntologyManager().loadOntologyFromOntologyDocument(file);
+	}
+
+	private static InputStream stream(String s) throws Exception {
+		return new ByteArrayInputStream(s.getBytes("UTF-8"));
+	}
+}
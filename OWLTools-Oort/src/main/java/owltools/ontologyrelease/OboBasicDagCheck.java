@@ -9,7 +9,7 @@ import org.semanticweb.owlapi.model.OWLObject;
 
 import owltools.graph.OWLGraphWrapper;
 import owltools.util.Adjacency;
-import owltools.util.MappingTarjan;
+import owltools.util.IterativeTarjan;
 import owltools.util.Tarjan;
 
 public class OboBasicDagCheck {
@@ -23,7 +23,19 @@ public class OboBasicDagCheck {
 	public static List<List<OWLObject>> findCycles(final OWLGraphWrapper graph) {
 		// find strongly connected components using the Tarjan algorithm
 		// use parameter to request only components with more than one node
-		Tarjan<OWLObject> tarjan = new MappingTarjan<OWLObject>(true);
+		Tarjan<OWLObject> tarjan = new IterativeTarjan<OWLObject>(true);
+		List<List<OWLObject>> scc = tarjan.executeTarjan(createAncestorAdjacency(graph));
+		return scc;
+	}
+	
+	/**
+	 * Create the adjacency for all objects in the graph, using the ancestors
+	 * of an object as adjacent nodes.
+	 * 
+	 * @param graph
+	 * @return adjacency
+	 */
+	public static Adjacency<OWLObject> createAncestorAdjacency(final OWLGraphWrapper graph) {
 		Adjacency<OWLObject> adjacency = new Adjacency<OWLObject>() {
 
 			@Override
@@ -49,8 +61,7 @@ public class OboBasicDagCheck {
 				return graph.getAllOWLObjects();
 			}
 		};
-		List<List<OWLObject>> scc = tarjan.executeTarjan(adjacency);
-		return scc;
+		return adjacency;
 	}
 	
 }
@@ -80,6 +80,7 @@ import owltools.graph.OWLGraphWrapper;
 import owltools.io.CatalogXmlIRIMapper;
 import owltools.io.OWLOboGraphsFormat;
 import owltools.io.OWLPrettyPrinter;
+import owltools.io.ParallelOboWriter;
 import owltools.io.ParserWrapper;
 import owltools.mooncat.Mooncat;
 import owltools.mooncat.PropertyViewOntologyBuilder;
@@ -93,6 +94,7 @@ import owltools.ontologyrelease.logging.TraceReportFileHandler;
 import owltools.ontologyverification.OntologyCheck;
 import owltools.ontologyverification.OntologyCheckHandler;
 import owltools.ontologyverification.OntologyCheckHandler.CheckSummary;
+import owltools.ontologyverification.impl.NameRedundancyCheck;
 import owltools.util.OwlHelper;
 import uk.ac.manchester.cs.owl.owlapi.OWLImportsDeclarationImpl;
 import uk.ac.manchester.cs.owlapi.modularity.ModuleType;
@@ -117,7 +119,12 @@ public class OboOntologyReleaseRunner extends ReleaseRunnerFileTools {
 	public OboOntologyReleaseRunner(OortConfiguration oortConfig, File base, List<LogHandler> handlers) throws IOException {
 		super(base, oortConfig.isUseReleaseFolder(), oortConfig.isIgnoreLockFile(), addDefaultHandlers(handlers, oortConfig));
 		this.oortConfig = oortConfig;
-		this.ontologyChecks = new OntologyCheckHandler(false, oortConfig.getOntologyChecks(), handlers);
+		for (OntologyCheck check : oortConfig.getOntologyChecks()) {
+			if (check instanceof NameRedundancyCheck) {
+				((NameRedundancyCheck) check).setNumThreads(oortConfig.getThreads());
+			}
+		}
+		this.ontologyChecks = new OntologyCheckHandler(false, oortConfig.getOntologyChecks(), handlers, oortConfig.getThreads());
 	}
 	
 	static List<LogHandler> addDefaultHandlers(List<LogHandler> handlers, OortConfiguration config) {
@@ -396,6 +403,9 @@ public class OboOntologyReleaseRunner extends ReleaseRunnerFileTools {
 			else if (opts.nextEq("--threads")) {
 				oortConfig.setThreads(Integer.parseInt(opts.nextOpt()));
 			}
+			else if (opts.nextEq("--parallel-obo-writer")) {
+				oortConfig.setParallelOboWriter(true);
+			}
 			else if (opts.nextEq("--run-obo-basic-dag-check")) {
 				oortConfig.setRunOboBasicDagCheck(true);
 			}
@@ -1712,14 +1722,21 @@ public class OboOntologyReleaseRunner extends ReleaseRunnerFileTools {
 
 		if (!oortConfig.isSkipFormat("obo")) {
 
-			Owl2Obo owl2obo = new Owl2Obo();
-			OBODoc doc = owl2obo.convert(ontologyToSave);
+			BufferedWriter bwriter = getWriter(fileNameBase +".obo");
 
-			OBOFormatWriter writer = new OBOFormatWriter();
+			if (oortConfig.isParallelOboWriter() && oortConfig.getThreads() > 1) {
+				// convert and write partitions of the ontology in parallel
+				ParallelOboWriter writer = new ParallelOboWriter(oortConfig.getThreads());
+				writer.write(ontologyToSave, bwriter);
+			}
+			else {
+				Owl2Obo owl2obo = new Owl2Obo();
+				OBODoc doc = owl2obo.convert(ontologyToSave);
 
-			BufferedWriter bwriter = getWriter(fileNameBase +".obo");
+				OBOFormatWriter writer = new OBOFormatWriter();
 
-			writer.write(doc, bwriter);
+				writer.write(doc, bwriter);
+			}
 
 			bwriter.close();
 		}
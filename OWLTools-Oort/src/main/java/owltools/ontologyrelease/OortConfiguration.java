@@ -104,6 +104,7 @@ public class OortConfiguration {
 	private static final OWLDocumentFormat owlOFNFormat = new LabelFunctionalDocumentFormat();
 
 	private int threads = 1;
+	private boolean parallelOboWriter = false;
 	
 	private boolean runOboBasicDagCheck = false;
 	
@@ -866,6 +867,20 @@ public class OortConfiguration {
 		this.threads = threads;
 	}
 
+	/**
+	 * @return the parallelOboWriter
+	 */
+	public boolean isParallelOboWriter() {
+		return parallelOboWriter;
+	}
+
+	/**
+	 * @param parallelOboWriter if true, write the obo files with the threads, see {@link owltools.io.ParallelOboWriter}
+	 */
+	public void setParallelOboWriter(boolean parallelOboWriter) {
+		this.parallelOboWriter = parallelOboWriter;
+	}
+
 	/**
 	 * @return the runOboBasicDagCheck
 	 */
@@ -1096,6 +1111,7 @@ public class OortConfiguration {
 		putValue(properties, "removeQueryOntologyReference", config.removeQueryOntologyReference);
 		putValue(properties, "ontologyChecks", config.ontologyChecks);
 		putValue(properties, "threads", config.threads);
+		putValue(properties, "parallelOboWriter", config.parallelOboWriter);
 		putValue(properties, "runOboBasicDagCheck", config.runOboBasicDagCheck);
 		putValue(properties, "errorReportFile", config.errorReportFile);
 		putValue(properties, "traceReportFile", config.traceReportFile);
@@ -1217,6 +1233,7 @@ public class OortConfiguration {
 		config.removeQueryOntologyReference = getValue(properties, "removeQueryOntologyReference", config.removeQueryOntologyReference);
 		config.ontologyChecks = getClassValues(properties, "ontologyChecks", getDefaultOntologyChecks());
 		config.threads = getValue(properties, "threads", config.threads);
+		config.parallelOboWriter = getValue(properties, "parallelOboWriter", config.parallelOboWriter);
 		config.runOboBasicDagCheck = getValue(properties, "runOboBasicDagCheck", config.runOboBasicDagCheck);
 		config.errorReportFile = getValue(properties, "errorReportFile", config.errorReportFile);
 		config.traceReportFile = getValue(properties, "traceReportFile", config.traceReportFile);
@@ -2,6 +2,8 @@ package owltools.ontologyverification;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -27,10 +29,22 @@ public class OntologyCheckHandler {
 	 * @param handlers
 	 */
 	public OntologyCheckHandler(boolean isWarningFatal, List<OntologyCheck> checks, List<LogHandler> handlers) {
+		this(isWarningFatal, checks, handlers, 1);
+	}
+	
+	/**
+	 * Create a new instance.
+	 * 
+	 * @param isWarningFatal if true all warnings are treated as errors.
+	 * @param checks list of ontology checks
+	 * @param handlers
+	 * @param numThreads number of threads for running the checks of a time point
+	 */
+	public OntologyCheckHandler(boolean isWarningFatal, List<OntologyCheck> checks, List<LogHandler> handlers, int numThreads) {
 		super();
 		this.isWarningFatal = isWarningFatal;
 		this.handlers = handlers;
-		runner = new OntologyCheckRunner(checks);
+		runner = new OntologyCheckRunner(checks, numThreads);
 	}
 	
 	public static class CheckSummary {
@@ -38,6 +52,10 @@ public class OntologyCheckHandler {
 		public final boolean success;
 		public final int errorCount;
 		public final String message;
+		/**
+		 * Duration in ms for each executed check.
+		 */
+		public final Map<OntologyCheck, Long> durations;
 		
 		/**
 		 * @param success
@@ -45,17 +63,33 @@ public class OntologyCheckHandler {
 		 * @param message
 		 */
 		protected CheckSummary(boolean success, int errorCount, String message) {
+			this(success, errorCount, message, null);
+		}
+		
+		/**
+		 * @param success
+		 * @param errorCount
+		 * @param message
+		 * @param durations
+		 */
+		protected CheckSummary(boolean success, int errorCount, String message, Map<OntologyCheck, Long> durations) {
 			this.success = success;
 			this.errorCount = errorCount;
 			this.message = message;
+			if (durations == null) {
+				this.durations = Collections.emptyMap();
+			}
+			else {
+				this.durations = Collections.unmodifiableMap(durations);
+			}
 		}
 		
-		static CheckSummary success() {
-			return new CheckSummary(true, 0, null);
+		static CheckSummary success(Map<OntologyCheck, Long> durations) {
+			return new CheckSummary(true, 0, null, durations);
 		}
 		
-		static CheckSummary error(int count, String message) {
-			return new CheckSummary(false, count, message);
+		static CheckSummary error(int count, String message, Map<OntologyCheck, Long> durations) {
+			return new CheckSummary(false, count, message, durations);
 		}
 	}
 	
@@ -90,10 +124,11 @@ public class OntologyCheckHandler {
 	}
 	
 	CheckSummary run(OWLGraphWrapper owlGraphWrapper, TimePoint timePoint) {
-		Map<OntologyCheck, Collection<CheckWarning>> results = runner.verify(owlGraphWrapper, timePoint);
+		Map<OntologyCheck, Long> durations = new HashMap<OntologyCheck, Long>();
+		Map<OntologyCheck, Collection<CheckWarning>> results = runner.verify(owlGraphWrapper, timePoint, durations);
 		if (results == null || results.isEmpty()) {
 			// do nothing
-			return CheckSummary.success();
+			return CheckSummary.success(durations);
 		}
 		String ontologyId = owlGraphWrapper.getOntologyId();
 		int successCount = 0;
@@ -131,12 +166,13 @@ public class OntologyCheckHandler {
 		}
 		sb.append('\n');
 		sb.append(summary(results.size(), successCount, warningCount, errorCount, internalErrorCount));
+		reportDurations(sb, results.keySet(), durations);
 		boolean hasErrors = errorCount > 0 || internalErrorCount > 0;
 		report(sb, timePoint);
 		if (hasErrors) {
-			return CheckSummary.error(errorCount, createExceptionMessage(ontologyId, errorCount, internalErrorCount));
+			return CheckSummary.error(errorCount, createExceptionMessage(ontologyId, errorCount, internalErrorCount), durations);
 		}
-		return CheckSummary.success();
+		return CheckSummary.success(durations);
 		
 	}
 
@@ -189,6 +225,20 @@ public class OntologyCheckHandler {
 		}
 	}
 	
+	protected void reportDurations(StringBuilder sb, Collection<OntologyCheck> checks, Map<OntologyCheck, Long> durations) {
+		sb.append('\n');
+		sb.append("Duration (ms):");
+		for (OntologyCheck check : checks) {
+			Long duration = durations.get(check);
+			if (duration != null) {
+				sb.append("\n\t");
+				sb.append(check.getLabel());
+				sb.append('\t');
+				sb.append(duration);
+			}
+		}
+	}
+	
 	protected StringBuilder summary(int totalCount, int successCount, int warningCount, int errorCount, int internalErrorCount) {
 		StringBuilder sb = new StringBuilder();
 		sb.append("Summary (Total, Success, Warning, Error):  (");
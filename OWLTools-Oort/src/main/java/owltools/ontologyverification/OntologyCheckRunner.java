@@ -1,11 +1,20 @@
 package owltools.ontologyverification;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.apache.log4j.Logger;
 import org.semanticweb.owlapi.model.OWLObject;
 
 import owltools.graph.OWLGraphWrapper;
@@ -14,10 +23,17 @@ import owltools.graph.OWLGraphWrapper;
  * Identify and run ontology checks for an ontology ({@link OWLGraphWrapper})
  * via the {@link OntologyCheck} interface. The runner uses annotations to
  * identify the time point ({@link TimePoint}) when to run the ontology check
- * methods during the release process.
+ * methods during the release process.<br>
+ * With more than one thread, the objects for a {@link PartitionableOntologyCheck}
+ * are split into one partition per thread and the partitions of these checks
+ * run concurrently. All other checks may use the lazily built structures of
+ * the {@link OWLGraphWrapper}, they run one after the other in the calling
+ * thread, before the partitionable checks.
  */
 public class OntologyCheckRunner {
 	
+	private static final Logger LOG = Logger.getLogger(OntologyCheckRunner.class);
+	
 	public static enum TimePoint {
 		AfterLoad,
 		AfterMireot,
@@ -25,6 +41,7 @@ public class OntologyCheckRunner {
 	}
 	
 	private final Map<TimePoint, Set<OntologyCheck>> allChecks;
+	private final int numThreads;
 	
 	/**
 	 * Create a new runner instance.
@@ -32,7 +49,18 @@ public class OntologyCheckRunner {
 	 * @param checks
 	 */
 	OntologyCheckRunner(Collection<OntologyCheck> checks) {
+		this(checks, 1);
+	}
+	
+	/**
+	 * Create a new runner instance.
+	 * 
+	 * @param checks
+	 * @param numThreads
+	 */
+	OntologyCheckRunner(Collection<OntologyCheck> checks, int numThreads) {
 		super();
+		this.numThreads = Math.max(1, numThreads);
 		allChecks = new HashMap<TimePoint, Set<OntologyCheck>>();
 		// init map
 		for (TimePoint timePoint : TimePoint.values()) {
@@ -68,8 +96,24 @@ public class OntologyCheckRunner {
 	 * @return map of checks and warnings
 	 */
 	Map<OntologyCheck, Collection<CheckWarning>> verify (OWLGraphWrapper graph, TimePoint timePoint) {
+		return verify(graph, timePoint, null);
+	}
+	
+	/**
+	 * Run checks for an ontology and given {@link TimePoint}.
+	 * 
+	 * @param graph target ontology
+	 * @param timePoint 
+	 * @param durations map for the duration of each check in ms or null
+	 * @return map of checks and warnings
+	 */
+	Map<OntologyCheck, Collection<CheckWarning>> verify (OWLGraphWrapper graph, TimePoint timePoint, Map<OntologyCheck, Long> durations) {
+		Set<OntologyCheck> checks = allChecks.get(timePoint);
+		if (checks.isEmpty()) {
+			return new HashMap<OntologyCheck, Collection<CheckWarning>>();
+		}
 		Set<OWLObject> allOWLObjects = graph.getAllOWLObjects();
-		return verify(graph, allOWLObjects, timePoint);
+		return verify(checks, graph, allOWLObjects, durations);
 	}
 	
 	/**
@@ -81,7 +125,7 @@ public class OntologyCheckRunner {
 	 * @return map of checks and warnings
 	 */
 	Map<OntologyCheck, Collection<CheckWarning>> verify (OWLGraphWrapper graph, Set<OWLObject> allOWLObjects, TimePoint timePoint) {
-		return verify(allChecks.get(timePoint), graph, allOWLObjects);
+		return verify(allChecks.get(timePoint), graph, allOWLObjects, null);
 	}
 	
 	/**
@@ -90,15 +134,132 @@ public class OntologyCheckRunner {
 	 * @param checks the checks to execute
 	 * @param owlGraphWrapper target ontology
 	 * @param allOWLObjects all owl objects in the graph wrapper
+	 * @param durations map for the duration of each check in ms or null
 	 * @return map of checks and warnings
 	 */
-	private Map<OntologyCheck, Collection<CheckWarning>> verify(Set<OntologyCheck> checks, OWLGraphWrapper owlGraphWrapper, Set<OWLObject> allOWLObjects) {
+	private Map<OntologyCheck, Collection<CheckWarning>> verify(Set<OntologyCheck> checks, OWLGraphWrapper owlGraphWrapper, 
+			Set<OWLObject> allOWLObjects, Map<OntologyCheck, Long> durations) {
 		Map<OntologyCheck, Collection<CheckWarning>> results = new HashMap<OntologyCheck, Collection<CheckWarning>>();
+		Set<OntologyCheck> partitionableChecks = new HashSet<OntologyCheck>();
+		if (numThreads > 1) {
+			for (OntologyCheck check : checks) {
+				if (check instanceof PartitionableOntologyCheck) {
+					partitionableChecks.add(check);
+				}
+			}
+		}
 		for(OntologyCheck check : checks) {
+			if (partitionableChecks.contains(check)) {
+				continue;
+			}
+			long t = System.currentTimeMillis();
 			Collection<CheckWarning> warnings = check.check(owlGraphWrapper, allOWLObjects);
 			results.put(check, warnings);
+			if (durations != null) {
+				durations.put(check, System.currentTimeMillis() - t);
+			}
+		}
+		if (!partitionableChecks.isEmpty()) {
+			verifyConcurrently(partitionableChecks, owlGraphWrapper, allOWLObjects, results, durations);
 		}
 		return results;
 	}
 	
+	/**
+	 * Result of a check for a partition of the objects.
+	 */
+	private static class PartialResult {
+		
+		final Collection<CheckWarning> warnings;
+		final long start;
+		final long end;
+		
+		PartialResult(Collection<CheckWarning> warnings, long start, long end) {
+			this.warnings = warnings;
+			this.start = start;
+			this.end = end;
+		}
+	}
+	
+	/**
+	 * Run the partitions of the {@link PartitionableOntologyCheck}s concurrently.
+	 */
+	private void verifyConcurrently(Set<OntologyCheck> checks, final OWLGraphWrapper owlGraphWrapper, 
+			Collection<OWLObject> allOWLObjects, Map<OntologyCheck, Collection<CheckWarning>> results,
+			Map<OntologyCheck, Long> durations) {
+		// shared read-only snapshot for all checks
+		final List<OWLObject> snapshot = Collections.unmodifiableList(new ArrayList<OWLObject>(allOWLObjects));
+		final int partitionSize = Math.max(1, (snapshot.size() + numThreads - 1) / numThreads);
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			Map<OntologyCheck, List<Future<PartialResult>>> futures = new HashMap<OntologyCheck, List<Future<PartialResult>>>();
+			for (final OntologyCheck check : checks) {
+				List<Future<PartialResult>> checkFutures = new ArrayList<Future<PartialResult>>();
+				for (int start = 0; start < snapshot.size(); start += partitionSize) {
+					List<OWLObject> partition = snapshot.subList(start, Math.min(snapshot.size(), start + partitionSize));
+					checkFutures.add(executor.submit(createTask(check, owlGraphWrapper, partition)));
+				}
+				if (checkFutures.isEmpty()) {
+					checkFutures.add(executor.submit(createTask(check, owlGraphWrapper, snapshot)));
+				}
+				futures.put(check, checkFutures);
+			}
+			for (OntologyCheck check : checks) {
+				List<CheckWarning> warnings = null;
+				long start = Long.MAX_VALUE;
+				long end = 0;
+				for (Future<PartialResult> future : futures.get(check)) {
+					PartialResult partial = getResult(future);
+					if (partial.warnings != null) {
+						if (warnings == null) {
+							warnings = new ArrayList<CheckWarning>();
+						}
+						warnings.addAll(partial.warnings);
+					}
+					start = Math.min(start, partial.start);
+					end = Math.max(end, partial.end);
+				}
+				results.put(check, warnings);
+				if (durations != null) {
+					durations.put(check, end - start);
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	private static Callable<PartialResult> createTask(final OntologyCheck check, final OWLGraphWrapper owlGraphWrapper, 
+			final Collection<OWLObject> owlObjects) {
+		return new Callable<PartialResult>() {
+
+			@Override
+			public PartialResult call() throws Exception {
+				long start = System.currentTimeMillis();
+				Collection<CheckWarning> warnings = check.check(owlGraphWrapper, owlObjects);
+				return new PartialResult(warnings, start, System.currentTimeMillis());
+			}
+		};
+	}
+	
+	private static PartialResult getResult(Future<PartialResult> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for ontology checks", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			LOG.error("Ontology check failed", cause);
+			throw new RuntimeException(cause);
+		}
+	}
+	
 }
@@ -0,0 +1,23 @@
+package owltools.ontologyverification;
+
+import java.util.Collection;
+
+import org.semanticweb.owlapi.model.OWLObject;
+
+import owltools.graph.OWLGraphWrapper;
+
+/**
+ * Marker for an {@link OntologyCheck}, which checks each {@link OWLObject}
+ * independently of the others.<br>
+ * The {@link OntologyCheckRunner} may split all objects into partitions and
+ * call {@link #check(OWLGraphWrapper, Collection)} concurrently for each
+ * partition. The warnings are concatenated in the order of the partitions.<br>
+ * The check may only read the ontologies of the graph, e.g. labels,
+ * identifiers and annotations. It must not use methods, which build or
+ * modify caches in the {@link OWLGraphWrapper}, such as the edges or the
+ * alt_id map. Checks, which need an index over the whole ontology, should
+ * not be partitionable, as each partition would build the index again.
+ */
+public interface PartitionableOntologyCheck extends OntologyCheck {
+
+}
@@ -2,13 +2,9 @@ package owltools.ontologyverification.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.Set;
 
+import org.semanticweb.owlapi.model.AxiomType;
 import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLClass;
 import org.semanticweb.owlapi.model.OWLClassExpression;
@@ -18,9 +14,8 @@ import org.semanticweb.owlapi.model.OWLSubClassOfAxiom;
 
 import owltools.graph.OWLGraphWrapper;
 import owltools.ontologyverification.CheckWarning;
-import owltools.util.Adjacency;
-import owltools.util.MappingTarjan;
-import owltools.util.Tarjan;
+import owltools.util.CompactAdjacency;
+import owltools.util.IterativeTarjan;
 
 /**
  * Simple cycle check using the asserted super/sub class relations.
@@ -41,8 +36,8 @@ public class CycleCheck extends AbstractCheck {
 		
 		// find strongly connected components using the Tarjan algorithm
 		// use parameter to request only components with more than one node
-		Tarjan<OWLClass> tarjan = new MappingTarjan<OWLClass>(true);
-		List<List<OWLClass>> scc = tarjan.executeTarjan(new OWLClassAdjacency(graph, allOwlObjects));
+		IterativeTarjan<OWLClass> tarjan = new IterativeTarjan<OWLClass>(true);
+		List<List<OWLClass>> scc = tarjan.executeTarjan(createAdjacency(graph, allOwlObjects));
 		
 		// report all strongly connected components
 		for (List<OWLClass> component : scc) {
@@ -69,91 +64,31 @@ public class CycleCheck extends AbstractCheck {
 		}
 		return out;
 	}
-	
-	static class OWLClassAdjacency implements Adjacency<OWLClass> {
-		
-		private final OWLGraphWrapper graph;
-		private final Collection<OWLObject> allOwlObjects;
-
-		/**
-		 * @param graph
-		 * @param allOwlObjects 
-		 */
-		OWLClassAdjacency(OWLGraphWrapper graph, Collection<OWLObject> allOwlObjects) {
-			this.graph = graph;
-			this.allOwlObjects = allOwlObjects;
-		}
 
-		@Override
-		public List<OWLClass> getAdjacent(OWLClass cls) {
-			Set<OWLClass> results = new HashSet<OWLClass>();
-			Set<OWLOntology> allOntologies = graph.getAllOntologies();
-			for (OWLOntology owlOntology : allOntologies) {
-				Set<OWLSubClassOfAxiom> axioms = owlOntology.getSubClassAxiomsForSubClass(cls);
-				if (axioms != null && !axioms.isEmpty()) {
-					for (OWLSubClassOfAxiom axiom : axioms) {
-						OWLClassExpression expression = axiom.getSuperClass();
-						if (!expression.isAnonymous()) {
-							results.add(expression.asOWLClass());
-						}
-					}
-				}
-			}
-			if (results.isEmpty()) {
-				return Collections.emptyList();
+	/**
+	 * Create the graph of the named super classes with a single pass over
+	 * the SubClassOf axioms of all ontologies.
+	 * 
+	 * @param graph
+	 * @param allOwlObjects
+	 * @return adjacency
+	 */
+	static CompactAdjacency<OWLClass> createAdjacency(OWLGraphWrapper graph, Collection<OWLObject> allOwlObjects) {
+		CompactAdjacency.Builder<OWLClass> builder = new CompactAdjacency.Builder<OWLClass>();
+		for (OWLObject owlObject : allOwlObjects) {
+			if (owlObject instanceof OWLClass) {
+				builder.addSource((OWLClass) owlObject);
 			}
-			return new ArrayList<OWLClass>(results);
 		}
-
-		@Override
-		public Iterable<OWLClass> getSources() {
-			return new Iterable<OWLClass>() {
-				
-				@Override
-				public Iterator<OWLClass> iterator() {
-					final Iterator<OWLObject> allIterator = allOwlObjects.iterator();
-					return new Iterator<OWLClass>() {
-
-						private OWLClass next;
-						
-						@Override
-						public boolean hasNext() {
-							findNext();
-							return next != null;
-						}
-
-						@Override
-						public OWLClass next() {
-							if( !hasNext() )
-								throw new NoSuchElementException();
-
-							OWLClass result = next;
-							next = null;
-							
-							return result;
-						}
-
-						@Override
-						public void remove() {
-							throw new UnsupportedOperationException();
-						}
-						
-						private void findNext() {
-							if( next != null )
-								return;
-							
-							while( allIterator.hasNext() ) {
-								OWLObject owlObject = allIterator.next();
-								if (owlObject instanceof OWLClass) {
-									next = (OWLClass) owlObject;
-									return;
-								}
-							}		
-							next = null;
-						}
-					};
+		for (OWLOntology owlOntology : graph.getAllOntologies()) {
+			for (OWLSubClassOfAxiom axiom : owlOntology.getAxioms(AxiomType.SUBCLASS_OF)) {
+				OWLClassExpression subClass = axiom.getSubClass();
+				OWLClassExpression superClass = axiom.getSuperClass();
+				if (!subClass.isAnonymous() && !superClass.isAnonymous()) {
+					builder.addEdge(subClass.asOWLClass(), superClass.asOWLClass());
 				}
-			};
+			}
 		}
+		return builder.build();
 	}
 }
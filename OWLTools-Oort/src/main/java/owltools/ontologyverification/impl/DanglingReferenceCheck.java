@@ -22,6 +22,7 @@ import owltools.graph.OWLGraphWrapper;
 import owltools.io.OWLPrettyPrinter;
 import owltools.mooncat.Mooncat;
 import owltools.ontologyverification.CheckWarning;
+import owltools.ontologyverification.PartitionableOntologyCheck;
 
 /**
  * Check for dangling references in equivalence axioms. A reference is assumed to be 
@@ -29,7 +30,7 @@ import owltools.ontologyverification.CheckWarning;
  * 
  * This currently limited to OBO style ontologies.
  */
-public class DanglingReferenceCheck extends AbstractCheck {
+public class DanglingReferenceCheck extends AbstractCheck implements PartitionableOntologyCheck {
 
 	public static final String SHORT_HAND = "dangling-ref";
 	
@@ -14,8 +14,9 @@ import org.semanticweb.owlapi.model.parameters.Imports;
 import owltools.graph.OWLGraphWrapper;
 import owltools.io.OWLPrettyPrinter;
 import owltools.ontologyverification.CheckWarning;
+import owltools.ontologyverification.PartitionableOntologyCheck;
 
-public class ObsoleteClassInSignature extends AbstractCheck {
+public class ObsoleteClassInSignature extends AbstractCheck implements PartitionableOntologyCheck {
 
 	public static final String SHORT_HAND = "obsolete-in-signature";
 	
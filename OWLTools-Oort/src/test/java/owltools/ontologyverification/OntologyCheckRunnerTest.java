@@ -4,9 +4,18 @@ import static org.junit.Assert.*;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.junit.Test;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
 import org.semanticweb.owlapi.model.OWLObject;
 
 import owltools.OWLToolsTestBasics;
@@ -52,6 +61,116 @@ public class OntologyCheckRunnerTest extends OWLToolsTestBasics {
 		Map<OntologyCheck, Collection<CheckWarning>> results3 = runner.verify(null, null, TimePoint.AfterReasoning);
 		assertEquals(1, results3.size());
 	}
+	
+	/**
+	 * Creates one warning per class.
+	 */
+	public static class PerClassTestCheck extends AbstractCheck implements PartitionableOntologyCheck {
+
+		public PerClassTestCheck(String id) {
+			super(id, id, false, TimePoint.AfterLoad);
+		}
+
+		@Override
+		public Collection<CheckWarning> check(OWLGraphWrapper graph, Collection<OWLObject> allOwlObjects) {
+			List<CheckWarning> out = new ArrayList<CheckWarning>();
+			for (OWLObject owlObject : allOwlObjects) {
+				if (owlObject instanceof OWLClass) {
+					IRI iri = ((OWLClass) owlObject).getIRI();
+					out.add(new CheckWarning(getID(), iri.toString(), isFatal(), iri));
+				}
+			}
+			return out;
+		}
+	}
+	
+	@Test
+	public void testConcurrentChecks() throws Exception {
+		OWLDataFactory f = OWLManager.getOWLDataFactory();
+		Set<OWLObject> objects = new HashSet<OWLObject>();
+		for (int i = 0; i < 101; i++) {
+			objects.add(f.getOWLClass(IRI.create("http://x.org/C" + i)));
+			objects.add(f.getOWLNamedIndividual(IRI.create("http://x.org/I" + i)));
+		}
+		Collection<OntologyCheck> checks = new ArrayList<OntologyCheck>();
+		checks.add(new PerClassTestCheck("check1"));
+		checks.add(new PerClassTestCheck("check2"));
+		checks.add(new OntologyCheckRunnerTestChecks(TimePoint.AfterLoad));
+		
+		Map<OntologyCheck, Collection<CheckWarning>> expected = new OntologyCheckRunner(checks).verify(null, objects, TimePoint.AfterLoad);
+		OntologyCheckRunner runner = new OntologyCheckRunner(checks, 4);
+		Map<OntologyCheck, Collection<CheckWarning>> results = runner.verify(null, objects, TimePoint.AfterLoad);
+		assertEquals(3, results.size());
+		for (OntologyCheck check : checks) {
+			Collection<CheckWarning> expectedWarnings = expected.get(check);
+			Collection<CheckWarning> warnings = results.get(check);
+			if (expectedWarnings == null) {
+				assertNull(warnings);
+			}
+			else {
+				assertEquals(101, warnings.size());
+				Set<String> messages = new HashSet<String>();
+				for (CheckWarning warning : warnings) {
+					messages.add(warning.getMessage());
+				}
+				assertEquals(101, messages.size());
+			}
+		}
+	}
+	
+	/**
+	 * Records the thread, which ran the check.
+	 */
+	public static class ThreadRecordingCheck extends AbstractCheck {
 
+		final List<Thread> threads = new ArrayList<Thread>();
 
+		public ThreadRecordingCheck(String id) {
+			super(id, id, false, TimePoint.AfterLoad);
+		}
+
+		@Override
+		public Collection<CheckWarning> check(OWLGraphWrapper graph, Collection<OWLObject> allOwlObjects) {
+			threads.add(Thread.currentThread());
+			return null;
+		}
+	}
+
+	@Test
+	public void testGraphChecksRunInCallingThread() throws Exception {
+		OWLDataFactory f = OWLManager.getOWLDataFactory();
+		Set<OWLObject> objects = new HashSet<OWLObject>();
+		for (int i = 0; i < 10; i++) {
+			objects.add(f.getOWLClass(IRI.create("http://x.org/C" + i)));
+		}
+		ThreadRecordingCheck check1 = new ThreadRecordingCheck("thread1");
+		ThreadRecordingCheck check2 = new ThreadRecordingCheck("thread2");
+		Collection<OntologyCheck> checks = new ArrayList<OntologyCheck>();
+		checks.add(check1);
+		checks.add(check2);
+		checks.add(new PerClassTestCheck("check1"));
+		OntologyCheckRunner runner = new OntologyCheckRunner(checks, 4);
+		Map<OntologyCheck, Collection<CheckWarning>> results = runner.verify(null, objects, TimePoint.AfterLoad);
+		assertEquals(3, results.size());
+		assertEquals(Collections.singletonList(Thread.currentThread()), check1.threads);
+		assertEquals(Collections.singletonList(Thread.currentThread()), check2.threads);
+	}
+	
+	@Test
+	public void testDurations() throws Exception {
+		Collection<OntologyCheck> checks = new ArrayList<OntologyCheck>();
+		PerClassTestCheck check = new PerClassTestCheck("check1");
+		checks.add(check);
+		OWLGraphWrapper graph = new OWLGraphWrapper(OWLManager.createOWLOntologyManager().createOntology());
+		OntologyCheckRunner runner = new OntologyCheckRunner(checks, 2);
+		Map<OntologyCheck, Long> durations = new HashMap<OntologyCheck, Long>();
+		Map<OntologyCheck, Collection<CheckWarning>> results = runner.verify(graph, TimePoint.AfterLoad, durations);
+		assertEquals(1, results.size());
+		assertNotNull(durations.get(check));
+		
+		durations.clear();
+		results = runner.verify(graph, TimePoint.AfterReasoning, durations);
+		assertTrue(results.isEmpty());
+		assertTrue(durations.isEmpty());
+	}
 }
@@ -159,6 +159,7 @@ import owltools.graph.OWLQuantifiedProperty.Quantifier;
 import owltools.idmap.IDMapPairWriter;
 import owltools.idmap.IDMappingPIRParser;
 import owltools.idmap.UniProtIDMapParser;
+import owltools.io.AbstractClosureRenderer;
 import owltools.io.CatalogXmlIRIMapper;
 import owltools.io.ChadoGraphClosureRenderer;
 import owltools.io.CompactGraphClosureReader;
@@ -174,6 +175,7 @@ import owltools.io.OWLJsonLDFormat;
 import owltools.io.OWLOboGraphsFormat;
 import owltools.io.OWLOboGraphsYamlFormat;
 import owltools.io.OWLPrettyPrinter;
+import owltools.io.OntologySnapshotCache;
 import owltools.io.ParserWrapper;
 import owltools.io.ParserWrapper.OWLGraphWrapperNameProvider;
 import owltools.io.StanzaToOWLConverter;
@@ -201,11 +203,15 @@ import owltools.ontologyrelease.OboBasicDagCheck;
 import owltools.ontologyrelease.OntologyMetadata;
 import owltools.reasoner.GCIUtil;
 import owltools.reasoner.GraphReasonerFactory;
+import owltools.reasoner.InferredAxiomHarvester;
+import owltools.reasoner.SubontologyCoherencyChecker;
 import owltools.renderer.markdown.MarkdownRenderer;
 import owltools.sim2.preprocessor.ABoxUtils;
 import owltools.tr.LinkMaker;
 import owltools.tr.LinkMaker.LinkMakerResult;
 import owltools.tr.LinkMaker.LinkPattern;
+import owltools.util.CompactAdjacency;
+import owltools.util.IterativeTarjan;
 import owltools.util.OwlHelper;
 import owltools.web.OWLServer;
 import uk.ac.manchester.cs.owlapi.modularity.ModuleType;
@@ -399,6 +405,11 @@ public class CommandRunner extends CommandRunnerBase {
                 opts.info("CATALOG-FILE", "uses the specified file as a catalog");
                 pw.addIRIMapper(new CatalogXmlIRIMapper(opts.nextOpt()));
             }
+            else if (opts.nextEq("--snapshot-cache")) {
+                opts.info("DIRECTORY", "load previously parsed ontologies from snapshots in the directory, "
+                        + "a snapshot is invalidated if any of the ontology or import files changes");
+                pw.setSnapshotCache(new OntologySnapshotCache(new File(opts.nextOpt())));
+            }
             else if (opts.nextEq("--map-ontology-iri")) {
                 opts.info("OntologyIRI FILEPATH", "maps an ontology IRI to a file in your filesystem");
                 OWLOntologyIRIMapper iriMapper = 
@@ -960,15 +971,30 @@ public class CommandRunner extends CommandRunnerBase {
                 FileUtils.writeLines(new File(filename), lines);
             }
             else if (opts.nextEq("--save-closure")) {
-                opts.info("[-c] FILENAME", "write out closure of graph.");
-                GraphRenderer gcw;
-                if (opts.nextEq("-c")) {
-                    opts.info("", "compact storage option.");
+                opts.info("[-c] [--threads N] FILENAME", "write out closure of graph. Output is gzip compressed, if FILENAME ends with .gz");
+                boolean isCompact = false;
+                int numThreads = 1;
+                while (opts.hasOpts()) {
+                    if (opts.nextEq("-c")) {
+                        opts.info("", "compact storage option.");
+                        isCompact = true;
+                    }
+                    else if (opts.nextEq("--threads")) {
+                        opts.info("N", "compute the closure using N threads");
+                        numThreads = Integer.parseInt(opts.nextOpt());
+                    }
+                    else {
+                        break;
+                    }
+                }
+                AbstractClosureRenderer gcw;
+                if (isCompact) {
                     gcw = new CompactGraphClosureRenderer(opts.nextOpt());					
                 }
                 else {
                     gcw = new GraphClosureRenderer(opts.nextOpt());
                 }
+                gcw.setNumThreads(numThreads);
                 gcw.render(g);				
             }
             else if (opts.nextEq("--read-closure")) {
@@ -979,11 +1005,25 @@ public class CommandRunner extends CommandRunnerBase {
                 LOG.info("size="+g.inferredEdgeBySource.size());
             }
             else if (opts.nextEq("--save-closure-for-chado")) {
-                opts.info("OUTPUTFILENAME",
-                        "saves the graph closure in a format that is oriented towards loading into a Chado database");
-                boolean isChain = opts.nextEq("--chain");
+                opts.info("[--chain] [--threads N] OUTPUTFILENAME",
+                        "saves the graph closure in a format that is oriented towards loading into a Chado database. Output is gzip compressed, if OUTPUTFILENAME ends with .gz");
+                boolean isChain = false;
+                int numThreads = 1;
+                while (opts.hasOpts()) {
+                    if (opts.nextEq("--chain")) {
+                        isChain = true;
+                    }
+                    else if (opts.nextEq("--threads")) {
+                        opts.info("N", "compute the closure using N threads");
+                        numThreads = Integer.parseInt(opts.nextOpt());
+                    }
+                    else {
+                        break;
+                    }
+                }
                 ChadoGraphClosureRenderer gcw = new ChadoGraphClosureRenderer(opts.nextOpt());
                 gcw.isChain = isChain;
+                gcw.setNumThreads(numThreads);
                 gcw.render(g);				
             }
             else if (opts.nextEq("--export-table")) {
@@ -2625,11 +2665,12 @@ public class CommandRunner extends CommandRunnerBase {
                 ABoxUtils.mapClassAssertionsUp(g.getSourceOntology(), reasoner, cs, null);
             }
             else if (opts.nextEq("--reasoner-ask-all")) {
-                opts.info("[-r REASONERNAME] [-s] [-a] AXIOMTYPE", "list all inferred equivalent named class pairs");
+                opts.info("[-r REASONERNAME] [-s] [-a] [--threads N] AXIOMTYPE", "list all inferred equivalent named class pairs");
                 boolean isReplaceOntology = false;
                 boolean isAddToCurrentOntology = false;
                 boolean isDirect = true;
                 boolean isRemoveIndirect = false;
+                int numThreads = 0;
                 while (opts.hasOpts()) {
                     if (opts.nextEq("-r")) {
                         opts.info("REASONERNAME", "E.g. elk");
@@ -2651,6 +2692,10 @@ public class CommandRunner extends CommandRunnerBase {
                         opts.info("", "Include indirect inferences");
                         isDirect = false;
                     }
+                    else if (opts.nextEq("--threads")) {
+                        opts.info("N", "copy the class hierarchy from the reasoner once and compare it to the asserted axioms using N threads");
+                        numThreads = Integer.parseInt(opts.nextOpt());
+                    }
                     else {
                         break;
                     }
@@ -2670,61 +2715,87 @@ public class CommandRunner extends CommandRunnerBase {
                 String q = opts.nextOpt().toLowerCase();
                 OWLPrettyPrinter owlpp = getPrettyPrinter();
                 OWLOntology ont = g.getSourceOntology();
-                for (OWLClass c : g.getSourceOntology().getClassesInSignature()) {
+                if (numThreads > 0) {
+                    InferredAxiomHarvester.Type type = null;
                     if (q.startsWith("e")) {
-                        for (OWLClass ec : reasoner.getEquivalentClasses(c)) {
-                            OWLEquivalentClassesAxiom ax = g.getDataFactory().getOWLEquivalentClassesAxiom(c, ec);
-                            if (!ont.containsAxiom(ax, Imports.INCLUDED, AxiomAnnotations.IGNORE_AXIOM_ANNOTATIONS)) {
-                                LOG.info("INFERRED: "+owlpp.render(ax));
-                                iAxioms.add(ax);
-                            }
-                        }
+                        type = InferredAxiomHarvester.Type.EQUIVALENT_CLASSES;
                     }
                     else if (q.startsWith("s")) {
-                        Set<OWLClass> supers = reasoner.getSuperClasses(c, isDirect).getFlattened();
-                        for (OWLClass sc : supers) {
-                            OWLSubClassOfAxiom ax = g.getDataFactory().getOWLSubClassOfAxiom(c, sc);
-                            ax.getObjectPropertiesInSignature();
-                            if (!ont.containsAxiom(ax, Imports.INCLUDED, AxiomAnnotations.IGNORE_AXIOM_ANNOTATIONS)) {
-                                LOG.info("INFERRED: "+owlpp.render(ax));
-                                iAxioms.add(ax);
-                            }
+                        type = InferredAxiomHarvester.Type.SUBCLASS_OF;
+                    }
+                    else if (q.startsWith("i")) {
+                        type = InferredAxiomHarvester.Type.CLASS_ASSERTION;
+                    }
+                    if (type != null) {
+                        InferredAxiomHarvester harvester = new InferredAxiomHarvester(reasoner, numThreads);
+                        InferredAxiomHarvester.Result result = harvester.harvest(ont, type, isDirect, isRemoveIndirect);
+                        for (OWLAxiom ax : result.getInferred()) {
+                            LOG.info("INFERRED: "+owlpp.render(ax));
+                            iAxioms.add(ax);
                         }
-                        if (isRemoveIndirect) {
-                            for (OWLClass sc : reasoner.getSuperClasses(c, false).getFlattened()) {
-                                if (!supers.contains(sc)) {
-                                    OWLSubClassOfAxiom ax = g.getDataFactory().getOWLSubClassOfAxiom(c, sc);
-                                    if (ont.containsAxiom(ax, Imports.INCLUDED, AxiomAnnotations.IGNORE_AXIOM_ANNOTATIONS)) {
-                                        rmAxioms.add(ax);
-                                        LOG.info("INDIRECT: "+owlpp.render(ax));
-                                    }
-                                }
-                            }							
+                        for (OWLAxiom ax : result.getIndirect()) {
+                            LOG.info("INDIRECT: "+owlpp.render(ax));
+                            rmAxioms.add(ax);
                         }
                     }
                 }
-                if (q.startsWith("i")) {
-                    for (OWLNamedIndividual i : g.getSourceOntology().getIndividualsInSignature()) {
-                        Set<OWLClass> types = reasoner.getTypes(i, isDirect).getFlattened();
-                        for (OWLClass ce : types) {
-                            OWLClassAssertionAxiom ax = g.getDataFactory().getOWLClassAssertionAxiom(ce, i);
-                            if (!ont.containsAxiom(ax, Imports.INCLUDED, AxiomAnnotations.IGNORE_AXIOM_ANNOTATIONS)) {
-                                LOG.info("INFERRED: "+owlpp.render(ax));
-                                iAxioms.add(ax);
+                else {
+                    for (OWLClass c : g.getSourceOntology().getClassesInSignature()) {
+                        if (q.startsWith("e")) {
+                            for (OWLClass ec : reasoner.getEquivalentClasses(c)) {
+                                OWLEquivalentClassesAxiom ax = g.getDataFactory().getOWLEquivalentClassesAxiom(c, ec);
+                                if (!ont.containsAxiom(ax, Imports.INCLUDED, AxiomAnnotations.IGNORE_AXIOM_ANNOTATIONS)) {
+                                    LOG.info("INFERRED: "+owlpp.render(ax));
+                                    iAxioms.add(ax);
+                                }
                             }
                         }
-                        if (isRemoveIndirect) {
-                            for (OWLClass ce : reasoner.getTypes(i, false).getFlattened()) {
-                                if (!types.contains(ce)) {
-                                    OWLClassAssertionAxiom ax = g.getDataFactory().getOWLClassAssertionAxiom(ce, i);
-                                    if (ont.containsAxiom(ax, Imports.EXCLUDED, AxiomAnnotations.IGNORE_AXIOM_ANNOTATIONS)) {
-                                        rmAxioms.add(ax);
-                                        LOG.info("INDIRECT: "+owlpp.render(ax));
-                                    }
+                        else if (q.startsWith("s")) {
+                            Set<OWLClass> supers = reasoner.getSuperClasses(c, isDirect).getFlattened();
+                            for (OWLClass sc : supers) {
+                                OWLSubClassOfAxiom ax = g.getDataFactory().getOWLSubClassOfAxiom(c, sc);
+                                ax.getObjectPropertiesInSignature();
+                                if (!ont.containsAxiom(ax, Imports.INCLUDED, AxiomAnnotations.IGNORE_AXIOM_ANNOTATIONS)) {
+                                    LOG.info("INFERRED: "+owlpp.render(ax));
+                                    iAxioms.add(ax);
                                 }
-                            }							
+                            }
+                            if (isRemoveIndirect) {
+                                for (OWLClass sc : reasoner.getSuperClasses(c, false).getFlattened()) {
+                                    if (!supers.contains(sc)) {
+                                        OWLSubClassOfAxiom ax = g.getDataFactory().getOWLSubClassOfAxiom(c, sc);
+                                        if (ont.containsAxiom(ax, Imports.INCLUDED, AxiomAnnotations.IGNORE_AXIOM_ANNOTATIONS)) {
+                                            rmAxioms.add(ax);
+                                            LOG.info("INDIRECT: "+owlpp.render(ax));
+                                        }
+                                    }
+                                }							
+                            }
                         }
+                    }
+                    if (q.startsWith("i")) {
+                        for (OWLNamedIndividual i : g.getSourceOntology().getIndividualsInSignature()) {
+                            Set<OWLClass> types = reasoner.getTypes(i, isDirect).getFlattened();
+                            for (OWLClass ce : types) {
+                                OWLClassAssertionAxiom ax = g.getDataFactory().getOWLClassAssertionAxiom(ce, i);
+                                if (!ont.containsAxiom(ax, Imports.INCLUDED, AxiomAnnotations.IGNORE_AXIOM_ANNOTATIONS)) {
+                                    LOG.info("INFERRED: "+owlpp.render(ax));
+                                    iAxioms.add(ax);
+                                }
+                            }
+                            if (isRemoveIndirect) {
+                                for (OWLClass ce : reasoner.getTypes(i, false).getFlattened()) {
+                                    if (!types.contains(ce)) {
+                                        OWLClassAssertionAxiom ax = g.getDataFactory().getOWLClassAssertionAxiom(ce, i);
+                                        if (ont.containsAxiom(ax, Imports.EXCLUDED, AxiomAnnotations.IGNORE_AXIOM_ANNOTATIONS)) {
+                                            rmAxioms.add(ax);
+                                            LOG.info("INDIRECT: "+owlpp.render(ax));
+                                        }
+                                    }
+                                }							
+                            }
 
+                        }
                     }
                 }
                 if (isReplaceOntology) {
@@ -2765,37 +2836,58 @@ public class CommandRunner extends CommandRunnerBase {
             }
             else if (opts.nextEq("--reason-subontologies")) {
                 opts.info("", "checks all ontologies in direct imports for incoherency");
+                int numThreads = 1;
+                long timeout = 0;
+                double maxMemoryUsage = 0.9d;
                 while (opts.hasOpts()) {
                     if (opts.nextEq("-r")) {
                         opts.info("REASONERNAME", "selects the reasoner to use");
                         reasonerName = opts.nextOpt();
                     }
+                    else if (opts.nextEq("--threads")) {
+                        opts.info("N", "number of imports checked in parallel. Default is 1");
+                        numThreads = Integer.parseInt(opts.nextOpt());
+                    }
+                    else if (opts.nextEq("--timeout")) {
+                        opts.info("SECONDS", "maximum reasoning time per import, imports that time out are kept");
+                        timeout = Long.parseLong(opts.nextOpt()) * 1000;
+                    }
+                    else if (opts.nextEq("--max-memory-usage")) {
+                        opts.info("FRACTION", "do not start further checks, if the heap usage is above this fraction. Default is 0.9");
+                        maxMemoryUsage = Double.parseDouble(opts.nextOpt());
+                    }
                     else {
                         break;
                     }
                 }
+                OWLReasonerFactory reasonerFactory = createReasonerFactory(reasonerName);
+                if (reasonerFactory == null) {
+                    System.err.println("no such reasoner: "+reasonerName);
+                    exit(1);
+                    return;
+                }
+                SubontologyCoherencyChecker checker = new SubontologyCoherencyChecker(reasonerFactory);
+                checker.setNumThreads(numThreads);
+                checker.setTimeout(timeout);
+                checker.setMaxMemoryUsage(maxMemoryUsage);
                 OWLOntology ont = g.getSourceOntology();
-                Set<OWLImportsDeclaration> badImports = new HashSet<>();
-                for (OWLOntology o : ont.getDirectImports()) {
-                    boolean isIncoherent = false;
-                    OWLReasoner r = createReasoner(o, reasonerName, g.getManager());
-                    if (!r.isConsistent()) {
+                List<OWLImportsDeclaration> badImports = new ArrayList<>();
+                for (SubontologyCoherencyChecker.Result result : checker.check(ont.getDirectImports())) {
+                    OWLOntology o = result.getOntology();
+                    if (result.isTimedOut()) {
+                        LOG.warn("TIMEOUT: "+o+" after "+result.getMillis()+" ms");
+                        continue;
+                    }
+                    if (!result.isConsistent()) {
                         LOG.error("INCONSISTENT: "+o);
-                        isIncoherent = true;
                     }
-                    else {
-                        for (OWLClass c : r.getUnsatisfiableClasses()) {
-                            if (c.isBuiltIn())
-                                continue;
-                            LOG.error("UNSAT: "+o+" has "+c);
-                            isIncoherent = true;
-                        }
+                    for (OWLClass c : result.getUnsatisfiableClasses()) {
+                        LOG.error("UNSAT: "+o+" has "+c);
                     }
-                    if (isIncoherent) {
+                    if (result.isIncoherent()) {
                         badImports.add(g.getDataFactory().getOWLImportsDeclaration(o.getOntologyID().getOntologyIRI().get()));
                     }
                 }
-                OWLImportsDeclaration importDeclaration;
                 for (OWLImportsDeclaration i : badImports) {
                     LOG.info("REMOVING: "+i);
                     RemoveImport x = new RemoveImport(ont, i);
@@ -3271,10 +3363,24 @@ public class CommandRunner extends CommandRunnerBase {
                 }
                 OWLPrettyPrinter owlpp = getPrettyPrinter();
 
+                // ancestors are only computed once per object,
+                // pairs in a cycle are always in the same strongly connected component
+                CompactAdjacency<OWLObject> adjacency = CompactAdjacency.create(OboBasicDagCheck.createAncestorAdjacency(g));
+                int[] componentOf = new int[adjacency.getNodeCount()];
+                int componentCount = 0;
+                for (int[] component : IterativeTarjan.findComponents(adjacency, false)) {
+                    for (int xi : component) {
+                        componentOf[xi] = componentCount;
+                    }
+                    componentCount++;
+                }
+                // same order as before: all objects and their ancestors
                 int n = 0;
-                for (OWLObject x : g.getAllOWLObjects()) {
-                    for (OWLObject y : g.getAncestors(x)) {
-                        if (g.getAncestors(y).contains(x)) {
+                for (int xi : adjacency.getSources()) {
+                    for (int yi : adjacency.getAdjacent(xi)) {
+                        if (componentOf[xi] == componentOf[yi] && adjacency.hasEdge(yi, xi)) {
+                            OWLObject x = adjacency.getNode(xi);
+                            OWLObject y = adjacency.getNode(yi);
                             if (y instanceof OWLClass) {
                                 for (OWLGraphEdge e : g.getEdgesBetween(x, y)) {
                                     System.out.println(owlpp.render(x) + " in-cycle-with "+owlpp.render(y)+" // via " + e.getQuantifiedPropertyList());
@@ -4109,7 +4215,7 @@ public class CommandRunner extends CommandRunnerBase {
                 }
             }
             else if (opts.nextEq("--parse-tsv")) {
-                opts.info("[-s] [-l] [--comment] [-m] [-p PROPERTY] [-a AXIOMTYPE] [-t INDIVIDUALSTYPE] FILE", "parses a tabular file to OWL axioms");
+                opts.info("[-s] [-l] [--comment] [-m] [-p PROPERTY] [-a AXIOMTYPE] [-t INDIVIDUALSTYPE] [--threads N] [--batch-size N] FILE", "parses a tabular file to OWL axioms");
                 TableToAxiomConverter ttac = new TableToAxiomConverter(g);
                 ttac.config.axiomType = AxiomType.CLASS_ASSERTION;
                 while (opts.hasOpts()) {
@@ -4169,6 +4275,14 @@ public class CommandRunner extends CommandRunnerBase {
                         System.out.println("setting types");
                         ttac.config.individualsType = resolveClass( opts.nextOpt());
                     }
+                    else if (opts.nextEq("--threads")) {
+                        opts.info("N", "number of threads for converting the rows");
+                        ttac.config.numThreads = Integer.parseInt(opts.nextOpt());
+                    }
+                    else if (opts.nextEq("--batch-size")) {
+                        opts.info("N", "number of rows added to the ontology with one change");
+                        ttac.config.batchSize = Integer.parseInt(opts.nextOpt());
+                    }
                     else {
                         throw new OptionException(opts.nextOpt());
                     }
@@ -4204,8 +4318,17 @@ public class CommandRunner extends CommandRunnerBase {
                 sc.parse(f);
             }
             else if (opts.nextEq("--idmap-extract-pairs")) {
-                opts.info("IDType1 IDType2 PIRMapFile", "extracts pairs from mapping file");
+                opts.info("[--threads N] IDType1 IDType2 PIRMapFile", "extracts pairs from mapping file");
                 IDMappingPIRParser p = new IDMappingPIRParser();
+                while (opts.hasOpts()) {
+                    if (opts.nextEq("--threads")) {
+                        opts.info("N", "number of threads for parsing the lines, the pairs are written in the order of the input");
+                        p.numThreads = Integer.parseInt(opts.nextOpt());
+                    }
+                    else {
+                        break;
+                    }
+                }
                 IDMapPairWriter h = new IDMapPairWriter();
                 h.setPair(opts.nextOpt(), opts.nextOpt());
                 p.handler = h;
@@ -4667,6 +4790,10 @@ public class CommandRunner extends CommandRunnerBase {
             else if (opts.nextEq("--report-profile")) {
                 g.getProfiler().report();
             }
+            else if (opts.nextEq("--write-metrics")) {
+                opts.info("FILE", "write the timers and counters at the end of the run, as JSON for a .json suffix");
+                metricsFile = opts.nextOpt();
+            }
             else if (opts.nextEq("--no-cache")) {
                 g.getConfig().isCacheClosure = false;
             }
@@ -1,11 +1,14 @@
 package owltools.cli;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLClass;
@@ -19,6 +22,7 @@ import owltools.cli.tools.CLIMethod;
 import owltools.graph.OWLGraphWrapper;
 import owltools.io.OWLPrettyPrinter;
 import owltools.io.ParserWrapper;
+import owltools.profile.MetricsRegistry;
 
 public abstract class CommandRunnerBase {
 
@@ -29,6 +33,12 @@ public abstract class CommandRunnerBase {
 	public boolean exitOnException = true;
 	public boolean isDisposeReasonerOnExit = true;
 
+	/**
+	 * File for the metrics at the end of a run, JSON for a '.json' suffix,
+	 * otherwise a text report.
+	 */
+	public String metricsFile = null;
+
 	public OWLReasoner reasoner = null;
 	public String reasonerName = "hermit";
 	public Set<OWLObject> owlObjectCachedSet = null;
@@ -78,6 +88,25 @@ public abstract class CommandRunnerBase {
 			LOG.info("disposing of "+reasoner);
 			reasoner.dispose();
 		}
+		reportMetrics();
+	}
+
+	/**
+	 * Log the metrics of the shared {@link MetricsRegistry} and write them
+	 * to the {@link #metricsFile}, if set.
+	 * 
+	 * @throws IOException
+	 */
+	protected void reportMetrics() throws IOException {
+		MetricsRegistry metrics = MetricsRegistry.getInstance();
+		if (metrics.isEmpty()) {
+			return;
+		}
+		LOG.info("Metrics:\n"+metrics.getReport());
+		if (metricsFile != null) {
+			String content = metricsFile.endsWith(".json") ? metrics.toJson() : metrics.getReport();
+			FileUtils.write(new File(metricsFile), content, "UTF-8");
+		}
 	}
 
 	public void runSingleIteration(String[] args) throws Exception {
@@ -455,7 +455,7 @@ public class GafCommandRunner extends CommandRunner {
 
 	@CLIMethod("--gaf2owl")
 	public void gaf2Owl(Opts opts) throws OWLException, IOException {
-		opts.info("[-n TARGET-IRI] [--named-class] [--none] [--class-exxpression] [--individual] [--basic] [-o FILE]", 
+		opts.info("[-n TARGET-IRI] [--named-class] [--none] [--class-exxpression] [--individual] [--basic] [--threads N] [-o FILE]", 
 				"translates previously loaded GAF document into OWL");
 		GAFOWLBridge bridge;
 		String iri = null;
@@ -466,6 +466,7 @@ public class GafCommandRunner extends CommandRunner {
 		boolean makeMinimalModel = false;
 		boolean isAddAsSupport = false;
 		boolean isAddAsMain = false;
+		int numThreads = 1;
 		while (opts.hasOpts()) {
 			if (opts.nextEq("-n"))
 				iri = opts.nextOpt();
@@ -501,6 +502,9 @@ public class GafCommandRunner extends CommandRunner {
 			else if (opts.nextEq("--make-minimal-model")) {
 				makeMinimalModel = true;
 			}
+			else if (opts.nextEq("--threads")) {
+				numThreads = Integer.parseInt(opts.nextOpt());
+			}
 			else
 				break;
 		}
@@ -527,6 +531,7 @@ public class GafCommandRunner extends CommandRunner {
 			// bioentity mapping setting are only evaluated for non basic a box translation
 			bridge.setBasicAboxMapping(false); 
 		}
+		bridge.setNumThreads(numThreads);
 		LOG.info("Start converting GAF to OWL");
 		bridge.translate(gafdoc);
 		LOG.info("Finished converting GAF to OWL");
@@ -11,6 +11,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
@@ -18,6 +19,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.LineIterator;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.math3.stat.descriptive.StatisticalSummary;
 import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
@@ -41,6 +43,7 @@ import org.semanticweb.owlapi.reasoner.Node;
 import owltools.cli.tools.CLIMethod;
 import owltools.io.OWLPrettyPrinter;
 import owltools.sim2.ClassDifferentiaLearner;
+import owltools.sim2.ElementPair;
 import owltools.sim2.EnrichmentConfig;
 import owltools.sim2.EnrichmentResult;
 import owltools.sim2.FastOwlSim;
@@ -91,6 +94,9 @@ public class Sim2CommandRunner extends SimCommandRunner {
 	OwlSim owlsim; // simple owlsim
 
 
+	private int simThreads = 1;
+	private boolean isSimPairTiming = false;
+
 	private OwlSimFactory owlSimFactory = new FastOwlSimFactory();
 
 	SimPreProcessor pproc;
@@ -997,7 +1003,7 @@ public class Sim2CommandRunner extends SimCommandRunner {
 	@CLIMethod("--fsim-basic")
 	public void fsimBasic(Opts opts) throws Exception {
 		// assumes that individuals in abox are of types named classes in tbox
-		setOwlSimFactory(new FastOwlSimFactory());
+		setOwlSimFactory(createFastOwlSimFactory());
 		loadProperties(opts);
 		try {
 			if (owlsim == null) {
@@ -1012,7 +1018,7 @@ public class Sim2CommandRunner extends SimCommandRunner {
 
 	@CLIMethod("--use-fsim")
 	public void useFastOwlSim(Opts opts) throws Exception {
-		setOwlSimFactory(new FastOwlSimFactory());
+		setOwlSimFactory(createFastOwlSimFactory());
 	}
 
 	@CLIMethod("--use-simple-owlsim")
@@ -1023,7 +1029,7 @@ public class Sim2CommandRunner extends SimCommandRunner {
 	@CLIMethod("--fsim-find-matches")
 	public void fsimFindMatches(Opts opts) throws Exception {
 		// assumes that individuals in abox are of types named classes in tbox
-		setOwlSimFactory(new FastOwlSimFactory());
+		setOwlSimFactory(createFastOwlSimFactory());
 		String targetIdSpace = null;
 		loadProperties(opts);
 		OWLNamedIndividual i = null;
@@ -1063,7 +1069,7 @@ public class Sim2CommandRunner extends SimCommandRunner {
 	@CLIMethod("--fsim-search-all")
 	public void fsimSearchAll(Opts opts) throws Exception {
 		opts.info("", "iterates through all individuals and finds all matches");
-		setOwlSimFactory(new FastOwlSimFactory());
+		setOwlSimFactory(createFastOwlSimFactory());
 		String targetIdSpace = null;
 		loadProperties(opts);
 		while (opts.hasOpts()) {
@@ -1098,6 +1104,60 @@ public class Sim2CommandRunner extends SimCommandRunner {
 		}
 	}
 
+	@CLIMethod("--fsim-score-pairs")
+	public void fsimScorePairs(Opts opts) throws Exception {
+		opts.info("[--threads N] FILE", "scores all pairs of individuals listed in a tab-separated FILE (two ids per line)");
+		setOwlSimFactory(createFastOwlSimFactory());
+		loadProperties(opts);
+		int numThreads = 1;
+		while (opts.hasOpts()) {
+			if (opts.nextEq("--threads")) {
+				numThreads = Integer.parseInt(opts.nextOpt());
+			}
+			else {
+				break;
+			}
+		}
+		String file = opts.nextOpt();
+
+		try {
+			if (owlsim == null) {
+				owlsim = getOwlSimFactory().createOwlSim(g.getSourceOntology());
+				owlsim.createElementAttributeMapFromOntology();
+			}
+			owlsim.setSimProperties(simProperties);
+			final LineIterator lines = IOUtils.lineIterator(new FileInputStream(file), "UTF-8");
+			try {
+				Iterator<ElementPair> pairs = new Iterator<ElementPair>() {
+
+					@Override
+					public boolean hasNext() {
+						return lines.hasNext();
+					}
+
+					@Override
+					public ElementPair next() {
+						String[] ids = lines.nextLine().split("\t");
+						OWLDataFactory f = g.getDataFactory();
+						return new ElementPair(f.getOWLNamedIndividual(g.getIRIByIdentifier(ids[0])),
+								f.getOWLNamedIndividual(g.getIRIByIdentifier(ids[1])));
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+				owlsim.scorePairs(pairs, setRenderer(), numThreads);
+			}
+			finally {
+				lines.close();
+			}
+		} finally {
+			owlsim.dispose();
+		}
+	}
+
 	/**
 	 * This method will report to the user some metadata about the previous similarity
 	 * run.  The similarity run will save some basic statistics into the 
@@ -1112,6 +1172,44 @@ public class Sim2CommandRunner extends SimCommandRunner {
 		LOG.info(Metric.JACCARD.name() + " max: " + owlsim.getSimStats().getMax(Metric.JACCARD));		
 	}	
 
+	/**
+	 * Sets the number of threads used by subsequent {@link FastOwlSim}
+	 * initializations, e.g. <code>--sim-threads 8 --fsim-find-matches ...</code>
+	 * @param opts
+	 * @throws Exception
+	 */
+	@CLIMethod("--sim-threads")
+	public void simThreads(Opts opts) throws Exception {
+		simThreads = Integer.parseInt(opts.nextOpt());
+		if (owlSimFactory instanceof FastOwlSimFactory) {
+			((FastOwlSimFactory) owlSimFactory).setNumThreads(simThreads);
+		}
+	}
+
+	/**
+	 * Record the time of each LCS, GIC and match computation in the metrics
+	 * of subsequent {@link FastOwlSim} runs. Off by default, the
+	 * {@link FastOwlSim#findMatches} timers are recorded once per search.
+	 * @param opts
+	 * @throws Exception
+	 */
+	@CLIMethod("--sim-pair-timing")
+	public void simPairTiming(Opts opts) throws Exception {
+		isSimPairTiming = true;
+		if (owlSimFactory instanceof FastOwlSimFactory) {
+			((FastOwlSimFactory) owlSimFactory).setPairTiming(true);
+		}
+		if (owlsim != null) {
+			owlsim.setPairTiming(true);
+		}
+	}
+
+	private FastOwlSimFactory createFastOwlSimFactory() {
+		FastOwlSimFactory factory = new FastOwlSimFactory(simThreads);
+		factory.setPairTiming(isSimPairTiming);
+		return factory;
+	}
+
 	@CLIMethod("--sim-dl-query")
 	public void simDlQuery(Opts opts) throws Exception {
 		loadProperties(opts);
@@ -1145,7 +1243,7 @@ public class Sim2CommandRunner extends SimCommandRunner {
 	public void fsimCompareAtts(Opts opts) throws Exception {
 		// assumes that individuals in abox are of types named classes in tbox
 		loadProperties(opts);
-		owlsim = new FastOwlSim(g.getSourceOntology());
+		owlsim = createFastOwlSimFactory().createOwlSim(g.getSourceOntology());
 		owlsim.createElementAttributeMapFromOntology();
 		attributeAllByAll(owlsim, opts);
 		((FastOwlSim) owlsim).showTimings();
@@ -1174,7 +1272,7 @@ public class Sim2CommandRunner extends SimCommandRunner {
 	public void fsimCompareAttsSimJ(Opts opts) throws Exception {
 
 		loadProperties(opts);
-		setOwlSimFactory(new FastOwlSimFactory());
+		setOwlSimFactory(createFastOwlSimFactory());
 		owlsim = getOwlSimFactory().createOwlSim(g.getSourceOntology());
 		owlsim.createElementAttributeMapFromOntology();
 
@@ -1213,7 +1311,7 @@ public class Sim2CommandRunner extends SimCommandRunner {
 	public void fsimCompareAttsLCS(Opts opts) throws Exception {
 
 		loadProperties(opts);
-		setOwlSimFactory(new FastOwlSimFactory());
+		setOwlSimFactory(createFastOwlSimFactory());
 		owlsim = getOwlSimFactory().createOwlSim(g.getSourceOntology());
 		owlsim.createElementAttributeMapFromOntology();
 
@@ -1240,7 +1338,7 @@ public class Sim2CommandRunner extends SimCommandRunner {
 		opts.info("OWLSIMPARAMS", 
 				"Finds top matches for each attribute in C, shows scores. Faster than fsim-atts");
 		loadProperties(opts);
-		setOwlSimFactory(new FastOwlSimFactory());
+		setOwlSimFactory(createFastOwlSimFactory());
 		owlsim = getOwlSimFactory().createOwlSim(g.getSourceOntology());
 		owlsim.createElementAttributeMapFromOntology();
 		owlsim.setDisableLCSCache(true);
@@ -1304,7 +1402,7 @@ public class Sim2CommandRunner extends SimCommandRunner {
 	public void fsimCompareAttsLite(Opts opts) throws Exception {
 		// assumes that individuals in abox are of types named classes in tbox
 		loadProperties(opts);
-		owlsim = new FastOwlSim(g.getSourceOntology());
+		owlsim = createFastOwlSimFactory().createOwlSim(g.getSourceOntology());
 		simProperties.setProperty(SimConfigurationProperty.scoringMetrics.toString(),
 				Metric.SIMJ.toString());
 		owlsim.createElementAttributeMapFromOntology();
@@ -1321,6 +1419,8 @@ public class Sim2CommandRunner extends SimCommandRunner {
 		loadProperties(opts);
 		try {
 			FastOwlSim sim = new FastOwlSim(g.getSourceOntology());
+			sim.setNumThreads(simThreads);
+			sim.setPairTiming(isSimPairTiming);
 
 			// temporary - required for renderer
 			owlsim = getOwlSimFactory().createOwlSim(g.getSourceOntology());
@@ -1337,7 +1437,7 @@ public class Sim2CommandRunner extends SimCommandRunner {
 	public void fsimTest(Opts opts) throws Exception {
 		// assumes that individuals in abox are of types named classes in tbox
 		loadProperties(opts);
-		owlsim = new FastOwlSim(g.getSourceOntology());
+		owlsim = createFastOwlSimFactory().createOwlSim(g.getSourceOntology());
 		//sos.setSimProperties(simProperties);
 
 		owlsim.createElementAttributeMapFromOntology();
@@ -1704,7 +1804,7 @@ public class Sim2CommandRunner extends SimCommandRunner {
 		LOG.info("Starting server on port "+port+" using sim: "+owlsim);
 		Server server = new Server(port);
 		if (owlsim == null) {
-			owlsim = new FastOwlSim(g.getSourceOntology());
+			owlsim = createFastOwlSimFactory().createOwlSim(g.getSourceOntology());
 		}
 		server.setHandler(new OWLServer(g, owlsim));
 
@@ -8,11 +8,23 @@ import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -62,6 +74,7 @@ import owltools.graph.shunt.OWLShuntNode;
 import owltools.io.CatalogXmlIRIMapper;
 import owltools.io.ParserWrapper;
 import owltools.panther.PANTHERForest;
+import owltools.solrj.BatchingSolrSubmitter;
 import owltools.solrj.ComplexAnnotationSolrDocumentLoader;
 import owltools.solrj.FlexSolrDocumentLoader;
 import owltools.solrj.GafSolrDocumentLoader;
@@ -70,6 +83,7 @@ import owltools.solrj.OntologyGeneralSolrDocumentLoader;
 import owltools.solrj.OptimizeSolrDocumentLoader;
 import owltools.solrj.PANTHERGeneralSolrDocumentLoader;
 import owltools.solrj.PANTHERSolrDocumentLoader;
+import owltools.solrj.RelationClosureTable;
 import owltools.solrj.loader.MockSolrDocumentLoader;
 import owltools.solrj.loader.MockFlexSolrDocumentLoader;
 import owltools.solrj.loader.MockGafSolrDocumentLoader;
@@ -256,7 +270,7 @@ public class SolrCommandRunner extends TaxonCommandRunner {
 	 */
 	@CLIMethod("--solr-load-ontology")
 	public void flexLoadOntologySolr(Opts opts) throws Exception {
-		opts.info("[--min-classes MIN] [--allow-null]", "Loads current in-memory graph as ontology documents using flex");
+		opts.info("[--min-classes MIN] [--allow-null] [--threads N]", "Loads current in-memory graph as ontology documents using flex");
 		// pre-check ontology
 		int code = preCheckOntology("Can't process an inconsistent ontology for solr", 
 				"Can't process an ontology with unsatisfiable classes for solr", null);
@@ -267,6 +281,7 @@ public class SolrCommandRunner extends TaxonCommandRunner {
 
 		boolean allowNullOntologies = false;
 		int minClasses = 100;
+		int numThreads = 1;
 		while (opts.hasOpts()) {
 			if (opts.nextEq("--min-classes")) {
 				opts.info("NUM", "exit with non-zero if fewer classes encountered");
@@ -276,6 +291,10 @@ public class SolrCommandRunner extends TaxonCommandRunner {
 				opts.info("", "if set, empty ontologies (0 axioms, no IRI) will be ignored rather than failing");
 				allowNullOntologies = true;
 			}
+			else if (opts.nextEq("--threads")) {
+				opts.info("N", "precompute the shunt graph JSON with N threads");
+				numThreads = Integer.parseInt(opts.nextOpt());
+			}
 			else {
 				break;
 			}
@@ -308,6 +327,10 @@ public class SolrCommandRunner extends TaxonCommandRunner {
 		// Grab the intermediate form.
 		LOG.info("Assembling FlexCollection...");
 		FlexCollection flex = new FlexCollection(aconf, g);
+		if (numThreads > 1) {
+			LOG.info("Precomputing shunt graphs, threads: "+numThreads);
+			flex.precomputeShuntGraphs(numThreads);
+		}
 
 		boolean isMock = false;
 		int nClasses = 0;
@@ -508,6 +531,8 @@ public class SolrCommandRunner extends TaxonCommandRunner {
 		boolean removeUnsatisfiableModels = false;
 		boolean exitIfUnsatisfiable = true;
 		boolean exitIfLoadFails = true;
+		int numThreads = 1;
+		boolean useSharedClosure = false;
 		while (opts.hasOpts()) {
 			if (opts.nextEq("--defaultModelStateFilter|--productionModelStateFilter")) {
 				if(modelStateFilter != null) { 
@@ -545,6 +570,14 @@ public class SolrCommandRunner extends TaxonCommandRunner {
 				opts.info("", "carry on if fail to load any individual model fails. Default is fail fast");
 				exitIfLoadFails = false;
 			}
+			else if (opts.nextEq("--threads")) {
+				opts.info("N", "number of models loaded in parallel. Default is 1");
+				numThreads = Integer.parseInt(opts.nextOpt());
+			}
+			else if (opts.nextEq("--shared-closure")) {
+				opts.info("", "pre-compute the part_of closures once from the loaded ontology and share them between all models");
+				useSharedClosure = true;
+			}
 			else
 				break;
 		}
@@ -570,27 +603,196 @@ public class SolrCommandRunner extends TaxonCommandRunner {
 			LOG.error("Lego environment not well defined--skipping: "+details);
 			exit(-1);
 		}else{
-			LOG.warn("Start Loading models, count: "+legoFiles.size());
-			// Ready the environment for every pass.
-			ParserWrapper pwr = new ParserWrapper();
-			// Add all of the catalogs; possibly none.
-			for(File legoCatalog : legoCatalogs){
-				pwr.addIRIMapper(new CatalogXmlIRIMapper(legoCatalog));
+			LOG.warn("Start Loading models, count: "+legoFiles.size()+" threads: "+numThreads);
+			ModelLoadSummary summary = new ModelLoadSummary();
+			RelationClosureTable closureTable = null;
+			if (useSharedClosure) {
+				if (g == null) {
+					LOG.error("--shared-closure requires a loaded ontology");
+					exit(-1);
+					return;
+				}
+				closureTable = RelationClosureTable.build(g,
+						ModelAnnotationSolrDocumentLoader.getDefaultClosureRelations(g), g.getAllOWLClasses());
 			}
-
-			for(File legoFile : legoFiles){
-				loadEachModelAnnotation (pwr, legoFile, url, modelStateFilter, removeDeprecatedModels, 
-						removeTemplateModels, removeUnsatisfiableModels, exitIfUnsatisfiable, exitIfLoadFails);
-				HeapInfo.showHeapStatus();
+			try {
+				if (numThreads > 1) {
+					loadModelAnnotationsConcurrently(url, modelStateFilter, removeDeprecatedModels, 
+							removeTemplateModels, removeUnsatisfiableModels, exitIfUnsatisfiable, exitIfLoadFails,
+							numThreads, closureTable, summary);
+				}
+				else {
+					// Ready the environment for every pass.
+					ParserWrapper pwr = createLegoParserWrapper();
+
+					for(File legoFile : legoFiles){
+						loadEachModelAnnotation (pwr, legoFile, url, modelStateFilter, removeDeprecatedModels, 
+								removeTemplateModels, removeUnsatisfiableModels, exitIfUnsatisfiable, exitIfLoadFails,
+								null, null, closureTable, summary);
+						HeapInfo.showHeapStatus();
+					}
+				}
+			} catch (ModelLoadException e) {
+				summary.log();
+				LOG.error("Stopped loading models: " + e.getMessage());
+				exit(1);
+				return;
 			}
+			summary.log();
 
 			LOG.info("Finished loading models.");
 		}
 	}
 
+	private ParserWrapper createLegoParserWrapper() {
+		ParserWrapper pwr = new ParserWrapper();
+		// Add all of the catalogs; possibly none.
+		for(File legoCatalog : legoCatalogs){
+			pwr.addIRIMapper(new CatalogXmlIRIMapper(legoCatalog));
+		}
+		return pwr;
+	}
+
+	/**
+	 * Load the models using a bounded pool of workers. Each worker parses
+	 * with its own {@link ParserWrapper} (and ontology manager) and creates a
+	 * reasoner per model. The documents of all models are sent to Solr by a
+	 * single {@link BatchingSolrSubmitter}. If a model fails to load and
+	 * exitIfLoadFails is set, the pending models are cancelled and the
+	 * running ones are awaited before the submitter is closed and the
+	 * {@link ModelLoadException} is rethrown to the caller.
+	 */
+	private void loadModelAnnotationsConcurrently(final String url, final Set<String> modelStateFilter,
+			final boolean removeDeprecatedModels, final boolean removeTemplateModels, final boolean removeUnsatisfiableModels,
+			final boolean exitIfUnsatisfiable, final boolean exitIfLoadFails,
+			int numThreads, final RelationClosureTable closureTable, final ModelLoadSummary summary) throws Exception {
+		final SolrServer server = url.equals("mock") ? null : new CommonsHttpSolrServer(url);
+		final BatchingSolrSubmitter submitter = server == null ? null : new BatchingSolrSubmitter(server);
+		final ThreadLocal<ParserWrapper> parsers = new ThreadLocal<ParserWrapper>() {
+
+			@Override
+			protected ParserWrapper initialValue() {
+				return createLegoParserWrapper();
+			}
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		List<Future<Void>> futures = new ArrayList<Future<Void>>(legoFiles.size());
+		try {
+			CompletionService<Void> completionService = new ExecutorCompletionService<Void>(executor);
+			for(final File legoFile : legoFiles){
+				futures.add(completionService.submit(new Callable<Void>() {
+
+					@Override
+					public Void call() throws Exception {
+						loadEachModelAnnotation (parsers.get(), legoFile, url, modelStateFilter, removeDeprecatedModels, 
+								removeTemplateModels, removeUnsatisfiableModels, exitIfUnsatisfiable, exitIfLoadFails,
+								server, submitter, closureTable, summary);
+						return null;
+					}
+				}));
+			}
+			for (int count = 1; count <= legoFiles.size(); count++) {
+				try {
+					completionService.take().get();
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof Exception) {
+						throw (Exception) e.getCause();
+					}
+					throw e;
+				}
+				if (count % 100 == 0) {
+					LOG.info("Finished "+count+" of "+legoFiles.size()+" models");
+					HeapInfo.showHeapStatus();
+				}
+			}
+		}
+		finally {
+			// skip the pending models, let the running ones finish without
+			// interrupting them, so no model is only partially submitted
+			for (Future<Void> future : futures) {
+				future.cancel(false);
+			}
+			executor.shutdown();
+			try {
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (submitter != null) {
+				submitter.close();
+			}
+		}
+	}
+
+	/**
+	 * Thrown by a model load, if the load failed and exitIfLoadFails is set.
+	 * The caller exits, never the loading (worker) thread.
+	 */
+	private static class ModelLoadException extends IOException {
+
+		// generated
+		private static final long serialVersionUID = -1747327096536574337L;
+
+		ModelLoadException(String message, Throwable cause) {
+			super(message, cause);
+		}
+	}
+
+	/**
+	 * Thread-safe collection of the load times and failures of models.
+	 */
+	private static class ModelLoadSummary {
+
+		private final Map<String, Long> loadTimes = new HashMap<String, Long>();
+		private final List<String> skipped = new ArrayList<String>();
+		private final List<String> failed = new ArrayList<String>();
+		private final long startTime = System.currentTimeMillis();
+
+		synchronized void loaded(String name, long millis) {
+			loadTimes.put(name, millis);
+		}
+
+		synchronized void skipped(String name) {
+			skipped.add(name);
+		}
+
+		synchronized void failed(String name) {
+			failed.add(name);
+		}
+
+		synchronized void log() {
+			long total = 0;
+			List<Entry<String, Long>> slowest = new ArrayList<Entry<String, Long>>(loadTimes.entrySet());
+			for (Entry<String, Long> e : slowest) {
+				total += e.getValue();
+			}
+			Collections.sort(slowest, new Comparator<Entry<String, Long>>() {
+
+				@Override
+				public int compare(Entry<String, Long> e1, Entry<String, Long> e2) {
+					return e2.getValue().compareTo(e1.getValue());
+				}
+			});
+			LOG.info("Loaded "+loadTimes.size()+" models, skipped: "+skipped.size()+", failed: "+failed.size()+
+					", elapsed: "+(System.currentTimeMillis() - startTime)+" ms");
+			if (!loadTimes.isEmpty()) {
+				LOG.info("Model load time, mean: "+(total / loadTimes.size())+" ms, max: "+slowest.get(0).getValue()+" ms");
+			}
+			for (Entry<String, Long> e : slowest.subList(0, Math.min(10, slowest.size()))) {
+				LOG.info("Slow model: "+e.getKey()+" "+e.getValue()+" ms");
+			}
+			for (String name : failed) {
+				LOG.warn("Failed model: "+name);
+			}
+		}
+	}
+
 	private void loadEachModelAnnotation(ParserWrapper pwr, File legoFile, String url, Set<String> modelStateFilter,
 			boolean removeDeprecatedModels, boolean removeTemplateModels, boolean removeUnsatisfiableModels,
-			boolean exitIfUnsatisfiable, boolean exitIfLoadFails) throws IOException {
+			boolean exitIfUnsatisfiable, boolean exitIfLoadFails,
+			SolrServer server, BatchingSolrSubmitter submitter, RelationClosureTable closureTable,
+			ModelLoadSummary summary) throws IOException {
+		long startTime = System.currentTimeMillis();
 		String fname = legoFile.getName();
 		OWLReasoner currentReasoner = null;
 		OWLOntologyManager manager = pwr.getManager();
@@ -605,6 +807,7 @@ public class SolrCommandRunner extends TaxonCommandRunner {
 			boolean isDeprecated = isDeprecated(model);
 			if (isDeprecated) {
 				LOG.warn("Skipping deprecated model: " + fname);
+				summary.skipped(fname);
 				return;
 			}
 
@@ -626,6 +829,7 @@ public class SolrCommandRunner extends TaxonCommandRunner {
 			boolean consistent = currentReasoner.isConsistent();
 			if(consistent == false){
 				LOG.warn("Skip since inconsistent: " + fname);
+				summary.skipped(fname);
 				return;
 			}
 
@@ -638,10 +842,16 @@ public class SolrCommandRunner extends TaxonCommandRunner {
 						modelStateFilter, removeDeprecatedModels, removeTemplateModels);
 				isMock = true;
 			}
+			else if (server != null) {
+				loader = new ModelAnnotationSolrDocumentLoader(server, tModel, currentReasoner, modelUrl, 
+						modelStateFilter, removeDeprecatedModels, removeTemplateModels);
+			}
 			else {
 				loader = new ModelAnnotationSolrDocumentLoader(url, tModel, currentReasoner, modelUrl, 
 						modelStateFilter, removeDeprecatedModels, removeTemplateModels);
 			}
+			loader.setSubmitter(submitter);
+			loader.setClosureTable(closureTable);
 
 			loader.load();
 
@@ -651,12 +861,14 @@ public class SolrCommandRunner extends TaxonCommandRunner {
 
 			currentReasoner.dispose();
 			tempOWLManager.removeOntology(tModel);
+			summary.loaded(fname, System.currentTimeMillis() - startTime);
 		} catch (Exception e) {
 			LOG.info("Complex annotation load of " + fname + " at " + url + " failed!");
 			e.printStackTrace();
+			summary.failed(fname);
 
 			if (exitIfLoadFails)
-				System.exit(1);
+				throw new ModelLoadException("Complex annotation load of " + fname + " failed", e);
 		} finally {
 			manager.removeOntology(model);
 			if (loader != null) {
@@ -1274,7 +1486,7 @@ public class SolrCommandRunner extends TaxonCommandRunner {
 	}
 
 	// intended for debugging
-	private void showMockDocs(MockSolrDocumentLoader loader) {
+	private synchronized void showMockDocs(MockSolrDocumentLoader loader) {
 		Gson gson = new GsonBuilder().setPrettyPrinting().create();
 		for (Map<String, Object> d : loader.getDocumentCollection().getDocuments()) {
 			String json = gson.toJson(d);
@@ -29,7 +29,6 @@ import org.semanticweb.owlapi.model.OWLSubClassOfAxiom;
 import owltools.cli.tools.CLIMethod;
 import owltools.gaf.inference.ClassTaxonMatrix;
 import owltools.gaf.inference.TaxonConstraintsEngine;
-import owltools.graph.OWLGraphEdge;
 import owltools.io.OWLPrettyPrinter;
 
 /**
@@ -104,8 +103,7 @@ public class TaxonCommandRunner extends GafCommandRunner {
 			String cid = g.getIdentifier(c);
 			if (idspace != null && !cid.startsWith(idspace+":"))
 				continue;
-			Set<OWLGraphEdge> edges = g.getOutgoingEdgesClosure(c);
-			boolean isExcluded = !tce.isClassApplicable(c, tax, edges, taxAncs);
+			boolean isExcluded = !tce.isClassApplicable(c, tax);
 			/*
 			for (OWLGraphEdge e : g.getOutgoingEdgesClosure(c)) {
 				if (isExcluded)
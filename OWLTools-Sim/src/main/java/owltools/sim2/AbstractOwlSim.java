@@ -6,6 +6,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -34,8 +35,11 @@ import org.semanticweb.owlapi.reasoner.Node;
 import org.semanticweb.owlapi.reasoner.OWLReasoner;
 
 import owltools.mooncat.ontologymetadata.OntologySetMetadata;
+import owltools.profile.MetricsRegistry;
+import owltools.profile.MetricsRegistry.Timer;
 import owltools.sim2.SimpleOwlSim.Metric;
 import owltools.sim2.SimpleOwlSim.SimConfigurationProperty;
+import owltools.sim2.io.SimResultRenderer;
 import owltools.sim2.scores.ElementPairScores;
 import owltools.vocab.OBOUpperVocabulary;
 
@@ -46,10 +50,10 @@ public abstract class AbstractOwlSim implements OwlSim {
 
 	long totalTimeSimJ = 0;
 	long totalCallsSimJ = 0;
-	long totalTimeLCSIC = 0;
-	long totalCallsLCSIC = 0;
-	long totalTimeGIC = 0;
-	long totalCallsGIC = 0;
+	// timers in the shared metrics registry, only updated per pair if isPairTiming is set
+	static final Timer TIMER_LCSIC = MetricsRegistry.getInstance().timer("sim.LCSIC");
+	static final Timer TIMER_GIC = MetricsRegistry.getInstance().timer("sim.GIC");
+	protected boolean isPairTiming = false;
 	long totalTimeEnrichPrep = 0;
 	long totalTimeEnrichCalc = 0;
 	public SimStats simStats = new SimStats(); 
@@ -108,6 +112,14 @@ public abstract class AbstractOwlSim implements OwlSim {
 		this.isDisableLCSCache = isDisableLCSCache;
 	}
 
+	public boolean isPairTiming() {
+		return isPairTiming;
+	}
+
+	public void setPairTiming(boolean isPairTiming) {
+		this.isPairTiming = isPairTiming;
+	}
+
 	@Override
 	public Properties getSimProperties() {
 		return simProperties;
@@ -139,12 +151,8 @@ public abstract class AbstractOwlSim implements OwlSim {
 		if (totalCallsSimJ > 0) {
 			LOG.info("t(SimJ) ms = "+totalTimeSimJ + " / "+totalCallsSimJ + " = " + totalTimeSimJ / (double) totalCallsSimJ);
 		}
-		if (totalCallsLCSIC > 0) {
-			LOG.info("t(LCS) ms = "+totalTimeLCSIC + " / "+totalCallsLCSIC + " = " + totalTimeLCSIC / (double) totalCallsLCSIC);
-		}
-		if (totalCallsGIC > 0) {
-			LOG.info("t(GIC) ms = "+totalTimeGIC + " / "+totalCallsGIC + " = " + totalTimeGIC / (double) totalCallsGIC);
-		}
+		showTiming("LCS", TIMER_LCSIC);
+		showTiming("GIC", TIMER_GIC);
 		if (totalTimeEnrichPrep > 0) {
 			LOG.info("t(enrichPrep) ms = "+totalTimeEnrichPrep);
 		}
@@ -153,14 +161,22 @@ public abstract class AbstractOwlSim implements OwlSim {
 		}
 	}
 
+	private void showTiming(String name, Timer timer) {
+		long calls = timer.getCount();
+		if (calls > 0) {
+			double total = timer.getTotal() / 1000000d;
+			LOG.info("t("+name+") ms = "+total + " / "+calls + " = " + total / calls);
+		}
+	}
+
+	/**
+	 * Show the timings and reset the counters of this instance. The timers
+	 * in the shared {@link MetricsRegistry} are cumulative.
+	 */
 	public void showTimingsAndReset() {
 		showTimings();
 		totalTimeSimJ = 0;
 		totalCallsSimJ = 0;
-		totalTimeLCSIC = 0;
-		totalCallsLCSIC = 0;
-		totalTimeGIC = 0;
-		totalCallsGIC = 0;
 
 	}
 
@@ -364,6 +380,46 @@ public abstract class AbstractOwlSim implements OwlSim {
 	}
 
 
+	@Override
+	public long scorePairs(Iterator<ElementPair> pairs, SimResultRenderer renderer, int numThreads) throws Exception {
+		return new BatchPairScorer(this, numThreads).score(pairs, renderer);
+	}
+
+	/**
+	 * Compare i with each of the js, used for batch scoring. Implementations
+	 * may override this to re-use the profile of i.
+	 * 
+	 * @param i
+	 * @param js
+	 * @return scores, in the order of js
+	 * @throws Exception
+	 */
+	protected List<ElementPairScores> getGroupwiseSimilarity(OWLNamedIndividual i, List<OWLNamedIndividual> js) throws Exception {
+		List<ElementPairScores> scores = new ArrayList<ElementPairScores>(js.size());
+		for (OWLNamedIndividual j : js) {
+			scores.add(getGroupwiseSimilarity(i, j));
+		}
+		return scores;
+	}
+
+	/**
+	 * @return true, if {@link #getGroupwiseSimilarity(OWLNamedIndividual, List)}
+	 * may be called concurrently after {@link #prepareConcurrentScoring()}
+	 */
+	protected boolean isConcurrentScoringSupported() {
+		return false;
+	}
+
+	/**
+	 * Populate all lazy caches required for scoring, called once before
+	 * concurrent batch scoring.
+	 * 
+	 * @throws UnknownOWLClassException
+	 */
+	protected void prepareConcurrentScoring() throws UnknownOWLClassException {
+		// do nothing
+	}
+
 	//		
 
 	/* (non-Javadoc)
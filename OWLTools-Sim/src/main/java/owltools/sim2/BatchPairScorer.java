@@ -0,0 +1,153 @@
+package owltools.sim2;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+
+import owltools.sim2.io.SimResultRenderer;
+import owltools.sim2.scores.ElementPairScores;
+
+/**
+ * Scores a stream of (i, j) pairs in chunks.
+ *
+ * Within a chunk the pairs are grouped by the left element i, so that the
+ * profile of i is only retrieved once per group. Groups are scored in a
+ * worker pool, the results are passed to the renderer on the calling thread
+ * in the order of the groups. For best re-use, the input should be sorted by
+ * the left element.
+ *
+ * @see OwlSim#scorePairs(Iterator, SimResultRenderer, int)
+ */
+class BatchPairScorer {
+
+	private static final Logger LOG = Logger.getLogger(BatchPairScorer.class);
+
+	static final int DEFAULT_CHUNK_SIZE = 10000;
+
+	private final AbstractOwlSim owlsim;
+	private final int numThreads;
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+	/**
+	 * @param owlsim
+	 * @param numThreads number of workers, only used if the owlsim
+	 * implementation supports concurrent scoring
+	 */
+	BatchPairScorer(AbstractOwlSim owlsim, int numThreads) {
+		this.owlsim = owlsim;
+		if (numThreads > 1 && owlsim.isConcurrentScoringSupported() == false) {
+			LOG.warn(owlsim.getClass().getSimpleName()+" does not support concurrent scoring, using one thread");
+			numThreads = 1;
+		}
+		this.numThreads = Math.max(1, numThreads);
+	}
+
+	void setChunkSize(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * @param pairs
+	 * @param renderer
+	 * @return number of scored pairs
+	 * @throws Exception
+	 */
+	long score(Iterator<ElementPair> pairs, SimResultRenderer renderer) throws Exception {
+		if (numThreads > 1) {
+			owlsim.prepareConcurrentScoring();
+		}
+		ExecutorService executor = null;
+		if (numThreads > 1) {
+			executor = Executors.newFixedThreadPool(numThreads);
+		}
+		long startTime = System.currentTimeMillis();
+		long count = 0;
+		try {
+			while (pairs.hasNext()) {
+				// group the next chunk by the left element
+				Map<OWLNamedIndividual, List<OWLNamedIndividual>> groups =
+						new LinkedHashMap<OWLNamedIndividual, List<OWLNamedIndividual>>();
+				int n = 0;
+				while (n < chunkSize && pairs.hasNext()) {
+					ElementPair pair = pairs.next();
+					List<OWLNamedIndividual> js = groups.get(pair.getI());
+					if (js == null) {
+						js = new ArrayList<OWLNamedIndividual>();
+						groups.put(pair.getI(), js);
+					}
+					js.add(pair.getJ());
+					n++;
+				}
+				long t = System.currentTimeMillis();
+				if (executor == null) {
+					for (Entry<OWLNamedIndividual, List<OWLNamedIndividual>> e : groups.entrySet()) {
+						render(owlsim.getGroupwiseSimilarity(e.getKey(), e.getValue()), renderer);
+					}
+				}
+				else {
+					List<Future<List<ElementPairScores>>> futures =
+							new ArrayList<Future<List<ElementPairScores>>>(groups.size());
+					for (final Entry<OWLNamedIndividual, List<OWLNamedIndividual>> e : groups.entrySet()) {
+						futures.add(executor.submit(new Callable<List<ElementPairScores>>() {
+
+							@Override
+							public List<ElementPairScores> call() throws Exception {
+								return owlsim.getGroupwiseSimilarity(e.getKey(), e.getValue());
+							}
+						}));
+					}
+					for (Future<List<ElementPairScores>> future : futures) {
+						render(getResult(future), renderer);
+					}
+				}
+				count += n;
+				LOG.info("Scored "+n+" pairs in "+groups.size()+" groups, "+
+						throughput(n, System.currentTimeMillis() - t)+" pairs/s, total: "+count);
+			}
+		}
+		finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+		}
+		long totalTime = System.currentTimeMillis() - startTime;
+		LOG.info("Scored "+count+" pairs in "+totalTime+" ms using "+numThreads+" thread(s), "+
+				throughput(count, totalTime)+" pairs/s");
+		return count;
+	}
+
+	private void render(List<ElementPairScores> scores, SimResultRenderer renderer) {
+		if (renderer != null) {
+			for (ElementPairScores s : scores) {
+				renderer.printPairScores(s);
+			}
+		}
+	}
+
+	private static <T> T getResult(Future<T> future) throws Exception {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			throw e;
+		}
+	}
+
+	private static long throughput(long n, long millis) {
+		return millis > 0 ? (n * 1000) / millis : n * 1000;
+	}
+}
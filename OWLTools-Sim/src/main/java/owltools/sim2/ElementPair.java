@@ -0,0 +1,62 @@
+package owltools.sim2;
+
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+
+/**
+ * An (i, j) pair of elements to be compared, see
+ * {@link OwlSim#scorePairs(java.util.Iterator, owltools.sim2.io.SimResultRenderer, int)}
+ */
+public class ElementPair {
+
+	private final OWLNamedIndividual i;
+	private final OWLNamedIndividual j;
+
+	public ElementPair(OWLNamedIndividual i, OWLNamedIndividual j) {
+		this.i = i;
+		this.j = j;
+	}
+
+	public OWLNamedIndividual getI() {
+		return i;
+	}
+
+	public OWLNamedIndividual getJ() {
+		return j;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((i == null) ? 0 : i.hashCode());
+		result = prime * result + ((j == null) ? 0 : j.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ElementPair other = (ElementPair) obj;
+		if (i == null) {
+			if (other.i != null)
+				return false;
+		} else if (!i.equals(other.i))
+			return false;
+		if (j == null) {
+			if (other.j != null)
+				return false;
+		} else if (!j.equals(other.j))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "(" + i + ", " + j + ")";
+	}
+}
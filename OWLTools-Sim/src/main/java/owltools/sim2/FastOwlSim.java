@@ -5,6 +5,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -13,6 +14,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
@@ -30,6 +36,9 @@ import org.semanticweb.owlapi.reasoner.NodeSet;
 import org.semanticweb.owlapi.reasoner.OWLReasoner;
 import org.semanticweb.owlapi.reasoner.impl.OWLClassNode;
 
+import owltools.profile.MetricsRegistry;
+import owltools.profile.MetricsRegistry.Scope;
+import owltools.profile.MetricsRegistry.Timer;
 import owltools.sim2.SimpleOwlSim.Direction;
 import owltools.sim2.SimpleOwlSim.Metric;
 import owltools.sim2.SimpleOwlSim.SimConfigurationProperty;
@@ -55,6 +64,13 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 
 	private Logger LOG = Logger.getLogger(FastOwlSim.class);
 
+	// held once; findMatches records the time per search, the other
+	// methods per pair of candidates, only if isPairTiming is set
+	private static final Timer TIMER_MATCH_SIMJ = MetricsRegistry.getInstance().timer("sim.match.simJ");
+	private static final Timer TIMER_MATCH_MAXIC = MetricsRegistry.getInstance().timer("sim.match.maxIC");
+	private static final Timer TIMER_MATCH_SIMGIC = MetricsRegistry.getInstance().timer("sim.match.simGIC");
+	private static final Timer TIMER_MATCH_BMA = MetricsRegistry.getInstance().timer("sim.match.bma");
+
 	public OWLClass debugClass;
 	int debugClassMessages = 0;
 	int debugClassMessages2 = 0;
@@ -154,14 +170,27 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 	//
 	// Symmetric 2D arrays
 	//  - for a lookup [cix][dix], ensure cix <= dix
-	boolean[][] ciPairIsCached = null;   // determins if there is an entry is ciPairLCS
-	int[][] ciPairLCS = null; // LCS ix for a (cix,dix) pair
+	//  - an entry is the LCS ix + 1 for a (cix,dix) pair, 0 if not cached;
+	//    a single int can be read concurrently without a separate flag
+	volatile int[][] ciPairLCS = null;
 
 	// maps an individual to a unique integer
 	Map<OWLNamedIndividual,Integer> individualIndex;
+	private int nextIndividualIndex = 0;
+
+	// number of elements per class index. Only maintained after the first
+	// incremental update, from then on the reasoner is not used for instance queries
+	private int[] elementCountArray = null;
+
+	// staleness of ICs after incremental updates
+	private int numStaleElementUpdates = 0;
+	private int maxStaleElementUpdates = 0;
 
 	int[][] coaMatrix = null;
 
+	// number of threads used for initialization
+	private int numThreads = 1;
+
 	@Override
 	public void dispose() {
 		showTimings();
@@ -277,6 +306,31 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 	public void createElementAttributeMapFromOntology() throws UnknownOWLClassException {
 		getReasoner().flush();
 
+		// discard the state of incremental updates, counts are taken from the reasoner again
+		elementCountArray = null;
+		individualIndex = null;
+		nextIndividualIndex = 0;
+		classToElementBitmapMap = null;
+		numStaleElementUpdates = 0;
+		if (numElementsCache != null)
+			numElementsCache.clear();
+		if (classArray != null) {
+			// a rebuild; the class index and all caches derived from it are re-created
+			superclassMap = null;
+			inferredTypesMap = null;
+			superclassIntMap = null;
+			inferredTypesIntMap = null;
+			superclassBitmapIndex = null;
+			superclassBitmapMap = null;
+			inferredTypesBitmapMap = null;
+			properSuperclassBitmapMap = null;
+			ciPairLCS = null;
+			isLCSCacheFullyPopulated = false;
+			coaMatrix = null;
+			corpusSize = null;
+			clearInformationContentCache();
+		}
+
 		// cache E -> Type(E)
 		elementToDirectAttributesMap = new HashMap<OWLNamedIndividual,Set<OWLClass>>();
 		elementToInferredAttributesMap = new HashMap<OWLNamedIndividual,Set<Node<OWLClass>>>();
@@ -354,29 +408,498 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 
 		// ensure cached
 		cset.add(owlThing());
+		long t = System.currentTimeMillis();
+		if (numThreads > 1) {
+			cacheSubsumersConcurrently(cset, inds);
+		}
+		else {
+			for (OWLClass c : cset) {
+				ancsCachedModifiable(c);
+				ancsIntsCachedModifiable(c);
+				ancsBitmapCachedModifiable(c);
+			}
+			for (OWLNamedIndividual e : inds) {
+				// force cacheing
+				ancsBitmapCachedModifiable(e);
+			}
+		}
+		LOG.info("Done caching subsumers in "+tdelta(t)+" ms");
+
+		// cache - this is for all types inferred
+		t = System.currentTimeMillis();
+		if (numThreads > 1) {
+			computeInformationContentConcurrently(cset, inds);
+		}
 		for (OWLClass c : cset) {
+			getInformationContentForAttribute(c);
+			getInformationContentForAttribute(classIndex.get(c));
+		}
+		LOG.info("Done computing ICs for all classes in "+tdelta(t)+" ms");
+		t = System.currentTimeMillis();
+		this.assignDefaultInformationContentForAllClasses();
+		LOG.info("Done assigning default IC in "+tdelta(t)+" ms");
+
+		t = System.currentTimeMillis();
+		this.computeSystemStats();
+		LOG.info("Done computing system stats in "+tdelta(t)+" ms");
+	}
+
+	/**
+	 * Parallel version of the subsumer cacheing in
+	 * {@link #createElementAttributeMapFromOntology()}.
+	 * 
+	 * The reasoner is only queried from the calling thread, to create a
+	 * snapshot of the ancestors. The integer sets and bitmaps are then
+	 * computed from the snapshot in parallel and stored in the caches.
+	 * 
+	 * @param cset
+	 * @param inds
+	 * @throws UnknownOWLClassException
+	 */
+	private void cacheSubsumersConcurrently(Set<OWLClass> cset, Set<OWLNamedIndividual> inds) throws UnknownOWLClassException {
+		final List<OWLClass> classes = new ArrayList<OWLClass>(cset);
+		final List<OWLNamedIndividual> elements = new ArrayList<OWLNamedIndividual>(inds);
+
+		// taxonomy snapshot
+		long t = System.currentTimeMillis();
+		if (superclassMap == null)
+			superclassMap = new HashMap<OWLClass,Set<Node<OWLClass>>>(classes.size() * 2);
+		if (inferredTypesMap == null)
+			inferredTypesMap = new HashMap<OWLNamedIndividual,Set<Node<OWLClass>>>(elements.size() * 2);
+		for (OWLClass c : classes) {
 			ancsCachedModifiable(c);
-			ancsIntsCachedModifiable(c);
-			ancsBitmapCachedModifiable(c);
 		}
+		for (OWLNamedIndividual e : elements) {
+			ancsCachedModifiable(e);
+		}
+		owlThing();
+		LOG.info("Created taxonomy snapshot in "+tdelta(t)+" ms");
+
+		// integer sets and bitmaps
+		t = System.currentTimeMillis();
+		final List<Set<Integer>> classInts = new ArrayList<Set<Integer>>(Collections.<Set<Integer>>nCopies(classes.size(), null));
+		final EWAHCompressedBitmap[] classBitmaps = new EWAHCompressedBitmap[classes.size()];
+		runConcurrently(classes.size(), new IndexedTask() {
+
+			@Override
+			public void run(int n) throws UnknownOWLClassException {
+				Set<Integer> ints = ancsInts(classes.get(n));
+				classInts.set(n, ints);
+				classBitmaps[n] = convertIntsToBitmap(ints);
+			}
+		});
+		final List<Set<Integer>> elementInts = new ArrayList<Set<Integer>>(Collections.<Set<Integer>>nCopies(elements.size(), null));
+		final EWAHCompressedBitmap[] elementBitmaps = new EWAHCompressedBitmap[elements.size()];
+		runConcurrently(elements.size(), new IndexedTask() {
+
+			@Override
+			public void run(int n) throws UnknownOWLClassException {
+				Set<Integer> ints = ancsInts(elements.get(n));
+				elementInts.set(n, ints);
+				elementBitmaps[n] = convertIntsToBitmap(ints);
+			}
+		});
+
+		if (superclassIntMap == null)
+			superclassIntMap = new HashMap<OWLClass,Set<Integer>>(classes.size() * 2);
+		if (superclassBitmapMap == null)
+			superclassBitmapMap = new HashMap<OWLClass,EWAHCompressedBitmap>(classes.size() * 2);
+		for (int n = 0; n < classes.size(); n++) {
+			superclassIntMap.put(classes.get(n), classInts.get(n));
+			superclassBitmapMap.put(classes.get(n), classBitmaps[n]);
+		}
+		if (inferredTypesIntMap == null)
+			inferredTypesIntMap = new HashMap<OWLNamedIndividual,Set<Integer>>(elements.size() * 2);
+		if (inferredTypesBitmapMap == null)
+			inferredTypesBitmapMap = new HashMap<OWLNamedIndividual,EWAHCompressedBitmap>(elements.size() * 2);
+		for (int n = 0; n < elements.size(); n++) {
+			inferredTypesIntMap.put(elements.get(n), elementInts.get(n));
+			inferredTypesBitmapMap.put(elements.get(n), elementBitmaps[n]);
+		}
+		LOG.info("Created subsumer bitmaps using "+numThreads+" threads in "+tdelta(t)+" ms");
+	}
+
+	/**
+	 * Parallel pre-computation of the ICs for all classes with at least one
+	 * element. The element counts are derived from the inferred type bitmaps
+	 * of the elements, instead of querying the reasoner for each class.
+	 * Classes without elements are left to the sequential code path.
+	 * 
+	 * Requires that the subsumers are cached.
+	 * 
+	 * @param cset
+	 * @param inds
+	 * @throws UnknownOWLClassException
+	 */
+	private void computeInformationContentConcurrently(Set<OWLClass> cset, Set<OWLNamedIndividual> inds) throws UnknownOWLClassException {
+		long t = System.currentTimeMillis();
+		final List<EWAHCompressedBitmap> elementBitmaps = new ArrayList<EWAHCompressedBitmap>(inds.size());
 		for (OWLNamedIndividual e : inds) {
-			// force cacheing
-			ancsBitmapCachedModifiable(e);
+			elementBitmaps.add(ancsBitmapCachedModifiable(e));
 		}
 
+		// count elements per class index, using one partial count per partition
+		final int numPartitions = Math.min(numThreads, Math.max(1, elementBitmaps.size()));
+		final int[][] partialCounts = new int[numPartitions][];
+		runConcurrently(numPartitions, new IndexedTask() {
 
+			@Override
+			public void run(int p) {
+				int[] counts = new int[classArray.length];
+				for (int n = p; n < elementBitmaps.size(); n += numPartitions) {
+					IntIterator it = elementBitmaps.get(n).intIterator();
+					while (it.hasNext()) {
+						counts[it.next()]++;
+					}
+				}
+				partialCounts[p] = counts;
+			}
+		});
+		int[] counts = new int[classArray.length];
+		for (int[] partial : partialCounts) {
+			for (int ix = 0; ix < counts.length; ix++) {
+				counts[ix] += partial[ix];
+			}
+		}
 
-		// cache - this is for all types inferred
+		// the bits are set for the representative of each equivalence set
+		final List<OWLClass> classes = new ArrayList<OWLClass>();
+		final List<Integer> freqs = new ArrayList<Integer>();
 		for (OWLClass c : cset) {
+			if (icCache.containsKey(c)) {
+				continue;
+			}
+			int cix = getRepresentativeClassIndex(c);
+			if (cix >= 0 && counts[cix] > 0) {
+				classes.add(c);
+				freqs.add(counts[cix]);
+			}
+		}
+
+		getCorpusSize();
+		final double[] ics = new double[classes.size()];
+		runConcurrently(classes.size(), new IndexedTask() {
+
+			@Override
+			public void run(int n) throws UnknownOWLClassException {
+				ics[n] = computeInformationContent(classes.get(n), freqs.get(n));
+			}
+		});
+		for (int n = 0; n < classes.size(); n++) {
+			numElementsCache.put(classes.get(n), freqs.get(n));
+			icCache.put(classes.get(n), ics[n]);
+		}
+		LOG.info("Computed ICs for "+classes.size()+" classes using "+numThreads+" threads in "+tdelta(t)+" ms");
+	}
+
+	private interface IndexedTask {
+		void run(int n) throws UnknownOWLClassException;
+	}
+
+	/**
+	 * Run the task for all indices in [0, size), using contiguous partitions
+	 * of indices per thread.
+	 * 
+	 * @param size
+	 * @param task
+	 * @throws UnknownOWLClassException
+	 */
+	private void runConcurrently(final int size, final IndexedTask task) throws UnknownOWLClassException {
+		if (size == 0) {
+			return;
+		}
+		int numPartitions = Math.min(numThreads, size);
+		final int partitionSize = (size + numPartitions - 1) / numPartitions;
+		ExecutorService executor = Executors.newFixedThreadPool(numPartitions);
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>(numPartitions);
+			for (int p = 0; p < numPartitions; p++) {
+				final int start = p * partitionSize;
+				final int end = Math.min(size, start + partitionSize);
+				futures.add(executor.submit(new Callable<Void>() {
+
+					@Override
+					public Void call() throws Exception {
+						for (int n = start; n < end; n++) {
+							task.run(n);
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof UnknownOWLClassException) {
+						throw (UnknownOWLClassException) e.getCause();
+					}
+					throw new RuntimeException(e.getCause());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(e);
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Adds an element to the live index, without re-building from the ontology.
+	 * If the element is already present, its attributes are replaced.
+	 * 
+	 * The attributes must be known classes, i.e. part of {@link #getAllAttributeClasses()}.
+	 * The source ontology and reasoner are not modified. The ICs are refreshed
+	 * according to {@link #setMaxStaleElementUpdates(int)}.
+	 * 
+	 * This method is not thread-safe, and must not be called while scoring.
+	 * 
+	 * @param i
+	 * @param attributes
+	 * @throws UnknownOWLClassException
+	 * @see #addElements(Map)
+	 */
+	public void addElement(OWLNamedIndividual i, Set<OWLClass> attributes) throws UnknownOWLClassException {
+		addElements(Collections.singletonMap(i, attributes));
+	}
+
+	/**
+	 * Adds a batch of elements, see {@link #addElement(OWLNamedIndividual, Set)}.
+	 * The ICs are refreshed at most once, after the whole batch.
+	 * 
+	 * @param elementToAttributes
+	 * @throws UnknownOWLClassException
+	 */
+	public void addElements(Map<OWLNamedIndividual, Set<OWLClass>> elementToAttributes) throws UnknownOWLClassException {
+		if (elementToDirectAttributesMap == null)
+			createElementAttributeMapFromOntology();
+		// validate first, so that a failure leaves the index unchanged
+		for (Set<OWLClass> attributes : elementToAttributes.values()) {
+			for (OWLClass c : attributes) {
+				getClassIndex(c);
+			}
+		}
+		for (Map.Entry<OWLNamedIndividual, Set<OWLClass>> e : elementToAttributes.entrySet()) {
+			updateElement(e.getKey(), e.getValue());
+		}
+		refreshInformationContentIfStale();
+	}
+
+	private void updateElement(OWLNamedIndividual i, Set<OWLClass> attributes) throws UnknownOWLClassException {
+		if (elementToDirectAttributesMap.containsKey(i)) {
+			deleteElement(i);
+		}
+		initElementCounts();
+
+		EWAHCompressedBitmap bm = new EWAHCompressedBitmap();
+		Set<Node<OWLClass>> nodes = new HashSet<Node<OWLClass>>();
+		for (OWLClass c : attributes) {
+			bm = bm.or(ancsBitmapCachedModifiable(c));
+			nodes.addAll(ancsCachedModifiable(c));
+		}
+		nodes.remove(owlThingNode());
+
+		// direct attributes exclude those subsumed by another attribute
+		Set<OWLClass> direct = new HashSet<OWLClass>();
+		for (OWLClass c : attributes) {
+			int cix = getRepresentativeClassIndex(c);
+			if (cix == 0)
+				continue;
+			boolean isRedundant = false;
+			for (OWLClass d : attributes) {
+				int dix = getRepresentativeClassIndex(d);
+				if (dix != cix && ancsBitmapCachedModifiable(d).get(cix)) {
+					isRedundant = true;
+					break;
+				}
+			}
+			if (!isRedundant)
+				direct.add(c);
+		}
+
+		elementToDirectAttributesMap.put(i, direct);
+		elementToInferredAttributesMap.put(i, nodes);
+		allTypesDirect.addAll(direct);
+		inferredTypesMap.put(i, new HashSet<Node<OWLClass>>(nodes));
+		Set<Integer> ints = new HashSet<Integer>();
+		IntIterator it = bm.intIterator();
+		while (it.hasNext()) {
+			int cix = it.next();
+			ints.add(cix);
+			elementCountArray[cix]++;
+		}
+		inferredTypesIntMap.put(i, ints);
+		inferredTypesBitmapMap.put(i, bm);
+
+		if (individualIndex != null) {
+			// new indices are always the highest, keeping the bitmaps ordered
+			int iix = nextIndividualIndex++;
+			individualIndex.put(i, iix);
+			updateElementBitmaps(bm, EWAHCompressedBitmap.bitmapOf(iix), true);
+		}
+		coaMatrix = null;
+		numStaleElementUpdates++;
+	}
+
+	/**
+	 * Removes an element from the live index, without re-building from the ontology.
+	 * 
+	 * This method is not thread-safe, and must not be called while scoring.
+	 * 
+	 * @param i
+	 * @return true if the element was present
+	 * @throws UnknownOWLClassException
+	 * @see #addElement(OWLNamedIndividual, Set)
+	 */
+	public boolean removeElement(OWLNamedIndividual i) throws UnknownOWLClassException {
+		if (elementToDirectAttributesMap == null)
+			createElementAttributeMapFromOntology();
+		if (!elementToDirectAttributesMap.containsKey(i)) {
+			return false;
+		}
+		deleteElement(i);
+		refreshInformationContentIfStale();
+		return true;
+	}
+
+	private void deleteElement(OWLNamedIndividual i) throws UnknownOWLClassException {
+		initElementCounts();
+
+		EWAHCompressedBitmap bm = ancsBitmapCachedModifiable(i);
+		IntIterator it = bm.intIterator();
+		while (it.hasNext()) {
+			elementCountArray[it.next()]--;
+		}
+		if (individualIndex != null) {
+			Integer iix = individualIndex.remove(i);
+			if (iix != null) {
+				updateElementBitmaps(bm, EWAHCompressedBitmap.bitmapOf(iix), false);
+			}
+		}
+
+		// allTypesDirect is left as is, it may include unused types
+		elementToDirectAttributesMap.remove(i);
+		elementToInferredAttributesMap.remove(i);
+		inferredTypesMap.remove(i);
+		inferredTypesIntMap.remove(i);
+		inferredTypesBitmapMap.remove(i);
+		coaMatrix = null;
+		numStaleElementUpdates++;
+	}
+
+	/**
+	 * Sets the number of element updates that are tolerated before the ICs
+	 * (and all caches derived from them) are re-computed. The re-computation
+	 * is done at the end of the update call that exceeds the limit, lookups
+	 * do not check for stale ICs.
+	 * 
+	 * The default is 0, i.e. ICs are refreshed after each update call, use
+	 * {@link #addElements(Map)} for batches.
+	 * A negative value disables automatic refreshes, see
+	 * {@link #refreshInformationContent()}.
+	 * 
+	 * @param maxStaleElementUpdates
+	 */
+	public void setMaxStaleElementUpdates(int maxStaleElementUpdates) {
+		this.maxStaleElementUpdates = maxStaleElementUpdates;
+	}
+
+	public int getMaxStaleElementUpdates() {
+		return maxStaleElementUpdates;
+	}
+
+	/**
+	 * @return number of element updates since the ICs were last computed
+	 */
+	public int getNumStaleElementUpdates() {
+		return numStaleElementUpdates;
+	}
+
+	/**
+	 * Re-computes the corpus size, ICs and system stats from the current
+	 * elements, and clears the LCS cache.
+	 * 
+	 * @throws UnknownOWLClassException
+	 */
+	public void refreshInformationContent() throws UnknownOWLClassException {
+		long t = System.currentTimeMillis();
+		numStaleElementUpdates = 0;
+		setCorpusSize(getAllElements().size());
+		icCache.clear();
+		numElementsCache.clear();
+		icClassArray = null;
+		if (ciPairLCS != null) {
+			for (int[] row : ciPairLCS) {
+				Arrays.fill(row, 0);
+			}
+		}
+		isLCSCacheFullyPopulated = false;
+		for (OWLClass c : allTypesInferred) {
 			getInformationContentForAttribute(c);
 			getInformationContentForAttribute(classIndex.get(c));
 		}
-		LOG.info("Done computing ICs for all classes");
-		this.assignDefaultInformationContentForAllClasses();
-		LOG.info("Done assigning default IC");
+		assignDefaultInformationContentForAllClasses();
+		computeSystemStats();
+		LOG.info("Refreshed ICs for "+getCorpusSize()+" elements in "+tdelta(t)+" ms");
+	}
 
-		this.computeSystemStats();
+	private void refreshInformationContentIfStale() throws UnknownOWLClassException {
+		if (maxStaleElementUpdates >= 0 && numStaleElementUpdates > maxStaleElementUpdates) {
+			refreshInformationContent();
+		}
+	}
 
+	// switch to index based element counts, the reasoner is not aware of incremental updates
+	private void initElementCounts() throws UnknownOWLClassException {
+		if (elementCountArray != null)
+			return;
+		elementCountArray = new int[classArray.length];
+		for (OWLNamedIndividual e : getAllElements()) {
+			IntIterator it = ancsBitmapCachedModifiable(e).intIterator();
+			while (it.hasNext()) {
+				elementCountArray[it.next()]++;
+			}
+		}
+		numElementsCache.clear();
+	}
+
+	// add or remove an individual bit in the cached class to element bitmaps,
+	// for all classes in the inferred types of the individual
+	private void updateElementBitmaps(EWAHCompressedBitmap types, EWAHCompressedBitmap ibm, boolean isAdd) {
+		if (classToElementBitmapMap == null)
+			return;
+		for (Map.Entry<OWLClass, EWAHCompressedBitmap> e : classToElementBitmapMap.entrySet()) {
+			int cix = getRepresentativeClassIndex(e.getKey());
+			if (cix == 0 || (cix > 0 && types.get(cix))) {
+				e.setValue(isAdd ? e.getValue().or(ibm) : e.getValue().andNot(ibm));
+			}
+		}
+	}
+
+	// index of the representative of the equivalence set of a class; -1 if not indexed
+	private int getRepresentativeClassIndex(OWLClass c) {
+		OWLClass rep = classTorepresentativeClassMap.get(c);
+		Integer cix = classIndex.get(rep != null ? rep : c);
+		return cix == null ? -1 : cix;
+	}
+
+	/**
+	 * @return number of threads used for initialization
+	 */
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	/**
+	 * Set the number of threads used by {@link #createElementAttributeMapFromOntology()}.
+	 * Default is 1, i.e., no concurrency.
+	 * 
+	 * @param numThreads
+	 */
+	public void setNumThreads(int numThreads) {
+		this.numThreads = Math.max(1, numThreads);
 	}
 
 	// TODO - change set to be (ordered) List, to avoid sorting each time
@@ -571,6 +1094,17 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 		if (!this.getAllAttributeClasses().contains(c)) {
 			throw new UnknownOWLClassException(c);
 		}
+		if (elementCountArray != null) {
+			// the reasoner does not know about incremental updates
+			int cix = getRepresentativeClassIndex(c);
+			Set<OWLNamedIndividual> inds = new HashSet<OWLNamedIndividual>();
+			for (OWLNamedIndividual i : getAllElements()) {
+				if (cix == 0 || ancsBitmapCachedModifiable(i).get(cix)) {
+					inds.add(i);
+				}
+			}
+			return inds;
+		}
 		return getReasoner().getInstances(c, false).getFlattened();
 	}
 
@@ -614,6 +1148,7 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 				individualIndex.put(i, n);
 				n++;
 			}
+			nextIndividualIndex = n;
 		}
 	}
 
@@ -624,6 +1159,12 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 		if (numElementsCache.containsKey(c)) {
 			return numElementsCache.get(c);
 		}
+		if (elementCountArray != null) {
+			int cix = getRepresentativeClassIndex(c);
+			if (cix < 0)
+				return 0;
+			return cix == 0 ? getAllElements().size() : elementCountArray[cix];
+		}
 		int num = 0;
 		try {
 			num = this.getElementsForAttribute(c).size();
@@ -688,21 +1229,26 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 		}
 		Double ic = null ;
 		if (freq > 0) {
-			ic = -Math.log(((double) (freq) / getCorpusSize())) / Math.log(2);
-			// experimental: use depth in graph as tie-breaker.
-			// the amount added is |ancs(c)| / SF,
-			// where SF is large enough to make overall increase negligible
-			int numAncs = ancsBitmapCachedModifiable(c).cardinality();
-			double bump = numAncs / (double) scaleFactor;
-			if (bump > 0.2) {
-				LOG.warn("Bump = "+bump+" for "+c);
-			}
-			ic += bump;
+			ic = computeInformationContent(c, freq);
 		}
 		icCache.put(c, ic);
 		return ic;
 	}
 
+	private double computeInformationContent(OWLClass c, int freq) throws UnknownOWLClassException {
+		double ic = -Math.log(((double) (freq) / getCorpusSize())) / Math.log(2);
+		// experimental: use depth in graph as tie-breaker.
+		// the amount added is |ancs(c)| / SF,
+		// where SF is large enough to make overall increase negligible
+		int numAncs = ancsBitmapCachedModifiable(c).cardinality();
+		double bump = numAncs / (double) scaleFactor;
+		if (bump > 0.2) {
+			LOG.warn("Bump = "+bump+" for "+c);
+		}
+		ic += bump;
+		return ic;
+	}
+
 	// gets IC by class index, cacheing if required
 	// note this is a 'double cache', as the equivalent call by class is
 	// also cached.
@@ -993,10 +1539,14 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 	@Override
 	public double getElementGraphInformationContentSimilarity(
 			OWLNamedIndividual i, OWLNamedIndividual j) throws UnknownOWLClassException {
+		return getGraphInformationContentSimilarity(ancsBitmapCachedModifiable(i),
+				ancsBitmapCachedModifiable(j));
+	}
+
+	private double getGraphInformationContentSimilarity(
+			EWAHCompressedBitmap bmc, EWAHCompressedBitmap bmd) throws UnknownOWLClassException {
 		// TODO - optimize
-		long t = System.currentTimeMillis();
-		EWAHCompressedBitmap bmc = ancsBitmapCachedModifiable(i);
-		EWAHCompressedBitmap bmd = ancsBitmapCachedModifiable(j);
+		long t = isPairTiming ? TIMER_GIC.start() : 0;
 		EWAHCompressedBitmap cad = bmc.and(bmd);
 		EWAHCompressedBitmap cud = bmc.or(bmd);
 
@@ -1019,8 +1569,9 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 			}
 		}
 
-		totalTimeGIC += tdelta(t);
-		this.totalCallsGIC++;
+		if (isPairTiming) {
+			TIMER_GIC.stop(t);
+		}
 
 		return sumICboth / sumICunion;
 	}
@@ -1036,7 +1587,7 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 
 	private double getAttributeGraphInformationContentSimilarity(
 			int cix, int dix) throws UnknownOWLClassException {
-		long t = System.currentTimeMillis();
+		long t = isPairTiming ? TIMER_GIC.start() : 0;
 		EWAHCompressedBitmap bmc = ancsBitmapCachedModifiable(cix);
 		EWAHCompressedBitmap bmd = ancsBitmapCachedModifiable(dix);
 		EWAHCompressedBitmap cad = bmc.and(bmd);
@@ -1056,8 +1607,9 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 				sumICboth += ic;
 			}
 		}
-		totalTimeGIC += tdelta(t);
-		this.totalCallsGIC++;
+		if (isPairTiming) {
+			TIMER_GIC.stop(t);
+		}
 		return sumICboth / sumICunion;
 	}
 
@@ -1168,59 +1720,105 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 		populateSimilarityMatrix(cs, ds, ijscores);
 	}
 
+	// scratch matrix for LCS IC scores, one per thread; see populateSimilarityMatrix
+	private final ThreadLocal<double[]> scoreMatrixScratch = new ThreadLocal<double[]>();
+
+	private double[] getScoreMatrixScratch(int size) {
+		double[] scratch = scoreMatrixScratch.get();
+		if (scratch == null || scratch.length < size) {
+			scratch = new double[Math.max(size, 256)];
+			scoreMatrixScratch.set(scratch);
+		}
+		return scratch;
+	}
+
+	/**
+	 * Computes the best match average scores for the LCS IC matrix of cs x ds.
+	 * 
+	 * The LCS IC scores are kept in a reusable primitive scratch matrix, where
+	 * NaN marks a pair without a score. Only the best pairs for each row and
+	 * column are materialized as {@link ScoreAttributeSetPair}; the full
+	 * {@link ScoreMatrix#matrix} is not populated.
+	 * 
+	 * @param cs
+	 * @param ds
+	 * @param ijscores
+	 * @throws UnknownOWLClassException
+	 */
 	private void populateSimilarityMatrix(Vector<OWLClass> cs,
 			Vector<OWLClass> ds, ElementPairScores ijscores)  throws UnknownOWLClassException {
 
-		ScoreAttributeSetPair bestsap = null;
 		int csize = cs.size();
 		int dsize = ds.size();
 		ijscores.cs = cs;
 		ijscores.ds = ds;
+		int[] cixs = new int[csize];
+		for (int cx=0; cx<csize; cx++) {
+			cixs[cx] = getClassIndex(cs.elementAt(cx));
+		}
+		int[] dixs = new int[dsize];
+		for (int dx=0; dx<dsize; dx++) {
+			dixs[dx] = getClassIndex(ds.elementAt(dx));
+		}
+		double[] scores = getScoreMatrixScratch(csize * dsize);
+		int[] bestDForC = new int[csize];
+		int[] bestCForD = new int[dsize];
+		Arrays.fill(bestCForD, -1);
+		int bestCell = -1;
 		double total = 0.0;
-		ScoreAttributeSetPair[][] sapMatrix = new ScoreAttributeSetPair[csize][dsize];
-		ScoreAttributeSetPair[] bestSapForC = new ScoreAttributeSetPair[csize];
-		ScoreAttributeSetPair[] bestSapForD = new ScoreAttributeSetPair[dsize];
 		double bestMatchCTotal = 0;
 		double bestMatchDTotal = 0;
 
-		// populate matrix
+		// populate matrix, tracking the best entry for each C
+		// ties are resolved in favor of the last entry, as for the columns and the overall best
 		for (int cx=0; cx<csize; cx++) {
-			OWLClass c = cs.elementAt(cx);
-			int cix = classIndex.get(c);
-			ScoreAttributeSetPair bestcsap = null;
+			int row = cx * dsize;
+			int bestdx = -1;
 			for (int dx=0; dx<dsize; dx++) {
-				OWLClass d = ds.elementAt(dx);
-				int dix = classIndex.get(d);
-				ScoreAttributeSetPair sap = getLowestCommonSubsumerWithIC(cix,dix);
-				if (sap == null)
+				double score = getLowestCommonSubsumerIC(cixs[cx], dixs[dx]);
+				scores[row + dx] = score;
+				if (Double.isNaN(score))
 					continue;
-				sapMatrix[cx][dx] = sap;
-				double score = sap.score;
 				total += score;
-				if (bestsap == null || score >= bestsap.score) {
-					bestsap = sap;
+				if (bestCell < 0 || score >= scores[bestCell]) {
+					bestCell = row + dx;
 				}
-				if (bestcsap == null || score >= bestcsap.score) {
-					bestcsap = sap;
+				if (bestdx < 0 || score >= scores[row + bestdx]) {
+					bestdx = dx;
 				}
 			}
-			bestSapForC[cx] = bestcsap;
-			if (bestcsap != null)
-				bestMatchCTotal += bestcsap.score;
+			bestDForC[cx] = bestdx;
+			if (bestdx >= 0)
+				bestMatchCTotal += scores[row + bestdx];
 		}
 
 		// retrieve best values for each D
 		for (int dx=0; dx<dsize; dx++) {
-			ScoreAttributeSetPair bestdsap = null;
+			int bestcx = -1;
 			for (int cx=0; cx<csize; cx++) {
-				ScoreAttributeSetPair sap = sapMatrix[cx][dx];
-				if (sap != null && (bestdsap == null || sap.score >= bestdsap.score)) {
-					bestdsap = sap;
+				double score = scores[cx * dsize + dx];
+				if (!Double.isNaN(score) && (bestcx < 0 || score >= scores[bestcx * dsize + dx])) {
+					bestcx = cx;
 				}
 			}
-			if (bestdsap != null) {
-				bestSapForD[dx] = bestdsap;
-				bestMatchDTotal += bestdsap.score;
+			bestCForD[dx] = bestcx;
+			if (bestcx >= 0)
+				bestMatchDTotal += scores[bestcx * dsize + dx];
+		}
+
+		// materialize witnesses for the winning pairs only
+		ScoreAttributeSetPair[] bestSapForC = new ScoreAttributeSetPair[csize];
+		ScoreAttributeSetPair[] bestSapForD = new ScoreAttributeSetPair[dsize];
+		for (int cx=0; cx<csize; cx++) {
+			if (bestDForC[cx] >= 0) {
+				bestSapForC[cx] = getLowestCommonSubsumerWithIC(cixs[cx], dixs[bestDForC[cx]]);
+			}
+		}
+		for (int dx=0; dx<dsize; dx++) {
+			int cx = bestCForD[dx];
+			if (cx >= 0) {
+				bestSapForD[dx] = bestDForC[cx] == dx ? bestSapForC[cx] :
+					getLowestCommonSubsumerWithIC(cixs[cx], dixs[dx]);
 			}
 		}
 
@@ -1231,12 +1829,15 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 		ijscores.bmaSymIC = (bestMatchCTotal + bestMatchDTotal) / (double)(csize+dsize);
 
 		ijscores.iclcsMatrix = new ScoreMatrix<ScoreAttributeSetPair>();
-		ijscores.iclcsMatrix.matrix = sapMatrix;
 		ijscores.iclcsMatrix.bestForC = bestSapForC;
 		ijscores.iclcsMatrix.bestForD = bestSapForD;
 
-		if (bestsap != null) {
-			ijscores.maxIC = bestsap.score;
+		if (bestCell >= 0) {
+			int cx = bestCell / dsize;
+			int dx = bestCell % dsize;
+			ScoreAttributeSetPair bestsap = bestDForC[cx] == dx ? bestSapForC[cx] :
+				getLowestCommonSubsumerWithIC(cixs[cx], dixs[dx]);
+			ijscores.maxIC = scores[bestCell];
 			ijscores.maxICwitness = bestsap.attributeClassSet;
 		}
 		else {
@@ -1247,6 +1848,31 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 
 	}
 
+	/**
+	 * Allocation free variant of {@link #getLowestCommonSubsumerWithIC(int, int)},
+	 * if the pair is in the LCS cache.
+	 * 
+	 * @param cix
+	 * @param dix
+	 * @return IC of the LCS, or NaN if there is no score for the pair
+	 * @throws UnknownOWLClassException
+	 */
+	private double getLowestCommonSubsumerIC(int cix, int dix) throws UnknownOWLClassException {
+		int[][] lcsCache = ciPairLCS;
+		if (!isDisableLCSCache && !isNoLookupForLCSCache && lcsCache != null) {
+			int lo = Math.min(cix, dix);
+			int hi = Math.max(cix, dix);
+			int entry = lcsCache[lo][hi];
+			if (entry != 0) {
+				return icClassArray[entry - 1];
+			}
+		}
+		ScoreAttributeSetPair sap = getLowestCommonSubsumerWithIC(cix, dix);
+		if (sap == null)
+			return Double.NaN;
+		return sap.score;
+	}
+
 	// uses integer 2D array cache
 	private ScoreAttributeSetPair getLowestCommonSubsumerWithIC(int cix, int dix)
 			throws UnknownOWLClassException {
@@ -1271,14 +1897,15 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 		}
 
 		// if the cache does not exist, initialize it
-		if (ciPairIsCached == null) {
+		int[][] lcsCache = ciPairLCS;
+		if (lcsCache == null) {
 			// Estimates: 350mb for MP
 			// 5.4Gb for 30k classes
 			//int size = this.getAllAttributeClasses().size();
 			int size = classArray.length;
 			LOG.info("Creating 2D cache of "+size+" * "+size);
-			ciPairIsCached = new boolean[size][size];
-			ciPairLCS = new int[size][size];
+			lcsCache = new int[size][size];
+			ciPairLCS = lcsCache;
 			LOG.info("Created LCS cache"+size+" * "+size);
 			//ciPairScaledScore = new short[size][size];
 			//LOG.info("Created score cache cache"+size+" * "+size);
@@ -1286,9 +1913,8 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 
 		// if either (1) an entry exists in the cache or (2) we are
 		// building the cache from fresh, then do a lookup
-		if (!isNoLookupForLCSCache && ciPairIsCached[cix][dix]) {
-			// TODO null vs 0
-			int lcsix = ciPairLCS[cix][dix];
+		if (!isNoLookupForLCSCache && lcsCache[cix][dix] != 0) {
+			int lcsix = lcsCache[cix][dix] - 1;
 
 			// we lookup the IC on-the-fly
 			// TODO: hook in here to getAttributeTriadScore to produce other scores
@@ -1316,13 +1942,12 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 			return null;
 		}
 
-		ciPairIsCached[cix][dix] = true;
 		OWLClass lcsCls = null;
 		if (sap.attributeClassSet != null && !sap.attributeClassSet.isEmpty()) {
 			// we take an arbitrary member
 			lcsCls = sap.attributeClassSet.iterator().next();
 			int lcsix = classIndex.get(lcsCls);
-			ciPairLCS[cix][dix] = lcsix;
+			lcsCache[cix][dix] = lcsix + 1;
 			if (debugClass != null && lcsCls.equals(debugClass) && debugClassMessages2 < 100) {
 				LOG.info("DEBUG2 "+lcsix+" " +sap.attributeClassSet+" sap.score="+sap.score);
 				debugClassMessages2++;
@@ -1333,6 +1958,8 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 			//TODO - remove obsoletes
 			LOG.warn("uh oh"+classArray[cix] + " "+
 					classArray[dix]+" "+sap.attributeClassSet);
+			// cached with ix 0, as with the previous separate flag
+			lcsCache[cix][dix] = 1;
 		}
 
 		return sap;
@@ -1352,7 +1979,7 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 
 	private ScoreAttributeSetPair getLowestCommonSubsumerWithICNoCache(int cix, int dix)
 			throws UnknownOWLClassException {
-		long t = System.currentTimeMillis();
+		long t = isPairTiming ? TIMER_LCSIC.start() : 0;
 		EWAHCompressedBitmap cad = getNamedLowestCommonSubsumersAsBitmap(cix, dix);
 
 		Set<OWLClass> lcsClasses = new HashSet<OWLClass>();
@@ -1385,8 +2012,9 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 			// TODO - remove obsoletes
 			//LOG.warn("Hmmmm "+c+" "+d+" "+lcs);
 		}
-		totalTimeLCSIC += tdelta(t);
-		this.totalCallsLCSIC++;
+		if (isPairTiming) {
+			TIMER_LCSIC.stop(t);
+		}
 
 		return new ScoreAttributeSetPair(maxScore, lcsClasses);
 	}
@@ -1474,145 +2102,139 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 		}
 
 		// benchmarking
+		Scope search = MetricsRegistry.getInstance().startScope("sim.findMatches");
+		// per candidate times, recorded once per search
 		long tSimJ = 0;
-		int nSimJ = 0;
 		long tMaxIC = 0;
-		int nMaxIC = 0;
 		long tSimGIC = 0;
-		int nSimGIC = 0;
 		long tBMA = 0;
-		int nBMA = 0;
-		long startTime = System.currentTimeMillis();
-
-		// for calculation of phenodigm score
-		double maxMaxIC = 0.0;
-		double maxBMA = 0.0;
-
-		candidateTargetSet = 
-				new HashSet<OWLNamedIndividual>(candidateTargetSet);
-		candidateTargetSet.add(getSelfIndividual());
-		EWAHCompressedBitmap searchProfileBM = ancsBitmapCached(cset);
-		for (OWLNamedIndividual j : candidateTargetSet) {
-			boolean isSelf = isSelfIndividual(j);
-			// todo - provide other ways of filtering the set of candidates
-			// for now we limit this to the ID space
-			//if (!isSelf && targetIdSpace != null && !j.getIRI().toString().contains("/"+targetIdSpace+"_")) {
-			//					continue;
-			//}
-			long t = System.currentTimeMillis();
-			// SIMJ
-			EWAHCompressedBitmap jAttsBM;
-			if (isSelf) {
-				jAttsBM = searchProfileBM;
-			}
-			else {
-				jAttsBM = ancsBitmapCachedModifiable(j);
-			}
-			int cadSize = searchProfileBM.andCardinality(jAttsBM);
-			int cudSize = searchProfileBM.orCardinality(jAttsBM);
-			if (cudSize == 0) {
-				return scoreSets;
-			}
-			int simJPct = (cadSize * 100) / cudSize;
-			nSimJ++;
-			tSimJ += tdelta(t);
-
-			if (nSimJ % 1000 == 0) {
-				LOG.info("tSimJ = "+tSimJ +" / "+nSimJ);
-				LOG.info("tMaxIC = "+tMaxIC +" / "+nMaxIC);
-				LOG.info("tSimGIC = "+tSimGIC +" / "+nSimGIC);
-				LOG.info("tBMA = "+tBMA +" / "+nBMA);
-			}
+		try {
+			int nSimJ = 0;
+
+			// for calculation of phenodigm score
+			double maxMaxIC = 0.0;
+			double maxBMA = 0.0;
+
+			candidateTargetSet = 
+					new HashSet<OWLNamedIndividual>(candidateTargetSet);
+			candidateTargetSet.add(getSelfIndividual());
+			EWAHCompressedBitmap searchProfileBM = ancsBitmapCached(cset);
+			for (OWLNamedIndividual j : candidateTargetSet) {
+				boolean isSelf = isSelfIndividual(j);
+				// todo - provide other ways of filtering the set of candidates
+				// for now we limit this to the ID space
+				//if (!isSelf && targetIdSpace != null && !j.getIRI().toString().contains("/"+targetIdSpace+"_")) {
+				//					continue;
+				//}
+				long t = System.nanoTime();
+				// SIMJ
+				EWAHCompressedBitmap jAttsBM;
+				if (isSelf) {
+					jAttsBM = searchProfileBM;
+				}
+				else {
+					jAttsBM = ancsBitmapCachedModifiable(j);
+				}
+				int cadSize = searchProfileBM.andCardinality(jAttsBM);
+				int cudSize = searchProfileBM.orCardinality(jAttsBM);
+				if (cudSize == 0) {
+					return scoreSets;
+				}
+				int simJPct = (cadSize * 100) / cudSize;
+				nSimJ++;
+				tSimJ += System.nanoTime() - t;
 
-			if (simJPct < minSimJPct) {
-				//LOG.info("simJ pct too low : "+simJPct+" = "+cadSize+" / "+cudSize);
-				continue;
-			}
-			ElementPairScores s = new ElementPairScores(null, j);
-			s.simjScore = simJPct / (double) 100;
-			EWAHCompressedBitmap cad = searchProfileBM.and(jAttsBM);
-
-			// COMMON SUBSUMERS (ALL)
-			Set<OWLClass> csSet = new HashSet<OWLClass>();
-			for (int ix : cad.toArray()) {
-				csSet.add(classArray[ix]);
-			}
-
-			// MAXIC
-			// TODO - evaluate if this is optimal;
-			// MaxIC falls out of BMA calculation, but it may be useful
-			// to calculate here to test if more expensive AxA is required
-			t = System.currentTimeMillis();
-			double icBest = 0;
-			double icSumCAD = 0;
-			for (int ix : cad.toArray()) {
-				Double ic = getInformationContentForAttribute(ix);
-				//OWLClass c = n.getRepresentativeElement();
-				//Double ic = getInformationContentForAttribute(c);
-				if (ic > icBest) {
-					icBest = ic;
+				if (simJPct < minSimJPct) {
+					//LOG.info("simJ pct too low : "+simJPct+" = "+cadSize+" / "+cudSize);
+					continue;
+				}
+				ElementPairScores s = new ElementPairScores(null, j);
+				s.simjScore = simJPct / (double) 100;
+				EWAHCompressedBitmap cad = searchProfileBM.and(jAttsBM);
+
+				// COMMON SUBSUMERS (ALL)
+				Set<OWLClass> csSet = new HashSet<OWLClass>();
+				for (int ix : cad.toArray()) {
+					csSet.add(classArray[ix]);
 				}
-				icSumCAD += ic;
-			}
-			tMaxIC += tdelta(t);
-			nMaxIC++;
-			if (icBest > maxMaxIC) {
-				maxMaxIC = icBest;
-			}
-			if (icBest <= minMaxIC) {
-				//LOG.info("maxIC too low : "+icBest);
-				continue;
-			}
-			s.maxIC = icBest;
-			//LOG.info("computing simGIC");
 
-			// SIMGIC
-			t = System.currentTimeMillis();
-			EWAHCompressedBitmap cud = searchProfileBM.or(jAttsBM);
-			double icSumCUD = 0;
-			for (int ix : cud.toArray()) {
-				Double ic = getInformationContentForAttribute(ix);
-				icSumCUD += ic;
-			}
-			s.simGIC = icSumCAD / icSumCUD;
-			tSimGIC += tdelta(t);
-			nSimGIC++;
+				// MAXIC
+				// TODO - evaluate if this is optimal;
+				// MaxIC falls out of BMA calculation, but it may be useful
+				// to calculate here to test if more expensive AxA is required
+				t = System.nanoTime();
+				double icBest = 0;
+				double icSumCAD = 0;
+				for (int ix : cad.toArray()) {
+					Double ic = getInformationContentForAttribute(ix);
+					//OWLClass c = n.getRepresentativeElement();
+					//Double ic = getInformationContentForAttribute(c);
+					if (ic > icBest) {
+						icBest = ic;
+					}
+					icSumCAD += ic;
+				}
+				tMaxIC += System.nanoTime() - t;
+				if (icBest > maxMaxIC) {
+					maxMaxIC = icBest;
+				}
+				if (icBest <= minMaxIC) {
+					//LOG.info("maxIC too low : "+icBest);
+					continue;
+				}
+				s.maxIC = icBest;
+				//LOG.info("computing simGIC");
+
+				// SIMGIC
+				t = System.nanoTime();
+				EWAHCompressedBitmap cud = searchProfileBM.or(jAttsBM);
+				double icSumCUD = 0;
+				for (int ix : cud.toArray()) {
+					Double ic = getInformationContentForAttribute(ix);
+					icSumCUD += ic;
+				}
+				s.simGIC = icSumCAD / icSumCUD;
+				tSimGIC += System.nanoTime() - t;
+
+				// BEST MATCHES
+				t = System.nanoTime();
+				Vector<OWLClass> dsetV = new Vector<OWLClass>(atts.size());
+				if (isSelf) {
+					dsetV = csetV;
+				}
+				else {
+					for (OWLClass d : this.getAttributesForElement(j)) {
+						dsetV.add(d);
+					}
+				}
+				populateSimilarityMatrix(csetV, dsetV, s);
+				if (s.bmaSymIC > maxBMA) {
+					maxBMA = s.bmaAsymIC;
+				}
+				tBMA += System.nanoTime() - t;
 
-			// BEST MATCHES
-			t = System.currentTimeMillis();
-			Vector<OWLClass> dsetV = new Vector<OWLClass>(atts.size());
-			if (isSelf) {
-				dsetV = csetV;
-			}
-			else {
-				for (OWLClass d : this.getAttributesForElement(j)) {
-					dsetV.add(d);
+				if (!isSelf) {
+					scoreSets.add(s);
 				}
 			}
-			populateSimilarityMatrix(csetV, dsetV, s);
-			if (s.bmaSymIC > maxBMA) {
-				maxBMA = s.bmaAsymIC;
-			}
-			tBMA += tdelta(t);
-			nBMA++;
-
-			if (!isSelf) {
-				scoreSets.add(s);
+			// calculate combined/phenodigm score
+			LOG.info("|Scored|=" + scoreSets.size());
+			calculateCombinedScores(scoreSets, maxMaxIC, maxBMA);
+			LOG.info("tSearch = "+search.stop() / 1000000 +" / "+nSimJ);
+			LOG.info("Sorting "+scoreSets.size()+" matches");
+			Collections.sort(scoreSets);
+			for (int i = 0; i < scoreSets.size(); i++) {
+				scoreSets.get(i).rank = i;
 			}
+			return scoreSets;
 		}
-		// calculate combined/phenodigm score
-		LOG.info("tBMA = "+tBMA + " / " +nBMA);
-		LOG.info("tSimJ = "+tSimJ +" / "+nSimJ);
-		LOG.info("tMaxIC = "+tMaxIC +" / "+nMaxIC);
-		LOG.info("|Scored|=" + scoreSets.size());
-		calculateCombinedScores(scoreSets, maxMaxIC, maxBMA);
-		LOG.info("tSearch = "+tdelta(startTime) +" / "+nSimJ);
-		LOG.info("Sorting "+scoreSets.size()+" matches");
-		Collections.sort(scoreSets);
-		for (int i = 0; i < scoreSets.size(); i++) {
-			scoreSets.get(i).rank = i;
+		finally {
+			search.stop();
+			TIMER_MATCH_SIMJ.update(tSimJ);
+			TIMER_MATCH_MAXIC.update(tMaxIC);
+			TIMER_MATCH_SIMGIC.update(tSimGIC);
+			TIMER_MATCH_BMA.update(tBMA);
 		}
-		return scoreSets;
 	}
 
 	public List<ElementPairScores> findMatchesRefactored(Set<OWLClass> atts, String targetIdSpace) throws Exception {
@@ -1669,17 +2291,7 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 		ElementPairScores s = new ElementPairScores(null, null);
 
 		// benchmarking
-		long tSimJ = 0;
-		int nSimJ = 0;
-		long tMaxIC = 0;
-		int nMaxIC = 0;
-		long tSimGIC = 0;
-		int nSimGIC = 0;
-		long tBMA = 0;
-		int nBMA = 0;
-		//		long startTime = System.currentTimeMillis();
-
-		long t = System.currentTimeMillis();
+		long t = isPairTiming ? TIMER_MATCH_SIMJ.start() : 0;
 
 		// SIMJ
 		double simJPct = computeSimJwithBM(iAttsBM, jAttsBM);
@@ -1690,14 +2302,8 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 		s.simjScore = simJPct / (double) 100;
 
 		//benchmarking
-		nSimJ++;
-		tSimJ += tdelta(t);
-
-		if (nSimJ % 100 == 0) {
-			LOG.info("tSimJ = "+tSimJ +" / "+nSimJ);
-			LOG.info("tMaxIC = "+tMaxIC +" / "+nMaxIC);
-			LOG.info("tSimGIC = "+tSimGIC +" / "+nSimGIC);
-			LOG.info("tBMA = "+tBMA +" / "+nBMA);
+		if (isPairTiming) {
+			TIMER_MATCH_SIMJ.stop(t);
 		}
 
 		EWAHCompressedBitmap cad = iAttsBM.and(jAttsBM);
@@ -1712,7 +2318,7 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 		// TODO - evaluate if this is optimal;
 		// MaxIC falls out of BMA calculation, but it may be useful
 		// to calculate here to test if more expensive AxA is required
-		t = System.currentTimeMillis();
+		t = isPairTiming ? TIMER_MATCH_MAXIC.start() : 0;
 
 		double icBest = 0;
 		double icSumCAD = 0;
@@ -1725,8 +2331,9 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 			}
 			icSumCAD += ic;
 		}
-		tMaxIC += tdelta(t);
-		nMaxIC++;
+		if (isPairTiming) {
+			TIMER_MATCH_MAXIC.stop(t);
+		}
 
 		if (icBest < minMaxIC) {
 			throw new CutoffException("minMaxIC",minMaxIC,icBest);
@@ -1734,7 +2341,7 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 		s.maxIC = icBest;
 
 		// SIMGIC
-		t = System.currentTimeMillis();
+		t = isPairTiming ? TIMER_MATCH_SIMGIC.start() : 0;
 		EWAHCompressedBitmap cud = iAttsBM.or(jAttsBM);
 		double icSumCUD = 0;
 		for (int ix : cud.toArray()) {
@@ -1742,13 +2349,9 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 			icSumCUD += ic;
 		}
 		s.simGIC = icSumCAD / icSumCUD;
-		tSimGIC += tdelta(t);
-		nSimGIC++;
-
-		// BEST MATCHES
-		t = System.currentTimeMillis();
-		tBMA += tdelta(t);
-		nBMA++;
+		if (isPairTiming) {
+			TIMER_MATCH_SIMGIC.stop(t);
+		}
 
 		return s;
 	}
@@ -1792,6 +2395,72 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 	}
 
 
+	/**
+	 * Batch version of {@link #getGroupwiseSimilarity(OWLNamedIndividual, OWLNamedIndividual)},
+	 * the bitmap and attribute vector of i are only retrieved once.
+	 */
+	@Override
+	protected List<ElementPairScores> getGroupwiseSimilarity(OWLNamedIndividual i, List<OWLNamedIndividual> js) throws Exception {
+		List<ElementPairScores> scores = new ArrayList<ElementPairScores>(js.size());
+		EWAHCompressedBitmap bmi = ancsBitmapCachedModifiable(i);
+		Vector<OWLClass> cs = new Vector<OWLClass>(getAttributesForElement(i));
+		for (OWLNamedIndividual j : js) {
+			EWAHCompressedBitmap bmj = ancsBitmapCachedModifiable(j);
+			ElementPairScores s = new ElementPairScores(i, j);
+			int cadSize = bmi.andCardinality(bmj);
+			s.simjScore = cadSize / (double) bmi.orCardinality(bmj);
+			if (s.simjScore.isNaN()) {
+				throw new NoElementAttributeMapException();
+			}
+			s.asymmetricSimjScore = cadSize / (double) bmj.cardinality();
+			s.inverseAsymmetricSimjScore = cadSize / (double) bmi.cardinality();
+
+			Vector<OWLClass> ds = new Vector<OWLClass>(getAttributesForElement(j));
+			populateSimilarityMatrix(cs, ds, s);
+
+			s.simGIC = getGraphInformationContentSimilarity(bmi, bmj);
+			s.combinedScore = (int) (s.simGIC * 100); // default
+			scores.add(s);
+		}
+		return scores;
+	}
+
+	@Override
+	protected boolean isConcurrentScoringSupported() {
+		return true;
+	}
+
+	/**
+	 * Populates the class and element bitmaps, the IC array and allocates the
+	 * LCS cache. After this, scoring only reads the caches, except for the
+	 * LCS cache, which is only filled with deterministic values.
+	 */
+	@Override
+	protected void prepareConcurrentScoring() throws UnknownOWLClassException {
+		long t = System.currentTimeMillis();
+		if (elementToDirectAttributesMap == null) {
+			createElementAttributeMapFromOntology();
+		}
+		for (int cix = 0; cix < classArray.length; cix++) {
+			if (classArray[cix] == null) {
+				// unused slot, if owl:Thing is part of the class set
+				continue;
+			}
+			ancsBitmapCachedModifiable(cix);
+			ancsProperBitmapCachedModifiable(classArray[cix]);
+			getInformationContentForAttribute(cix);
+		}
+		for (OWLNamedIndividual i : getAllElements()) {
+			ancsBitmapCachedModifiable(i);
+		}
+		if (!isDisableLCSCache && ciPairLCS == null) {
+			int size = classArray.length;
+			LOG.info("Creating 2D cache of "+size+" * "+size);
+			ciPairLCS = new int[size][size];
+		}
+		LOG.info("Prepared caches for concurrent scoring in "+tdelta(t)+" ms");
+	}
+
 	public ElementPairScores getGroupwiseSimilarity(Set<OWLClass> atts, OWLNamedIndividual j) throws Exception {
 		double minSimJPct = 
 				getPropertyAsDouble(SimConfigurationProperty.minimumSimJ, 0.05) * 100;
@@ -2056,16 +2725,16 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 			}
 		}
 
-		// We assume ciPairIsCached is populated
-		for ( int cix = 0; cix< ciPairIsCached.length; cix++) {
-			boolean[] arr = ciPairIsCached[cix];
+		// We assume ciPairLCS is populated
+		for ( int cix = 0; cix< ciPairLCS.length; cix++) {
+			int[] arr = ciPairLCS[cix];
 			OWLClass c = classArray[cix];
 			for ( int dix = 0; dix< arr.length; dix++) {
 				// cix is always <= dix
 				if (cix > dix)
 					continue;
-				if (arr[dix]) {
-					int lcsix = ciPairLCS[cix][dix];
+				if (arr[dix] != 0) {
+					int lcsix = arr[dix] - 1;
 					Double s = icClassArray[lcsix];
 					if (s == null || s.isNaN() || s.isInfinite()) {
 						throw new IOException("No IC for "+classArray[lcsix]);
@@ -2134,10 +2803,9 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 				dix = temp;
 			}
 
-			ciPairIsCached[cix][dix] = true;
 			//ciPairScaledScore[cix][dix] = (short)(Double.valueOf(vals[2]) * scaleFactor);
 			// TODO - set all IC caches
-			ciPairLCS[cix][dix] = aix;
+			ciPairLCS[cix][dix] = aix + 1;
 		}
 		s.close();
 		LOG.info("Finished loading LCS cache from "+fileName);
@@ -2172,7 +2840,6 @@ public class FastOwlSim extends AbstractOwlSim implements OwlSim {
 		}
 		ciPairLCS = new int[classArray.length][classArray.length];
 		//ciPairScaledScore = new short[classArray.length][classArray.length];
-		ciPairIsCached = new boolean[classArray.length][classArray.length];		
 	}
 
 	@Override
@@ -4,9 +4,48 @@ import org.semanticweb.owlapi.model.OWLOntology;
 
 public class FastOwlSimFactory implements OwlSimFactory {
 
+	private int numThreads = 1;
+	private boolean isPairTiming = false;
+
+	public FastOwlSimFactory() {
+		super();
+	}
+
+	/**
+	 * @param numThreads number of threads used for the initialization
+	 * @see FastOwlSim#setNumThreads(int)
+	 */
+	public FastOwlSimFactory(int numThreads) {
+		super();
+		this.numThreads = numThreads;
+	}
+
 	@Override
 	public OwlSim createOwlSim(OWLOntology o) {
-		return new FastOwlSim(o);
+		FastOwlSim owlsim = new FastOwlSim(o);
+		owlsim.setNumThreads(numThreads);
+		owlsim.setPairTiming(isPairTiming);
+		return owlsim;
+	}
+
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
+	public boolean isPairTiming() {
+		return isPairTiming;
+	}
+
+	/**
+	 * @param isPairTiming
+	 * @see OwlSim#setPairTiming(boolean)
+	 */
+	public void setPairTiming(boolean isPairTiming) {
+		this.isPairTiming = isPairTiming;
 	}
 	
 }
@@ -3,6 +3,7 @@ package owltools.sim2;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -23,6 +24,7 @@ import owltools.sim2.FastOwlSim.ClassCount;
 import owltools.sim2.SimpleOwlSim.Direction;
 import owltools.sim2.SimpleOwlSim.Metric;
 import owltools.sim2.SimpleOwlSim.SimConfigurationProperty;
+import owltools.sim2.io.SimResultRenderer;
 import owltools.sim2.io.SimResultRenderer.AttributesSimScores;
 import owltools.sim2.scores.AttributePairScores;
 import owltools.sim2.scores.ElementPairScores;
@@ -756,6 +758,23 @@ public interface OwlSim {
 	public List<ElementPairScores> findMatches(OWLNamedIndividual i, String targetIdSpace, double minSimJPct, double minMaxIC) throws Exception;
 
 	public List<ElementPairScores> findMatchesWithin(OWLNamedIndividual i, Set<OWLNamedIndividual> candidateTargets) throws Exception;
+
+	/**
+	 * Compare all pairs {@code (i,j)} provided by the iterator, see
+	 * {@link #getGroupwiseSimilarity(OWLNamedIndividual, OWLNamedIndividual)}.
+	 * <p>The pairs are read in chunks and grouped by {@code i}, so that the
+	 * profile of {@code i} is re-used for all its pairs; sorting the input by
+	 * {@code i} maximizes this re-use. If supported by the implementation, the
+	 * groups are scored using {@code numThreads} workers.</p>
+	 * <p>The scores are passed to the renderer in the order of the groups.</p>
+	 * 
+	 * @param pairs
+	 * @param renderer - may be null
+	 * @param numThreads
+	 * @return number of scored pairs
+	 * @throws Exception
+	 */
+	public long scorePairs(Iterator<ElementPair> pairs, SimResultRenderer renderer, int numThreads) throws Exception;
 	
 	/**
 	 * Resnick similarity measure, together with all LCSs (MICAs) that
@@ -959,6 +978,15 @@ public interface OwlSim {
 	 */
 	public void setDisableLCSCache(boolean isDisableLCSCache);
 
+	/**
+	 * If set, the time of each LCS, GIC and match computation is recorded
+	 * in the shared metrics registry. Off by default, as these timers are
+	 * updated by all scoring threads.
+	 * 
+	 * @param isPairTiming
+	 */
+	public void setPairTiming(boolean isPairTiming);
+
 
 	/**
 	 * call when owlsim object is no longer required
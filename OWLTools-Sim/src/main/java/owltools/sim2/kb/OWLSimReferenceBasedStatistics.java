@@ -1,11 +1,14 @@
 package owltools.sim2.kb;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.apache.log4j.Logger;
@@ -19,6 +22,9 @@ import owltools.graph.OWLGraphWrapper;
 import owltools.sim2.OwlSim;
 import owltools.sim2.UnknownOWLClassException;
 
+import com.googlecode.javaewah.EWAHCompressedBitmap;
+import com.googlecode.javaewah.IntIterator;
+
 public class OWLSimReferenceBasedStatistics {
 
 	private Logger LOG = Logger.getLogger(OwlSimVariance.class);
@@ -27,7 +33,19 @@ public class OWLSimReferenceBasedStatistics {
 	private OWLOntology sourceOntology;
 	private OWLGraphWrapper ontologyGraph;
 	
-	private Map<IRI, DescriptiveStatistics> referenceStats;
+	private Map<IRI, ReferenceICStatistics> referenceStats;
+
+	// dense index over all attributes used by any reference entity
+	private Map<OWLClass, Integer> attributeIndex;
+	// IC per attribute index, NaN for unknown classes
+	private double[] attributeIC;
+	// attributes of a reference entity as bitmap over the attribute index
+	private Map<IRI, EWAHCompressedBitmap> referenceAttributeBitmaps;
+
+	// caches for top level category queries, shared between queries and threads
+	private final ConcurrentMap<OWLClass, Map<IRI, OWLClass>> descendantsCache = new ConcurrentHashMap<OWLClass, Map<IRI, OWLClass>>();
+	private final ConcurrentMap<OWLClass, EWAHCompressedBitmap> categoryBitmaps = new ConcurrentHashMap<OWLClass, EWAHCompressedBitmap>();
+	private final ConcurrentMap<IRI, ConcurrentMap<IRI, ReferenceICStatistics>> referenceCategoryStats = new ConcurrentHashMap<IRI, ConcurrentMap<IRI, ReferenceICStatistics>>();
 
 	/**
 	 * Assuming owlsim, ontologyGraph and sourceOntology objects already initialized
@@ -38,18 +56,59 @@ public class OWLSimReferenceBasedStatistics {
 		this.sourceOntology = sourceOntology;
 		this.ontologyGraph = ontologyGraph;
 		
-		referenceStats = new HashMap<IRI, DescriptiveStatistics>();
+		referenceStats = new HashMap<IRI, ReferenceICStatistics>();
 		computeReferenceStats();
 	}
 
 	private void computeReferenceStats() throws UnknownOWLClassException {
 		LOG.info("Computing variance for reference entities ...");
 
+		attributeIndex = new HashMap<OWLClass, Integer>();
+		referenceAttributeBitmaps = new HashMap<IRI, EWAHCompressedBitmap>();
+		List<Double> icList = new ArrayList<Double>();
+
 		// Compute and cache raw stats for all possible reference entities / disorders
 		for (OWLNamedIndividual reference : sourceOntology.getIndividualsInSignature()) {
-			DescriptiveStatistics stats = this.computeDescriptiveStatistics(reference);
-			referenceStats.put(reference.getIRI(), stats);
+			Set<OWLClass> atts = owlsim.getAttributesForElement(reference);
+			List<Integer> bits = new ArrayList<Integer>(atts.size());
+			double[] values = new double[atts.size()];
+			int n = 0;
+			for (OWLClass c : atts) {
+				Integer ix = attributeIndex.get(c);
+				if (ix == null) {
+					ix = attributeIndex.size();
+					attributeIndex.put(c, ix);
+					icList.add(computeAttributeIC(c, sourceOntology.getOWLOntologyManager().getOWLDataFactory()));
+				}
+				bits.add(ix);
+				double ic = icList.get(ix).doubleValue();
+				if (!Double.isNaN(ic)) {
+					values[n++] = ic;
+				}
+			}
+			referenceStats.put(reference.getIRI(), new ReferenceICStatistics(values, n));
+			referenceAttributeBitmaps.put(reference.getIRI(), convertIntsToBitmap(bits));
+		}
+
+		attributeIC = new double[icList.size()];
+		for (int i = 0; i < attributeIC.length; i++) {
+			attributeIC[i] = icList.get(i).doubleValue();
+		}
+		LOG.info("Indexed "+attributeIC.length+" attributes for "+referenceStats.size()+" reference entities");
+	}
+
+	private static EWAHCompressedBitmap convertIntsToBitmap(List<Integer> bits) {
+		// EWAH requires the bits to be set in ascending order
+		Collections.sort(bits);
+		EWAHCompressedBitmap bm = new EWAHCompressedBitmap();
+		int last = -1;
+		for (Integer i : bits) {
+			if (i.intValue() != last) {
+				bm.set(i.intValue());
+				last = i.intValue();
+			}
 		}
+		return bm;
 	}
 
 	protected Set<OWLClass> getAttributes(IRI referenceEntity) throws UnknownOWLClassException {
@@ -67,32 +126,138 @@ public class OWLSimReferenceBasedStatistics {
 		OWLDataFactory g = sourceOntology.getOWLOntologyManager().getOWLDataFactory();
 
 		for (OWLClass c : attributes) {
-			Double ic;
-			try {
-				ic = owlsim.getInformationContentForAttribute(c);
-				if (ic == null) { 
-					if (g.getOWLClass(c.getIRI()) != null) {
-						ic = owlsim.getSummaryStatistics().max.getMax();
-					} else {
-						throw new UnknownOWLClassException(c); }
-				}
-				if (ic.isInfinite() || ic.isNaN()) {
-					ic = owlsim.getSummaryStatistics().max.getMax();
-				}
-				statsPerAttSet.addValue(ic);	
-
-			} catch (UnknownOWLClassException e) {
-				LOG.info("Unknown class "+c.toStringID()+" submitted for summary stats. Removed from calculation.");
-				continue;
+			double ic = computeAttributeIC(c, g);
+			if (!Double.isNaN(ic)) {
+				statsPerAttSet.addValue(ic);
 			}
 		}
 		return statsPerAttSet;
 	}	
 
-	protected Map<IRI, DescriptiveStatistics> getReferenceStats() {
+	/**
+	 * @param c
+	 * @param g
+	 * @return IC for the attribute or NaN, if the class is unknown
+	 */
+	private double computeAttributeIC(OWLClass c, OWLDataFactory g) {
+		Double ic;
+		try {
+			ic = owlsim.getInformationContentForAttribute(c);
+			if (ic == null) { 
+				if (g.getOWLClass(c.getIRI()) != null) {
+					ic = owlsim.getSummaryStatistics().max.getMax();
+				} else {
+					throw new UnknownOWLClassException(c); }
+			}
+			if (ic.isInfinite() || ic.isNaN()) {
+				ic = owlsim.getSummaryStatistics().max.getMax();
+			}
+			return ic.doubleValue();
+		} catch (UnknownOWLClassException e) {
+			LOG.info("Unknown class "+c.toStringID()+" submitted for summary stats. Removed from calculation.");
+			return Double.NaN;
+		}
+	}
+
+	protected Map<IRI, ReferenceICStatistics> getReferenceStats() {
 		return referenceStats;
 	}
 
+	/**
+	 * Retrieve the IC statistics for the attributes of the reference entity,
+	 * which are in the given top level category. The result is computed using
+	 * the attribute bitmaps and cached for subsequent queries.
+	 * 
+	 * @param referenceEntity
+	 * @param topLevelReferenceEntity
+	 * @return statistics, never null, but may be empty
+	 */
+	protected ReferenceICStatistics getReferenceStats(IRI referenceEntity, OWLClass topLevelReferenceEntity) {
+		ConcurrentMap<IRI, ReferenceICStatistics> perCategory = referenceCategoryStats.get(referenceEntity);
+		if (perCategory == null) {
+			perCategory = new ConcurrentHashMap<IRI, ReferenceICStatistics>();
+			ConcurrentMap<IRI, ReferenceICStatistics> prev = referenceCategoryStats.putIfAbsent(referenceEntity, perCategory);
+			if (prev != null) {
+				perCategory = prev;
+			}
+		}
+		ReferenceICStatistics stats = perCategory.get(topLevelReferenceEntity.getIRI());
+		if (stats == null) {
+			EWAHCompressedBitmap referenceBitmap = referenceAttributeBitmaps.get(referenceEntity);
+			EWAHCompressedBitmap subset = referenceBitmap.and(getCategoryBitmap(topLevelReferenceEntity));
+			double[] values = new double[subset.cardinality()];
+			int n = 0;
+			IntIterator it = subset.intIterator();
+			while (it.hasNext()) {
+				double ic = attributeIC[it.next()];
+				if (!Double.isNaN(ic)) {
+					values[n++] = ic;
+				}
+			}
+			stats = new ReferenceICStatistics(values, n);
+			perCategory.put(topLevelReferenceEntity.getIRI(), stats);
+		}
+		return stats;
+	}
+
+	private EWAHCompressedBitmap getCategoryBitmap(OWLClass topLevelReferenceEntity) {
+		EWAHCompressedBitmap bm = categoryBitmaps.get(topLevelReferenceEntity);
+		if (bm == null) {
+			List<Integer> bits = new ArrayList<Integer>();
+			for (OWLClass sub : getDescendants(topLevelReferenceEntity).values()) {
+				Integer ix = attributeIndex.get(sub);
+				if (ix != null) {
+					bits.add(ix);
+				}
+			}
+			bm = convertIntsToBitmap(bits);
+			categoryBitmaps.putIfAbsent(topLevelReferenceEntity, bm);
+		}
+		return bm;
+	}
+
+	/**
+	 * Pre-compute the per category statistics for all reference entities. This
+	 * is optional, as the statistics are otherwise computed on first access.
+	 * 
+	 * @param topLevelReferenceEntities
+	 */
+	public void precomputeReferenceStats(Set<OWLClass> topLevelReferenceEntities) {
+		LOG.info("Pre-computing IC statistics for "+referenceStats.size()+" reference entities and "+topLevelReferenceEntities.size()+" categories");
+		long t = System.currentTimeMillis();
+		for (IRI referenceEntity : referenceStats.keySet()) {
+			for (OWLClass topLevelReferenceEntity : topLevelReferenceEntities) {
+				getReferenceStats(referenceEntity, topLevelReferenceEntity);
+			}
+		}
+		LOG.info("Done pre-computing IC statistics in "+(System.currentTimeMillis() - t)+" ms");
+	}
+
+	/**
+	 * Split the candidates into the subsets of the top level categories,
+	 * empty subsets are omitted.
+	 * 
+	 * @param candidates
+	 * @param topLevelReferenceEntities
+	 * @return map of top level category to candidate subset
+	 */
+	protected Map<OWLClass, Set<OWLClass>> getCandidateSubsets(Set<OWLClass> candidates, Set<OWLClass> topLevelReferenceEntities) {
+		Map<OWLClass, Set<OWLClass>> result = new HashMap<OWLClass, Set<OWLClass>>();
+		for (OWLClass topLevelReferenceEntity : topLevelReferenceEntities) {
+			Map<IRI, OWLClass> actualSubClasses = getDescendants(topLevelReferenceEntity);
+			Set<OWLClass> candidateSubset = new HashSet<OWLClass>();
+			for (OWLClass cls : candidates) {
+				if (actualSubClasses.containsKey(cls.getIRI())) {
+					candidateSubset.add(cls);
+				}
+			}
+			if (!candidateSubset.isEmpty()) {
+				result.put(topLevelReferenceEntity, candidateSubset);
+			}
+		}
+		return result;
+	}
+
 	protected double[] retrieveCandidatesIC(Set<OWLClass> candidates) {
 		List<Double> icList = new ArrayList<Double>();
 
@@ -128,10 +293,19 @@ public class OWLSimReferenceBasedStatistics {
 	protected Map<IRI, Map<IRI, OWLClass>> getDescendants(Set<OWLClass> topLevelReferenceEntities) {
 		Map<IRI, Map<IRI, OWLClass>> result = new HashMap<IRI, Map<IRI,OWLClass>>();
 		for (OWLClass referenceEntity : topLevelReferenceEntities) {
-			result.put(referenceEntity.getIRI(), new SubclassRetriever(referenceEntity, sourceOntology).getSubClasses());
+			result.put(referenceEntity.getIRI(), getDescendants(referenceEntity));
 		}
 		return result;
 	}
+
+	protected Map<IRI, OWLClass> getDescendants(OWLClass topLevelReferenceEntity) {
+		Map<IRI, OWLClass> subClasses = descendantsCache.get(topLevelReferenceEntity);
+		if (subClasses == null) {
+			subClasses = Collections.unmodifiableMap(new SubclassRetriever(topLevelReferenceEntity, sourceOntology).getSubClasses());
+			descendantsCache.putIfAbsent(topLevelReferenceEntity, subClasses);
+		}
+		return subClasses;
+	}
 	
 	public double getVariance(Set<OWLClass> candidates, IRI referenceEntity) throws OwlSimVarianceEntityReferenceNotFoundException, UnknownOWLClassException {
 		return new OwlSimVariance(this).getVarianceValue(candidates, referenceEntity);
@@ -153,6 +327,10 @@ public class OWLSimReferenceBasedStatistics {
 		return new OwlSimPValue(this).getPValue(candidates, referenceEntity, topLevelReferenceEntities);
 	}
 
+	public Map<IRI, Map<IRI, PValue>> getPValues(Set<OWLClass> candidates, Set<IRI> referenceEntities, Set<OWLClass> topLevelReferenceEntities) throws OwlSimVarianceEntityReferenceNotFoundException, UnknownOWLClassException {
+		return new OwlSimPValue(this).getPValues(candidates, referenceEntities, topLevelReferenceEntities);
+	}
+
 	//Sampling rate in IC values - e.g., 0.05
 	public ICDistribution getICDistribution(Set<OWLClass> candidates, IRI referenceEntity, double samplingRate) throws OwlSimVarianceEntityReferenceNotFoundException {
 		if (!referenceStats.containsKey(referenceEntity)) {
@@ -161,7 +339,7 @@ public class OWLSimReferenceBasedStatistics {
 
 		// Create IC list for candidates provided
 		double[] icData = this.retrieveCandidatesIC(candidates);
-		return new ICDistribution(icData, referenceStats.get(referenceEntity), samplingRate);
+		return new ICDistribution(icData, referenceStats.get(referenceEntity).toDescriptiveStatistics(), samplingRate);
 	}
 	
 	public Map<IRI, ICDistribution> getICDistribution(Set<OWLClass> candidates, IRI referenceEntity, Set<OWLClass> topLevelReferenceEntities, double samplingRate) throws OwlSimVarianceEntityReferenceNotFoundException, UnknownOWLClassException {
@@ -170,30 +348,13 @@ public class OWLSimReferenceBasedStatistics {
 		}
 		
 		Map<IRI, ICDistribution> result = new HashMap<IRI, ICDistribution>();
-		Map<IRI, Map<IRI, OWLClass>> subClasses = this.getDescendants(topLevelReferenceEntities);
-		Set<OWLClass> attributes = this.getAttributes(referenceEntity);
+		Map<OWLClass, Set<OWLClass>> candidateSubsets = this.getCandidateSubsets(candidates, topLevelReferenceEntities);
 
-		for (IRI topLevelIRI : subClasses.keySet()) {
-			Map<IRI, OWLClass> actualSubClasses = subClasses.get(topLevelIRI);
-			Set<OWLClass> candidateSubset = new HashSet<OWLClass>();
-			for (OWLClass cls : candidates) {
-				if (actualSubClasses.containsKey(cls.getIRI())) {
-					candidateSubset.add(cls);
-				}
-			}
-			
-			Set<OWLClass> referenceSubset = new HashSet<OWLClass>();
-			for (OWLClass cls : attributes) {
-				if (actualSubClasses.containsKey(cls.getIRI())) {
-					referenceSubset.add(cls);
-				}
-			}
-			
-			if (!candidateSubset.isEmpty() && !referenceSubset.isEmpty()) {
-				double[] icData = this.retrieveCandidatesIC(candidateSubset);
-				DescriptiveStatistics stats = this.computeDescriptiveStatistics(referenceSubset);
-				
-				result.put(topLevelIRI, new ICDistribution(icData, stats, samplingRate));
+		for (OWLClass topLevel : candidateSubsets.keySet()) {
+			ReferenceICStatistics stats = this.getReferenceStats(referenceEntity, topLevel);
+			if (stats.getN() > 0) {
+				double[] icData = this.retrieveCandidatesIC(candidateSubsets.get(topLevel));
+				result.put(topLevel.getIRI(), new ICDistribution(icData, stats.toDescriptiveStatistics(), samplingRate));
 			}
 		}
 
@@ -2,12 +2,11 @@ package owltools.sim2.kb;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.apache.commons.math3.stat.inference.TestUtils;
 import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLClass;
@@ -23,64 +22,81 @@ public class OwlSimPValue {
 	}
 
 	public PValue getPValue(Set<OWLClass> candidates, IRI referenceEntity) throws OwlSimVarianceEntityReferenceNotFoundException {
-		if (!refBasedStats.getReferenceStats().containsKey(referenceEntity)) {
+		ReferenceICStatistics stats = refBasedStats.getReferenceStats().get(referenceEntity);
+		if (stats == null) {
 			throw new OwlSimVarianceEntityReferenceNotFoundException(referenceEntity);
 		}
 
 		// Create IC list for candidates provided
 		double[] icData = refBasedStats.retrieveCandidatesIC(candidates);
-		List<double[]> sets = new ArrayList<double[]>();
-		sets.add(icData);
-		sets.add(refBasedStats.getReferenceStats().get(referenceEntity).getValues());
-
-		return new PValue(TestUtils.tTest(refBasedStats.getReferenceStats().get(referenceEntity).getMean(), icData),
-				TestUtils.oneWayAnovaPValue(sets), 
-				TestUtils.kolmogorovSmirnovStatistic(icData, refBasedStats.getReferenceStats().get(referenceEntity).getValues()));
+		return createPValue(icData, stats);
 	}
 
 	public Map<IRI, PValue> getPValue(Set<OWLClass> candidates,
 			IRI referenceEntity, Set<OWLClass> topLevelReferenceEntities) throws OwlSimVarianceEntityReferenceNotFoundException, UnknownOWLClassException {
-		Map<IRI, PValue> pValueResult = new HashMap<IRI, PValue>();
-		
 		if (!refBasedStats.getReferenceStats().containsKey(referenceEntity)) {
 			throw new OwlSimVarianceEntityReferenceNotFoundException(referenceEntity);
 		}
-		Map<IRI, Map<IRI, OWLClass>> subClasses = refBasedStats.getDescendants(topLevelReferenceEntities);
-		Set<OWLClass> attributes = refBasedStats.getAttributes(referenceEntity);
-
-		for (IRI topLevelIRI : subClasses.keySet()) {
-			Map<IRI, OWLClass> actualSubClasses = subClasses.get(topLevelIRI);
-			Set<OWLClass> candidateSubset = new HashSet<OWLClass>();
-			for (OWLClass cls : candidates) {
-				if (actualSubClasses.containsKey(cls.getIRI())) {
-					candidateSubset.add(cls);
-				}
-			}
-			
-			Set<OWLClass> referenceSubset = new HashSet<OWLClass>();
-			for (OWLClass cls : attributes) {
-				if (actualSubClasses.containsKey(cls.getIRI())) {
-					referenceSubset.add(cls);
-				}
+		Map<OWLClass, double[]> candidateICs = getCandidateICs(candidates, topLevelReferenceEntities);
+		return getPValue(candidateICs, referenceEntity);
+	}
+
+	/**
+	 * Batch version of {@link #getPValue(Set, IRI, Set)}. The candidate
+	 * subsets and their ICs are computed only once for all reference entities.
+	 * 
+	 * @param candidates
+	 * @param referenceEntities
+	 * @param topLevelReferenceEntities
+	 * @return map of reference entity to the p-values per top level category
+	 * @throws OwlSimVarianceEntityReferenceNotFoundException
+	 */
+	public Map<IRI, Map<IRI, PValue>> getPValues(Set<OWLClass> candidates,
+			Set<IRI> referenceEntities, Set<OWLClass> topLevelReferenceEntities) throws OwlSimVarianceEntityReferenceNotFoundException {
+		for (IRI referenceEntity : referenceEntities) {
+			if (!refBasedStats.getReferenceStats().containsKey(referenceEntity)) {
+				throw new OwlSimVarianceEntityReferenceNotFoundException(referenceEntity);
 			}
-			
-			if (!candidateSubset.isEmpty() && !referenceSubset.isEmpty()) {
-				double[] icData = refBasedStats.retrieveCandidatesIC(candidateSubset);
-				DescriptiveStatistics stats = refBasedStats.computeDescriptiveStatistics(referenceSubset);
-				
-				List<double[]> sets = new ArrayList<double[]>();
-				sets.add(icData);
-				sets.add(stats.getValues());
+		}
+		Map<OWLClass, double[]> candidateICs = getCandidateICs(candidates, topLevelReferenceEntities);
+		Map<IRI, Map<IRI, PValue>> result = new HashMap<IRI, Map<IRI, PValue>>();
+		for (IRI referenceEntity : referenceEntities) {
+			result.put(referenceEntity, getPValue(candidateICs, referenceEntity));
+		}
+		return result;
+	}
 
-				pValueResult.put(topLevelIRI, new PValue(TestUtils.tTest(stats.getMean(), icData),
-						TestUtils.oneWayAnovaPValue(sets), 
-						TestUtils.kolmogorovSmirnovStatistic(icData, stats.getValues())));
+	private Map<OWLClass, double[]> getCandidateICs(Set<OWLClass> candidates, Set<OWLClass> topLevelReferenceEntities) {
+		Map<OWLClass, Set<OWLClass>> candidateSubsets = refBasedStats.getCandidateSubsets(candidates, topLevelReferenceEntities);
+		Map<OWLClass, double[]> candidateICs = new HashMap<OWLClass, double[]>();
+		for (Entry<OWLClass, Set<OWLClass>> entry : candidateSubsets.entrySet()) {
+			candidateICs.put(entry.getKey(), refBasedStats.retrieveCandidatesIC(entry.getValue()));
+		}
+		return candidateICs;
+	}
+
+	private Map<IRI, PValue> getPValue(Map<OWLClass, double[]> candidateICs, IRI referenceEntity) {
+		Map<IRI, PValue> pValueResult = new HashMap<IRI, PValue>();
+		for (Entry<OWLClass, double[]> entry : candidateICs.entrySet()) {
+			OWLClass topLevel = entry.getKey();
+			ReferenceICStatistics stats = refBasedStats.getReferenceStats(referenceEntity, topLevel);
+			if (stats.getN() > 0) {
+				pValueResult.put(topLevel.getIRI(), createPValue(entry.getValue(), stats));
 			}
 		}
-		
 		return pValueResult;
 	}
 
+	private PValue createPValue(double[] icData, ReferenceICStatistics stats) {
+		List<double[]> sets = new ArrayList<double[]>();
+		sets.add(icData);
+		sets.add(stats.getValues());
+
+		return new PValue(TestUtils.tTest(stats.getMean(), icData),
+				TestUtils.oneWayAnovaPValue(sets), 
+				TestUtils.kolmogorovSmirnovStatistic(icData, stats.getValues()));
+	}
+
 	/*
 	public Map<IRI, Double> getSimplePValueTopN(Set<OWLClass> candidates, int n) throws OwlSimVarianceEntityReferenceNotFoundException {
 		// Create IC list for candidates provided
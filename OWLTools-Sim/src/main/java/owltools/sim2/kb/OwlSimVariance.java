@@ -3,13 +3,12 @@ package owltools.sim2.kb;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.apache.commons.math3.stat.descriptive.moment.Variance;
 import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLClass;
@@ -38,14 +37,15 @@ public class OwlSimVariance {
 
 	public double getVarianceValue(Set<OWLClass> candidates, IRI referenceEntity) throws OwlSimVarianceEntityReferenceNotFoundException {
 		// Reference entity does not exist - this should probably not happen.
-		if (!refBasedStats.getReferenceStats().containsKey(referenceEntity)) {
+		ReferenceICStatistics stats = refBasedStats.getReferenceStats().get(referenceEntity);
+		if (stats == null) {
 			throw new OwlSimVarianceEntityReferenceNotFoundException(referenceEntity);
 		}
 		
 		// Create IC list for candidates provided
 		double[] icData = refBasedStats.retrieveCandidatesIC(candidates);
 		// Return variance against the given reference concept
-		return new Variance().evaluate(icData, refBasedStats.getReferenceStats().get(referenceEntity).getMean());
+		return new Variance().evaluate(icData, stats.getMean());
 	}
 
 	/**
@@ -57,10 +57,11 @@ public class OwlSimVariance {
 		// Compute variance against all cached reference entities
 		Map<IRI, Double> iResult = new LinkedHashMap<IRI, Double>();
 		List<Double> list = new ArrayList<Double>();
-		for (IRI reference : refBasedStats.getReferenceStats().keySet()) {
-			double variance = new Variance().evaluate(icData, refBasedStats.getReferenceStats().get(reference).getMean());
+		Variance v = new Variance();
+		for (Entry<IRI, ReferenceICStatistics> entry : refBasedStats.getReferenceStats().entrySet()) {
+			double variance = v.evaluate(icData, entry.getValue().getMean());
 			list.add(variance);
-			iResult.put(reference, variance);
+			iResult.put(entry.getKey(), variance);
 		}
 		// Sort variances ascendantly
 		Collections.sort(list);
@@ -99,30 +100,14 @@ public class OwlSimVariance {
 		if (!refBasedStats.getReferenceStats().containsKey(referenceEntity)) {
 			throw new OwlSimVarianceEntityReferenceNotFoundException(referenceEntity);
 		}
-		Map<IRI, Map<IRI, OWLClass>> subClasses = refBasedStats.getDescendants(topLevelReferenceEntities);
-		Set<OWLClass> attributes = refBasedStats.getAttributes(referenceEntity);
+		Map<OWLClass, Set<OWLClass>> candidateSubsets = refBasedStats.getCandidateSubsets(candidates, topLevelReferenceEntities);
 
-		for (IRI topLevelIRI : subClasses.keySet()) {
-			Map<IRI, OWLClass> actualSubClasses = subClasses.get(topLevelIRI);
-			Set<OWLClass> candidateSubset = new HashSet<OWLClass>();
-			for (OWLClass cls : candidates) {
-				if (actualSubClasses.containsKey(cls.getIRI())) {
-					candidateSubset.add(cls);
-				}
-			}
-			
-			Set<OWLClass> referenceSubset = new HashSet<OWLClass>();
-			for (OWLClass cls : attributes) {
-				if (actualSubClasses.containsKey(cls.getIRI())) {
-					referenceSubset.add(cls);
-				}
-			}
-			
-			if (!candidateSubset.isEmpty() && !referenceSubset.isEmpty()) {
-				double[] icData = refBasedStats.retrieveCandidatesIC(candidateSubset);
-				DescriptiveStatistics stats = refBasedStats.computeDescriptiveStatistics(referenceSubset);
+		for (Entry<OWLClass, Set<OWLClass>> entry : candidateSubsets.entrySet()) {
+			ReferenceICStatistics stats = refBasedStats.getReferenceStats(referenceEntity, entry.getKey());
+			if (stats.getN() > 0) {
+				double[] icData = refBasedStats.retrieveCandidatesIC(entry.getValue());
 				double variance = new Variance().evaluate(icData, stats.getMean());
-				varianceResult.put(topLevelIRI, variance);
+				varianceResult.put(entry.getKey().getIRI(), variance);
 			}
 		}
 		
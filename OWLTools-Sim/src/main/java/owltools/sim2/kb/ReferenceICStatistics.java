@@ -0,0 +1,78 @@
+package owltools.sim2.kb;
+
+import java.util.Arrays;
+
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+
+/**
+ * Immutable summary of the IC values of a reference entity (optionally
+ * restricted to a top level category).
+ *
+ * The values are kept as a sorted array together with the pre-computed
+ * moments, so that repeated p-value and variance queries against the same
+ * reference do not need to re-compute or copy them.
+ */
+public class ReferenceICStatistics {
+
+	private final double[] sortedValues;
+	private final double mean;
+	private final double variance;
+
+	public ReferenceICStatistics(double[] values) {
+		this(values, values.length);
+	}
+
+	/**
+	 * @param values
+	 * @param length number of values to use, starting at the first element
+	 */
+	public ReferenceICStatistics(double[] values, int length) {
+		sortedValues = Arrays.copyOf(values, length);
+		Arrays.sort(sortedValues);
+
+		double sum = 0;
+		for (double v : sortedValues) {
+			sum += v;
+		}
+		mean = sortedValues.length > 0 ? sum / sortedValues.length : Double.NaN;
+
+		double sumSq = 0;
+		for (double v : sortedValues) {
+			double d = v - mean;
+			sumSq += d * d;
+		}
+		// bias corrected, same as DescriptiveStatistics.getVariance()
+		if (sortedValues.length > 1) {
+			variance = sumSq / (sortedValues.length - 1);
+		}
+		else if (sortedValues.length == 1) {
+			variance = 0;
+		}
+		else {
+			variance = Double.NaN;
+		}
+	}
+
+	/**
+	 * @return sorted IC values, the returned array must not be modified
+	 */
+	public double[] getValues() {
+		return sortedValues;
+	}
+
+	public int getN() {
+		return sortedValues.length;
+	}
+
+	public double getMean() {
+		return mean;
+	}
+
+	public double getVariance() {
+		return variance;
+	}
+
+	public DescriptiveStatistics toDescriptiveStatistics() {
+		return new DescriptiveStatistics(sortedValues);
+	}
+}
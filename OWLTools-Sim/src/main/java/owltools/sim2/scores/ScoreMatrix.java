@@ -8,6 +8,9 @@ package owltools.sim2.scores;
  * @param <T>
  */
 public class ScoreMatrix<T> {
+	/**
+	 * full matrix; may be null if only the best scores for each row and column were retained
+	 */
 	public T[][] matrix;
 	public T[] bestForC;
 	public T[] bestForD;
@@ -1,17 +1,30 @@
 package owltools.sim2;
 
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
 import org.junit.Test;
 import org.semanticweb.elk.owlapi.ElkReasonerFactory;
+import org.semanticweb.owlapi.model.OWLClass;
 import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.reasoner.OWLReasoner;
 
 import owltools.graph.OWLGraphWrapper;
 import owltools.io.OWLPrettyPrinter;
 import owltools.io.ParserWrapper;
 import owltools.sim2.AbstractOWLSimTest;
+import owltools.sim2.io.SimResultRenderer;
+import owltools.sim2.io.TabularRenderer;
 import owltools.sim2.scores.ElementPairScores;
 
 /**
@@ -62,7 +75,197 @@ public class FindMatchesSimTest extends AbstractOWLSimTest {
 		}
 	}
 
-	
+	@Test
+	public void testScorePairs() throws Exception {
+		ParserWrapper pw = new ParserWrapper();
+		sourceOntol = pw.parseOWL(getResourceIRIString("sim/mp-subset-1.obo"));
+		g =  new OWLGraphWrapper(sourceOntol);
+		parseAssociations(getResource("sim/mgi-gene2mp-subset-1.tbl"), g);
+
+		this.createOwlSim();
+		owlsim.createElementAttributeMapFromOntology();
+
+		List<ElementPair> pairs = new ArrayList<ElementPair>();
+		for (OWLNamedIndividual i : owlsim.getAllElements()) {
+			for (OWLNamedIndividual j : owlsim.getAllElements()) {
+				pairs.add(new ElementPair(i, j));
+			}
+		}
+
+		// expected scores, computed one pair at a time
+		final Map<ElementPair, ElementPairScores> expected = new HashMap<ElementPair, ElementPairScores>();
+		for (ElementPair pair : pairs) {
+			expected.put(pair, owlsim.getGroupwiseSimilarity(pair.getI(), pair.getJ()));
+		}
+
+		for (int numThreads : new int[]{1, 4}) {
+			final List<ElementPairScores> actual = new ArrayList<ElementPairScores>();
+			SimResultRenderer collector = new TabularRenderer(new PrintStream(new ByteArrayOutputStream())) {
+
+				@Override
+				public void printPairScores(ElementPairScores scores) {
+					actual.add(scores);
+				}
+			};
+			long count = owlsim.scorePairs(pairs.iterator(), collector, numThreads);
+			assertEquals(pairs.size(), count);
+			assertEquals(pairs.size(), actual.size());
+			for (ElementPairScores s : actual) {
+				ElementPairScores e = expected.get(new ElementPair(s.i, s.j));
+				assertNotNull(e);
+				assertEquals(e.simjScore, s.simjScore, 0.0001);
+				assertEquals(e.simGIC, s.simGIC, 0.0001);
+				assertEquals(e.maxIC, s.maxIC, 0.0001);
+				assertEquals(e.bmaSymIC, s.bmaSymIC, 0.0001);
+			}
+		}
+	}
+
+	@Test
+	public void testBestMatchAverage() throws Exception {
+		ParserWrapper pw = new ParserWrapper();
+		sourceOntol = pw.parseOWL(getResourceIRIString("sim/mp-subset-1.obo"));
+		g =  new OWLGraphWrapper(sourceOntol);
+		parseAssociations(getResource("sim/mgi-gene2mp-subset-1.tbl"), g);
+
+		this.createOwlSim();
+		owlsim.createElementAttributeMapFromOntology();
+
+		for (OWLNamedIndividual i : owlsim.getAllElements()) {
+			for (OWLNamedIndividual j : owlsim.getAllElements()) {
+				ElementPairScores s = owlsim.getGroupwiseSimilarity(i, j);
+
+				// naive BMA, one LCS per cell
+				double maxIC = 0.0;
+				double totalC = 0.0;
+				for (OWLClass c : s.cs) {
+					double best = 0.0;
+					for (OWLClass d : s.ds) {
+						double score = owlsim.getLowestCommonSubsumerWithIC(c, d).score;
+						best = Math.max(best, score);
+						maxIC = Math.max(maxIC, score);
+					}
+					totalC += best;
+				}
+				double totalD = 0.0;
+				for (OWLClass d : s.ds) {
+					double best = 0.0;
+					for (OWLClass c : s.cs) {
+						best = Math.max(best, owlsim.getLowestCommonSubsumerWithIC(c, d).score);
+					}
+					totalD += best;
+				}
+				assertEquals(maxIC, s.maxIC, 0.0001);
+				assertEquals(totalC / s.cs.size(), s.bmaAsymIC, 0.0001);
+				assertEquals(totalD / s.ds.size(), s.bmaInverseAsymIC, 0.0001);
+				assertEquals((totalC + totalD) / (s.cs.size() + s.ds.size()), s.bmaSymIC, 0.0001);
+				for (int n = 0; n < s.cs.size(); n++) {
+					assertNotNull(s.iclcsMatrix.bestForC[n]);
+				}
+				for (int n = 0; n < s.ds.size(); n++) {
+					assertNotNull(s.iclcsMatrix.bestForD[n]);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testConcurrentInitialization() throws Exception {
+		ParserWrapper pw = new ParserWrapper();
+		sourceOntol = pw.parseOWL(getResourceIRIString("sim/mp-subset-1.obo"));
+		g =  new OWLGraphWrapper(sourceOntol);
+		parseAssociations(getResource("sim/mgi-gene2mp-subset-1.tbl"), g);
+
+		OwlSim sequential = new FastOwlSimFactory().createOwlSim(sourceOntol);
+		sequential.createElementAttributeMapFromOntology();
+		OwlSim concurrent = new FastOwlSimFactory(4).createOwlSim(sourceOntol);
+		concurrent.createElementAttributeMapFromOntology();
+
+		assertEquals(sequential.getAllAttributeClasses(), concurrent.getAllAttributeClasses());
+		for (OWLClass c : sequential.getAllAttributeClasses()) {
+			assertEquals(sequential.getNumElementsForAttribute(c), concurrent.getNumElementsForAttribute(c));
+			assertEquals(sequential.getInformationContentForAttribute(c),
+					concurrent.getInformationContentForAttribute(c), 0.0001);
+		}
+		for (OWLNamedIndividual i : sequential.getAllElements()) {
+			for (OWLNamedIndividual j : sequential.getAllElements()) {
+				assertEquals(sequential.getElementJaccardSimilarity(i, j),
+						concurrent.getElementJaccardSimilarity(i, j), 0.0001);
+				assertEquals(sequential.getElementGraphInformationContentSimilarity(i, j),
+						concurrent.getElementGraphInformationContentSimilarity(i, j), 0.0001);
+			}
+		}
+	}
+
+	@Test
+	public void testIncrementalUpdate() throws Exception {
+		ParserWrapper pw = new ParserWrapper();
+		sourceOntol = pw.parseOWL(getResourceIRIString("sim/mp-subset-1.obo"));
+		g =  new OWLGraphWrapper(sourceOntol);
+		parseAssociations(getResource("sim/mgi-gene2mp-subset-1.tbl"), g);
+
+		FastOwlSim live = new FastOwlSim(sourceOntol);
+		live.createElementAttributeMapFromOntology();
+		OWLNamedIndividual e = null;
+		for (OWLNamedIndividual i : live.getAllElements()) {
+			if (e == null || i.compareTo(e) < 0) {
+				e = i;
+			}
+		}
+		Set<OWLClass> atts = live.getAttributesForElement(e);
+
+		// remove, and compare with an owlsim built without the element
+		assertTrue(live.removeElement(e));
+		assertFalse(live.removeElement(e));
+		OWLOntology reducedOntol = new ParserWrapper().parseOWL(getResourceIRIString("sim/mp-subset-1.obo"));
+		parseAssociations(getResource("sim/mgi-gene2mp-subset-1.tbl"), new OWLGraphWrapper(reducedOntol));
+		reducedOntol.getOWLOntologyManager().removeAxioms(reducedOntol, reducedOntol.getReferencingAxioms(e));
+		FastOwlSim reduced = new FastOwlSim(reducedOntol);
+		reduced.createElementAttributeMapFromOntology();
+		assertSameScores(reduced, live);
 
+		// add back, and compare with an owlsim built from the original ontology
+		live.addElement(e, atts);
+		FastOwlSim full = new FastOwlSim(sourceOntol);
+		full.createElementAttributeMapFromOntology();
+		assertEquals(full.getAttributesForElement(e), live.getAttributesForElement(e));
+		assertSameScores(full, live);
+
+		// batch update, with the ICs refreshed once
+		live.setMaxStaleElementUpdates(-1);
+		live.removeElement(e);
+		assertEquals(1, live.getNumStaleElementUpdates());
+		live.setMaxStaleElementUpdates(0);
+		live.addElements(Collections.singletonMap(e, atts));
+		assertEquals(0, live.getNumStaleElementUpdates());
+		assertSameScores(full, live);
+
+		// a rebuild discards the incremental state
+		live.removeElement(e);
+		live.createElementAttributeMapFromOntology();
+		assertEquals(0, live.getNumStaleElementUpdates());
+		assertSameScores(full, live);
+	}
+
+	private void assertSameScores(FastOwlSim expected, FastOwlSim actual) throws Exception {
+		assertEquals(expected.getAllElements(), actual.getAllElements());
+		for (OWLClass c : expected.getAllAttributeClasses()) {
+			assertEquals(expected.getNumElementsForAttribute(c), actual.getNumElementsForAttribute(c));
+			assertEquals(expected.getElementsForAttribute(c), actual.getElementsForAttribute(c));
+			assertEquals(expected.getInformationContentForAttribute(c),
+					actual.getInformationContentForAttribute(c), 0.0001);
+		}
+		for (OWLNamedIndividual i : expected.getAllElements()) {
+			for (OWLNamedIndividual j : expected.getAllElements()) {
+				assertEquals(expected.getElementJaccardSimilarity(i, j),
+						actual.getElementJaccardSimilarity(i, j), 0.0001);
+				ElementPairScores es = expected.getGroupwiseSimilarity(i, j);
+				ElementPairScores as = actual.getGroupwiseSimilarity(i, j);
+				assertEquals(es.simGIC, as.simGIC, 0.0001);
+				assertEquals(es.maxIC, as.maxIC, 0.0001);
+				assertEquals(es.bmaSymIC, as.bmaSymIC, 0.0001);
+			}
+		}
+	}
 
 }
@@ -1,6 +1,10 @@
 package owltools.sim2;
 
+import static org.junit.Assert.*;
+
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
@@ -103,4 +107,41 @@ public class OwlSimVarianceTest extends AbstractOWLSimTest {
 		LOG.info(pValue.getSimplePValue());
 
 	}
+
+	@Test
+	public void testPValueTopLevel() throws Exception {
+		ParserWrapper pw = new ParserWrapper();
+		sourceOntol = pw.parseOBO(getResource("sim/mp-subset-1.obo").getAbsolutePath());
+		g =  new OWLGraphWrapper(sourceOntol);
+		parseAssociations(getResource("sim/mgi-gene2mp-subset-1.tbl"), g);
+
+		owlsim = owlSimFactory.createOwlSim(sourceOntol);
+		owlsim.createElementAttributeMapFromOntology();
+		owlsim.computeSystemStats();
+
+		OWLSimReferenceBasedStatistics refBasedStats = new OWLSimReferenceBasedStatistics(owlsim, sourceOntol, g);
+
+		// use the root, as the t-test requires at least two values per category
+		Set<OWLClass> topLevel = Collections.singleton(getOBOClass("MP:0000001"));
+		refBasedStats.precomputeReferenceStats(topLevel);
+
+		IRI iri = IRI.create("http://purl.obolibrary.org/obo/MGI_101761");
+		String[] testClasses = new String[] {"MP:0002758", "MP:0002772", "MP:0005448", "MP:0003660"};
+		Set<OWLClass> testClassesSet = new HashSet<OWLClass>();
+		for (String testClass : testClasses) {
+			testClassesSet.add(this.getOBOClass(testClass));
+		}
+
+		Map<IRI, PValue> pValues = refBasedStats.getPValue(testClassesSet, iri, topLevel);
+		assertFalse(pValues.isEmpty());
+
+		// batch results must be identical to the single query
+		Map<IRI, Map<IRI, PValue>> batch = refBasedStats.getPValues(testClassesSet, Collections.singleton(iri), topLevel);
+		Map<IRI, PValue> batchPValues = batch.get(iri);
+		assertEquals(pValues.keySet(), batchPValues.keySet());
+		for (IRI category : pValues.keySet()) {
+			LOG.info(category+" "+pValues.get(category).getSimplePValue());
+			assertEquals(pValues.get(category).getSimplePValue(), batchPValues.get(category).getSimplePValue(), 0.000001d);
+		}
+	}
 }
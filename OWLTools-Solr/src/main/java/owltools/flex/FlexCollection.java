@@ -221,14 +221,56 @@ public class FlexCollection implements Iterable<FlexDocument> {
 		return cls_doc;
 	}
 
-	@Override
-	public Iterator<FlexDocument> iterator() {
-		final StopWatch timer = new StopWatch();
+	/**
+	 * Render the segment and lineage shunt graph JSON of all configured
+	 * fields in parallel, before the documents are built.
+	 * 
+	 * @param numThreads
+	 * @throws InterruptedException
+	 * @see OWLGraphWrapper#precomputeShuntGraphJSON
+	 */
+	public void precomputeShuntGraphs(int numThreads) throws InterruptedException {
+		List<GOlrField> shuntFields = new ArrayList<GOlrField>();
+		for( GOlrField field : config.getFields() ){
+			List <String> prop_meth_and_args = field.property;
+			if( prop_meth_and_args == null || prop_meth_and_args.isEmpty() ){
+				continue;
+			}
+			String owlfunction = prop_meth_and_args.get(0);
+			if( "getSegmentShuntGraphJSON".equals(owlfunction) || "getLineageShuntGraphJSON".equals(owlfunction) ){
+				shuntFields.add(field);
+			}
+		}
+		if( shuntFields.isEmpty() ){
+			return;
+		}
+		Set<OWLObject> allOWLObjects = getOWLObjects();
+		// keep the graphs of all fields, not only the last one
+		graph.setShuntGraphJSONCacheSize(shuntFields.size() * allOWLObjects.size());
+		for( GOlrField field : shuntFields ){
+			String owlfunction = field.property.get(0);
+			List<String> fargs = new ArrayList<String>(field.property.subList(1, field.property.size()));
+			if( "getSegmentShuntGraphJSON".equals(owlfunction) ){
+				LOG.info("Precomputing segment shunt graphs for: " + field.id);
+				graph.precomputeShuntGraphJSON(allOWLObjects, fargs, null, numThreads);
+			}else{
+				LOG.info("Precomputing lineage shunt graphs for: " + field.id);
+				graph.precomputeShuntGraphJSON(allOWLObjects, null, fargs, numThreads);
+			}
+		}
+	}
+
+	private Set<OWLObject> getOWLObjects() {
 		Set<OWLObject> blacklist = new HashSet<>();
         blacklist.add(graph.getDataFactory().getOWLThing());
         blacklist.add(graph.getDataFactory().getOWLNothing());
-		Set<OWLObject> allOWLObjects = 
-		        graph.getAllOWLObjects().stream().filter(x -> !blacklist.contains(x)).collect(Collectors.toSet());
+		return graph.getAllOWLObjects().stream().filter(x -> !blacklist.contains(x)).collect(Collectors.toSet());
+	}
+
+	@Override
+	public Iterator<FlexDocument> iterator() {
+		final StopWatch timer = new StopWatch();
+		Set<OWLObject> allOWLObjects = getOWLObjects();
 		final int totalCount = allOWLObjects.size();
 		timer.start();
 		final Iterator<OWLObject> objectIterator = allOWLObjects.iterator();
@@ -46,6 +46,7 @@ public class PANTHERTree {
 	private String[] treeAnns;
 	private Set<String> annotationSet = null;
 	private OWLShuntGraph g = null;
+	private volatile String graphJSON = null;
 	private Map<String,Set<String>> ancestorClosureSet = null;
 	private Map<String,Set<String>> descendantClosureSet = null;
 	private Map<String,String> gpToNodeMap = new HashMap <String,String>();
@@ -380,6 +381,21 @@ public class PANTHERTree {
 		return g;
 	}
 
+	/**
+	 * Return the JSON of the complete OWL shunt graph. The tree graph is
+	 * fixed after construction, so it is only rendered once.
+	 *
+	 * @return JSON string
+	 */
+	public String getOWLShuntGraphJSON(){
+		String json = graphJSON;
+		if( json == null ){
+			json = g.toJSON();
+			graphJSON = json;
+		}
+		return json;
+	}
+
 	/**
 	 * Return the ancestors of this node as an ID set.
 	 * Includes this node.
@@ -17,6 +17,8 @@ import org.semanticweb.owlapi.model.OWLObject;
 import com.google.gson.Gson;
 
 import owltools.graph.OWLGraphWrapper;
+import owltools.profile.MetricsRegistry;
+import owltools.profile.MetricsRegistry.Timer;
 
 /**
  * Root class for loading ontologies or ontology-related data into a Solr instance
@@ -35,6 +37,9 @@ public abstract class AbstractSolrLoader {
 
 	protected OWLGraphWrapper graph;
 
+	// if set, documents are passed on to the submitter instead of the server
+	private BatchingSolrSubmitter submitter = null;
+
 	// We'll need this for serializing in various places.
 	protected Gson gson = new Gson();
 
@@ -47,6 +52,20 @@ public abstract class AbstractSolrLoader {
 		this.graph = graph;
 	}
 
+	public BatchingSolrSubmitter getSubmitter() {
+		return submitter;
+	}
+
+	/**
+	 * Send documents via a shared submitter, instead of adding and
+	 * committing them directly. The submitter is responsible for the commit.
+	 * 
+	 * @param submitter
+	 */
+	public void setSubmitter(BatchingSolrSubmitter submitter) {
+		this.submitter = submitter;
+	}
+
 	public AbstractSolrLoader(SolrServer server) {
 		super();
 		this.server = server;
@@ -163,7 +182,20 @@ public abstract class AbstractSolrLoader {
 	}
 
 	protected void addToServer(Collection<SolrInputDocument> docs) throws SolrServerException, IOException {
-		server.add(docs);
-		server.commit();
+		MetricsRegistry metrics = MetricsRegistry.getInstance();
+		metrics.counter("solr.documents").add(docs.size());
+		Timer timer = metrics.timer("solr.addToServer");
+		long t = timer.start();
+		try {
+			if (submitter != null) {
+				submitter.submit(docs);
+				return;
+			}
+			server.add(docs);
+			server.commit();
+		}
+		finally {
+			timer.stop(t);
+		}
 	}
 }
@@ -0,0 +1,168 @@
+package owltools.solrj;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.log4j.Logger;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.common.SolrInputDocument;
+
+/**
+ * Collects documents from several loaders, possibly running in different
+ * threads, and sends them to a single Solr server in batches from one
+ * dedicated thread.
+ *
+ * The queue is bounded, so producers block if the server can not keep up.
+ * Documents are committed every commit interval and on {@link #close()}.
+ *
+ * @see AbstractSolrLoader#setSubmitter(BatchingSolrSubmitter)
+ */
+public class BatchingSolrSubmitter implements Closeable {
+
+	private static Logger LOG = Logger.getLogger(BatchingSolrSubmitter.class);
+
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	public static final int DEFAULT_COMMIT_INTERVAL = 10000;
+
+	// marks the end of the queue
+	private static final SolrInputDocument END = new SolrInputDocument();
+
+	private final SolrServer server;
+	private final int batchSize;
+	private final int commitInterval;
+	private final BlockingQueue<SolrInputDocument> queue;
+	private final Thread thread;
+
+	private volatile Exception failure = null;
+	private volatile long numSubmitted = 0;
+	private boolean isClosed = false;
+
+	public BatchingSolrSubmitter(SolrServer server) {
+		this(server, DEFAULT_BATCH_SIZE, DEFAULT_COMMIT_INTERVAL);
+	}
+
+	/**
+	 * @param server
+	 * @param batchSize number of documents per add request
+	 * @param commitInterval minimum number of documents between commits
+	 */
+	public BatchingSolrSubmitter(SolrServer server, int batchSize, int commitInterval) {
+		this.server = server;
+		this.batchSize = batchSize;
+		this.commitInterval = commitInterval;
+		this.queue = new LinkedBlockingQueue<SolrInputDocument>(batchSize * 10);
+		this.thread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				drainQueue();
+			}
+		}, "solr-submitter");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Queue the documents for submission.
+	 *
+	 * @param docs
+	 * @throws IOException if a previous submission failed
+	 */
+	public void submit(Collection<SolrInputDocument> docs) throws IOException {
+		checkFailure();
+		try {
+			for (SolrInputDocument doc : docs) {
+				queue.put(doc);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while queueing documents", e);
+		}
+	}
+
+	/**
+	 * @return number of documents sent to the server
+	 */
+	public long getNumSubmitted() {
+		return numSubmitted;
+	}
+
+	/**
+	 * Submit all remaining documents, commit and stop the submitter thread.
+	 *
+	 * @throws IOException if any submission failed
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (isClosed) {
+			return;
+		}
+		isClosed = true;
+		try {
+			queue.put(END);
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for the Solr submitter", e);
+		}
+		checkFailure();
+		LOG.info("Submitted " + numSubmitted + " documents");
+	}
+
+	private void checkFailure() throws IOException {
+		if (failure != null) {
+			throw new IOException("Solr submission failed", failure);
+		}
+	}
+
+	private void drainQueue() {
+		List<SolrInputDocument> batch = new ArrayList<SolrInputDocument>(batchSize);
+		long lastCommit = 0;
+		try {
+			while (true) {
+				SolrInputDocument doc = queue.take();
+				if (doc == END) {
+					break;
+				}
+				batch.add(doc);
+				if (batch.size() >= batchSize) {
+					send(batch);
+					if (numSubmitted - lastCommit >= commitInterval) {
+						server.commit();
+						lastCommit = numSubmitted;
+					}
+				}
+			}
+			send(batch);
+			server.commit();
+		} catch (InterruptedException e) {
+			failure = e;
+		} catch (Exception e) {
+			LOG.error("Could not submit documents", e);
+			failure = e;
+			// unblock producers until the end marker
+			SolrInputDocument doc = null;
+			while (doc != END) {
+				try {
+					doc = queue.take();
+				} catch (InterruptedException e1) {
+					return;
+				}
+			}
+		}
+	}
+
+	private void send(List<SolrInputDocument> batch) throws Exception {
+		if (batch.isEmpty()) {
+			return;
+		}
+		server.add(batch);
+		numSubmitted += batch.size();
+		batch.clear();
+	}
+}
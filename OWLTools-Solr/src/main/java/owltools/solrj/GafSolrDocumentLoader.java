@@ -10,6 +10,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.lang3.StringUtils;
@@ -26,6 +27,7 @@ import owltools.gaf.EcoTools;
 import owltools.gaf.ExtensionExpression;
 import owltools.gaf.GafDocument;
 import owltools.gaf.GeneAnnotation;
+import owltools.gaf.TaxonAncestryTable;
 import owltools.gaf.TaxonTools;
 import owltools.graph.OWLGraphWrapper;
 import owltools.graph.RelationSets;
@@ -45,6 +47,11 @@ public class GafSolrDocumentLoader extends AbstractSolrLoader {
 
 	EcoTools eco = null;
 	TaxonTools taxo = null;
+	TaxonAncestryTable taxonTable = null;
+
+	// evidence closures, valid for one load
+	private final Map<String, List<String>> legacyEcoLabelCache = new ConcurrentHashMap<String, List<String>>();
+	private final Map<String, EcoDetails> ecoDetailsCache = new ConcurrentHashMap<String, EcoDetails>();
 	PANTHERForest pset = null;
 	String taxonSubsetName = "model_slim";
 	String ecoSubsetName = null;
@@ -109,6 +116,11 @@ public class GafSolrDocumentLoader extends AbstractSolrLoader {
 	@Override
 	public void load() throws SolrServerException, IOException {
 		gafDocument.index();
+		legacyEcoLabelCache.clear();
+		ecoDetailsCache.clear();
+		if (taxo != null) {
+			taxonTable = taxo.getAncestryTable(graph, taxonSubsetName);
+		}
 		LOG.info("Iteratively loading: " + gafDocument.getDocumentPath());
 		Collection<Bioentity> bioentities = gafDocument.getBioentities();
 		final int bioentityCount = bioentities.size();
@@ -146,6 +158,18 @@ public class GafSolrDocumentLoader extends AbstractSolrLoader {
 			this.taxId = taxId;
 		}
 
+		private boolean addAncestor(String tid, String tlbl, boolean inSubset) {
+			taxIDClosure.add(tid);
+			taxLabelClosure.add(tlbl);
+			taxonClosureMap.put(tid, tlbl);
+			if (inSubset) {
+				taxSubsetIDClosure.add(tid);
+				taxSubsetLabelClosure.add(tlbl);
+				taxonSubsetClosureMap.put(tid, tlbl);
+			}
+			return inSubset;
+		}
+
 		private void addToSolrDocument(SolrInputDocument bioentity_doc) {
 			bioentity_doc.addField("taxon", taxId);
 
@@ -192,7 +216,6 @@ public class GafSolrDocumentLoader extends AbstractSolrLoader {
 		}
 		String taxonLbl = graph.getLabel(taxCls);
 		details.taxLbl = taxonLbl;
-		Set<OWLClass> taxAncestors = taxo.getAncestors(taxCls, false); // make non-reflexive on purpose
 
 		// Collect information: ids, labels, and mapping for full taxon and subset
 
@@ -203,20 +226,19 @@ public class GafSolrDocumentLoader extends AbstractSolrLoader {
 
 		boolean taxonSubsetUsed = false;
 
-		// handle ancestor closure
-		for( OWLClass ts : taxAncestors ){
-			String tid = graph.getIdentifier(ts);
-			String tlbl = graph.getLabel(ts);
-			details.taxIDClosure.add(tid);
-			details.taxLabelClosure.add(tlbl);
-			details.taxonClosureMap.put(tid, tlbl);
-
-			List<String> subsets = graph.getSubsets(ts);
-			if (taxonSubsetName != null && subsets.contains(taxonSubsetName)) {
-				taxonSubsetUsed = true;
-				details.taxSubsetIDClosure.add(tid);
-				details.taxSubsetLabelClosure.add(tlbl);
-				details.taxonSubsetClosureMap.put(tid, tlbl);
+		// handle ancestor closure, non-reflexive on purpose
+		final int taxonIndex = taxonTable != null ? taxonTable.getIndex(taxCls) : -1;
+		if (taxonIndex >= 0) {
+			final int count = taxonTable.getAncestorCount(taxonIndex);
+			for (int k = 0; k < count; k++) {
+				int a = taxonTable.getAncestor(taxonIndex, k);
+				taxonSubsetUsed |= details.addAncestor(taxonTable.getId(a), taxonTable.getLabel(a), taxonTable.isInSubset(a));
+			}
+		}
+		else {
+			for( OWLClass ts : taxo.getAncestors(taxCls, false) ){
+				boolean inSubset = taxonSubsetName != null && graph.getSubsets(ts).contains(taxonSubsetName);
+				taxonSubsetUsed |= details.addAncestor(graph.getIdentifier(ts), graph.getLabel(ts), inSubset);
 			}
 		}
 
@@ -285,7 +307,7 @@ public class GafSolrDocumentLoader extends AbstractSolrLoader {
 					PANTHERTree ptree = piter.next();
 					pantherFamilyIDs.add(ptree.getPANTHERID());
 					pantherFamilyLabels.add(StringUtils.lowerCase(ptree.getTreeLabel()));
-					pantherTreeGraphs.add(ptree.getOWLShuntGraph().toJSON());
+					pantherTreeGraphs.add(ptree.getOWLShuntGraphJSON());
 					//pantherTreeAnnAncestors = new ArrayList<String>(ptree.getAncestorAnnotations(eid));
 					//pantherTreeAnnDescendants = new ArrayList<String>(ptree.getDescendantAnnotations(eid));
 					if( pcnt > 1 ){ // DEBUG
@@ -626,6 +648,14 @@ public class GafSolrDocumentLoader extends AbstractSolrLoader {
 
 	private void addLegacyEcoDetails(String shortEvidence, SolrInputDocument annotation_doc) {
 		// handle legacy fields
+		annotation_doc.addField("evidence_type", shortEvidence);
+		List<String> labels = shortEvidence != null ? legacyEcoLabelCache.get(shortEvidence) : null;
+		if (labels != null) {
+			if (labels.isEmpty() == false) {
+				annotation_doc.addField("evidence_type_closure", new ArrayList<String>(labels));
+			}
+			return;
+		}
 		Set<OWLClass> ecoClasses = eco.getClassesForGoCode(shortEvidence);
 		Set<OWLClass> ecoSuper = eco.getAncestors(ecoClasses, true);
 		List<String> ecoIDClosure = new ArrayList<String>();
@@ -633,8 +663,56 @@ public class GafSolrDocumentLoader extends AbstractSolrLoader {
 			String itemID = es.toStringID();
 			ecoIDClosure.add(itemID);
 		}
-		annotation_doc.addField("evidence_type", shortEvidence);
-		addLabelFields(annotation_doc, "evidence_type_closure", ecoIDClosure);
+		labels = addLabelFields(annotation_doc, "evidence_type_closure", ecoIDClosure);
+		if (shortEvidence != null) {
+			legacyEcoLabelCache.put(shortEvidence, new ArrayList<String>(labels));
+		}
+	}
+
+	/**
+	 * Helper class to hold the evidence specific information, the same for
+	 * all annotations with the same evidence.
+	 */
+	private static class EcoDetails {
+
+		String ecoId;
+		String ecoLbl;
+
+		// Evidence type closure.
+		final List<String> ecoIDClosure = new ArrayList<String>();
+		final List<String> ecoLabelClosure = new ArrayList<String>();
+		final Map<String,String> ecoClosureMap = new HashMap<String,String>();
+		String ecoClosureMapJson = null;
+
+		// subset reflexive closure
+		final List<String> ecoSubsetIDClosure = new ArrayList<String>();
+		final List<String> ecoSubsetLabelClosure = new ArrayList<String>();
+		final Map<String,String> ecoSubsetClosureMap = new HashMap<String,String>();
+		String ecoSubsetClosureMapJson = null;
+
+		private void addToSolrDocument(SolrInputDocument annotation_doc) {
+			if (ecoId == null) {
+				return;
+			}
+			// add to doc, use copies as the lists are shared between documents
+			annotation_doc.addField("evidence", ecoId);
+
+			if(ecoLbl != null) {
+				annotation_doc.addField("evidence_label", ecoLbl);
+			}
+
+			if (ecoClosureMap.isEmpty() == false) {
+				annotation_doc.addField("evidence_closure", new ArrayList<String>(ecoIDClosure));
+				annotation_doc.addField("evidence_closure_label", new ArrayList<String>(ecoLabelClosure));
+				annotation_doc.addField("evidence_closure_map", ecoClosureMapJson);
+			}
+
+			if (ecoSubsetClosureMap.isEmpty() == false) {
+				annotation_doc.addField("evidence_subset_closure", new ArrayList<String>(ecoSubsetIDClosure));
+				annotation_doc.addField("evidence_subset_closure_label", new ArrayList<String>(ecoSubsetLabelClosure));
+				annotation_doc.addField("evidence_subset_closure_map", ecoSubsetClosureMapJson);
+			}
+		}
 	}
 
 	/**
@@ -645,6 +723,23 @@ public class GafSolrDocumentLoader extends AbstractSolrLoader {
 		if (evidence == null) {
 			return; // do nothing
 		}
+		EcoDetails details = ecoDetailsCache.get(evidence);
+		if (details == null) {
+			details = createEcoDetails(evidence);
+			if (details == null) {
+				return;
+			}
+			ecoDetailsCache.put(evidence, details);
+		}
+		details.addToSolrDocument(annotation_doc);
+	}
+
+	/**
+	 * @param evidence
+	 * @return details, empty details for unknown GO codes or null for an unknown class
+	 */
+	private EcoDetails createEcoDetails(String evidence) {
+		final EcoDetails details = new EcoDetails();
 		// translate evidence to an OWLClass
 		final OWLClass ecoCls;
 		final Set<OWLClass> ecoClasses;
@@ -657,71 +752,46 @@ public class GafSolrDocumentLoader extends AbstractSolrLoader {
 			// try to parse as GO-Code
 			ecoClasses = eco.getClassesForGoCode(evidence);
 			if (ecoClasses.isEmpty()) {
-				return;
+				return details;
 			}
 			ecoCls = ecoClasses.iterator().next();
 		}
 
 		if (ecoCls == null) {
 			LOG.error("Could not find class for evidence: "+evidence);
-			return;
+			return null;
 		}
 
 		// prepare data
 		final String ecoId = graph.getIdentifier(ecoCls.getIRI());
 		final String ecoLbl = graph.getLabel(ecoCls);
-
-		// Evidence type closure.
-		final List<String> ecoIDClosure = new ArrayList<String>();
-		final List<String> ecoLabelClosure = new ArrayList<String>();
-		final Map<String,String> ecoClosureMap = new HashMap<String,String>();
-
-		// subset reflexive closure
-		final List<String> ecoSubsetIDClosure = new ArrayList<String>();
-		final List<String> ecoSubsetLabelClosure = new ArrayList<String>();
-		final Map<String,String> ecoSubsetClosureMap = new HashMap<String,String>();
+		details.ecoId = ecoId;
+		details.ecoLbl = ecoLbl;
 
 		Set<OWLClass> ecoSuper = eco.getAncestors(ecoClasses, true);
 		for( OWLClass cls : ecoSuper ){
 			String currentId = graph.getIdentifier(cls.getIRI());
 			String currentLbl = graph.getLabel(cls);
-			ecoIDClosure.add(currentId);
-			ecoLabelClosure.add(currentLbl);
-			ecoClosureMap.put(currentId, currentLbl);
+			details.ecoIDClosure.add(currentId);
+			details.ecoLabelClosure.add(currentLbl);
+			details.ecoClosureMap.put(currentId, currentLbl);
 
 			List<String> subsets = graph.getSubsets(cls);
 			if (ecoSubsetName != null && subsets.contains(ecoSubsetName)) {
-				ecoSubsetIDClosure.add(currentId);
-				ecoSubsetLabelClosure.add(currentLbl);
-				ecoSubsetClosureMap.put(currentId, currentLbl);
+				details.ecoSubsetIDClosure.add(currentId);
+				details.ecoSubsetLabelClosure.add(currentLbl);
+				details.ecoSubsetClosureMap.put(currentId, currentLbl);
 			}
 		}
 
 		if (ecoSubsetName != null) {
-			ecoSubsetIDClosure.add(ecoId);
-			ecoSubsetLabelClosure.add(ecoLbl);
-			ecoSubsetClosureMap.put(ecoId, ecoLbl);
+			details.ecoSubsetIDClosure.add(ecoId);
+			details.ecoSubsetLabelClosure.add(ecoLbl);
+			details.ecoSubsetClosureMap.put(ecoId, ecoLbl);
 		}
-
-		// add to doc
-		annotation_doc.addField("evidence", ecoId);
-
-		if(ecoLbl != null) {
-			annotation_doc.addField("evidence_label", ecoLbl);
-		}
-
-		if (ecoClosureMap.isEmpty() == false) {
-			annotation_doc.addField("evidence_closure", ecoIDClosure);
-			annotation_doc.addField("evidence_closure_label", ecoLabelClosure);
-			annotation_doc.addField("evidence_closure_map", gson.toJson(ecoClosureMap));
-		}
-
-		if (ecoSubsetClosureMap.isEmpty() == false) {
-			annotation_doc.addField("evidence_subset_closure", ecoSubsetIDClosure);
-			annotation_doc.addField("evidence_subset_closure_label", ecoSubsetLabelClosure);
-			annotation_doc.addField("evidence_subset_closure_map", gson.toJson(ecoSubsetClosureMap));
-		}
-
+		details.ecoClosureMapJson = gson.toJson(details.ecoClosureMap);
+		details.ecoSubsetClosureMapJson = gson.toJson(details.ecoSubsetClosureMap);
+		return details;
 	}
 
 }
@@ -86,6 +86,7 @@ public class ModelAnnotationSolrDocumentLoader extends AbstractSolrLoader implem
 	private final Set<String> requiredModelStates;
 	private boolean skipDeprecatedModels;
 	private boolean skipTemplateModels;
+	private RelationClosureTable closureTable = null;
 
 	public ModelAnnotationSolrDocumentLoader(String golrUrl, OWLOntology model, OWLReasoner r, String modelUrl, 
 			Set<String> modelFilter, boolean skipDeprecatedModels, boolean skipTemplateModels) throws MalformedURLException {
@@ -107,8 +108,7 @@ public class ModelAnnotationSolrDocumentLoader extends AbstractSolrLoader implem
 		partOf = OBOUpperVocabulary.BFO_part_of.getObjectProperty(df);
 		occursIn = OBOUpperVocabulary.BFO_occurs_in.getObjectProperty(df);
 		
-		defaultClosureRelations = new ArrayList<String>(1);
-		defaultClosureRelations.add(graph.getIdentifier(partOf));
+		defaultClosureRelations = getDefaultClosureRelations(graph);
 		
 		enabledBy = OBOUpperVocabulary.GOREL_enabled_by.getObjectProperty(df);
 		
@@ -132,6 +132,41 @@ public class ModelAnnotationSolrDocumentLoader extends AbstractSolrLoader implem
 		bpSet = getAspect(graph, "biological_process");
 	}
 
+	/**
+	 * @param graph
+	 * @return relations used for the closure fields
+	 */
+	public static List<String> getDefaultClosureRelations(OWLGraphWrapper graph) {
+		List<String> relations = new ArrayList<String>(1);
+		relations.add(graph.getIdentifier(OBOUpperVocabulary.BFO_part_of.getObjectProperty(graph.getDataFactory())));
+		return relations;
+	}
+
+	/**
+	 * Use pre-computed closures, shared between models. Classes missing from
+	 * the table are looked up in the model.
+	 * 
+	 * @param closureTable
+	 * @throws IllegalArgumentException if the table was built for other relations
+	 */
+	public void setClosureTable(RelationClosureTable closureTable) {
+		if (closureTable != null && !closureTable.getRelationIds().equals(defaultClosureRelations)) {
+			throw new IllegalArgumentException("Closure table relations "+closureTable.getRelationIds()+
+					" do not match "+defaultClosureRelations);
+		}
+		this.closureTable = closureTable;
+	}
+
+	private RelationClosureTable.Closure getClosure(OWLClass c) {
+		if (closureTable != null) {
+			RelationClosureTable.Closure closure = closureTable.getClosure(c);
+			if (closure != null) {
+				return closure;
+			}
+		}
+		return RelationClosureTable.Closure.create(graph.getRelationClosureMap(c, defaultClosureRelations));
+	}
+
 	static Set<OWLClass> getAspect(OWLGraphWrapper graph, String aspect) {
 		Set<OWLClass> result = new HashSet<OWLClass>();
 		for(OWLClass cls : graph.getAllOWLClasses()) {
@@ -570,9 +605,10 @@ public class ModelAnnotationSolrDocumentLoader extends AbstractSolrLoader implem
 		final String gpLabel = getLabel(gpType, graph);
 		final String mfId = getId(mfType, graph);
 		final String mfLabel = getLabel(mfType, graph);
-		final Map<String, String> mfClosureMap = graph.getRelationClosureMap(mfType, defaultClosureRelations);
-		final Set<String> mfClosure = mfClosureMap.keySet();
-		final Set<String> mfClosureLabel = new HashSet<String>(mfClosureMap.values());
+		final RelationClosureTable.Closure mfClosureEntry = getClosure(mfType);
+		final Map<String, String> mfClosureMap = mfClosureEntry.getMap();
+		final List<String> mfClosure = mfClosureEntry.getIds();
+		final List<String> mfClosureLabel = mfClosureEntry.getLabels();
 
 
 		doc.addField("document_category", "model_annotation");
@@ -712,9 +748,10 @@ public class ModelAnnotationSolrDocumentLoader extends AbstractSolrLoader implem
 		if (bpType != null) {
 			final String bpId = getId(bpType, graph);
 			final String bpLabel = getLabel(bpType, graph);
-			final Map<String, String> bpClosureMap = graph.getRelationClosureMap(bpType, defaultClosureRelations);
-			final Set<String> bpClosure = bpClosureMap.keySet();
-			final Set<String> bpClosureLabels = new HashSet<String>(bpClosureMap.values());
+			final RelationClosureTable.Closure bpClosureEntry = getClosure(bpType);
+			final Map<String, String> bpClosureMap = bpClosureEntry.getMap();
+			final List<String> bpClosure = bpClosureEntry.getIds();
+			final List<String> bpClosureLabels = bpClosureEntry.getLabels();
 			//  - id: process_class
 			//    description: Process acc/ID.
 			//    display_name: Process
@@ -757,7 +794,7 @@ public class ModelAnnotationSolrDocumentLoader extends AbstractSolrLoader implem
 				String locationLabel = getLabel(location, graph);
 				locationList.add(locationId);
 				locationLabelList.add(locationLabel);
-				locationClosureMap.putAll(graph.getRelationClosureMap(location, defaultClosureRelations));
+				locationClosureMap.putAll(getClosure(location).getMap());
 				ecoClass = processAnnotations(entry.getValue().getRight(), ecoClass, allReferences, allWiths, allComments, allContributors, allOtherAnnotationValues);
 			}
 			Set<String> locationClosure = locationClosureMap.keySet();
@@ -808,9 +845,10 @@ public class ModelAnnotationSolrDocumentLoader extends AbstractSolrLoader implem
 		if (ecoClass != null) {
 			String evidenceId = getId(ecoClass, graph);
 			String evidenceLabel = getLabel(ecoClass, graph);
-			Map<String, String> evidenceClosureMap = graph.getRelationClosureMap(ecoClass, defaultClosureRelations);
-			Set<String> evidenceClosure = evidenceClosureMap.keySet();
-			Set<String> evidenceClosureLabels = new HashSet<String>(evidenceClosureMap.values());
+			RelationClosureTable.Closure evidenceClosureEntry = getClosure(ecoClass);
+			Map<String, String> evidenceClosureMap = evidenceClosureEntry.getMap();
+			List<String> evidenceClosure = evidenceClosureEntry.getIds();
+			List<String> evidenceClosureLabels = evidenceClosureEntry.getLabels();
 			
 			//  - id: evidence_type
 			//    description: "Evidence type."
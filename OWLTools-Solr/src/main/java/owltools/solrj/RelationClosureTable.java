@@ -0,0 +1,166 @@
+package owltools.solrj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.semanticweb.owlapi.model.OWLClass;
+
+import owltools.graph.OWLGraphWrapper;
+
+/**
+ * Immutable table of pre-computed relation closures, see
+ * {@link OWLGraphWrapper#getRelationClosureMap(org.semanticweb.owlapi.model.OWLObject, List)}.
+ *
+ * The table is built once from a graph and can then be shared between
+ * loaders and threads. Ids and labels are interned, so that closures of
+ * different classes share their strings.
+ */
+public class RelationClosureTable {
+
+	private static Logger LOG = Logger.getLogger(RelationClosureTable.class);
+
+	/**
+	 * Closure of a single class: ids with their labels.
+	 */
+	public static final class Closure {
+
+		private final String[] ids;
+		private final String[] labels;
+		private final Map<String, String> map;
+		private final List<String> distinctLabels;
+
+		Closure(String[] ids, String[] labels) {
+			this.ids = ids;
+			this.labels = labels;
+			Map<String, String> m = new HashMap<String, String>();
+			Set<String> l = new LinkedHashSet<String>();
+			for (int i = 0; i < ids.length; i++) {
+				m.put(ids[i], labels[i]);
+				l.add(labels[i]);
+			}
+			this.map = Collections.unmodifiableMap(m);
+			this.distinctLabels = Collections.unmodifiableList(new ArrayList<String>(l));
+		}
+
+		/**
+		 * Create a closure from a map of ids to labels.
+		 *
+		 * @param closureMap
+		 * @return closure
+		 */
+		public static Closure create(Map<String, String> closureMap) {
+			return create(closureMap, null);
+		}
+
+		private static Closure create(Map<String, String> closureMap, Map<String, String> interned) {
+			String[] ids = new String[closureMap.size()];
+			String[] labels = new String[closureMap.size()];
+			int i = 0;
+			for (Entry<String, String> e : closureMap.entrySet()) {
+				ids[i] = intern(e.getKey(), interned);
+				labels[i] = intern(e.getValue(), interned);
+				i++;
+			}
+			return new Closure(ids, labels);
+		}
+
+		/**
+		 * @return ids, including the class itself
+		 */
+		public List<String> getIds() {
+			return Collections.unmodifiableList(Arrays.asList(ids));
+		}
+
+		/**
+		 * @return distinct labels
+		 */
+		public List<String> getLabels() {
+			return distinctLabels;
+		}
+
+		/**
+		 * @return unmodifiable map of ids to labels
+		 */
+		public Map<String, String> getMap() {
+			return map;
+		}
+
+		public int size() {
+			return ids.length;
+		}
+	}
+
+	private final List<String> relationIds;
+	private final Map<OWLClass, Closure> closures;
+
+	private RelationClosureTable(List<String> relationIds, Map<OWLClass, Closure> closures) {
+		this.relationIds = relationIds;
+		this.closures = closures;
+	}
+
+	/**
+	 * Pre-compute the closures for the given classes. This traverses the graph
+	 * once per class, the graph is not used afterwards.
+	 *
+	 * @param graph
+	 * @param relationIds
+	 * @param classes
+	 * @return table
+	 */
+	public static RelationClosureTable build(OWLGraphWrapper graph, List<String> relationIds, Collection<OWLClass> classes) {
+		long t = System.currentTimeMillis();
+		List<String> relations = Collections.unmodifiableList(new ArrayList<String>(relationIds));
+		Map<String, String> interned = new HashMap<String, String>();
+		Map<OWLClass, Closure> closures = new HashMap<OWLClass, Closure>();
+		for (OWLClass c : classes) {
+			if (c.isBuiltIn()) {
+				continue;
+			}
+			Map<String, String> closureMap = graph.getRelationClosureMapEngine(c, relations);
+			closures.put(c, Closure.create(closureMap, interned));
+		}
+		LOG.info("Created closure table for " + closures.size() + " classes and relations " + relations +
+				" in " + (System.currentTimeMillis() - t) + " ms");
+		return new RelationClosureTable(relations, closures);
+	}
+
+	/**
+	 * @return relations used for the closures
+	 */
+	public List<String> getRelationIds() {
+		return relationIds;
+	}
+
+	/**
+	 * @param c
+	 * @return closure or null, if the class is not in the table
+	 */
+	public Closure getClosure(OWLClass c) {
+		return closures.get(c);
+	}
+
+	public int size() {
+		return closures.size();
+	}
+
+	private static String intern(String s, Map<String, String> interned) {
+		if (s == null || interned == null) {
+			return s;
+		}
+		String prev = interned.get(s);
+		if (prev == null) {
+			interned.put(s, s);
+			return s;
+		}
+		return prev;
+	}
+}
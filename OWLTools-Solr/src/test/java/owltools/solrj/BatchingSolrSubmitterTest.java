@@ -0,0 +1,119 @@
+package owltools.solrj;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.util.NamedList;
+import org.junit.Test;
+
+public class BatchingSolrSubmitterTest {
+
+	/**
+	 * Records the added documents and the number of commits.
+	 */
+	@SuppressWarnings("serial")
+	static class RecordingSolrServer extends SolrServer {
+
+		final List<String> ids = Collections.synchronizedList(new ArrayList<String>());
+		final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+		volatile int commits = 0;
+		volatile boolean fail = false;
+
+		@Override
+		public NamedList<Object> request(SolrRequest request) throws SolrServerException, IOException {
+			if (fail) {
+				throw new SolrServerException("test failure");
+			}
+			List<SolrInputDocument> docs = ((UpdateRequest) request).getDocuments();
+			if (docs == null) {
+				commits++;
+			}
+			else {
+				batchSizes.add(docs.size());
+				for (SolrInputDocument doc : docs) {
+					ids.add((String) doc.getFieldValue("id"));
+				}
+			}
+			return new NamedList<Object>();
+		}
+	}
+
+	private static List<SolrInputDocument> createDocs(String prefix, int n) {
+		List<SolrInputDocument> docs = new ArrayList<SolrInputDocument>();
+		for (int i = 0; i < n; i++) {
+			SolrInputDocument doc = new SolrInputDocument();
+			doc.addField("id", prefix + i);
+			docs.add(doc);
+		}
+		return docs;
+	}
+
+	@Test
+	public void testConcurrentSubmit() throws Exception {
+		RecordingSolrServer server = new RecordingSolrServer();
+		final BatchingSolrSubmitter submitter = new BatchingSolrSubmitter(server, 10, 50);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for (int t = 0; t < 8; t++) {
+			final String prefix = "doc-" + t + "-";
+			futures.add(executor.submit(new Callable<Void>() {
+
+				@Override
+				public Void call() throws Exception {
+					for (int i = 0; i < 5; i++) {
+						submitter.submit(createDocs(prefix + i + "-", 7));
+					}
+					return null;
+				}
+			}));
+		}
+		for (Future<Void> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+		submitter.close();
+
+		assertEquals(8 * 5 * 7, server.ids.size());
+		assertEquals(8 * 5 * 7, submitter.getNumSubmitted());
+		assertEquals(server.ids.size(), new HashSet<String>(server.ids).size());
+		for (int n = 0; n < server.batchSizes.size() - 1; n++) {
+			assertEquals(10, server.batchSizes.get(n).intValue());
+		}
+		assertTrue(server.commits >= 1);
+	}
+
+	@Test
+	public void testFailure() throws Exception {
+		RecordingSolrServer server = new RecordingSolrServer();
+		server.fail = true;
+		BatchingSolrSubmitter submitter = new BatchingSolrSubmitter(server, 10, 50);
+		try {
+			// more documents than the queue can hold, must not block
+			for (int i = 0; i < 20; i++) {
+				submitter.submit(createDocs("doc-" + i + "-", 10));
+			}
+		} catch (IOException e) {
+			// expected, once the failure is detected
+		}
+		try {
+			submitter.close();
+			fail("Expected an IOException");
+		} catch (IOException e) {
+			assertNotNull(e.getCause());
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package owltools.solrj;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLClass;
+
+import owltools.graph.OWLGraphWrapper;
+import owltools.io.ParserWrapper;
+
+public class RelationClosureTableTest {
+
+	static OWLGraphWrapper graph = null;
+
+	@BeforeClass
+	public static void beforeClass() throws Exception {
+		ParserWrapper pw = new ParserWrapper();
+		File testOntology = new File("src/test/resources/topology-test.obo").getCanonicalFile();
+		graph = new OWLGraphWrapper(pw.parseOWL(IRI.create(testOntology)));
+	}
+
+	@Test
+	public void testSameAsGraphClosure() throws Exception {
+		List<String> relations = ModelAnnotationSolrDocumentLoader.getDefaultClosureRelations(graph);
+		assertEquals("BFO:0000050", relations.get(0));
+		RelationClosureTable table = RelationClosureTable.build(graph, relations, graph.getAllOWLClasses());
+		assertTrue(table.size() > 0);
+		for (OWLClass c : graph.getAllOWLClasses()) {
+			if (c.isBuiltIn()) {
+				continue;
+			}
+			Map<String, String> expected = graph.getRelationClosureMap(c, relations);
+			RelationClosureTable.Closure closure = table.getClosure(c);
+			assertNotNull(closure);
+			assertEquals(expected, closure.getMap());
+			assertEquals(expected.keySet(), new HashSet<String>(closure.getIds()));
+			assertEquals(new HashSet<String>(expected.values()), new HashSet<String>(closure.getLabels()));
+			assertEquals(closure.getLabels().size(), new HashSet<String>(closure.getLabels()).size());
+		}
+	}
+}
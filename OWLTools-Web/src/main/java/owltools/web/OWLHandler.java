@@ -566,8 +566,7 @@ public class OWLHandler {
 			Set<OWLObject> taxAncs = graph.getAncestorsReflexive(testTax);
 			LOG.info("Tax ancs: "+taxAncs);
 			for (OWLClass testCls : testClsSet) {
-				Set<OWLGraphEdge> edges = graph.getOutgoingEdgesClosure(testCls);
-				boolean isOk = tce.isClassApplicable(testCls, testTax, edges, taxAncs);
+				boolean isOk = tce.isClassApplicable(testCls, testTax);
 				// TODO - other formats
 				output(testCls);
 				print("\t");
@@ -31,6 +31,7 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
 import owltools.graph.OWLGraphWrapper;
+import owltools.profile.MetricsRegistry;
 import owltools.sim2.OwlSim;
 
 /**
@@ -178,6 +179,9 @@ public class OWLServer extends AbstractHandler
 		// offerings (optional list of values)
 		// for now empty
 
+		// timers and counters
+		jsonObj.put("metrics", MetricsRegistry.getInstance().snapshot());
+
 		try {
 			Gson gson = new GsonBuilder().create();
 			String js = gson.toJson(jsonObj);